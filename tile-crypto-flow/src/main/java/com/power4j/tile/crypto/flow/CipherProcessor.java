@@ -0,0 +1,487 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.flow;
+
+import com.power4j.tile.crypto.core.CipherBatch;
+import com.power4j.tile.crypto.core.CryptoExecutors;
+import com.power4j.tile.crypto.core.QuickDec;
+import com.power4j.tile.crypto.core.QuickEnc;
+import com.power4j.tile.crypto.core.TextDec;
+import com.power4j.tile.crypto.core.TextEnc;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 加解密处理器,把上游的数据分批交给多个工作线程处理,按输入顺序输出<br/>
+ * <ul>
+ * <li>批量处理: 每批数据通过 encryptAll/decryptAll 处理,分摊 Cipher 的获取和初始化</li>
+ * <li>背压: 已接收但还没有输出的数据不超过 bufferSize,下游不请求数据时上游也不会继续发送</li>
+ * <li>分批: 批次满或者有空闲的工作线程时提交,负载低时不会为了凑满批次而等待</li>
+ * <li>失败: 失败批次之前的结果会先输出,然后取消上游并通知下游 onError</li>
+ * </ul>
+ * 只支持一个下游订阅者
+ *
+ * <pre>
+ * CipherProcessor&lt;byte[], byte[]&gt; processor = CipherProcessor.encrypt(cipher).parallelism(4).build();
+ * publisher.subscribe(processor);
+ * processor.subscribe(storage);
+ * </pre>
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ * @param <T> 输入类型
+ * @param <R> 输出类型
+ */
+public class CipherProcessor<T, R> implements Flow.Processor<T, R> {
+
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	private final Function<List<T>, List<R>> batchFunction;
+
+	private final Executor executor;
+
+	private final int parallelism;
+
+	private final int batchSize;
+
+	private final int bufferSize;
+
+	private final int replenishThreshold;
+
+	private final ConcurrentLinkedQueue<T> incoming = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger wip = new AtomicInteger();
+
+	private final AtomicInteger running = new AtomicInteger();
+
+	private final AtomicLong demand = new AtomicLong();
+
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	private volatile Flow.@Nullable Subscriber<? super R> downstream;
+
+	private volatile Flow.@Nullable Subscription upstream;
+
+	private volatile boolean upstreamDone;
+
+	@Nullable private volatile Throwable upstreamError;
+
+	@Nullable private volatile Throwable requestError;
+
+	private volatile boolean cancelled;
+
+	// 以下字段只在 drain 中访问
+
+	private final ArrayDeque<Batch<T, R>> inFlight = new ArrayDeque<>();
+
+	private final ArrayDeque<Batch<T, R>> waiting = new ArrayDeque<>();
+
+	private List<T> pending = new ArrayList<>();
+
+	/**
+	 * 已向上游请求但还没有收到的数量
+	 */
+	private long outstanding;
+
+	/**
+	 * 已接收但还没有输出的数量
+	 */
+	private long buffered;
+
+	private boolean terminated;
+
+	CipherProcessor(Function<List<T>, List<R>> batchFunction, Executor executor, int parallelism, int batchSize,
+			int bufferSize) {
+		this.batchFunction = batchFunction;
+		this.executor = executor;
+		this.parallelism = parallelism;
+		this.batchSize = batchSize;
+		this.bufferSize = bufferSize;
+		this.replenishThreshold = Math.max(1, bufferSize / 4);
+	}
+
+	/**
+	 * 使用批量处理函数创建
+	 * @param batchFunction 批量处理函数,输出与输入一一对应
+	 * @return Builder
+	 * @param <T> 输入类型
+	 * @param <R> 输出类型
+	 */
+	public static <T, R> Builder<T, R> builder(Function<List<T>, List<R>> batchFunction) {
+		return new Builder<>(batchFunction);
+	}
+
+	/**
+	 * 加密,输出密文
+	 * @param cipher 加密
+	 * @return Builder
+	 */
+	public static Builder<byte[], byte[]> encrypt(QuickEnc cipher) {
+		return builder(items -> toList(cipher.encryptAll(items)));
+	}
+
+	/**
+	 * 解密,输出明文,不验证校验和
+	 * @param cipher 解密
+	 * @return Builder
+	 */
+	public static Builder<byte[], byte[]> decrypt(QuickDec cipher) {
+		return builder(items -> toList(cipher.decryptAll(items)));
+	}
+
+	/**
+	 * 文本加密
+	 * @param cipher 加密
+	 * @return Builder
+	 */
+	public static Builder<String, String> encryptText(TextEnc cipher) {
+		return builder(cipher::encryptAll);
+	}
+
+	/**
+	 * 文本解密
+	 * @param cipher 解密
+	 * @return Builder
+	 */
+	public static Builder<String, String> decryptText(TextDec cipher) {
+		return builder(cipher::decryptAll);
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super R> subscriber) {
+		Objects.requireNonNull(subscriber, "subscriber");
+		if (!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+					// nothing to do
+				}
+
+				@Override
+				public void cancel() {
+					// nothing to do
+				}
+			});
+			subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+			return;
+		}
+		subscriber.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+				if (n <= 0) {
+					requestError = new IllegalArgumentException("Request must be positive: " + n);
+				}
+				else {
+					demand.getAndAccumulate(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+				}
+				drain();
+			}
+
+			@Override
+			public void cancel() {
+				cancelled = true;
+				drain();
+			}
+		});
+		downstream = subscriber;
+		drain();
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		if (upstream != null || cancelled) {
+			subscription.cancel();
+			return;
+		}
+		upstream = subscription;
+		drain();
+	}
+
+	@Override
+	public void onNext(T item) {
+		incoming.offer(Objects.requireNonNull(item, "item"));
+		drain();
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		upstreamError = throwable;
+		upstreamDone = true;
+		drain();
+	}
+
+	@Override
+	public void onComplete() {
+		upstreamDone = true;
+		drain();
+	}
+
+	private void drain() {
+		if (wip.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		do {
+			if (!terminated) {
+				drainLoop();
+			}
+			missed = wip.addAndGet(-missed);
+		}
+		while (missed != 0);
+	}
+
+	private void drainLoop() {
+		final Flow.Subscription up = upstream;
+		final Flow.Subscriber<? super R> subscriber = downstream;
+		final Throwable badRequest = requestError;
+		if (cancelled || badRequest != null) {
+			terminate(up);
+			if (!cancelled && badRequest != null && subscriber != null) {
+				subscriber.onError(badRequest);
+			}
+			return;
+		}
+		T item;
+		while ((item = incoming.poll()) != null) {
+			outstanding--;
+			buffered++;
+			pending.add(item);
+			if (pending.size() >= batchSize) {
+				seal();
+			}
+		}
+		if (!pending.isEmpty() && (upstreamDone || (waiting.isEmpty() && running.get() < parallelism))) {
+			seal();
+		}
+		while (!waiting.isEmpty() && running.get() < parallelism) {
+			start(waiting.poll());
+		}
+		if (subscriber != null && emit(up, subscriber)) {
+			return;
+		}
+		if (up != null && !upstreamDone) {
+			long available = bufferSize - buffered - outstanding;
+			if (available >= replenishThreshold) {
+				outstanding += available;
+				up.request(available);
+			}
+		}
+	}
+
+	/**
+	 * 按顺序输出已完成的批次
+	 * @return true 表示已经结束
+	 */
+	private boolean emit(Flow.@Nullable Subscription up, Flow.Subscriber<? super R> subscriber) {
+		final long requested = demand.get();
+		long emitted = 0;
+		Batch<T, R> head;
+		while ((head = inFlight.peek()) != null && head.done) {
+			if (head.failure != null) {
+				terminate(up);
+				subscriber.onError(head.failure);
+				return true;
+			}
+			final List<R> results = head.results;
+			while (emitted < requested && head.cursor < results.size()) {
+				subscriber.onNext(results.get(head.cursor++));
+				emitted++;
+			}
+			if (head.cursor < results.size()) {
+				break;
+			}
+			inFlight.poll();
+		}
+		if (emitted > 0) {
+			buffered -= emitted;
+			if (requested != Long.MAX_VALUE) {
+				demand.addAndGet(-emitted);
+			}
+		}
+		if (upstreamDone && incoming.isEmpty() && pending.isEmpty() && inFlight.isEmpty()) {
+			terminated = true;
+			Throwable error = upstreamError;
+			if (error != null) {
+				subscriber.onError(error);
+			}
+			else {
+				subscriber.onComplete();
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private void seal() {
+		Batch<T, R> batch = new Batch<>(pending);
+		pending = new ArrayList<>(batchSize);
+		inFlight.add(batch);
+		waiting.add(batch);
+	}
+
+	private void start(Batch<T, R> batch) {
+		running.incrementAndGet();
+		try {
+			executor.execute(() -> process(batch));
+		}
+		catch (RejectedExecutionException e) {
+			running.decrementAndGet();
+			batch.failure = e;
+			batch.done = true;
+		}
+	}
+
+	private void process(Batch<T, R> batch) {
+		try {
+			List<R> results = batchFunction.apply(batch.items);
+			if (results.size() != batch.items.size()) {
+				throw new IllegalStateException(
+						"Batch function returned " + results.size() + " results for " + batch.items.size() + " items");
+			}
+			batch.results = results;
+		}
+		catch (Throwable e) {
+			batch.failure = e;
+		}
+		batch.items = new ArrayList<>(0);
+		batch.done = true;
+		running.decrementAndGet();
+		drain();
+	}
+
+	private void terminate(Flow.@Nullable Subscription up) {
+		terminated = true;
+		if (up != null) {
+			up.cancel();
+		}
+		incoming.clear();
+		pending.clear();
+		inFlight.clear();
+		waiting.clear();
+	}
+
+	private static List<byte[]> toList(CipherBatch batch) {
+		List<byte[]> result = new ArrayList<>(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			result.add(batch.get(i));
+		}
+		return result;
+	}
+
+	private static final class Batch<T, R> {
+
+		private List<T> items;
+
+		private List<R> results = new ArrayList<>(0);
+
+		@Nullable private volatile Throwable failure;
+
+		private volatile boolean done;
+
+		private int cursor;
+
+		Batch(List<T> items) {
+			this.items = items;
+		}
+
+	}
+
+	public static final class Builder<T, R> {
+
+		private final Function<List<T>, List<R>> batchFunction;
+
+		private Executor executor = CryptoExecutors.defaultExecutor();
+
+		private int parallelism = Runtime.getRuntime().availableProcessors();
+
+		private int batchSize = DEFAULT_BATCH_SIZE;
+
+		private int bufferSize;
+
+		private Builder(Function<List<T>, List<R>> batchFunction) {
+			this.batchFunction = batchFunction;
+		}
+
+		/**
+		 * 执行批次的线程池,默认 {@link CryptoExecutors#defaultExecutor()}
+		 * @param executor 线程池
+		 * @return this
+		 */
+		public Builder<T, R> executor(Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * 同时处理的批次数量,默认为 CPU 核数
+		 * @param parallelism 必须大于 0
+		 * @return this
+		 */
+		public Builder<T, R> parallelism(int parallelism) {
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * 每批的最大数量,默认 {@link #DEFAULT_BATCH_SIZE}
+		 * @param batchSize 必须大于 0
+		 * @return this
+		 */
+		public Builder<T, R> batchSize(int batchSize) {
+			this.batchSize = batchSize;
+			return this;
+		}
+
+		/**
+		 * 已接收但还没有输出的最大数量,默认为 batchSize * parallelism * 2
+		 * @param bufferSize 不能小于 batchSize
+		 * @return this
+		 */
+		public Builder<T, R> bufferSize(int bufferSize) {
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		public CipherProcessor<T, R> build() {
+			if (parallelism <= 0) {
+				throw new IllegalArgumentException("parallelism must > 0");
+			}
+			if (batchSize <= 0) {
+				throw new IllegalArgumentException("batchSize must > 0");
+			}
+			int buffer = bufferSize > 0 ? bufferSize : batchSize * parallelism * 2;
+			if (buffer < batchSize) {
+				throw new IllegalArgumentException("bufferSize must >= batchSize");
+			}
+			return new CipherProcessor<>(batchFunction, executor, parallelism, batchSize, buffer);
+		}
+
+	}
+
+}
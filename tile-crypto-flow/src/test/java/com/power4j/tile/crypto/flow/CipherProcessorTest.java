@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.flow;
+
+import com.power4j.tile.crypto.bc.BouncyCastleQuickCipher;
+import com.power4j.tile.crypto.bc.Spec;
+import com.power4j.tile.crypto.core.BufferEncoding;
+import com.power4j.tile.crypto.core.GeneralCryptoException;
+import com.power4j.tile.crypto.core.TextCipher;
+import com.power4j.tile.crypto.core.TextCipherBuilder;
+import com.power4j.tile.crypto.utils.Sm4Util;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class CipherProcessorTest {
+
+	private final byte[] testKey = new byte[16];
+
+	private final byte[] testIv = new byte[16];
+
+	private final BouncyCastleQuickCipher cipher = Sm4Util.builder(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+		.secretKey(testKey)
+		.ivParameter(testIv)
+		.threadLocalCipher()
+		.build();
+
+	@Test
+	void shouldKeepInputOrder() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			CipherProcessor<byte[], byte[]> processor = CipherProcessor.encrypt(cipher)
+				.executor(executor)
+				.parallelism(4)
+				.batchSize(8)
+				.build();
+			Collector<byte[]> collector = new Collector<>(7);
+			processor.subscribe(collector);
+			List<byte[]> plains = new ArrayList<>();
+			try (SubmissionPublisher<byte[]> publisher = new SubmissionPublisher<>(executor, 16)) {
+				publisher.subscribe(processor);
+				for (int i = 0; i < 1000; i++) {
+					byte[] plain = ("record-" + i).getBytes(StandardCharsets.UTF_8);
+					plains.add(plain);
+					publisher.submit(plain);
+				}
+			}
+			Assertions.assertTrue(collector.await());
+			Assertions.assertNull(collector.error);
+			Assertions.assertEquals(plains.size(), collector.items.size());
+			for (int i = 0; i < plains.size(); i++) {
+				Assertions.assertArrayEquals(cipher.encrypt(plains.get(i)).getCipher(), collector.items.get(i));
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void shouldHonourBackpressure() throws Exception {
+		CipherProcessor<byte[], byte[]> processor = CipherProcessor.encrypt(cipher)
+			.executor(Runnable::run)
+			.parallelism(2)
+			.batchSize(4)
+			.bufferSize(16)
+			.build();
+		AtomicLong requested = new AtomicLong();
+		processor.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+				requested.addAndGet(n);
+			}
+
+			@Override
+			public void cancel() {
+				// nothing to do
+			}
+		});
+		Assertions.assertEquals(16, requested.get());
+		Collector<byte[]> collector = new Collector<>(0);
+		processor.subscribe(collector);
+		for (int i = 0; i < 16; i++) {
+			processor.onNext(new byte[] { (byte) i });
+		}
+		// 下游没有请求数据,缓冲区已满,不会继续向上游请求
+		Assertions.assertEquals(16, requested.get());
+		Assertions.assertTrue(collector.items.isEmpty());
+
+		collector.subscription.request(10);
+		Assertions.assertEquals(10, collector.items.size());
+		Assertions.assertEquals(26, requested.get());
+		collector.subscription.request(Long.MAX_VALUE);
+		Assertions.assertEquals(16, collector.items.size());
+		processor.onComplete();
+		Assertions.assertTrue(collector.await());
+	}
+
+	@Test
+	void failureShouldFollowEarlierResults() throws Exception {
+		CipherProcessor<byte[], byte[]> processor = CipherProcessor.decrypt(cipher)
+			.executor(Runnable::run)
+			.batchSize(1)
+			.build();
+		Collector<byte[]> collector = new Collector<>(Long.MAX_VALUE);
+		processor.subscribe(collector);
+		AtomicLong cancelled = new AtomicLong();
+		processor.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+				// nothing to do
+			}
+
+			@Override
+			public void cancel() {
+				cancelled.incrementAndGet();
+			}
+		});
+		byte[] valid = cipher.encrypt("ok".getBytes(StandardCharsets.UTF_8)).getCipher();
+		processor.onNext(valid);
+		processor.onNext(new byte[15]);
+		processor.onNext(valid);
+		Assertions.assertTrue(collector.await());
+		Assertions.assertEquals(1, collector.items.size());
+		Assertions.assertTrue(collector.error instanceof GeneralCryptoException);
+		Assertions.assertEquals(1, cancelled.get());
+	}
+
+	@Test
+	void textRoundTrip() throws Exception {
+		TextCipherBuilder builder = TextCipherBuilder.sm4Cbc()
+			.cipher(c -> c.secretKey(testKey).ivParameter(testIv))
+			.inputEncoding(BufferEncoding.UTF_8)
+			.outputEncoding(BufferEncoding.BASE64);
+		TextCipher enc = builder.build();
+		TextCipher dec = builder.reversedEncoder().build();
+		CipherProcessor<String, String> encrypt = CipherProcessor.encryptText(enc).parallelism(3).batchSize(5).build();
+		CipherProcessor<String, String> decrypt = CipherProcessor.decryptText(dec).parallelism(3).batchSize(7).build();
+		encrypt.subscribe(decrypt);
+		Collector<String> collector = new Collector<>(3);
+		decrypt.subscribe(collector);
+		List<String> plains = new ArrayList<>();
+		try (SubmissionPublisher<String> publisher = new SubmissionPublisher<>()) {
+			publisher.subscribe(encrypt);
+			for (int i = 0; i < 500; i++) {
+				plains.add("你好-" + i);
+				publisher.submit(plains.get(i));
+			}
+		}
+		Assertions.assertTrue(collector.await());
+		Assertions.assertEquals(plains, collector.items);
+
+		Collector<String> second = new Collector<>(1);
+		encrypt.subscribe(second);
+		Assertions.assertTrue(second.error instanceof IllegalStateException);
+	}
+
+	static class Collector<T> implements Flow.Subscriber<T> {
+
+		private final long batch;
+
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		final List<T> items = Collections.synchronizedList(new ArrayList<>());
+
+		volatile Flow.Subscription subscription;
+
+		volatile Throwable error;
+
+		private long received;
+
+		Collector(long batch) {
+			this.batch = batch;
+		}
+
+		boolean await() throws InterruptedException {
+			return done.await(30, TimeUnit.SECONDS);
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (batch > 0) {
+				subscription.request(batch);
+			}
+		}
+
+		@Override
+		public void onNext(T item) {
+			items.add(item);
+			if (batch > 0 && batch != Long.MAX_VALUE && ++received % batch == 0) {
+				subscription.request(batch);
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			done.countDown();
+		}
+
+	}
+
+}
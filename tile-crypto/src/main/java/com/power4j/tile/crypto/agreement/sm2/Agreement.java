@@ -16,6 +16,9 @@
 
 package com.power4j.tile.crypto.agreement.sm2;
 
+import com.power4j.tile.crypto.metrics.CryptoEvent;
+import com.power4j.tile.crypto.metrics.CryptoEventType;
+import com.power4j.tile.crypto.metrics.CryptoEvents;
 import com.power4j.tile.crypto.utils.Sm2Util;
 import lombok.experimental.UtilityClass;
 import org.apache.commons.lang3.StringUtils;
@@ -25,6 +28,7 @@ import org.bouncycastle.crypto.params.ECPublicKeyParameters;
 import org.bouncycastle.crypto.params.ParametersWithID;
 import org.bouncycastle.crypto.params.SM2KeyExchangePublicParameters;
 import org.bouncycastle.util.encoders.Hex;
+import org.jspecify.annotations.Nullable;
 
 /**
  * @author CJ (power4j@outlook.com)
@@ -50,12 +54,21 @@ public class Agreement {
 	 */
 	public Pair<byte[], ExchangeRequest> generateKeyAndExchangeRequest(ExchangeContext context, int keyLen,
 			ExchangeRequest request) {
-		byte[][] result = context.exchanger(false)
-			.calculateKeyWithConfirmation(keyLen, null, calculateKeyParam(request));
-		assert result.length >= 2;
-		byte[] key = result[0];
-		byte[] confirm = result[1];
-		return Pair.of(key, context.share(Hex.toHexString(confirm)));
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.AGREEMENT);
+		boolean success = false;
+		try {
+			byte[][] result = context.exchanger(false)
+				.calculateKeyWithConfirmation(keyLen, null, calculateKeyParam(request));
+			assert result.length >= 2;
+			byte[] key = result[0];
+			byte[] confirm = result[1];
+			Pair<byte[], ExchangeRequest> pair = Pair.of(key, context.share(Hex.toHexString(confirm)));
+			success = true;
+			return pair;
+		}
+		finally {
+			commit(event, "responder", keyLen, success);
+		}
 	}
 
 	/**
@@ -69,8 +82,23 @@ public class Agreement {
 		if (StringUtils.isNotEmpty(request.getConfirmation())) {
 			tag = Hex.decodeStrict(request.getConfirmation());
 		}
-		byte[][] result = context.exchanger(true).calculateKeyWithConfirmation(keyLen, tag, calculateKeyParam(request));
-		return result[0];
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.AGREEMENT);
+		boolean success = false;
+		try {
+			byte[][] result = context.exchanger(true)
+				.calculateKeyWithConfirmation(keyLen, tag, calculateKeyParam(request));
+			success = true;
+			return result[0];
+		}
+		finally {
+			commit(event, "initiator", keyLen, success);
+		}
+	}
+
+	private void commit(@Nullable CryptoEvent event, String operation, int keyLen, boolean success) {
+		if (event != null) {
+			event.commit(operation, "SM2", null, keyLen, success, null);
+		}
 	}
 
 	ParametersWithID calculateKeyParam(ExchangeRequest request) {
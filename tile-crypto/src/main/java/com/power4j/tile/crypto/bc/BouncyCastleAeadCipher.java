@@ -0,0 +1,303 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.bc;
+
+import com.power4j.tile.crypto.core.CipherBatch;
+import com.power4j.tile.crypto.core.CipherBlobDetails;
+import com.power4j.tile.crypto.core.GeneralCryptoException;
+import com.power4j.tile.crypto.core.IncrementalChecksum;
+import com.power4j.tile.crypto.core.RandomIvSupplier;
+import com.power4j.tile.crypto.core.Slice;
+import com.power4j.tile.crypto.core.StreamCipherDetails;
+import com.power4j.tile.crypto.core.UncheckedCipher;
+import com.power4j.tile.crypto.core.Verified;
+import com.power4j.tile.crypto.engine.CipherEngine;
+import com.power4j.tile.crypto.io.CipherPipeline;
+import com.power4j.tile.crypto.metrics.CryptoMetrics;
+import com.power4j.tile.crypto.utils.CryptoUtil;
+import org.jspecify.annotations.Nullable;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * 认证加密(GCM/CCM),一次处理同时完成加密和完整性保护,认证标签(tag)作为校验和输出<br/>
+ * <ul>
+ * <li>{@link CipherBlobDetails#getCipher()} 只包含密文,认证标签保存在
+ * {@link CipherBlobDetails#getChecksum()}</li>
+ * <li>解密时如果没有提供校验和,认为认证标签追加在密文之后(密文||标签)</li>
+ * <li>认证不能跳过,skipCheck 参数无效</li>
+ * <li>同一个密钥下 IV(nonce)不能重复使用,默认每次加密使用随机 IV,解密时通过 {@link UncheckedCipher#getIv()} 传入</li>
+ * </ul>
+ * 只有 {@link #encrypt(byte[], int, int)},{@link #decrypt(UncheckedCipher, boolean)} 以及
+ * {@link #seal(byte[])}, {@link #open(byte[])} 携带
+ * IV,不支持其他的加解密方法(写入指定缓冲区,ByteBuffer,流式处理,文件处理和批量处理)
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public class BouncyCastleAeadCipher extends BouncyCastleQuickCipher {
+
+	/**
+	 * 默认的认证标签长度(字节)
+	 */
+	public static final int DEFAULT_TAG_LENGTH = 16;
+
+	/**
+	 * 默认的 IV(nonce) 长度(字节)
+	 */
+	public static final int DEFAULT_IV_LENGTH = 12;
+
+	private final int tagLength;
+
+	private final int ivLength;
+
+	/**
+	 * 构造,IV 长度取 {@link RandomIvSupplier#getLength()},其他 IV 生成器使用默认值
+	 * @param cipherPool Cipher 实例的并发策略
+	 * @param keySupplier 密钥
+	 * @param ivParameterSpecSupplier IV(nonce),GCM 推荐 12 字节,CCM 为 7 到 13 字节
+	 * @param tagLength 认证标签长度(字节)
+	 */
+	public BouncyCastleAeadCipher(CipherPool cipherPool, Supplier<SecretKeySpec> keySupplier,
+			Supplier<IvParameterSpec> ivParameterSpecSupplier, int tagLength) {
+		this(cipherPool, keySupplier, ivParameterSpecSupplier,
+				ivParameterSpecSupplier instanceof RandomIvSupplier
+						? ((RandomIvSupplier) ivParameterSpecSupplier).getLength() : DEFAULT_IV_LENGTH,
+				tagLength, null);
+	}
+
+	/**
+	 * 构造
+	 * @param cipherPool Cipher 实例的并发策略
+	 * @param keySupplier 密钥
+	 * @param ivParameterSpecSupplier IV(nonce),GCM 推荐 12 字节,CCM 为 7 到 13 字节
+	 * @param ivLength IV 长度(字节),{@link #open(byte[])} 按此长度解析,生成器返回的 IV 必须是这个长度
+	 * @param tagLength 认证标签长度(字节)
+	 * @param metrics 可选,指标记录
+	 */
+	public BouncyCastleAeadCipher(CipherPool cipherPool, Supplier<SecretKeySpec> keySupplier,
+			Supplier<IvParameterSpec> ivParameterSpecSupplier, int ivLength, int tagLength,
+			@Nullable CryptoMetrics metrics) {
+		super(cipherPool, keySupplier, ivParameterSpecSupplier, CryptoUtil.EMPTY_CHECKSUM_CALCULATOR,
+				CryptoUtil.IGNORED_CHECKSUM_VERIFIER, null, null, 0, metrics);
+		this.tagLength = tagLength;
+		this.ivLength = ivLength;
+	}
+
+	/**
+	 * 是否为认证加密模式
+	 * @param mode 模式
+	 * @return true 表示 GCM 或者 CCM
+	 */
+	public static boolean isAeadMode(String mode) {
+		return Spec.MODE_GCM.equalsIgnoreCase(mode) || Spec.MODE_CCM.equalsIgnoreCase(mode);
+	}
+
+	public int getTagLength() {
+		return tagLength;
+	}
+
+	/**
+	 * 加密并输出自包含的数据: IV||密文||认证标签
+	 * @param data 明文
+	 * @return 加密结果
+	 * @throws GeneralCryptoException
+	 * @see #open(byte[])
+	 */
+	public byte[] seal(byte[] data) throws GeneralCryptoException {
+		final IvParameterSpec iv = requireIv(ivParameterSpecSupplier.get());
+		final byte[] ivBytes = iv.getIV();
+		if (ivBytes.length != ivLength) {
+			throw new GeneralCryptoException("Invalid IV length: " + ivBytes.length + ", expected " + ivLength);
+		}
+		final byte[] out = new byte[ivBytes.length + data.length + tagLength];
+		System.arraycopy(ivBytes, 0, out, 0, ivBytes.length);
+		doSeal(iv, data, 0, data.length, out, ivBytes.length, out, ivBytes.length + data.length);
+		return out;
+	}
+
+	/**
+	 * 解密 {@link #seal(byte[])} 的输出
+	 * @param sealed IV||密文||认证标签
+	 * @return 明文
+	 * @throws GeneralCryptoException 数据格式错误或者认证失败
+	 */
+	public byte[] open(byte[] sealed) throws GeneralCryptoException {
+		if (sealed.length < ivLength + tagLength) {
+			throw new GeneralCryptoException("Invalid sealed data length: " + sealed.length);
+		}
+		final IvParameterSpec iv = new IvParameterSpec(sealed, 0, ivLength);
+		final byte[] out = new byte[sealed.length - ivLength - tagLength];
+		try {
+			doOpen(iv, sealed, ivLength, sealed.length - ivLength, Slice.wrap(null), out, 0);
+		}
+		catch (GeneralSecurityException e) {
+			throw CryptoUtil.wrapGeneralCryptoException(null, e);
+		}
+		return out;
+	}
+
+	@Override
+	protected CipherBlobDetails doEncrypt(byte[] data, int offset, int length) throws GeneralCryptoException {
+		final IvParameterSpec iv = requireIv(ivParameterSpecSupplier.get());
+		final byte[] encrypted = new byte[length];
+		final byte[] tag = new byte[tagLength];
+		doSeal(iv, data, offset, length, encrypted, 0, tag, 0);
+		return CipherBlobDetails.builder()
+			.algorithm(transformationParts[0])
+			.mode(transformationParts[1])
+			.padding(transformationParts[2])
+			.iv(iv.getIV())
+			.checksum(tag)
+			.cipher(encrypted)
+			.build();
+	}
+
+	@Override
+	protected Verified<byte[]> doDecrypt(UncheckedCipher input, boolean skipCheck) throws GeneralCryptoException {
+		final Slice data = input.getCipher();
+		final Slice tag = input.getChecksum();
+		final byte[] out = new byte[tag.getLength() == 0 ? Math.max(0, data.getLength() - tagLength)
+				: data.getLength()];
+		try {
+			doOpen(decryptIv(input), data.getData(), data.getOffset(), data.getLength(), tag, out, 0);
+		}
+		catch (GeneralSecurityException e) {
+			return Verified.fail(null, e);
+		}
+		return Verified.pass(out);
+	}
+
+	@Override
+	public int encryptOutputSize(int length) {
+		return length;
+	}
+
+	@Override
+	public int checksumLength() {
+		return tagLength;
+	}
+
+	@Override
+	protected int doEncryptInto(byte[] data, int offset, int length, byte[] out, int outOffset,
+			@Nullable byte[] checksum, int checksumOffset) throws GeneralCryptoException {
+		throw new GeneralCryptoException("encryptInto is not supported in AEAD mode");
+	}
+
+	@Override
+	protected int doDecryptInto(byte[] data, int offset, int length, byte[] out, int outOffset,
+			@Nullable byte[] checksum, int checksumOffset, int checksumLength) throws GeneralCryptoException {
+		throw new GeneralCryptoException("decryptInto is not supported in AEAD mode");
+	}
+
+	@Override
+	public int encrypt(ByteBuffer src, ByteBuffer dst, @Nullable ByteBuffer checksum) throws GeneralCryptoException {
+		throw new GeneralCryptoException("ByteBuffer processing is not supported in AEAD mode");
+	}
+
+	@Override
+	public int decrypt(ByteBuffer src, ByteBuffer dst, @Nullable ByteBuffer checksum) throws GeneralCryptoException {
+		throw new GeneralCryptoException("ByteBuffer processing is not supported in AEAD mode");
+	}
+
+	@Override
+	public CipherBatch encryptAll(List<byte[]> data, @Nullable ForkJoinPool pool) throws GeneralCryptoException {
+		throw new GeneralCryptoException("Batch processing is not supported in AEAD mode");
+	}
+
+	@Override
+	public CipherBatch decryptAll(CipherBatch batch, boolean skipCheck, @Nullable ForkJoinPool pool)
+			throws GeneralCryptoException {
+		throw new GeneralCryptoException("Batch processing is not supported in AEAD mode");
+	}
+
+	@Override
+	protected CipherPipeline streamPipeline(int mode, @Nullable IvParameterSpec iv,
+			@Nullable Supplier<IncrementalChecksum> checksum) throws GeneralCryptoException {
+		throw new GeneralCryptoException("Streaming is not supported in AEAD mode");
+	}
+
+	@Override
+	public StreamCipherDetails encrypt(Path source, Path target) throws GeneralCryptoException {
+		throw new GeneralCryptoException("File processing is not supported in AEAD mode");
+	}
+
+	@Override
+	public Verified<StreamCipherDetails> decrypt(Path source, Path target, @Nullable byte[] checksum)
+			throws GeneralCryptoException {
+		throw new GeneralCryptoException("File processing is not supported in AEAD mode");
+	}
+
+	protected int doSeal(IvParameterSpec iv, byte[] data, int offset, int length, byte[] out, int outOffset, byte[] tag,
+			int tagOffset) throws GeneralCryptoException {
+		final SecretKeySpec key = resolveKey();
+		final CipherContext context = cipherPool.acquire();
+		try {
+			CipherEngine cipher = context.getEngine();
+			cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(tagLength * 8, iv.getIV()));
+			int n = cipher.update(data, offset, length, out, outOffset);
+			// 剩余的密文和认证标签
+			byte[] rest = context.scratch(cipher.getOutputSize(0));
+			int m = cipher.doFinal(data, offset + length, 0, rest, 0) - tagLength;
+			System.arraycopy(rest, 0, out, outOffset + n, m);
+			System.arraycopy(rest, m, tag, tagOffset, tagLength);
+			return n + m;
+		}
+		catch (GeneralSecurityException e) {
+			throw CryptoUtil.wrapGeneralCryptoException(null, e);
+		}
+		finally {
+			cipherPool.release(context);
+		}
+	}
+
+	protected int doOpen(@Nullable IvParameterSpec iv, byte[] data, int offset, int length, Slice tag, byte[] out,
+			int outOffset) throws GeneralSecurityException {
+		final SecretKeySpec key = resolveKey();
+		final GCMParameterSpec spec = new GCMParameterSpec(tagLength * 8, requireIv(iv).getIV());
+		final CipherContext context = cipherPool.acquire();
+		try {
+			CipherEngine cipher = context.getEngine();
+			cipher.init(Cipher.DECRYPT_MODE, key, spec);
+			if (tag.getLength() == 0) {
+				return cipher.doFinal(data, offset, length, out, outOffset);
+			}
+			int n = cipher.update(data, offset, length, out, outOffset);
+			return n + cipher.doFinal(tag.getData(), tag.getOffset(), tag.getLength(), out, outOffset + n);
+		}
+		finally {
+			cipherPool.release(context);
+		}
+	}
+
+	private static IvParameterSpec requireIv(@Nullable IvParameterSpec iv) {
+		if (iv == null) {
+			throw new GeneralCryptoException("IV is required in AEAD mode");
+		}
+		return iv;
+	}
+
+}
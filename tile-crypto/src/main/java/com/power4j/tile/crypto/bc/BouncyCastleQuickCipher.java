@@ -16,19 +16,45 @@
 
 package com.power4j.tile.crypto.bc;
 
+import com.power4j.tile.crypto.core.ChecksumStrategy;
+import com.power4j.tile.crypto.core.CipherBatch;
 import com.power4j.tile.crypto.core.CipherBlobDetails;
+import com.power4j.tile.crypto.core.FileCipher;
 import com.power4j.tile.crypto.core.GeneralCryptoException;
+import com.power4j.tile.crypto.core.IncrementalChecksum;
 import com.power4j.tile.crypto.core.QuickCipher;
+import com.power4j.tile.crypto.core.RandomIvSupplier;
 import com.power4j.tile.crypto.core.Slice;
+import com.power4j.tile.crypto.core.StreamCipher;
+import com.power4j.tile.crypto.core.StreamCipherDetails;
 import com.power4j.tile.crypto.core.UncheckedCipher;
 import com.power4j.tile.crypto.core.Verified;
+import com.power4j.tile.crypto.engine.CipherEngine;
+import com.power4j.tile.crypto.io.CipherPipeline;
+import com.power4j.tile.crypto.io.CipherStreams;
+import com.power4j.tile.crypto.metrics.CryptoEvent;
+import com.power4j.tile.crypto.metrics.CryptoEventType;
+import com.power4j.tile.crypto.metrics.CryptoEvents;
+import com.power4j.tile.crypto.metrics.CryptoMetrics;
+import com.power4j.tile.crypto.metrics.OperationMetrics;
 import com.power4j.tile.crypto.utils.CryptoUtil;
 import org.jspecify.annotations.Nullable;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -37,41 +63,235 @@ import java.util.function.Supplier;
  * @author CJ (power4j@outlook.com)
  * @since 1.6
  */
-public class BouncyCastleQuickCipher implements QuickCipher {
+public class BouncyCastleQuickCipher implements QuickCipher, StreamCipher, FileCipher {
 
-	private final Cipher cipher;
+	/**
+	 * 批量处理时单个并行任务处理的最小数量
+	 */
+	private static final int BATCH_GRAIN = 64;
 
-	private final Supplier<SecretKeySpec> keySupplier;
+	/**
+	 * 加解密与校验和融合处理时的分块大小,分块在 L1/L2 缓存中完成加解密和校验和计算
+	 */
+	static final int FUSED_CHUNK_SIZE = 16 * 1024;
 
-	private final Supplier<IvParameterSpec> ivParameterSpecSupplier;
+	protected final CipherPool cipherPool;
 
-	private final String[] transformationParts;
+	protected final Supplier<SecretKeySpec> keySupplier;
+
+	protected final Supplier<IvParameterSpec> ivParameterSpecSupplier;
+
+	/**
+	 * 每次加密使用随机 IV,只有 {@link #encrypt(byte[], int, int)} 和
+	 * {@link #decrypt(UncheckedCipher, boolean)} 携带 IV
+	 */
+	private final boolean randomIv;
+
+	protected final String[] transformationParts;
 
 	private final Function<byte[], byte[]> checksumCalculator;
 
 	private final BiFunction<UncheckedCipher, byte[], Boolean> checksumVerifier;
 
+	@Nullable private final Supplier<IncrementalChecksum> checksumFactory;
+
+	private final int blockSize;
+
+	private final int checksumLength;
+
+	@Nullable private final ParallelBlockCipher parallel;
+
+	@Nullable private final CipherMetrics metrics;
+
+	@Nullable private volatile SecretKeySpec cachedKey;
+
 	public BouncyCastleQuickCipher(String transformation, Supplier<SecretKeySpec> keySupplier,
 			Supplier<IvParameterSpec> ivParameterSpecSupplier, Function<byte[], byte[]> checksumCalculator,
 			BiFunction<UncheckedCipher, byte[], Boolean> checksumVerifier) {
-		this.cipher = CryptoUtil.createCipher(transformation);
-		;
+		this(CipherPool.exclusive(transformation), keySupplier, ivParameterSpecSupplier, checksumCalculator,
+				checksumVerifier, null);
+	}
+
+	public BouncyCastleQuickCipher(CipherPool cipherPool, Supplier<SecretKeySpec> keySupplier,
+			Supplier<IvParameterSpec> ivParameterSpecSupplier, Function<byte[], byte[]> checksumCalculator,
+			BiFunction<UncheckedCipher, byte[], Boolean> checksumVerifier,
+			@Nullable Supplier<IncrementalChecksum> checksumFactory) {
+		this(cipherPool, keySupplier, ivParameterSpecSupplier, checksumCalculator, checksumVerifier, checksumFactory,
+				null, 0);
+	}
+
+	public BouncyCastleQuickCipher(CipherPool cipherPool, Supplier<SecretKeySpec> keySupplier,
+			Supplier<IvParameterSpec> ivParameterSpecSupplier, Function<byte[], byte[]> checksumCalculator,
+			BiFunction<UncheckedCipher, byte[], Boolean> checksumVerifier,
+			@Nullable Supplier<IncrementalChecksum> checksumFactory, @Nullable ForkJoinPool parallelPool,
+			int parallelThreshold) {
+		this(cipherPool, keySupplier, ivParameterSpecSupplier, checksumCalculator, checksumVerifier, checksumFactory,
+				parallelPool, parallelThreshold, null);
+	}
+
+	/**
+	 * 构造
+	 * @param cipherPool Cipher 实例的并发策略
+	 * @param keySupplier 密钥
+	 * @param ivParameterSpecSupplier IV
+	 * @param checksumCalculator 校验和计算函数
+	 * @param checksumVerifier 校验和校验函数
+	 * @param checksumFactory 与 checksumCalculator 等价的增量校验和,为 null 时不支持流式加解密
+	 * @param parallelPool 可选,大数据量分块并行处理(ECB,CTR 以及 CBC 解密)使用的线程池
+	 * @param parallelThreshold 启用并行处理的最小数据长度,小于等于 0 时使用默认值
+	 * @param metrics 可选,指标记录,操作名称以 transformation 为前缀
+	 * @since 1.9
+	 */
+	public BouncyCastleQuickCipher(CipherPool cipherPool, Supplier<SecretKeySpec> keySupplier,
+			Supplier<IvParameterSpec> ivParameterSpecSupplier, Function<byte[], byte[]> checksumCalculator,
+			BiFunction<UncheckedCipher, byte[], Boolean> checksumVerifier,
+			@Nullable Supplier<IncrementalChecksum> checksumFactory, @Nullable ForkJoinPool parallelPool,
+			int parallelThreshold, @Nullable CryptoMetrics metrics) {
+		this.cipherPool = cipherPool;
 		this.keySupplier = keySupplier;
 		this.ivParameterSpecSupplier = ivParameterSpecSupplier;
+		this.randomIv = ivParameterSpecSupplier instanceof RandomIvSupplier;
 		this.checksumCalculator = checksumCalculator;
 		this.checksumVerifier = checksumVerifier;
-		this.transformationParts = transformation.split("/");
+		this.checksumFactory = checksumFactory;
+		this.transformationParts = cipherPool.getTransformation().split("/");
+		final CipherContext context = cipherPool.acquire();
+		try {
+			this.blockSize = context.getEngine().getBlockSize();
+		}
+		finally {
+			cipherPool.release(context);
+		}
+		this.checksumLength = checksumFactory == null ? checksumCalculator.apply(new byte[0]).length
+				: checksumFactory.get().length();
+		this.parallel = parallelPool == null ? null
+				: new ParallelBlockCipher(parallelPool,
+						parallelThreshold > 0 ? parallelThreshold : ParallelBlockCipher.DEFAULT_THRESHOLD,
+						cipherPool.getBackend(), transformationParts[0], transformationParts[1], transformationParts[2],
+						blockSize);
+		this.metrics = metrics == null ? null : new CipherMetrics(metrics, cipherPool.getTransformation());
+	}
+
+	/**
+	 * @return 算法/模式/填充
+	 * @since 1.9
+	 */
+	public String getTransformation() {
+		return cipherPool.getTransformation();
 	}
 
 	@Override
 	public CipherBlobDetails encrypt(byte[] data, int offset, int length) throws GeneralCryptoException {
+		final OperationMetrics m = metrics == null ? null : metrics.encrypt;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		if (m == null && event == null) {
+			return doEncrypt(data, offset, length);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			CipherBlobDetails result = doEncrypt(data, offset, length);
+			success = true;
+			return result;
+		}
+		finally {
+			record(m, event, "encrypt", length, start, success);
+		}
+	}
+
+	@Override
+	public Verified<byte[]> decrypt(UncheckedCipher input, boolean skipCheck) throws GeneralCryptoException {
+		final OperationMetrics m = metrics == null ? null : metrics.decrypt;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		if (m == null && event == null) {
+			return doDecrypt(input, skipCheck);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			Verified<byte[]> result = doDecrypt(input, skipCheck);
+			success = result.isPass();
+			return result;
+		}
+		finally {
+			record(m, event, "decrypt", input.getCipher().getLength(), start, success);
+		}
+	}
+
+	@Override
+	public int encryptInto(byte[] data, int offset, int length, byte[] out, int outOffset, @Nullable byte[] checksum,
+			int checksumOffset) throws GeneralCryptoException {
+		requireFixedIv("encryptInto");
+		final OperationMetrics m = metrics == null ? null : metrics.encryptInto;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		if (m == null && event == null) {
+			return doEncryptInto(data, offset, length, out, outOffset, checksum, checksumOffset);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			int n = doEncryptInto(data, offset, length, out, outOffset, checksum, checksumOffset);
+			success = true;
+			return n;
+		}
+		finally {
+			record(m, event, "encryptInto", length, start, success);
+		}
+	}
+
+	@Override
+	public int decryptInto(byte[] data, int offset, int length, byte[] out, int outOffset, @Nullable byte[] checksum,
+			int checksumOffset, int checksumLength) throws GeneralCryptoException {
+		requireFixedIv("decryptInto");
+		final OperationMetrics m = metrics == null ? null : metrics.decryptInto;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		if (m == null && event == null) {
+			return doDecryptInto(data, offset, length, out, outOffset, checksum, checksumOffset, checksumLength);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			int n = doDecryptInto(data, offset, length, out, outOffset, checksum, checksumOffset, checksumLength);
+			success = true;
+			return n;
+		}
+		finally {
+			record(m, event, "decryptInto", length, start, success);
+		}
+	}
+
+	private void record(@Nullable OperationMetrics m, @Nullable CryptoEvent event, String operation, long bytes,
+			long start, boolean success) {
+		if (m != null) {
+			m.record(bytes, System.nanoTime() - start, success);
+		}
+		if (event != null) {
+			event.commit(operation, transformationParts[0], transformationParts[1], bytes, success, null);
+		}
+	}
+
+	/**
+	 * 加密,子类覆盖此方法而不是 {@link #encrypt(byte[], int, int)},以便记录指标
+	 * @since 1.9
+	 */
+	protected CipherBlobDetails doEncrypt(byte[] data, int offset, int length) throws GeneralCryptoException {
 		final IvParameterSpec ivParameter = ivParameterSpecSupplier.get();
 		final Slice slice = Slice.range(data, offset, length);
 		byte[] encrypted;
 		byte[] checksum;
 		try {
-			checksum = checksumCalculator.apply(slice.unwrap());
-			encrypted = oneStep(Cipher.ENCRYPT_MODE, keySupplier.get(), ivParameter, slice);
+			if (checksumFactory != null) {
+				checksum = new byte[checksumLength];
+				encrypted = new byte[encryptOutputSize(length)];
+				int n = encryptInto(data, offset, length, encrypted, 0, checksum, 0, ivParameter);
+				if (n != encrypted.length) {
+					encrypted = Arrays.copyOf(encrypted, n);
+				}
+			}
+			else {
+				checksum = checksum(data, offset, length);
+				encrypted = oneStep(Cipher.ENCRYPT_MODE, resolveKey(), ivParameter, slice);
+			}
 		}
 		catch (Exception e) {
 			throw CryptoUtil.wrapGeneralCryptoException(null, e);
@@ -87,12 +307,17 @@ public class BouncyCastleQuickCipher implements QuickCipher {
 			.build();
 	}
 
-	@Override
-	public Verified<byte[]> decrypt(UncheckedCipher input, boolean skipCheck) throws GeneralCryptoException {
+	/**
+	 * 解密,子类覆盖此方法而不是 {@link #decrypt(UncheckedCipher, boolean)},以便记录指标
+	 * @since 1.9
+	 */
+	protected Verified<byte[]> doDecrypt(UncheckedCipher input, boolean skipCheck) throws GeneralCryptoException {
+		if (!skipCheck && fusedVerify()) {
+			return fusedDecrypt(input);
+		}
 		byte[] decrypted;
 		try {
-			decrypted = oneStep(Cipher.DECRYPT_MODE, keySupplier.get(), ivParameterSpecSupplier.get(),
-					input.getCipher());
+			decrypted = oneStep(Cipher.DECRYPT_MODE, resolveKey(), decryptIv(input), input.getCipher());
 		}
 		catch (GeneralSecurityException e) {
 			return Verified.fail(null, e);
@@ -104,10 +329,807 @@ public class BouncyCastleQuickCipher implements QuickCipher {
 
 	}
 
-	protected final synchronized byte[] oneStep(int mode, SecretKeySpec key, @Nullable IvParameterSpec iv, Slice data)
+	@Override
+	public int encryptOutputSize(int length) {
+		if (Spec.PADDING_NO_PADDING.equalsIgnoreCase(transformationParts[2])) {
+			return length;
+		}
+		return (length / blockSize + 1) * blockSize;
+	}
+
+	@Override
+	public int decryptOutputSize(int length) {
+		return length;
+	}
+
+	@Override
+	public int checksumLength() {
+		return checksumLength;
+	}
+
+	/**
+	 * @since 1.9
+	 * @see #encryptInto(byte[], int, int, byte[], int, byte[], int)
+	 */
+	protected int doEncryptInto(byte[] data, int offset, int length, byte[] out, int outOffset,
+			@Nullable byte[] checksum, int checksumOffset) throws GeneralCryptoException {
+		return encryptInto(data, offset, length, out, outOffset, checksum, checksumOffset,
+				ivParameterSpecSupplier.get());
+	}
+
+	private int encryptInto(byte[] data, int offset, int length, byte[] out, int outOffset, @Nullable byte[] checksum,
+			int checksumOffset, @Nullable IvParameterSpec iv) throws GeneralCryptoException {
+		final SecretKeySpec key = resolveKey();
+		final CipherContext context = cipherPool.acquire();
+		try {
+			if (parallel != null && parallel.supports(Cipher.ENCRYPT_MODE, iv, length)) {
+				if (checksum != null) {
+					writeChecksum(context, data, offset, length, checksum, checksumOffset);
+				}
+				return parallel.doFinal(Cipher.ENCRYPT_MODE, key, iv, data, offset, length, out, outOffset);
+			}
+			context.init(Cipher.ENCRYPT_MODE, key, iv);
+			return encryptWithChecksum(context, data, offset, length, out, outOffset, checksum, checksumOffset);
+		}
+		catch (GeneralSecurityException e) {
+			throw CryptoUtil.wrapGeneralCryptoException(null, e);
+		}
+		finally {
+			cipherPool.release(context);
+		}
+	}
+
+	/**
+	 * @since 1.9
+	 * @see #decryptInto(byte[], int, int, byte[], int, byte[], int, int)
+	 */
+	protected int doDecryptInto(byte[] data, int offset, int length, byte[] out, int outOffset,
+			@Nullable byte[] checksum, int checksumOffset, int checksumLength) throws GeneralCryptoException {
+		final SecretKeySpec key = resolveKey();
+		final IvParameterSpec iv = ivParameterSpecSupplier.get();
+		final CipherContext context = cipherPool.acquire();
+		try {
+			final Slice expected = checksum == null ? null : Slice.range(checksum, checksumOffset, checksumLength);
+			if (parallel != null && parallel.supports(Cipher.DECRYPT_MODE, iv, length)) {
+				int n = parallel.doFinal(Cipher.DECRYPT_MODE, key, iv, data, offset, length, out, outOffset);
+				if (expected != null && !verifyChecksum(context, out, outOffset, n, expected)) {
+					throw new GeneralCryptoException("Data verification failed");
+				}
+				return n;
+			}
+			context.init(Cipher.DECRYPT_MODE, key, iv);
+			int n = decryptWithChecksum(context, data, offset, length, out, outOffset, expected);
+			if (n < 0) {
+				throw new GeneralCryptoException("Data verification failed");
+			}
+			return n;
+		}
+		catch (GeneralSecurityException e) {
+			throw CryptoUtil.wrapGeneralCryptoException(null, e);
+		}
+		finally {
+			cipherPool.release(context);
+		}
+	}
+
+	/**
+	 * 批量加密,每个工作线程只初始化一次 Cipher
+	 * <p>
+	 * 并行处理时每个任务从 {@link CipherPool} 获取实例,使用默认的单实例策略时任务实际上是串行执行的
+	 * @param data 输入数据
+	 * @param pool 可选,用于并行处理的线程池
+	 * @return 按列存储的密文和校验和
+	 * @throws GeneralCryptoException
+	 */
+	@Override
+	public CipherBatch encryptAll(List<byte[]> data, @Nullable ForkJoinPool pool) throws GeneralCryptoException {
+		requireFixedIv("Batch processing");
+		final OperationMetrics m = metrics == null ? null : metrics.encryptAll;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		if (m == null && event == null) {
+			return doEncryptAll(data, pool);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			CipherBatch result = doEncryptAll(data, pool);
+			success = true;
+			return result;
+		}
+		finally {
+			long bytes = 0;
+			for (byte[] item : data) {
+				bytes += item.length;
+			}
+			record(m, event, "encryptAll", bytes, start, success);
+		}
+	}
+
+	private CipherBatch doEncryptAll(List<byte[]> data, @Nullable ForkJoinPool pool) throws GeneralCryptoException {
+		final byte[][] items = data.toArray(new byte[0][]);
+		final int[] offsets = new int[items.length];
+		final int[] lengths = new int[items.length];
+		int total = 0;
+		for (int i = 0; i < items.length; i++) {
+			offsets[i] = total;
+			total = Math.addExact(total, encryptOutputSize(items[i].length));
+		}
+		final byte[] out = new byte[total];
+		final byte[] checksums = checksumLength > 0 ? new byte[items.length * checksumLength] : null;
+		final SecretKeySpec key = resolveKey();
+		final IvParameterSpec iv = ivParameterSpecSupplier.get();
+		ParallelRange.run(pool, items.length, BATCH_GRAIN, (from, to) -> {
+			final CipherContext context = cipherPool.acquire();
+			try {
+				context.init(Cipher.ENCRYPT_MODE, key, iv);
+				for (int i = from; i < to; i++) {
+					lengths[i] = encryptWithChecksum(context, items[i], 0, items[i].length, out, offsets[i], checksums,
+							i * checksumLength);
+				}
+			}
+			catch (GeneralSecurityException e) {
+				throw CryptoUtil.wrapGeneralCryptoException(null, e);
+			}
+			finally {
+				cipherPool.release(context);
+			}
+		});
+		return new CipherBatch(out, offsets, lengths, checksums, checksumLength);
+	}
+
+	/**
+	 * 批量解密,每个工作线程只初始化一次 Cipher
+	 * @param batch 密文和校验和
+	 * @param skipCheck 是否跳过校验
+	 * @param pool 可选,用于并行处理的线程池
+	 * @return 按列存储的明文
+	 * @throws GeneralCryptoException 任意一项解密失败或者校验失败
+	 * @see #encryptAll(List, ForkJoinPool)
+	 */
+	@Override
+	public CipherBatch decryptAll(CipherBatch batch, boolean skipCheck, @Nullable ForkJoinPool pool)
+			throws GeneralCryptoException {
+		requireFixedIv("Batch processing");
+		final OperationMetrics m = metrics == null ? null : metrics.decryptAll;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		if (m == null && event == null) {
+			return doDecryptAll(batch, skipCheck, pool);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			CipherBatch result = doDecryptAll(batch, skipCheck, pool);
+			success = true;
+			return result;
+		}
+		finally {
+			long bytes = 0;
+			for (int length : batch.getLengths()) {
+				bytes += length;
+			}
+			record(m, event, "decryptAll", bytes, start, success);
+		}
+	}
+
+	private CipherBatch doDecryptAll(CipherBatch batch, boolean skipCheck, @Nullable ForkJoinPool pool)
+			throws GeneralCryptoException {
+		final int size = batch.size();
+		final boolean verify = !skipCheck && batch.getChecksums() != null;
+		final int[] offsets = new int[size];
+		final int[] lengths = new int[size];
+		int total = 0;
+		for (int i = 0; i < size; i++) {
+			offsets[i] = total;
+			total = Math.addExact(total, decryptOutputSize(batch.getLengths()[i]));
+		}
+		final byte[] out = new byte[total];
+		final SecretKeySpec key = resolveKey();
+		final IvParameterSpec iv = ivParameterSpecSupplier.get();
+		ParallelRange.run(pool, size, BATCH_GRAIN, (from, to) -> {
+			final CipherContext context = cipherPool.acquire();
+			try {
+				context.init(Cipher.DECRYPT_MODE, key, iv);
+				for (int i = from; i < to; i++) {
+					int n = decryptWithChecksum(context, batch.getData(), batch.getOffsets()[i], batch.getLengths()[i],
+							out, offsets[i], verify ? batch.checksum(i) : null);
+					if (n < 0) {
+						throw new GeneralCryptoException("Data verification failed at index " + i);
+					}
+					lengths[i] = n;
+				}
+			}
+			catch (GeneralSecurityException e) {
+				throw CryptoUtil.wrapGeneralCryptoException(null, e);
+			}
+			finally {
+				cipherPool.release(context);
+			}
+		});
+		return new CipherBatch(out, offsets, lengths, null, 0);
+	}
+
+	@Override
+	public int encrypt(ByteBuffer src, ByteBuffer dst, @Nullable ByteBuffer checksum) throws GeneralCryptoException {
+		requireFixedIv("ByteBuffer processing");
+		final OperationMetrics m = metrics == null ? null : metrics.encryptBuffer;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		if (m == null && event == null) {
+			return encryptBuffer(src, dst, checksum);
+		}
+		final int length = src.remaining();
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			int n = encryptBuffer(src, dst, checksum);
+			success = true;
+			return n;
+		}
+		finally {
+			record(m, event, "encryptBuffer", length, start, success);
+		}
+	}
+
+	private int encryptBuffer(ByteBuffer src, ByteBuffer dst, @Nullable ByteBuffer checksum)
+			throws GeneralCryptoException {
+		if (checksum != null && checksumFactory == null) {
+			return QuickCipher.super.encrypt(src, dst, checksum);
+		}
+		if (checksum != null) {
+			IncrementalChecksum calculator = checksumFactory.get();
+			calculator.update(src.duplicate());
+			checksum.put(calculator.doFinal());
+		}
+		try {
+			return oneStep(Cipher.ENCRYPT_MODE, resolveKey(), ivParameterSpecSupplier.get(), src, dst);
+		}
+		catch (GeneralSecurityException e) {
+			throw CryptoUtil.wrapGeneralCryptoException(null, e);
+		}
+	}
+
+	@Override
+	public int decrypt(ByteBuffer src, ByteBuffer dst, @Nullable ByteBuffer checksum) throws GeneralCryptoException {
+		requireFixedIv("ByteBuffer processing");
+		final OperationMetrics m = metrics == null ? null : metrics.decryptBuffer;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		if (m == null && event == null) {
+			return decryptBuffer(src, dst, checksum);
+		}
+		final int length = src.remaining();
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			int n = decryptBuffer(src, dst, checksum);
+			success = true;
+			return n;
+		}
+		finally {
+			record(m, event, "decryptBuffer", length, start, success);
+		}
+	}
+
+	private int decryptBuffer(ByteBuffer src, ByteBuffer dst, @Nullable ByteBuffer checksum)
+			throws GeneralCryptoException {
+		if (checksum != null && !fusedVerify()) {
+			return QuickCipher.super.decrypt(src, dst, checksum);
+		}
+		final int start = dst.position();
+		final int n;
+		try {
+			n = oneStep(Cipher.DECRYPT_MODE, resolveKey(), ivParameterSpecSupplier.get(), src, dst);
+		}
+		catch (GeneralSecurityException e) {
+			throw CryptoUtil.wrapGeneralCryptoException(null, e);
+		}
+		if (checksum != null) {
+			ByteBuffer plain = dst.duplicate();
+			plain.limit(start + n);
+			plain.position(start);
+			byte[] expected = new byte[checksum.remaining()];
+			checksum.get(expected);
+			// 与 decrypt(UncheckedCipher) 相同,使用校验和策略时按标记选择
+			Supplier<IncrementalChecksum> factory = verifyFactory(Slice.wrap(expected));
+			IncrementalChecksum calculator = factory == null ? null : factory.get();
+			if (calculator != null) {
+				calculator.update(plain);
+			}
+			if (calculator == null || !MessageDigest.isEqual(expected, calculator.doFinal())) {
+				throw new GeneralCryptoException("Data verification failed");
+			}
+		}
+		return n;
+	}
+
+	@Override
+	public StreamCipherDetails encrypt(InputStream in, OutputStream out) throws IOException, GeneralCryptoException {
+		requireFixedIv("Streaming");
+		final IvParameterSpec ivParameter = ivParameterSpecSupplier.get();
+		final CipherPipeline pipeline = streamPipeline(Cipher.ENCRYPT_MODE, ivParameter, checksumFactory);
+		final OperationMetrics m = metrics == null ? null : metrics.encryptStream;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			CipherStreams.transfer(pipeline, in, out, CipherStreams.DEFAULT_BUFFER_SIZE);
+			success = true;
+		}
+		catch (GeneralSecurityException e) {
+			throw CryptoUtil.wrapGeneralCryptoException(null, e);
+		}
+		finally {
+			record(m, event, "encryptStream", pipeline.getInputBytes(), start, success);
+		}
+		return streamDetails(ivParameter, pipeline);
+	}
+
+	@Override
+	public StreamCipherDetails encrypt(ReadableByteChannel in, WritableByteChannel out)
+			throws IOException, GeneralCryptoException {
+		requireFixedIv("Streaming");
+		final IvParameterSpec ivParameter = ivParameterSpecSupplier.get();
+		final CipherPipeline pipeline = streamPipeline(Cipher.ENCRYPT_MODE, ivParameter, checksumFactory);
+		final OperationMetrics m = metrics == null ? null : metrics.encryptStream;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			CipherStreams.transfer(pipeline, in, out, CipherStreams.DEFAULT_BUFFER_SIZE);
+			success = true;
+		}
+		catch (GeneralSecurityException e) {
+			throw CryptoUtil.wrapGeneralCryptoException(null, e);
+		}
+		finally {
+			record(m, event, "encryptStream", pipeline.getInputBytes(), start, success);
+		}
+		return streamDetails(ivParameter, pipeline);
+	}
+
+	@Override
+	public Verified<StreamCipherDetails> decrypt(InputStream in, OutputStream out, @Nullable byte[] checksum)
+			throws IOException, GeneralCryptoException {
+		requireFixedIv("Streaming");
+		final IvParameterSpec ivParameter = ivParameterSpecSupplier.get();
+		final CipherPipeline pipeline = streamPipeline(Cipher.DECRYPT_MODE, ivParameter,
+				decryptChecksumFactory(checksum));
+		final OperationMetrics m = metrics == null ? null : metrics.decryptStream;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		final long start = System.nanoTime();
+		Verified<StreamCipherDetails> result = null;
+		try {
+			CipherStreams.transfer(pipeline, in, out, CipherStreams.DEFAULT_BUFFER_SIZE);
+			result = verifyStream(streamDetails(ivParameter, pipeline), checksum);
+			return result;
+		}
+		catch (GeneralSecurityException e) {
+			return Verified.fail(null, e);
+		}
+		finally {
+			record(m, event, "decryptStream", pipeline.getInputBytes(), start, result != null && result.isPass());
+		}
+	}
+
+	@Override
+	public Verified<StreamCipherDetails> decrypt(ReadableByteChannel in, WritableByteChannel out,
+			@Nullable byte[] checksum) throws IOException, GeneralCryptoException {
+		requireFixedIv("Streaming");
+		final IvParameterSpec ivParameter = ivParameterSpecSupplier.get();
+		final CipherPipeline pipeline = streamPipeline(Cipher.DECRYPT_MODE, ivParameter,
+				decryptChecksumFactory(checksum));
+		final OperationMetrics m = metrics == null ? null : metrics.decryptStream;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		final long start = System.nanoTime();
+		Verified<StreamCipherDetails> result = null;
+		try {
+			CipherStreams.transfer(pipeline, in, out, CipherStreams.DEFAULT_BUFFER_SIZE);
+			result = verifyStream(streamDetails(ivParameter, pipeline), checksum);
+			return result;
+		}
+		catch (GeneralSecurityException e) {
+			return Verified.fail(null, e);
+		}
+		finally {
+			record(m, event, "decryptStream", pipeline.getInputBytes(), start, result != null && result.isPass());
+		}
+	}
+
+	/**
+	 * 加密文件,配置了并行处理时 ECB 和 CTR 模式会分块并行处理
+	 */
+	@Override
+	public StreamCipherDetails encrypt(Path source, Path target) throws IOException, GeneralCryptoException {
+		requireFixedIv("File processing");
+		final IvParameterSpec ivParameter = ivParameterSpecSupplier.get();
+		final MappedFileEngine engine = fileEngine(Cipher.ENCRYPT_MODE, ivParameter, checksumFactory);
+		final OperationMetrics m = metrics == null ? null : metrics.encryptFile;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			engine.transfer(source, target);
+			success = true;
+		}
+		catch (GeneralSecurityException e) {
+			throw CryptoUtil.wrapGeneralCryptoException(null, e);
+		}
+		finally {
+			record(m, event, "encryptFile", engine.getInputBytes(), start, success);
+		}
+		return fileDetails(ivParameter, engine);
+	}
+
+	/**
+	 * 解密文件,配置了并行处理时 ECB,CTR 以及 CBC 模式会分块并行处理
+	 */
+	@Override
+	public Verified<StreamCipherDetails> decrypt(Path source, Path target, @Nullable byte[] checksum)
+			throws IOException, GeneralCryptoException {
+		requireFixedIv("File processing");
+		final IvParameterSpec ivParameter = ivParameterSpecSupplier.get();
+		final MappedFileEngine engine = fileEngine(Cipher.DECRYPT_MODE, ivParameter, decryptChecksumFactory(checksum));
+		final OperationMetrics m = metrics == null ? null : metrics.decryptFile;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.OPERATION);
+		final long start = System.nanoTime();
+		Verified<StreamCipherDetails> result = null;
+		try {
+			engine.transfer(source, target);
+			result = verifyStream(fileDetails(ivParameter, engine), checksum);
+			return result;
+		}
+		catch (GeneralSecurityException e) {
+			return Verified.fail(null, e);
+		}
+		finally {
+			record(m, event, "decryptFile", engine.getInputBytes(), start, result != null && result.isPass());
+		}
+	}
+
+	private MappedFileEngine fileEngine(int mode, @Nullable IvParameterSpec iv,
+			@Nullable Supplier<IncrementalChecksum> checksum) throws GeneralCryptoException {
+		if (checksum == null) {
+			throw new GeneralCryptoException("File processing is not supported by the custom checksum calculator");
+		}
+		return new MappedFileEngine(cipherPool.getBackend(), cipherPool.getTransformation(), mode, resolveKey(), iv,
+				blockSize, checksum.get(), parallel);
+	}
+
+	private StreamCipherDetails fileDetails(@Nullable IvParameterSpec ivParameter, MappedFileEngine engine) {
+		byte[] ivBytes = ivParameter == null ? null : ivParameter.getIV();
+		return StreamCipherDetails.builder()
+			.algorithm(transformationParts[0])
+			.mode(transformationParts[1])
+			.padding(transformationParts[2])
+			.iv(ivBytes)
+			.checksum(engine.getChecksum())
+			.inputBytes(engine.getInputBytes())
+			.outputBytes(engine.getOutputBytes())
+			.build();
+	}
+
+	/**
+	 * 流式处理耗时较长,使用独立的 CipherEngine 实例,避免长时间占用 {@link CipherPool}
+	 * @param checksum 明文的增量校验和,为 null 时不支持流式处理
+	 */
+	protected CipherPipeline streamPipeline(int mode, @Nullable IvParameterSpec iv,
+			@Nullable Supplier<IncrementalChecksum> checksum) throws GeneralCryptoException {
+		if (checksum == null) {
+			throw new GeneralCryptoException("Streaming is not supported by the custom checksum calculator");
+		}
+		final CipherEngine cipher = cipherPool.getBackend().create(cipherPool.getTransformation());
+		try {
+			cipher.init(mode, resolveKey(), iv);
+		}
+		catch (GeneralSecurityException e) {
+			throw CryptoUtil.wrapGeneralCryptoException(null, e);
+		}
+		return new CipherPipeline(cipher, mode == Cipher.ENCRYPT_MODE, checksum.get());
+	}
+
+	protected StreamCipherDetails streamDetails(@Nullable IvParameterSpec ivParameter, CipherPipeline pipeline) {
+		byte[] ivBytes = ivParameter == null ? null : ivParameter.getIV();
+		return StreamCipherDetails.builder()
+			.algorithm(transformationParts[0])
+			.mode(transformationParts[1])
+			.padding(transformationParts[2])
+			.iv(ivBytes)
+			.checksum(pipeline.getChecksum())
+			.inputBytes(pipeline.getInputBytes())
+			.outputBytes(pipeline.getOutputBytes())
+			.build();
+	}
+
+	/**
+	 * 流式和文件解密计算明文校验和使用的工厂,与 {@link #decrypt(UncheckedCipher, boolean)}
+	 * 相同,使用校验和策略时按期望的校验和的标记选择
+	 * @param checksum 期望的校验和,为 null 或者标记未知时使用配置的增量校验和
+	 */
+	@Nullable private Supplier<IncrementalChecksum> decryptChecksumFactory(@Nullable byte[] checksum) {
+		if (checksum == null) {
+			return checksumFactory;
+		}
+		Supplier<IncrementalChecksum> factory = verifyFactory(Slice.wrap(checksum));
+		return factory == null ? checksumFactory : factory;
+	}
+
+	protected static Verified<StreamCipherDetails> verifyStream(StreamCipherDetails details,
+			@Nullable byte[] checksum) {
+		if (checksum == null || MessageDigest.isEqual(checksum, details.getChecksum())) {
+			return Verified.pass(details);
+		}
+		return Verified.fail(details, null);
+	}
+
+	/**
+	 * 清除缓存的密钥,下次调用时重新从 keySupplier 获取,用于密钥轮换<br/>
+	 * 已缓存的 Cipher 初始化状态按密钥对象判断,密钥变化后会自动重新初始化
+	 */
+	public void invalidateKey() {
+		cachedKey = null;
+	}
+
+	/**
+	 * 获取密钥,keySupplier 只在首次调用或者 {@link #invalidateKey()} 之后调用
+	 */
+	protected SecretKeySpec resolveKey() {
+		SecretKeySpec key = cachedKey;
+		if (key == null) {
+			key = keySupplier.get();
+			cachedKey = key;
+		}
+		return key;
+	}
+
+	/**
+	 * 使用随机 IV 时,不携带 IV 的加解密方法无法还原数据,直接拒绝
+	 * @param operation 操作名称
+	 * @throws GeneralCryptoException 使用随机 IV
+	 */
+	protected void requireFixedIv(String operation) throws GeneralCryptoException {
+		if (randomIv) {
+			throw new GeneralCryptoException(operation + " is not supported with a random IV");
+		}
+	}
+
+	/**
+	 * 解密使用的 IV,优先使用密文中携带的 IV,使用随机 IV 时密文必须携带 IV
+	 */
+	@Nullable protected IvParameterSpec decryptIv(UncheckedCipher input) {
+		Slice iv = input.getIv();
+		if (iv == null) {
+			requireFixedIv("Decryption without IV");
+			return ivParameterSpecSupplier.get();
+		}
+		return new IvParameterSpec(iv.getData(), iv.getOffset(), iv.getLength());
+	}
+
+	/**
+	 * 加密并计算明文的校验和,context 需要已经初始化<br/>
+	 * 使用增量校验和时分块处理,每块明文先计算校验和再加密,只遍历一次明文
+	 * @param checksum 校验和输出,为 null 时只加密
+	 * @return 密文长度
+	 */
+	protected int encryptWithChecksum(CipherContext context, byte[] data, int offset, int length, byte[] out,
+			int outOffset, @Nullable byte[] checksum, int checksumOffset) throws GeneralSecurityException {
+		if (checksum == null) {
+			return context.doFinal(data, offset, length, out, outOffset);
+		}
+		if (checksumFactory == null || !canFuse(data, offset, out, outOffset)) {
+			writeChecksum(context, data, offset, length, checksum, checksumOffset);
+			return context.doFinal(data, offset, length, out, outOffset);
+		}
+		IncrementalChecksum calculator = context.checksum(checksumFactory);
+		int n = fusedDoFinal(context, true, data, offset, length, out, outOffset, calculator);
+		calculator.doFinal(checksum, checksumOffset);
+		return n;
+	}
+
+	/**
+	 * 解密并验证明文的校验和,context 需要已经初始化<br/>
+	 * 使用增量校验和时分块处理,每块明文解密后立即计算校验和,只遍历一次明文
+	 * @param expected 期望的校验和,为 null 时只解密
+	 * @return 明文长度,校验失败返回 -1
+	 */
+	protected int decryptWithChecksum(CipherContext context, byte[] data, int offset, int length, byte[] out,
+			int outOffset, @Nullable Slice expected) throws GeneralSecurityException {
+		if (expected == null) {
+			return context.doFinal(data, offset, length, out, outOffset);
+		}
+		if (checksumFactory == null || !canFuse(data, offset, out, outOffset)) {
+			int n = context.doFinal(data, offset, length, out, outOffset);
+			return verifyChecksum(context, out, outOffset, n, expected) ? n : -1;
+		}
+		IncrementalChecksum calculator = verifyCalculator(context, expected);
+		if (calculator == null) {
+			return -1;
+		}
+		int n = fusedDoFinal(context, false, data, offset, length, out, outOffset, calculator);
+		return checksumMatches(context, calculator, expected) ? n : -1;
+	}
+
+	/**
+	 * 按 {@link #FUSED_CHUNK_SIZE} 分块加解密,同时计算明文的校验和
+	 */
+	private static int fusedDoFinal(CipherContext context, boolean encrypt, byte[] in, int offset, int length,
+			byte[] out, int outOffset, IncrementalChecksum checksum) throws GeneralSecurityException {
+		final int end = offset + length;
+		int pos = offset;
+		int written = 0;
+		while (end - pos > FUSED_CHUNK_SIZE) {
+			if (encrypt) {
+				checksum.update(in, pos, FUSED_CHUNK_SIZE);
+			}
+			int n = context.update(in, pos, FUSED_CHUNK_SIZE, out, outOffset + written);
+			if (!encrypt) {
+				checksum.update(out, outOffset + written, n);
+			}
+			pos += FUSED_CHUNK_SIZE;
+			written += n;
+		}
+		if (encrypt) {
+			checksum.update(in, pos, end - pos);
+		}
+		int n = context.doFinal(in, pos, end - pos, out, outOffset + written);
+		if (!encrypt) {
+			checksum.update(out, outOffset + written, n);
+		}
+		return written + n;
+	}
+
+	/**
+	 * 原地处理且输出位置在输入之后时,前一块的输出会覆盖还没有读取的输入,不能分块处理
+	 */
+	private static boolean canFuse(byte[] in, int offset, byte[] out, int outOffset) {
+		return in != out || outOffset <= offset;
+	}
+
+	/**
+	 * 校验函数为 {@link CryptoUtil#SM3_CHECKSUM_VERIFIER} 或者
+	 * {@link ChecksumStrategy#verifier()} 时,可以使用增量校验和在解密的同时完成校验
+	 */
+	private boolean fusedVerify() {
+		if (checksumFactory == null) {
+			return false;
+		}
+		return checksumVerifier instanceof ChecksumStrategy.Verifier
+				|| (checksumVerifier == CryptoUtil.SM3_CHECKSUM_VERIFIER
+						&& checksumCalculator == CryptoUtil.SM3_CHECKSUM_CALCULATOR);
+	}
+
+	/**
+	 * 验证 expected 使用的增量校验和,使用校验和策略时按 expected 的标记选择
+	 * @return 不接受 expected 时返回 null
+	 */
+	@Nullable private IncrementalChecksum verifyCalculator(CipherContext context, Slice expected) {
+		Supplier<IncrementalChecksum> factory = verifyFactory(expected);
+		if (factory == null) {
+			return null;
+		}
+		return factory == checksumFactory ? context.checksum(factory) : factory.get();
+	}
+
+	/**
+	 * 验证 expected 使用的增量校验和工厂,使用校验和策略时按 expected 的标记选择
+	 * @return 不接受 expected 时返回 null
+	 */
+	@Nullable private Supplier<IncrementalChecksum> verifyFactory(Slice expected) {
+		if (checksumVerifier instanceof ChecksumStrategy.Verifier) {
+			ChecksumStrategy strategy = ((ChecksumStrategy.Verifier) checksumVerifier).select(expected);
+			return strategy == null ? null : strategy.factory();
+		}
+		return checksumFactory;
+	}
+
+	private Verified<byte[]> fusedDecrypt(UncheckedCipher input) {
+		final SecretKeySpec key = resolveKey();
+		final IvParameterSpec iv = decryptIv(input);
+		final Slice data = input.getCipher();
+		if (parallel != null && parallel.supports(Cipher.DECRYPT_MODE, iv, data.getLength())) {
+			byte[] decrypted;
+			try {
+				decrypted = oneStep(Cipher.DECRYPT_MODE, key, iv, data);
+			}
+			catch (GeneralSecurityException e) {
+				return Verified.fail(null, e);
+			}
+			return checksumVerifier.apply(input, decrypted) ? Verified.pass(decrypted) : Verified.fail(decrypted, null);
+		}
+		byte[] out = new byte[decryptOutputSize(data.getLength())];
+		final CipherContext context = cipherPool.acquire();
+		try {
+			context.init(Cipher.DECRYPT_MODE, key, iv);
+			IncrementalChecksum calculator = verifyCalculator(context, input.getChecksum());
+			int n = calculator == null ? context.doFinal(data.getData(), data.getOffset(), data.getLength(), out, 0)
+					: fusedDoFinal(context, false, data.getData(), data.getOffset(), data.getLength(), out, 0,
+							calculator);
+			if (n != out.length) {
+				out = Arrays.copyOf(out, n);
+			}
+			return calculator != null && checksumMatches(context, calculator, input.getChecksum()) ? Verified.pass(out)
+					: Verified.fail(out, null);
+		}
+		catch (GeneralSecurityException e) {
+			return Verified.fail(null, e);
+		}
+		finally {
+			cipherPool.release(context);
+		}
+	}
+
+	/**
+	 * 计算校验和并写入 out
+	 */
+	protected void writeChecksum(CipherContext context, byte[] data, int offset, int length, byte[] out,
+			int outOffset) {
+		if (checksumFactory == null) {
+			byte[] value = checksumCalculator.apply(Arrays.copyOfRange(data, offset, offset + length));
+			System.arraycopy(value, 0, out, outOffset, value.length);
+			return;
+		}
+		IncrementalChecksum calculator = context.checksum(checksumFactory);
+		calculator.update(data, offset, length);
+		calculator.doFinal(out, outOffset);
+	}
+
+	/**
+	 * 验证明文的校验和
+	 */
+	protected boolean verifyChecksum(CipherContext context, byte[] plain, int offset, int length, Slice expected) {
+		if (checksumFactory == null) {
+			UncheckedCipher input = new UncheckedCipher(Slice.wrap(null), expected);
+			return checksumVerifier.apply(input, Arrays.copyOfRange(plain, offset, offset + length));
+		}
+		IncrementalChecksum calculator = verifyCalculator(context, expected);
+		if (calculator == null) {
+			return false;
+		}
+		calculator.update(plain, offset, length);
+		return checksumMatches(context, calculator, expected);
+	}
+
+	private static boolean checksumMatches(CipherContext context, IncrementalChecksum calculator, Slice expected) {
+		byte[] ours = context.scratch(calculator.length());
+		calculator.doFinal(ours, 0);
+		return expected.getLength() == calculator.length() && CryptoUtil.constantTimeEquals(ours, 0, expected.getData(),
+				expected.getOffset(), expected.getLength());
+	}
+
+	protected byte[] checksum(byte[] data, int offset, int length) {
+		if (checksumFactory == null) {
+			return checksumCalculator.apply(Arrays.copyOfRange(data, offset, offset + length));
+		}
+		IncrementalChecksum calculator = checksumFactory.get();
+		calculator.update(data, offset, length);
+		return calculator.doFinal();
+	}
+
+	protected final byte[] oneStep(int mode, SecretKeySpec key, @Nullable IvParameterSpec iv, Slice data)
 			throws GeneralSecurityException {
-		cipher.init(mode, key, iv);
-		return cipher.doFinal(data.getData(), data.getOffset(), data.getLength());
+		if (parallel != null && parallel.supports(mode, iv, data.getLength())) {
+			byte[] out = new byte[mode == Cipher.ENCRYPT_MODE ? encryptOutputSize(data.getLength())
+					: decryptOutputSize(data.getLength())];
+			int n = parallel.doFinal(mode, key, iv, data.getData(), data.getOffset(), data.getLength(), out, 0);
+			return n == out.length ? out : Arrays.copyOf(out, n);
+		}
+		final CipherContext context = cipherPool.acquire();
+		try {
+			context.init(mode, key, iv);
+			return context.doFinal(data.getData(), data.getOffset(), data.getLength());
+		}
+		finally {
+			cipherPool.release(context);
+		}
+	}
+
+	protected final int oneStep(int mode, SecretKeySpec key, @Nullable IvParameterSpec iv, ByteBuffer src,
+			ByteBuffer dst) throws GeneralSecurityException {
+		final CipherContext context = cipherPool.acquire();
+		try {
+			context.init(mode, key, iv);
+			return context.doFinal(src, dst);
+		}
+		finally {
+			cipherPool.release(context);
+		}
 	}
 
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.bc;
+
+import com.power4j.tile.crypto.core.IncrementalChecksum;
+import com.power4j.tile.crypto.engine.CipherEngine;
+import org.jspecify.annotations.Nullable;
+
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.function.Supplier;
+
+/**
+ * {@link CipherPool} 中的工作单元,除 {@link CipherEngine}
+ * 外还缓存了可以重复使用的校验和与临时缓冲区,避免每次调用都分配新对象<br/>
+ * 同时记录最近一次初始化的参数: doFinal 完成后 CipherEngine 会回到初始化之后的状态, 模式,密钥和 IV 都没有变化时可以跳过
+ * {@link CipherEngine#init} (以及其中的密钥扩展)<br/>
+ * 同一时间只能被一个线程使用
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public class CipherContext {
+
+	private final CipherEngine engine;
+
+	@Nullable private IncrementalChecksum checksum;
+
+	@Nullable private byte[] scratch;
+
+	private int initMode;
+
+	@Nullable private SecretKeySpec initKey;
+
+	@Nullable private IvParameterSpec initIv;
+
+	public CipherContext(CipherEngine engine) {
+		this.engine = engine;
+	}
+
+	public CipherEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * 初始化 CipherEngine,参数与上一次相同时跳过<br/>
+	 * 密钥和 IV 按引用比较,因此调用方应该复用同一个对象
+	 * @param mode 加密或者解密
+	 * @param key 密钥
+	 * @param iv IV
+	 * @throws GeneralSecurityException 初始化失败
+	 */
+	public void init(int mode, SecretKeySpec key, @Nullable IvParameterSpec iv) throws GeneralSecurityException {
+		if (initKey == key && initIv == iv && initMode == mode) {
+			return;
+		}
+		reset();
+		engine.init(mode, key, iv);
+		initMode = mode;
+		initKey = key;
+		initIv = iv;
+	}
+
+	/**
+	 * 处理一块数据,失败时 CipherEngine 的状态不确定,下次使用时重新初始化
+	 * @see CipherEngine#update(byte[], int, int, byte[], int)
+	 */
+	public int update(byte[] in, int offset, int length, byte[] out, int outOffset) throws GeneralSecurityException {
+		try {
+			return engine.update(in, offset, length, out, outOffset);
+		}
+		catch (GeneralSecurityException | RuntimeException e) {
+			reset();
+			throw e;
+		}
+	}
+
+	/**
+	 * 完成处理,失败时 CipherEngine 的状态不确定,下次使用时重新初始化
+	 * @see CipherEngine#doFinal(byte[], int, int, byte[], int)
+	 */
+	public int doFinal(byte[] in, int offset, int length, byte[] out, int outOffset) throws GeneralSecurityException {
+		try {
+			return engine.doFinal(in, offset, length, out, outOffset);
+		}
+		catch (GeneralSecurityException | RuntimeException e) {
+			reset();
+			throw e;
+		}
+	}
+
+	/**
+	 * 完成处理,失败时 CipherEngine 的状态不确定,下次使用时重新初始化
+	 * @see CipherEngine#doFinal(byte[], int, int)
+	 */
+	public byte[] doFinal(byte[] in, int offset, int length) throws GeneralSecurityException {
+		try {
+			return engine.doFinal(in, offset, length);
+		}
+		catch (GeneralSecurityException | RuntimeException e) {
+			reset();
+			throw e;
+		}
+	}
+
+	/**
+	 * 完成处理,失败时 CipherEngine 的状态不确定,下次使用时重新初始化
+	 * @see CipherEngine#doFinal(ByteBuffer, ByteBuffer)
+	 */
+	public int doFinal(ByteBuffer src, ByteBuffer dst) throws GeneralSecurityException {
+		try {
+			return engine.doFinal(src, dst);
+		}
+		catch (GeneralSecurityException | RuntimeException e) {
+			reset();
+			throw e;
+		}
+	}
+
+	/**
+	 * 清除初始化记录,下次调用 {@link #init(int, SecretKeySpec, IvParameterSpec)} 时一定会初始化
+	 * CipherEngine
+	 */
+	public void reset() {
+		initMode = 0;
+		initKey = null;
+		initIv = null;
+	}
+
+	/**
+	 * 获取重置后的校验和实例,首次调用时通过 factory 创建
+	 * @param factory 校验和工厂
+	 * @return IncrementalChecksum
+	 */
+	public IncrementalChecksum checksum(Supplier<IncrementalChecksum> factory) {
+		if (checksum == null) {
+			checksum = factory.get();
+		}
+		else {
+			checksum.reset();
+		}
+		return checksum;
+	}
+
+	/**
+	 * 获取临时缓冲区,内容未定义
+	 * @param size 最小长度
+	 * @return 缓冲区
+	 */
+	public byte[] scratch(int size) {
+		if (scratch == null || scratch.length < size) {
+			scratch = new byte[size];
+		}
+		return scratch;
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.bc;
+
+import com.power4j.tile.crypto.metrics.CryptoMetrics;
+import com.power4j.tile.crypto.metrics.OperationMetrics;
+
+/**
+ * 构造时解析的各操作记录器,避免调用时查找操作名称
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class CipherMetrics {
+
+	final OperationMetrics encrypt;
+
+	final OperationMetrics decrypt;
+
+	final OperationMetrics encryptInto;
+
+	final OperationMetrics decryptInto;
+
+	final OperationMetrics encryptAll;
+
+	final OperationMetrics decryptAll;
+
+	final OperationMetrics encryptBuffer;
+
+	final OperationMetrics decryptBuffer;
+
+	final OperationMetrics encryptStream;
+
+	final OperationMetrics decryptStream;
+
+	final OperationMetrics encryptFile;
+
+	final OperationMetrics decryptFile;
+
+	CipherMetrics(CryptoMetrics metrics, String name) {
+		this.encrypt = metrics.operation(name + ".encrypt");
+		this.decrypt = metrics.operation(name + ".decrypt");
+		this.encryptInto = metrics.operation(name + ".encryptInto");
+		this.decryptInto = metrics.operation(name + ".decryptInto");
+		this.encryptAll = metrics.operation(name + ".encryptAll");
+		this.decryptAll = metrics.operation(name + ".decryptAll");
+		this.encryptBuffer = metrics.operation(name + ".encryptBuffer");
+		this.decryptBuffer = metrics.operation(name + ".decryptBuffer");
+		this.encryptStream = metrics.operation(name + ".encryptStream");
+		this.decryptStream = metrics.operation(name + ".decryptStream");
+		this.encryptFile = metrics.operation(name + ".encryptFile");
+		this.decryptFile = metrics.operation(name + ".decryptFile");
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.bc;
+
+import com.power4j.tile.crypto.core.GeneralCryptoException;
+import com.power4j.tile.crypto.engine.CipherBackend;
+import com.power4j.tile.crypto.engine.CipherBackends;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link com.power4j.tile.crypto.engine.CipherEngine} 实例的并发访问策略,池中的实例以
+ * {@link CipherContext} 的形式提供,一个池只应该属于一个 QuickCipher<br/>
+ * <ul>
+ * <li>exclusive: 单个实例,调用串行化(默认行为)</li>
+ * <li>threadLocal: 每个线程一个实例,适合固定大小的平台线程池</li>
+ * <li>bounded: 固定数量的预创建实例,适合虚拟线程或者线程数不可控的场景</li>
+ * </ul>
+ * 所有策略都不使用 {@code synchronized},因此不会导致虚拟线程被钉住(pinning)<br/>
+ * 实例由 {@link CipherBackend} 创建,默认使用 {@link CipherBackends#jce()}
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public abstract class CipherPool {
+
+	private final String transformation;
+
+	private final CipherBackend backend;
+
+	protected CipherPool(String transformation, CipherBackend backend) {
+		this.transformation = transformation;
+		this.backend = backend;
+	}
+
+	/**
+	 * 单实例,所有调用串行执行
+	 * @param transformation 算法/模式/填充
+	 * @return CipherPool
+	 */
+	public static CipherPool exclusive(String transformation) {
+		return exclusive(transformation, CipherBackends.jce());
+	}
+
+	/**
+	 * 单实例,所有调用串行执行
+	 * @param transformation 算法/模式/填充
+	 * @param backend 实现
+	 * @return CipherPool
+	 */
+	public static CipherPool exclusive(String transformation, CipherBackend backend) {
+		return new ExclusivePool(transformation, backend);
+	}
+
+	/**
+	 * 每个线程独占一个实例
+	 * @param transformation 算法/模式/填充
+	 * @return CipherPool
+	 */
+	public static CipherPool threadLocal(String transformation) {
+		return threadLocal(transformation, CipherBackends.jce());
+	}
+
+	/**
+	 * 每个线程独占一个实例
+	 * @param transformation 算法/模式/填充
+	 * @param backend 实现
+	 * @return CipherPool
+	 */
+	public static CipherPool threadLocal(String transformation, CipherBackend backend) {
+		return new ThreadLocalPool(transformation, backend);
+	}
+
+	/**
+	 * 固定数量的预创建实例,池中实例耗尽时调用方等待
+	 * @param transformation 算法/模式/填充
+	 * @param size 实例数量
+	 * @return CipherPool
+	 */
+	public static CipherPool bounded(String transformation, int size) {
+		return bounded(transformation, CipherBackends.jce(), size);
+	}
+
+	/**
+	 * 固定数量的预创建实例,池中实例耗尽时调用方等待
+	 * @param transformation 算法/模式/填充
+	 * @param backend 实现
+	 * @param size 实例数量
+	 * @return CipherPool
+	 */
+	public static CipherPool bounded(String transformation, CipherBackend backend, int size) {
+		return new BoundedPool(transformation, backend, size);
+	}
+
+	public String getTransformation() {
+		return transformation;
+	}
+
+	public CipherBackend getBackend() {
+		return backend;
+	}
+
+	/**
+	 * 获取一个实例,使用完毕后必须调用 {@link #release(CipherContext)}
+	 * @return CipherContext
+	 * @throws GeneralCryptoException 创建实例失败或者等待被中断
+	 */
+	public abstract CipherContext acquire() throws GeneralCryptoException;
+
+	/**
+	 * 归还实例
+	 * @param context 由 {@link #acquire()} 获得的实例
+	 */
+	public abstract void release(CipherContext context);
+
+	protected CipherContext createContext() {
+		return new CipherContext(backend.create(transformation));
+	}
+
+	static class ExclusivePool extends CipherPool {
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private final CipherContext context;
+
+		ExclusivePool(String transformation, CipherBackend backend) {
+			super(transformation, backend);
+			this.context = createContext();
+		}
+
+		@Override
+		public CipherContext acquire() {
+			lock.lock();
+			return context;
+		}
+
+		@Override
+		public void release(CipherContext context) {
+			lock.unlock();
+		}
+
+	}
+
+	static class ThreadLocalPool extends CipherPool {
+
+		private final ThreadLocal<CipherContext> local;
+
+		ThreadLocalPool(String transformation, CipherBackend backend) {
+			super(transformation, backend);
+			this.local = ThreadLocal.withInitial(this::createContext);
+		}
+
+		@Override
+		public CipherContext acquire() {
+			return local.get();
+		}
+
+		@Override
+		public void release(CipherContext context) {
+			// keep it for the current thread
+		}
+
+	}
+
+	static class BoundedPool extends CipherPool {
+
+		private final BlockingQueue<CipherContext> queue;
+
+		BoundedPool(String transformation, CipherBackend backend, int size) {
+			super(transformation, backend);
+			if (size <= 0) {
+				throw new IllegalArgumentException("pool size must > 0");
+			}
+			this.queue = new ArrayBlockingQueue<>(size);
+			for (int i = 0; i < size; i++) {
+				queue.add(createContext());
+			}
+		}
+
+		@Override
+		public CipherContext acquire() {
+			try {
+				return queue.take();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new GeneralCryptoException("Interrupted while waiting for cipher", e);
+			}
+		}
+
+		@Override
+		public void release(CipherContext context) {
+			queue.offer(context);
+		}
+
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.bc;
+
+import com.power4j.tile.crypto.core.IncrementalChecksum;
+import com.power4j.tile.crypto.engine.CipherBackend;
+import com.power4j.tile.crypto.engine.CipherEngine;
+import org.jspecify.annotations.Nullable;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+
+/**
+ * 基于内存映射的文件加解密,以固定大小的窗口只读映射源文件,输出写入一个复用的直接内存缓冲区后通过 channel 写入目标文件,内存占用与文件大小无关<br/>
+ * <ul>
+ * <li>配置了并行处理且模式支持时(ECB,CTR 以及 CBC 解密),每个窗口内部分块并行处理</li>
+ * <li>其他模式使用同一个 {@link CipherEngine} 顺序处理所有窗口</li>
+ * <li>明文校验和随窗口增量计算</li>
+ * </ul>
+ * 映射窗口在 Java 中无法主动释放,只能等待 GC 回收;目标文件不做映射,因此输出长度与预留空间无关,不需要截断 (Windows
+ * 上截断仍被映射的文件会失败),源文件的映射在 GC 之前会阻止其他进程删除或截断源文件(Windows)<br/>
+ * 实例是有状态的,只能使用一次
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class MappedFileEngine {
+
+	/**
+	 * 映射窗口的大小,必须是块大小的整数倍
+	 */
+	static final int WINDOW_SIZE = 8 * 1024 * 1024;
+
+	private final CipherBackend backend;
+
+	private final String transformation;
+
+	private final int opmode;
+
+	private final SecretKeySpec key;
+
+	@Nullable private final IvParameterSpec iv;
+
+	private final int blockSize;
+
+	private final IncrementalChecksum checksum;
+
+	@Nullable private final ParallelBlockCipher parallel;
+
+	private long inputBytes;
+
+	private long outputBytes;
+
+	@Nullable private byte[] checksumValue;
+
+	MappedFileEngine(CipherBackend backend, String transformation, int opmode, SecretKeySpec key,
+			@Nullable IvParameterSpec iv, int blockSize, IncrementalChecksum checksum,
+			@Nullable ParallelBlockCipher parallel) {
+		this.backend = backend;
+		this.transformation = transformation;
+		this.opmode = opmode;
+		this.key = key;
+		this.iv = iv;
+		this.blockSize = blockSize;
+		this.checksum = checksum;
+		this.parallel = parallel;
+	}
+
+	/**
+	 * 处理文件,目标文件存在时会被覆盖
+	 * @param source 源文件
+	 * @param target 目标文件,不能与源文件相同
+	 * @throws IOException 读写异常
+	 * @throws GeneralSecurityException 加解密异常
+	 */
+	void transfer(Path source, Path target) throws IOException, GeneralSecurityException {
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			final long size = in.size();
+			final boolean concurrent = parallel != null
+					&& parallel.supports(opmode, iv, (int) Math.min(size, Integer.MAX_VALUE));
+			final CipherEngine cipher = concurrent ? null : backend.create(transformation);
+			if (cipher != null) {
+				cipher.init(opmode, key, iv);
+			}
+			IvParameterSpec windowIv = iv;
+			ByteBuffer dst = null;
+			long position = 0;
+			long outPosition = 0;
+			do {
+				final int length = (int) Math.min(WINDOW_SIZE, size - position);
+				final boolean last = position + length >= size;
+				final MappedByteBuffer src = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+				final int capacity = cipher == null ? length + blockSize : cipher.getOutputSize(length);
+				if (dst == null || dst.capacity() < capacity) {
+					dst = ByteBuffer.allocateDirect(Math.max(capacity, WINDOW_SIZE + 2 * blockSize));
+				}
+				dst.clear();
+				if (opmode == Cipher.ENCRYPT_MODE) {
+					checksum.update(src.duplicate());
+				}
+				final int n;
+				if (cipher == null) {
+					IvParameterSpec next = last ? null : parallel.nextIv(windowIv, src);
+					n = parallel.process(opmode, key, windowIv, src, dst, last);
+					windowIv = next;
+				}
+				else {
+					n = last ? cipher.doFinal(src, dst) : cipher.update(src, dst);
+				}
+				dst.flip();
+				if (opmode == Cipher.DECRYPT_MODE) {
+					checksum.update(dst.duplicate());
+				}
+				long writePosition = outPosition;
+				while (dst.hasRemaining()) {
+					writePosition += out.write(dst, writePosition);
+				}
+				position += length;
+				outPosition += n;
+			}
+			while (position < size);
+			inputBytes = size;
+			outputBytes = outPosition;
+			checksumValue = checksum.doFinal();
+		}
+	}
+
+	/**
+	 * 明文校验和,只有在 {@link #transfer(Path, Path)} 之后才可用
+	 * @return 校验和
+	 * @throws IllegalStateException 还没有处理完成
+	 */
+	byte[] getChecksum() {
+		if (checksumValue == null) {
+			throw new IllegalStateException("Transfer is not finished");
+		}
+		return checksumValue;
+	}
+
+	long getInputBytes() {
+		return inputBytes;
+	}
+
+	long getOutputBytes() {
+		return outputBytes;
+	}
+
+}
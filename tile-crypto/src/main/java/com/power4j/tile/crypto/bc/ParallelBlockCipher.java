@@ -0,0 +1,242 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.bc;
+
+import com.power4j.tile.crypto.engine.CipherBackend;
+import com.power4j.tile.crypto.utils.CryptoUtil;
+import org.jspecify.annotations.Nullable;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 大数据量的分块并行处理,输出与单线程处理完全一致<br/>
+ * <ul>
+ * <li>ECB: 加密和解密,各分块互不依赖</li>
+ * <li>CBC: 仅解密,分块的 IV 为前一个密文块</li>
+ * <li>CTR: 加密和解密,分块的计数器为初始计数器加上分块起始位置的块序号</li>
+ * </ul>
+ * 除最后一个分块外使用 NoPadding 处理,最后一个分块使用原始的填充方式<br/>
+ * 数据也可以分段提交,例如文件的每个映射窗口,此时只有最后一段的最后一个分块使用填充
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class ParallelBlockCipher {
+
+	/**
+	 * 默认启用并行处理的最小数据长度
+	 */
+	static final int DEFAULT_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * 分块的最小长度
+	 */
+	private static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+	private final ForkJoinPool pool;
+
+	private final int threshold;
+
+	private final String mode;
+
+	private final int blockSize;
+
+	private final CipherPool lastChunkPool;
+
+	private final CipherPool chunkPool;
+
+	ParallelBlockCipher(ForkJoinPool pool, int threshold, CipherBackend backend, String algorithm, String mode,
+			String padding, int blockSize) {
+		if (threshold <= 0) {
+			throw new IllegalArgumentException("threshold must > 0");
+		}
+		this.pool = pool;
+		this.threshold = threshold;
+		this.mode = mode.toUpperCase(Locale.ROOT);
+		this.blockSize = blockSize;
+		this.lastChunkPool = CipherPool.threadLocal(CryptoUtil.transformation(algorithm, mode, padding), backend);
+		this.chunkPool = CipherPool.threadLocal(CryptoUtil.transformation(algorithm, mode, Spec.PADDING_NO_PADDING),
+				backend);
+	}
+
+	/**
+	 * 是否支持并行处理
+	 * @param opmode 加密或者解密
+	 * @param iv IV,为 null 或者长度不等于块大小时 CBC/CTR 不支持并行处理
+	 * @param length 数据长度
+	 * @return true 表示支持
+	 */
+	boolean supports(int opmode, @Nullable IvParameterSpec iv, int length) {
+		if (length < threshold) {
+			return false;
+		}
+		switch (mode) {
+			case Spec.MODE_ECB:
+				return true;
+			case Spec.MODE_CTR:
+				// IV 较短时 BouncyCastle 在低位补 0 作为计数器,与 addCounter 的计算方式不同
+				return iv != null && iv.getIV().length == blockSize;
+			case Spec.MODE_CBC:
+				return iv != null && iv.getIV().length == blockSize && opmode == Cipher.DECRYPT_MODE;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * 并行处理,调用前需要通过 {@link #supports(int, IvParameterSpec, int)} 判断
+	 * @return 输出长度
+	 */
+	int doFinal(int opmode, SecretKeySpec key, @Nullable IvParameterSpec iv, byte[] in, int inOffset, int length,
+			byte[] out, int outOffset) throws GeneralSecurityException {
+		return process(opmode, key, iv, ByteBuffer.wrap(in, inOffset, length),
+				ByteBuffer.wrap(out, outOffset, out.length - outOffset), true);
+	}
+
+	/**
+	 * 并行处理 in 中剩余的数据,处理后 in 的 position 等于 limit,out 的 position 增加输出的长度
+	 * @param opmode 加密或者解密
+	 * @param key 密钥
+	 * @param iv in 中第一个块对应的 IV
+	 * @param in 输入,不是最后一段数据时长度必须是块大小的整数倍
+	 * @param out 输出
+	 * @param last 是否为最后一段数据,只有最后一段数据使用填充
+	 * @return 输出长度
+	 * @see #nextIv(IvParameterSpec, ByteBuffer)
+	 */
+	int process(int opmode, SecretKeySpec key, @Nullable IvParameterSpec iv, ByteBuffer in, ByteBuffer out,
+			boolean last) throws GeneralSecurityException {
+		final int length = in.remaining();
+		final int inBase = in.position();
+		final int outBase = out.position();
+		final int chunkSize = chunkSize(length);
+		final int chunks = Math.max(1, (length + chunkSize - 1) / chunkSize);
+		// 预先计算 IV,原地解密时前一个密文块会被覆盖
+		final IvParameterSpec[] ivs = new IvParameterSpec[chunks];
+		for (int i = 0; i < chunks; i++) {
+			ivs[i] = chunkIv(iv, in, i * chunkSize);
+		}
+		final int[] lastLength = new int[1];
+		try {
+			ParallelRange.run(pool, chunks, 1, (from, to) -> {
+				for (int i = from; i < to; i++) {
+					final boolean lastChunk = i == chunks - 1;
+					final int start = i * chunkSize;
+					final int n = lastChunk ? length - start : chunkSize;
+					final CipherPool source = lastChunk && last ? lastChunkPool : chunkPool;
+					final ByteBuffer src = in.duplicate();
+					src.limit(inBase + start + n);
+					src.position(inBase + start);
+					final ByteBuffer dst = out.duplicate();
+					dst.position(outBase + start);
+					final CipherContext context = source.acquire();
+					try {
+						context.init(opmode, key, ivs[i]);
+						int written = context.doFinal(src, dst);
+						if (lastChunk) {
+							lastLength[0] = written;
+						}
+					}
+					catch (GeneralSecurityException e) {
+						throw new ChunkFailure(e);
+					}
+					finally {
+						source.release(context);
+					}
+				}
+			});
+		}
+		catch (RuntimeException e) {
+			Throwable cause = e;
+			while (cause != null && !(cause instanceof GeneralSecurityException)) {
+				cause = cause.getCause();
+			}
+			if (cause != null) {
+				throw (GeneralSecurityException) cause;
+			}
+			throw e;
+		}
+		final int total = (chunks - 1) * chunkSize + lastLength[0];
+		in.position(in.limit());
+		out.position(outBase + total);
+		return total;
+	}
+
+	/**
+	 * 计算紧接在 in 剩余数据之后的块对应的 IV,需要在处理 in 之前调用
+	 * @param iv in 中第一个块对应的 IV
+	 * @param in 输入,长度必须是块大小的整数倍
+	 * @return IV
+	 */
+	@Nullable IvParameterSpec nextIv(@Nullable IvParameterSpec iv, ByteBuffer in) {
+		return chunkIv(iv, in, in.remaining());
+	}
+
+	private int chunkSize(int length) {
+		int size = Math.max(MIN_CHUNK_SIZE, length / (pool.getParallelism() * 4));
+		return Math.max(blockSize, size - size % blockSize);
+	}
+
+	@Nullable private IvParameterSpec chunkIv(@Nullable IvParameterSpec iv, ByteBuffer in, int start) {
+		if (start == 0 || iv == null) {
+			return iv;
+		}
+		switch (mode) {
+			case Spec.MODE_CBC:
+				byte[] previous = new byte[blockSize];
+				ByteBuffer block = in.duplicate();
+				block.position(in.position() + start - blockSize);
+				block.get(previous);
+				return new IvParameterSpec(previous);
+			case Spec.MODE_CTR:
+				return new IvParameterSpec(addCounter(iv.getIV(), start / blockSize));
+			default:
+				return iv;
+		}
+	}
+
+	/**
+	 * 计数器按大端序整体加上 n,counter 为完整的块时与 BouncyCastle 的 CTR(SIC) 实现一致
+	 */
+	static byte[] addCounter(byte[] counter, long n) {
+		byte[] result = counter.clone();
+		long carry = n;
+		for (int i = result.length - 1; i >= 0 && carry != 0; i--) {
+			long sum = (result[i] & 0xFF) + (carry & 0xFF);
+			result[i] = (byte) sum;
+			carry = (carry >>> 8) + (sum >>> 8);
+		}
+		return result;
+	}
+
+	static class ChunkFailure extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		ChunkFailure(GeneralSecurityException cause) {
+			super(cause);
+		}
+
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.bc;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 将 [0,size) 区间拆分后在 {@link ForkJoinPool} 中并行处理
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class ParallelRange extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient Body body;
+
+	private final int from;
+
+	private final int to;
+
+	private final int grain;
+
+	private ParallelRange(Body body, int from, int to, int grain) {
+		this.body = body;
+		this.from = from;
+		this.to = to;
+		this.grain = grain;
+	}
+
+	/**
+	 * 执行任务
+	 * @param pool 线程池,为 null 时在当前线程执行
+	 * @param size 区间大小
+	 * @param minGrain 单个任务处理的最小数量
+	 * @param body 任务
+	 */
+	static void run(@Nullable ForkJoinPool pool, int size, int minGrain, Body body) {
+		if (pool == null || size <= minGrain) {
+			body.accept(0, size);
+			return;
+		}
+		int grain = Math.max(minGrain, size / (pool.getParallelism() * 4));
+		pool.invoke(new ParallelRange(body, 0, size, grain));
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from <= grain) {
+			body.accept(from, to);
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		invokeAll(new ParallelRange(body, from, mid, grain), new ParallelRange(body, mid, to, grain));
+	}
+
+	interface Body {
+
+		/**
+		 * 处理 [from,to) 区间
+		 * @param from 开始位置(包含)
+		 * @param to 结束位置(不包含)
+		 */
+		void accept(int from, int to);
+
+	}
+
+}
@@ -34,6 +34,24 @@ public interface Spec {
 
 	String MODE_OFB = "OFB";
 
+	/**
+	 * 计数器模式,加密和解密都可以并行处理
+	 * @since 1.9
+	 */
+	String MODE_CTR = "CTR";
+
+	/**
+	 * 认证加密,认证标签作为校验和输出
+	 * @since 1.9
+	 */
+	String MODE_GCM = "GCM";
+
+	/**
+	 * 认证加密,认证标签作为校验和输出
+	 * @since 1.9
+	 */
+	String MODE_CCM = "CCM";
+
 	String PADDING_PKCS7 = "PKCS7Padding";
 
 	String PADDING_NO_PADDING = "NoPadding";
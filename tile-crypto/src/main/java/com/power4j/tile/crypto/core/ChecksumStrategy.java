@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core;
+
+import com.power4j.tile.crypto.utils.CryptoUtil;
+import org.jspecify.annotations.Nullable;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 明文校验和策略<br/>
+ * <ul>
+ * <li>SM3: 32 字节,与 {@link CryptoUtil#SM3_CHECKSUM_CALCULATOR} 输出一致,不带标记</li>
+ * <li>SM3_128/SM3_64: 截断的 SM3,输出为 标记||摘要前 16/8 字节</li>
+ * <li>CRC32C: 输出为 标记||CRC32C,只能检测数据损坏,适用于可信网络内部的数据</li>
+ * <li>NONE: 输出只有标记,不做校验</li>
+ * </ul>
+ * 校验和带有策略标记,解密时根据标记选择校验方式,因此更换策略后仍然可以解密之前的数据<br/>
+ * 注意: 校验和不是消息认证码,需要防篡改时使用认证加密模式(GCM/CCM)
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ * @see QuickCipherBuilder#checksum(ChecksumStrategy)
+ */
+public enum ChecksumStrategy {
+
+	SM3(-1, Checksums::sm3),
+
+	SM3_128(1, () -> Checksums.sm3(16)),
+
+	SM3_64(2, () -> Checksums.sm3(8)),
+
+	CRC32C(3, Checksums::crc32c),
+
+	NONE(4, Checksums::none);
+
+	private static final ChecksumStrategy[] VALUES = values();
+
+	/**
+	 * 标记,小于 0 表示不带标记
+	 */
+	private final int tag;
+
+	private final int length;
+
+	private final Supplier<IncrementalChecksum> factory;
+
+	private final Function<byte[], byte[]> calculator;
+
+	ChecksumStrategy(int tag, Supplier<IncrementalChecksum> checksum) {
+		this.tag = tag;
+		this.factory = tag < 0 ? checksum : () -> new TaggedChecksum((byte) tag, checksum.get());
+		this.length = factory.get().length();
+		this.calculator = b -> {
+			IncrementalChecksum calculator = factory.get();
+			calculator.update(b, 0, b.length);
+			return calculator.doFinal();
+		};
+	}
+
+	/**
+	 * 校验和的长度,包含标记
+	 * @return 字节数
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * 增量校验和工厂,每次调用工厂都会创建新的对象
+	 * @return 工厂
+	 */
+	public Supplier<IncrementalChecksum> factory() {
+		return factory;
+	}
+
+	/**
+	 * 校验和计算函数
+	 * @return 计算函数
+	 */
+	public Function<byte[], byte[]> calculator() {
+		return calculator;
+	}
+
+	/**
+	 * 校验函数,根据校验和的标记选择策略<br/>
+	 * 只有当前策略为 NONE 时才接受 NONE 标记,避免标记损坏导致跳过校验
+	 * @return 校验函数
+	 */
+	public Verifier verifier() {
+		return new Verifier(this);
+	}
+
+	/**
+	 * 根据校验和识别策略
+	 * @param checksum 校验和
+	 * @return 无法识别返回 null
+	 */
+	@Nullable public static ChecksumStrategy detect(Slice checksum) {
+		final int len = checksum.getLength();
+		if (len == SM3.length) {
+			return SM3;
+		}
+		if (len == 0) {
+			return null;
+		}
+		final int mark = checksum.getData()[checksum.getOffset()];
+		for (ChecksumStrategy strategy : VALUES) {
+			if (strategy.tag == mark && strategy.length == len) {
+				return strategy;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 根据校验和的标记选择策略的校验函数
+	 */
+	public static final class Verifier implements BiFunction<UncheckedCipher, byte[], Boolean> {
+
+		private final ChecksumStrategy strategy;
+
+		Verifier(ChecksumStrategy strategy) {
+			this.strategy = strategy;
+		}
+
+		/**
+		 * 选择校验策略
+		 * @param checksum 密文携带的校验和
+		 * @return 不接受的校验和返回 null
+		 */
+		@Nullable public ChecksumStrategy select(Slice checksum) {
+			ChecksumStrategy found = detect(checksum);
+			if (found == NONE && strategy != NONE) {
+				return null;
+			}
+			return found;
+		}
+
+		@Override
+		public Boolean apply(UncheckedCipher input, byte[] plain) {
+			ChecksumStrategy found = select(input.getChecksum());
+			if (found == null) {
+				return false;
+			}
+			Slice expected = input.getChecksum();
+			byte[] actual = found.calculator.apply(plain);
+			return CryptoUtil.constantTimeEquals(actual, 0, expected.getData(), expected.getOffset(),
+					expected.getLength());
+		}
+
+	}
+
+	static class TaggedChecksum implements IncrementalChecksum {
+
+		private final byte tag;
+
+		private final IncrementalChecksum checksum;
+
+		TaggedChecksum(byte tag, IncrementalChecksum checksum) {
+			this.tag = tag;
+			this.checksum = checksum;
+		}
+
+		@Override
+		public int length() {
+			return 1 + checksum.length();
+		}
+
+		@Override
+		public void update(byte[] data, int offset, int length) {
+			checksum.update(data, offset, length);
+		}
+
+		@Override
+		public int doFinal(byte[] out, int offset) {
+			out[offset] = tag;
+			return 1 + checksum.doFinal(out, offset + 1);
+		}
+
+		@Override
+		public void reset() {
+			checksum.reset();
+		}
+
+	}
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core;
+
+import lombok.experimental.UtilityClass;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SM3Digest;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.zip.Checksum;
+
+/**
+ * {@link IncrementalChecksum} 工厂
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+@UtilityClass
+public class Checksums {
+
+	/**
+	 * SM3 校验和,输出与 {@code CryptoUtil.SM3_CHECKSUM_CALCULATOR} 一致
+	 * @return IncrementalChecksum
+	 */
+	public IncrementalChecksum sm3() {
+		return new DigestChecksum(new SM3Digest());
+	}
+
+	/**
+	 * 截断的 SM3 校验和,输出 SM3 摘要的前 length 个字节
+	 * @param length 输出长度,1 到 32
+	 * @return IncrementalChecksum
+	 * @since 1.9
+	 */
+	public IncrementalChecksum sm3(int length) {
+		return new TruncatedChecksum(sm3(), length);
+	}
+
+	/**
+	 * CRC32C 校验和,输出 4 字节(大端序),只能检测数据损坏,不能防篡改<br/>
+	 * JDK 9 及以上使用 {@code java.util.zip.CRC32C}(由 JIT 使用 CPU 的 CRC32 指令实现),JDK 8 使用查表实现
+	 * @return IncrementalChecksum
+	 * @since 1.9
+	 */
+	public IncrementalChecksum crc32c() {
+		return new Crc32cChecksum(Crc32cChecksum.newChecksum());
+	}
+
+	/**
+	 * 空校验和,输出长度为0
+	 * @return IncrementalChecksum
+	 */
+	public IncrementalChecksum none() {
+		return NoneChecksum.INSTANCE;
+	}
+
+	static class DigestChecksum implements IncrementalChecksum {
+
+		private final Digest digest;
+
+		DigestChecksum(Digest digest) {
+			this.digest = digest;
+		}
+
+		@Override
+		public int length() {
+			return digest.getDigestSize();
+		}
+
+		@Override
+		public void update(byte[] data, int offset, int length) {
+			digest.update(data, offset, length);
+		}
+
+		@Override
+		public int doFinal(byte[] out, int offset) {
+			return digest.doFinal(out, offset);
+		}
+
+		@Override
+		public void reset() {
+			digest.reset();
+		}
+
+	}
+
+	static class TruncatedChecksum implements IncrementalChecksum {
+
+		private final IncrementalChecksum checksum;
+
+		private final int length;
+
+		private final byte[] buffer;
+
+		TruncatedChecksum(IncrementalChecksum checksum, int length) {
+			if (length <= 0 || length > checksum.length()) {
+				throw new IllegalArgumentException("length must between 1 and " + checksum.length());
+			}
+			this.checksum = checksum;
+			this.length = length;
+			this.buffer = new byte[checksum.length()];
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public void update(byte[] data, int offset, int length) {
+			checksum.update(data, offset, length);
+		}
+
+		@Override
+		public int doFinal(byte[] out, int offset) {
+			checksum.doFinal(buffer, 0);
+			System.arraycopy(buffer, 0, out, offset, length);
+			return length;
+		}
+
+		@Override
+		public void reset() {
+			checksum.reset();
+		}
+
+	}
+
+	static class Crc32cChecksum implements IncrementalChecksum {
+
+		@Nullable private static final MethodHandle JDK_CRC32C = jdkCrc32c();
+
+		private final Checksum crc;
+
+		Crc32cChecksum(Checksum crc) {
+			this.crc = crc;
+		}
+
+		static Checksum newChecksum() {
+			if (JDK_CRC32C == null) {
+				return new PureJavaCrc32c();
+			}
+			try {
+				return (Checksum) JDK_CRC32C.invokeExact();
+			}
+			catch (Throwable e) {
+				throw new IllegalStateException("Unable to create CRC32C", e);
+			}
+		}
+
+		@Nullable private static MethodHandle jdkCrc32c() {
+			try {
+				Class<?> type = Class.forName("java.util.zip.CRC32C");
+				return MethodHandles.publicLookup()
+					.findConstructor(type, MethodType.methodType(void.class))
+					.asType(MethodType.methodType(Checksum.class));
+			}
+			catch (ReflectiveOperationException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public int length() {
+			return 4;
+		}
+
+		@Override
+		public void update(byte[] data, int offset, int length) {
+			crc.update(data, offset, length);
+		}
+
+		@Override
+		public int doFinal(byte[] out, int offset) {
+			int value = (int) crc.getValue();
+			out[offset] = (byte) (value >>> 24);
+			out[offset + 1] = (byte) (value >>> 16);
+			out[offset + 2] = (byte) (value >>> 8);
+			out[offset + 3] = (byte) value;
+			crc.reset();
+			return 4;
+		}
+
+		@Override
+		public void reset() {
+			crc.reset();
+		}
+
+	}
+
+	/**
+	 * CRC32C (Castagnoli) 查表实现,用于没有 {@code java.util.zip.CRC32C} 的 JDK 8
+	 */
+	static class PureJavaCrc32c implements Checksum {
+
+		private static final int[] TABLE = new int[256];
+
+		static {
+			for (int i = 0; i < TABLE.length; i++) {
+				int c = i;
+				for (int k = 0; k < 8; k++) {
+					c = (c & 1) != 0 ? (c >>> 1) ^ 0x82F63B78 : c >>> 1;
+				}
+				TABLE[i] = c;
+			}
+		}
+
+		private int crc = 0xFFFFFFFF;
+
+		@Override
+		public void update(int b) {
+			crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+		}
+
+		@Override
+		public void update(byte[] b, int off, int len) {
+			int c = crc;
+			for (int i = off, end = off + len; i < end; i++) {
+				c = (c >>> 8) ^ TABLE[(c ^ b[i]) & 0xFF];
+			}
+			crc = c;
+		}
+
+		@Override
+		public long getValue() {
+			return ~crc & 0xFFFFFFFFL;
+		}
+
+		@Override
+		public void reset() {
+			crc = 0xFFFFFFFF;
+		}
+
+	}
+
+	static class NoneChecksum implements IncrementalChecksum {
+
+		static final NoneChecksum INSTANCE = new NoneChecksum();
+
+		@Override
+		public int length() {
+			return 0;
+		}
+
+		@Override
+		public void update(byte[] data, int offset, int length) {
+			// nothing to do
+		}
+
+		@Override
+		public int doFinal(byte[] out, int offset) {
+			return 0;
+		}
+
+		@Override
+		public void reset() {
+			// nothing to do
+		}
+
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量加解密的结果,按列存储: 所有数据保存在同一个数组中,通过偏移量和长度定位每一项<br/>
+ * 校验和(如果有)同样保存在同一个数组中,每一项的长度相同
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+@Getter
+@RequiredArgsConstructor
+public class CipherBatch {
+
+	private final byte[] data;
+
+	private final int[] offsets;
+
+	private final int[] lengths;
+
+	@Nullable private final byte[] checksums;
+
+	private final int checksumLength;
+
+	/**
+	 * 将多个数据复制为按列存储的形式
+	 * @param items 数据
+	 * @return CipherBatch
+	 */
+	public static CipherBatch of(List<byte[]> items) {
+		final int size = items.size();
+		int[] offsets = new int[size];
+		int[] lengths = new int[size];
+		int total = 0;
+		int i = 0;
+		for (byte[] item : items) {
+			offsets[i] = total;
+			lengths[i] = item.length;
+			total = Math.addExact(total, item.length);
+			i++;
+		}
+		byte[] data = new byte[total];
+		i = 0;
+		for (byte[] item : items) {
+			System.arraycopy(item, 0, data, offsets[i], item.length);
+			i++;
+		}
+		return new CipherBatch(data, offsets, lengths, null, 0);
+	}
+
+	public int size() {
+		return offsets.length;
+	}
+
+	/**
+	 * 获取一项数据,不复制
+	 * @param index 位置
+	 * @return Slice
+	 */
+	public Slice slice(int index) {
+		return Slice.range(data, offsets[index], lengths[index]);
+	}
+
+	/**
+	 * 获取一项数据的副本
+	 * @param index 位置
+	 * @return 数据
+	 */
+	public byte[] get(int index) {
+		return slice(index).unwrap();
+	}
+
+	/**
+	 * 获取一项数据的校验和,不复制
+	 * @param index 位置
+	 * @return 校验和,没有校验和时返回空的 Slice
+	 */
+	public Slice checksum(int index) {
+		if (checksums == null) {
+			return Slice.wrap(null);
+		}
+		return Slice.range(checksums, index * checksumLength, checksumLength);
+	}
+
+	/**
+	 * 复制全部数据
+	 * @return 数据列表
+	 */
+	public List<byte[]> toList() {
+		List<byte[]> list = new ArrayList<>(size());
+		for (int i = 0; i < size(); i++) {
+			list.add(get(i));
+		}
+		return list;
+	}
+
+}
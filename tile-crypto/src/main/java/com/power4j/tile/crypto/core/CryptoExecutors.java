@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core;
+
+import lombok.experimental.UtilityClass;
+import org.jspecify.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * 异步加解密使用的线程池<br/>
+ * 默认线程池:
+ * <ul>
+ * <li>JDK 21 及以上: 每个任务一个虚拟线程,{@link com.power4j.tile.crypto.bc.CipherPool} 不使用
+ * {@code synchronized},等待 Cipher 实例时不会钉住载体线程</li>
+ * <li>其他: {@link ForkJoinPool#commonPool()}</li>
+ * </ul>
+ * 可以通过系统属性 {@code tile.crypto.async.virtual=false} 禁用虚拟线程
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+@UtilityClass
+public class CryptoExecutors {
+
+	/**
+	 * 是否使用虚拟线程的系统属性
+	 */
+	public static final String VIRTUAL_PROPERTY = "tile.crypto.async.virtual";
+
+	/**
+	 * 默认线程池
+	 * @return Executor
+	 */
+	public Executor defaultExecutor() {
+		return Holder.EXECUTOR;
+	}
+
+	/**
+	 * 默认线程池是否使用虚拟线程
+	 * @return true 表示使用虚拟线程
+	 */
+	public boolean isVirtual() {
+		return Holder.VIRTUAL;
+	}
+
+	/**
+	 * 在线程池中执行,调用线程不会被阻塞<br/>
+	 * 执行失败时 future 以 {@link java.util.concurrent.CompletionException} 结束,原始异常为 cause
+	 * @param task 任务
+	 * @param executor 线程池
+	 * @return CompletableFuture
+	 * @param <T> 结果类型
+	 */
+	public <T> CompletableFuture<T> supply(Supplier<T> task, Executor executor) {
+		return CompletableFuture.supplyAsync(task, executor);
+	}
+
+	/**
+	 * 虚拟线程池,JDK 21 以下返回 null
+	 */
+	@Nullable static Executor virtualThreadExecutor() {
+		if (!Boolean.parseBoolean(System.getProperty(VIRTUAL_PROPERTY, "true"))) {
+			return null;
+		}
+		try {
+			return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static final class Holder {
+
+		private static final Executor VIRTUAL_EXECUTOR = virtualThreadExecutor();
+
+		private static final boolean VIRTUAL = VIRTUAL_EXECUTOR != null;
+
+		private static final Executor EXECUTOR = VIRTUAL ? VIRTUAL_EXECUTOR : ForkJoinPool.commonPool();
+
+	}
+
+}
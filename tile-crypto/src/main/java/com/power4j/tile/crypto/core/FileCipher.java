@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core;
+
+import com.power4j.tile.crypto.utils.CryptoUtil;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 文件加解密,通过内存映射处理文件,堆内存占用与文件大小无关<br/>
+ * 注意: 校验和在数据全部输出后才能确定,校验失败时明文已经写入目标文件,调用方需要自行删除
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public interface FileCipher {
+
+	/**
+	 * 加密文件
+	 * @param source 明文文件
+	 * @param target 密文文件,存在时会被覆盖,不能与明文文件相同
+	 * @return StreamCipherDetails
+	 * @throws IOException 读写异常
+	 * @throws GeneralCryptoException
+	 */
+	StreamCipherDetails encrypt(Path source, Path target) throws IOException, GeneralCryptoException;
+
+	/**
+	 * 解密文件并验证校验和
+	 * @param source 密文文件
+	 * @param target 明文文件,存在时会被覆盖,不能与密文文件相同
+	 * @param checksum 期望的校验和,为 null 表示跳过校验
+	 * @return 返回解密结果
+	 * @throws IOException 读写异常
+	 * @throws GeneralCryptoException
+	 */
+	Verified<StreamCipherDetails> decrypt(Path source, Path target, @Nullable byte[] checksum)
+			throws IOException, GeneralCryptoException;
+
+	/**
+	 * 解密文件
+	 * @param source 密文文件
+	 * @param target 明文文件,存在时会被覆盖,不能与密文文件相同
+	 * @return StreamCipherDetails
+	 * @throws IOException 读写异常
+	 * @throws GeneralCryptoException
+	 */
+	default StreamCipherDetails decrypt(Path source, Path target) throws IOException, GeneralCryptoException {
+		return CryptoUtil.requirePass(decrypt(source, target, null));
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 可增量计算的校验和,用于流式加解密等无法一次性拿到全部数据的场景<br/>
+ * 实例是有状态的,不能在线程间共享
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ * @see Checksums
+ */
+public interface IncrementalChecksum {
+
+	/**
+	 * 校验和长度
+	 * @return 字节数
+	 */
+	int length();
+
+	/**
+	 * 追加数据
+	 * @param data 数据
+	 * @param offset 开始位置
+	 * @param length 长度
+	 */
+	void update(byte[] data, int offset, int length);
+
+	/**
+	 * 追加 position 到 limit 之间的数据,处理后 position 等于 limit
+	 * @param data 数据
+	 */
+	default void update(ByteBuffer data) {
+		if (data.hasArray()) {
+			update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+			data.position(data.limit());
+			return;
+		}
+		byte[] chunk = new byte[Math.min(data.remaining(), 4096)];
+		while (data.hasRemaining()) {
+			int n = Math.min(chunk.length, data.remaining());
+			data.get(chunk, 0, n);
+			update(chunk, 0, n);
+		}
+	}
+
+	/**
+	 * 输出校验和并重置状态
+	 * @param out 输出缓冲区
+	 * @param offset 输出位置
+	 * @return 写入的字节数,等于 {@link #length()}
+	 */
+	int doFinal(byte[] out, int offset);
+
+	/**
+	 * 输出校验和并重置状态
+	 * @return 校验和
+	 */
+	default byte[] doFinal() {
+		byte[] out = new byte[length()];
+		doFinal(out, 0);
+		return out;
+	}
+
+	/**
+	 * 重置状态
+	 */
+	void reset();
+
+}
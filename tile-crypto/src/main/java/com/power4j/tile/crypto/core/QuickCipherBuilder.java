@@ -16,14 +16,20 @@
 
 package com.power4j.tile.crypto.core;
 
+import com.power4j.tile.crypto.bc.BouncyCastleAeadCipher;
 import com.power4j.tile.crypto.bc.BouncyCastleQuickCipher;
+import com.power4j.tile.crypto.bc.CipherPool;
 import com.power4j.tile.crypto.bc.Spec;
+import com.power4j.tile.crypto.engine.CipherBackend;
+import com.power4j.tile.crypto.engine.CipherBackends;
+import com.power4j.tile.crypto.metrics.CryptoMetrics;
 import com.power4j.tile.crypto.utils.CryptoUtil;
 import com.power4j.tile.crypto.utils.Validate;
 import org.jspecify.annotations.Nullable;
 
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -34,10 +40,17 @@ import java.util.function.Supplier;
  * <li>algorithmName: 密码算法的名称,如 AES,SM4</li>
  * <li>mode: 加密模式,如 ECB, CBC</li>
  * <li>padding: 填充算法名称,如 PKCS7Padding</li>
- * <li>secretKeySpecSupplier: 密钥生成器</li>
+ * <li>secretKeySpecSupplier: 密钥生成器,结果会被缓存,密钥轮换时调用
+ * {@link BouncyCastleQuickCipher#invalidateKey()}</li>
  * <li>ivParameterSpecSupplier: 可选,初始化向量生成器,有些密钥算法不需要</li>
  * <li>checksumCalculator: 可选,校验和计算函数,如需输出校验需要指定</li>
  * <li>checksumVerifier: 可选,校验和校验函数,需要校验解密数据数据时指定</li>
+ * <li>checksum: 可选,预定义的校验和策略(SM3,截断的 SM3,CRC32C),同时设置以上三项</li>
+ * <li>incrementalChecksum: 可选,与 checksumCalculator 等价的增量校验和,流式加解密需要</li>
+ * <li>cipherPool: 可选,Cipher 实例的并发策略,默认单实例串行执行</li>
+ * <li>backend: 可选,加解密的实现,默认使用 JCA Cipher</li>
+ * <li>mode: GCM/CCM 为认证加密,忽略校验和配置,未指定 IV 时每次加密使用随机 IV,不允许使用固定的 IV</li>
+ * <li>parallel: 可选,大数据量分块并行处理(ECB,CTR 以及 CBC 解密),默认不启用</li>
  * </ul>
  *
  * @author CJ (power4j@outlook.com)
@@ -57,10 +70,26 @@ public class QuickCipherBuilder {
 
 	private Supplier<IvParameterSpec> ivParameterSpecSupplier;
 
+	private boolean constantIv;
+
+	private int aeadIvLength;
+
 	private Function<byte[], byte[]> checksumCalculator;
 
 	private BiFunction<UncheckedCipher, byte[], Boolean> checksumVerifier;
 
+	private Supplier<IncrementalChecksum> incrementalChecksum;
+
+	private BiFunction<String, CipherBackend, CipherPool> cipherPoolFactory;
+
+	private CipherBackend backend;
+
+	private ForkJoinPool parallelPool;
+
+	private int parallelThreshold;
+
+	private CryptoMetrics metrics;
+
 	QuickCipherBuilder(String algorithmName) {
 		this.algorithmName = algorithmName;
 	};
@@ -85,50 +114,119 @@ public class QuickCipherBuilder {
 	}
 
 	public QuickCipherBuilder secretKey(byte[] key) {
-		return secretKeySpecSupplier(() -> CryptoUtil.createKey(key, algorithmName));
+		final SecretKeySpec spec = CryptoUtil.createKey(key, algorithmName);
+		return secretKeySpecSupplier(() -> spec);
 	}
 
 	public QuickCipherBuilder secretKeyHex(String val) {
-		this.secretKeySpecSupplier = () -> CryptoUtil.createKey(CryptoUtil.decodeHex(val, null), algorithmName);
-		return this;
+		return secretKey(CryptoUtil.decodeHex(val, null));
 	}
 
 	public QuickCipherBuilder secretKeyBase64(String val) {
-		this.secretKeySpecSupplier = () -> CryptoUtil.createKey(CryptoUtil.decodeBase64(val, null), algorithmName);
-		return this;
+		return secretKey(CryptoUtil.decodeBase64(val, null));
 	}
 
+	/**
+	 * IV 生成器,GCM/CCM 模式下由调用方保证同一个密钥下每次返回的 IV 不重复(例如计数器)
+	 * @param supplier IV 生成器
+	 * @return this
+	 */
 	public QuickCipherBuilder ivParameterSpecSupplier(Supplier<IvParameterSpec> supplier) {
 		this.ivParameterSpecSupplier = supplier;
+		this.constantIv = false;
 		return this;
 	}
 
+	/**
+	 * 固定的 IV,GCM/CCM 模式不可用
+	 * @param iv IV
+	 * @return this
+	 */
 	public QuickCipherBuilder ivParameter(@Nullable byte[] iv) {
 		if (iv == null) {
-			return ivParameterSpecSupplier(() -> null);
+			ivParameterSpecSupplier(() -> null);
+		}
+		else {
+			final IvParameterSpec spec = new IvParameterSpec(iv);
+			ivParameterSpecSupplier(() -> spec);
 		}
-		return ivParameterSpecSupplier(() -> new IvParameterSpec(iv));
+		this.constantIv = true;
+		return this;
+	}
+
+	/**
+	 * 每次加密使用新的随机 IV,解密时需要通过 {@link UncheckedCipher#getIv()} 提供加密时的 IV<br/>
+	 * 只有 encrypt(byte[]) 和 decrypt(UncheckedCipher) 携带 IV,其他加解密方法会抛出异常
+	 * @param length IV 长度
+	 * @return this
+	 * @see RandomIvSupplier
+	 * @since 1.9
+	 */
+	public QuickCipherBuilder randomIv(int length) {
+		return ivParameterSpecSupplier(new RandomIvSupplier(length));
+	}
+
+	/**
+	 * 认证加密模式使用 ivParameterSpecSupplier 时 IV 的长度,用于解析 IV||密文||认证标签,默认 12 字节
+	 * @param length IV 长度
+	 * @return this
+	 * @see BouncyCastleAeadCipher#open(byte[])
+	 * @since 1.9
+	 */
+	public QuickCipherBuilder aeadIvLength(int length) {
+		this.aeadIvLength = length;
+		return this;
 	}
 
 	public QuickCipherBuilder ivParameterHex(@Nullable String val) {
 		if (val == null) {
 			return ivParameterSpecSupplier(() -> null);
 		}
-		return ivParameterSpecSupplier(() -> new IvParameterSpec(CryptoUtil.decodeHex(val, null)));
+		return ivParameter(CryptoUtil.decodeHex(val, null));
 	}
 
 	public QuickCipherBuilder ivParameterBase64(String val) {
-		this.ivParameterSpecSupplier = () -> new IvParameterSpec(CryptoUtil.decodeBase64(val, null));
-		return this;
+		return ivParameter(CryptoUtil.decodeBase64(val, null));
 	}
 
 	public QuickCipherBuilder checksumCalculator(@Nullable Function<byte[], byte[]> calculator) {
 		this.checksumCalculator = calculator;
+		this.incrementalChecksum = null;
 		return this;
 	}
 
 	public QuickCipherBuilder sm3ChecksumCalculator() {
 		this.checksumCalculator = CryptoUtil.SM3_CHECKSUM_CALCULATOR;
+		this.incrementalChecksum = Checksums::sm3;
+		return this;
+	}
+
+	/**
+	 * 指定增量校验和,同时作为 checksumCalculator 使用
+	 * @param factory 增量校验和工厂
+	 * @return this
+	 */
+	public QuickCipherBuilder incrementalChecksum(Supplier<IncrementalChecksum> factory) {
+		this.checksumCalculator = b -> {
+			IncrementalChecksum checksum = factory.get();
+			checksum.update(b, 0, b.length);
+			return checksum.doFinal();
+		};
+		this.incrementalChecksum = factory;
+		return this;
+	}
+
+	/**
+	 * 使用预定义的校验和策略,同时设置校验和计算函数,增量校验和以及校验函数<br/>
+	 * 校验和带有策略标记,解密时按标记选择校验方式
+	 * @param strategy 校验和策略
+	 * @return this
+	 * @since 1.9
+	 */
+	public QuickCipherBuilder checksum(ChecksumStrategy strategy) {
+		this.checksumCalculator = strategy.calculator();
+		this.incrementalChecksum = strategy.factory();
+		this.checksumVerifier = strategy.verifier();
 		return this;
 	}
 
@@ -142,6 +240,94 @@ public class QuickCipherBuilder {
 		return this;
 	}
 
+	/**
+	 * 自定义 Cipher 实例的并发策略
+	 * <p>
+	 * 工厂只接收 transformation,同时指定了 {@link #backend(CipherBackend)} 时,工厂创建的 CipherPool
+	 * 必须使用同一个实现,否则 {@link #build()} 抛出异常.需要使用指定实现时推荐 {@link #threadLocalCipher()} 或者
+	 * {@link #pooledCipher(int)}
+	 * @param factory 根据 transformation 创建 CipherPool
+	 * @return this
+	 */
+	public QuickCipherBuilder cipherPool(Function<String, CipherPool> factory) {
+		this.cipherPoolFactory = (transformation, ignored) -> factory.apply(transformation);
+		return this;
+	}
+
+	/**
+	 * 指定加解密的实现,例如 {@link CipherBackends#sm4()}
+	 * @param backend 实现
+	 * @return this
+	 * @see CipherBackends
+	 */
+	public QuickCipherBuilder backend(CipherBackend backend) {
+		this.backend = backend;
+		return this;
+	}
+
+	/**
+	 * 每个线程使用独立的 Cipher 实例,适用于平台线程池
+	 * @return this
+	 * @see CipherPool#threadLocal(String, CipherBackend)
+	 */
+	public QuickCipherBuilder threadLocalCipher() {
+		this.cipherPoolFactory = CipherPool::threadLocal;
+		return this;
+	}
+
+	/**
+	 * 使用固定数量的预创建 Cipher 实例,适用于虚拟线程
+	 * @param size 实例数量
+	 * @return this
+	 * @see CipherPool#bounded(String, CipherBackend, int)
+	 */
+	public QuickCipherBuilder pooledCipher(int size) {
+		this.cipherPoolFactory = (transformation, backend) -> CipherPool.bounded(transformation, backend, size);
+		return this;
+	}
+
+	/**
+	 * 启用大数据量分块并行处理,数据长度达到默认阈值(1MB)时生效
+	 * @param pool 线程池
+	 * @return this
+	 * @see #parallel(ForkJoinPool, int)
+	 */
+	public QuickCipherBuilder parallel(ForkJoinPool pool) {
+		return parallel(pool, 0);
+	}
+
+	/**
+	 * 启用大数据量分块并行处理,仅对 ECB,CTR 以及 CBC 解密有效,输出与单线程处理一致
+	 * @param pool 线程池
+	 * @param threshold 启用并行处理的最小数据长度,小于等于 0 时使用默认值
+	 * @return this
+	 */
+	public QuickCipherBuilder parallel(ForkJoinPool pool, int threshold) {
+		this.parallelPool = pool;
+		this.parallelThreshold = threshold;
+		return this;
+	}
+
+	/**
+	 * 记录调用次数,字节数,失败次数以及耗时分布
+	 * @param metrics 指标记录,为 null 时不记录
+	 * @return this
+	 * @see com.power4j.tile.crypto.metrics.MetricsRecorder
+	 * @since 1.9
+	 */
+	public QuickCipherBuilder metrics(@Nullable CryptoMetrics metrics) {
+		this.metrics = metrics;
+		return this;
+	}
+
+	@Nullable CryptoMetrics getMetrics() {
+		return metrics;
+	}
+
+	boolean isRandomIv() {
+		return ivParameterSpecSupplier instanceof RandomIvSupplier;
+	}
+
 	public BouncyCastleQuickCipher build() {
 		Validate.notEmpty(algorithmName, "algorithmName must not be empty");
 		Validate.notEmpty(mode, "mode must not be empty");
@@ -150,12 +336,42 @@ public class QuickCipherBuilder {
 
 		Function<byte[], byte[]> calculator = checksumCalculator == null ? CryptoUtil.EMPTY_CHECKSUM_CALCULATOR
 				: checksumCalculator;
+		Supplier<IncrementalChecksum> checksumFactory = checksumCalculator == null ? Checksums::none
+				: incrementalChecksum;
 		BiFunction<UncheckedCipher, byte[], Boolean> verifier = checksumVerifier == null
 				? CryptoUtil.IGNORED_CHECKSUM_VERIFIER : checksumVerifier;
 		Supplier<IvParameterSpec> ivSpecSupplier = ivParameterSpecSupplier == null ? () -> null
 				: ivParameterSpecSupplier;
 		String transformation = CryptoUtil.transformation(algorithmName, mode, padding);
-		return new BouncyCastleQuickCipher(transformation, secretKeySpecSupplier, ivSpecSupplier, calculator, verifier);
+		// 默认实现由创建 Cipher 时检查,避免重复的 Provider 查找
+		if (backend != null && !backend.supports(transformation)) {
+			throw new IllegalArgumentException("Backend " + backend.getName() + " does not support " + transformation);
+		}
+		CipherBackend cipherBackend = backend == null ? CipherBackends.jce() : backend;
+		CipherPool pool = cipherPoolFactory == null ? CipherPool.exclusive(transformation, cipherBackend)
+				: cipherPoolFactory.apply(transformation, cipherBackend);
+		if (backend != null && pool.getBackend() != backend) {
+			throw new IllegalArgumentException(
+					"CipherPool uses backend " + pool.getBackend().getName() + " instead of " + backend.getName());
+		}
+		if (BouncyCastleAeadCipher.isAeadMode(mode)) {
+			if (!Spec.PADDING_NO_PADDING.equalsIgnoreCase(padding)) {
+				throw new IllegalArgumentException("AEAD mode requires " + Spec.PADDING_NO_PADDING);
+			}
+			// 同一个密钥下重复使用 nonce 会泄露认证密钥
+			if (constantIv) {
+				throw new IllegalArgumentException(
+						"AEAD mode does not allow a fixed IV, use randomIv or ivParameterSpecSupplier");
+			}
+			Supplier<IvParameterSpec> nonceSupplier = ivParameterSpecSupplier == null
+					? new RandomIvSupplier(BouncyCastleAeadCipher.DEFAULT_IV_LENGTH) : ivParameterSpecSupplier;
+			int ivLength = nonceSupplier instanceof RandomIvSupplier ? ((RandomIvSupplier) nonceSupplier).getLength()
+					: aeadIvLength > 0 ? aeadIvLength : BouncyCastleAeadCipher.DEFAULT_IV_LENGTH;
+			return new BouncyCastleAeadCipher(pool, secretKeySpecSupplier, nonceSupplier, ivLength,
+					BouncyCastleAeadCipher.DEFAULT_TAG_LENGTH, metrics);
+		}
+		return new BouncyCastleQuickCipher(pool, secretKeySpecSupplier, ivSpecSupplier, calculator, verifier,
+				checksumFactory, parallelPool, parallelThreshold, metrics);
 	}
 
 }
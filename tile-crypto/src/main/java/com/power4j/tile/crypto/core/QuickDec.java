@@ -20,6 +20,13 @@ import com.power4j.tile.crypto.core.encode.HexEncoder;
 import com.power4j.tile.crypto.utils.CryptoUtil;
 import com.power4j.tile.crypto.wrapper.InputDecoder;
 import com.power4j.tile.crypto.wrapper.OutputEncoder;
+import org.jspecify.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 快速解密操作,适用于少量数据的解密
@@ -36,16 +43,7 @@ public interface QuickDec {
 	 * @throws GeneralCryptoException
 	 */
 	default byte[] decrypt(byte[] data) throws GeneralCryptoException {
-		Verified<byte[]> result = decrypt(UncheckedCipher.of(data), true);
-		if (!result.isPass()) {
-			Throwable throwable = result.getCause();
-			if (throwable != null) {
-				throw CryptoUtil.wrapGeneralCryptoException("Data verification failed", throwable);
-			}
-			throw new GeneralCryptoException("Data verification failed");
-		}
-		assert result.getData() != null;
-		return result.getData();
+		return CryptoUtil.requirePass(decrypt(UncheckedCipher.of(data), true));
 	}
 
 	/**
@@ -57,6 +55,145 @@ public interface QuickDec {
 	 */
 	Verified<byte[]> decrypt(UncheckedCipher input, boolean skipCheck) throws GeneralCryptoException;
 
+	/**
+	 * 计算解密输出的最大长度
+	 * <p>
+	 * 默认实现返回密文长度(明文不会比密文长),具体实现可以覆盖此方法给出更准确的结果
+	 * @param length 密文长度
+	 * @return 明文的最大长度
+	 * @since 1.9
+	 */
+	default int decryptOutputSize(int length) {
+		return length;
+	}
+
+	/**
+	 * 解密并验证校验和,明文写入调用方提供的缓冲区
+	 * <p>
+	 * 默认实现会产生临时对象,具体实现可以覆盖此方法实现无内存分配的解密
+	 * @param data 密文
+	 * @param offset 开始位置
+	 * @param length 长度
+	 * @param out 明文输出,剩余空间需要不小于 {@link #decryptOutputSize(int)}
+	 * @param outOffset 明文输出的开始位置
+	 * @param checksum 期望的校验和,为 null 表示跳过校验
+	 * @param checksumOffset 校验和的开始位置
+	 * @param checksumLength 校验和的长度
+	 * @return 写入 out 的字节数
+	 * @throws GeneralCryptoException 解密失败或者校验失败(此时 out 中可能已经写入了明文)
+	 */
+	default int decryptInto(byte[] data, int offset, int length, byte[] out, int outOffset, @Nullable byte[] checksum,
+			int checksumOffset, int checksumLength) throws GeneralCryptoException {
+		Slice expected = checksum == null ? Slice.wrap(null) : Slice.range(checksum, checksumOffset, checksumLength);
+		UncheckedCipher input = new UncheckedCipher(Slice.range(data, offset, length), expected);
+		byte[] plain = CryptoUtil.requirePass(decrypt(input, checksum == null));
+		System.arraycopy(plain, 0, out, outOffset, plain.length);
+		return plain.length;
+	}
+
+	/**
+	 * 解密,明文写入调用方提供的缓冲区
+	 * @param data 密文
+	 * @param offset 开始位置
+	 * @param length 长度
+	 * @param out 明文输出
+	 * @param outOffset 明文输出的开始位置
+	 * @return 写入 out 的字节数
+	 * @throws GeneralCryptoException
+	 * @see #decryptInto(byte[], int, int, byte[], int, byte[], int, int)
+	 */
+	default int decryptInto(byte[] data, int offset, int length, byte[] out, int outOffset)
+			throws GeneralCryptoException {
+		return decryptInto(data, offset, length, out, outOffset, null, 0, 0);
+	}
+
+	/**
+	 * 批量解密,不验证校验和
+	 * @param data 密文
+	 * @return 按列存储的明文
+	 * @throws GeneralCryptoException
+	 */
+	default CipherBatch decryptAll(List<byte[]> data) throws GeneralCryptoException {
+		return decryptAll(CipherBatch.of(data), true, null);
+	}
+
+	/**
+	 * 批量解密
+	 * @param batch 密文和校验和,一般由 {@link QuickEnc#encryptAll(List)} 产生
+	 * @param skipCheck 是否跳过校验
+	 * @return 按列存储的明文
+	 * @throws GeneralCryptoException 任意一项解密失败或者校验失败
+	 */
+	default CipherBatch decryptAll(CipherBatch batch, boolean skipCheck) throws GeneralCryptoException {
+		return decryptAll(batch, skipCheck, null);
+	}
+
+	/**
+	 * 批量解密
+	 * <p>
+	 * 默认实现逐项调用 {@link #decryptInto(byte[], int, int, byte[], int, byte[], int, int)},忽略
+	 * pool 参数
+	 * @param batch 密文和校验和,一般由 {@link QuickEnc#encryptAll(List)} 产生
+	 * @param skipCheck 是否跳过校验
+	 * @param pool 可选,用于并行处理的线程池
+	 * @return 按列存储的明文
+	 * @throws GeneralCryptoException 任意一项解密失败或者校验失败
+	 */
+	default CipherBatch decryptAll(CipherBatch batch, boolean skipCheck, @Nullable ForkJoinPool pool)
+			throws GeneralCryptoException {
+		final int size = batch.size();
+		final boolean verify = !skipCheck && batch.getChecksums() != null;
+		int[] offsets = new int[size];
+		int[] lengths = new int[size];
+		int total = 0;
+		for (int i = 0; i < size; i++) {
+			offsets[i] = total;
+			total = Math.addExact(total, decryptOutputSize(batch.getLengths()[i]));
+		}
+		byte[] out = new byte[total];
+		for (int i = 0; i < size; i++) {
+			Slice checksum = batch.checksum(i);
+			lengths[i] = decryptInto(batch.getData(), batch.getOffsets()[i], batch.getLengths()[i], out, offsets[i],
+					verify ? checksum.getData() : null, checksum.getOffset(), checksum.getLength());
+		}
+		return new CipherBatch(out, offsets, lengths, null, 0);
+	}
+
+	/**
+	 * 解密并验证校验和,密文为 src 中 position 到 limit 之间的数据,处理后 src 的 position 等于 limit
+	 * <p>
+	 * 支持堆内存,直接内存以及内存映射的 ByteBuffer.默认实现会复制数据,具体实现可以覆盖此方法避免复制
+	 * @param src 密文
+	 * @param dst 明文输出,剩余空间不足时抛出异常
+	 * @param checksum 期望的校验和,为 null 表示跳过校验
+	 * @return 写入 dst 的字节数
+	 * @throws GeneralCryptoException 解密失败或者校验失败(此时 dst 中可能已经写入了明文)
+	 */
+	default int decrypt(ByteBuffer src, ByteBuffer dst, @Nullable ByteBuffer checksum) throws GeneralCryptoException {
+		byte[] data = new byte[src.remaining()];
+		src.get(data);
+		byte[] expected = null;
+		if (checksum != null) {
+			expected = new byte[checksum.remaining()];
+			checksum.get(expected);
+		}
+		byte[] plain = CryptoUtil.requirePass(decrypt(UncheckedCipher.of(data, expected), checksum == null));
+		dst.put(plain);
+		return plain.length;
+	}
+
+	/**
+	 * 解密,密文为 src 中 position 到 limit 之间的数据
+	 * @param src 密文
+	 * @param dst 明文输出
+	 * @return 写入 dst 的字节数
+	 * @throws GeneralCryptoException
+	 * @see #decrypt(ByteBuffer, ByteBuffer, ByteBuffer)
+	 */
+	default int decrypt(ByteBuffer src, ByteBuffer dst) throws GeneralCryptoException {
+		return decrypt(src, dst, null);
+	}
+
 	/**
 	 * 解密,支持输入和输出的转换
 	 * @param decoder 输入解码器
@@ -85,4 +222,38 @@ public interface QuickDec {
 		return decryptWith(HexEncoder.DEFAULT::decode, OutputEncoder.NO_OP, data);
 	}
 
+	/**
+	 * 异步解密,在 {@link CryptoExecutors#defaultExecutor()} 中执行
+	 * @param data 输入数据,完成之前不能修改
+	 * @return 解密数据
+	 * @since 1.9
+	 */
+	default CompletableFuture<byte[]> decryptAsync(byte[] data) {
+		return decryptAsync(data, CryptoExecutors.defaultExecutor());
+	}
+
+	/**
+	 * 异步解密,调用线程不会被阻塞(包括等待 Cipher 实例)
+	 * @param data 输入数据,完成之前不能修改
+	 * @param executor 执行解密的线程池
+	 * @return 解密数据
+	 * @since 1.9
+	 */
+	default CompletableFuture<byte[]> decryptAsync(byte[] data, Executor executor) {
+		return CryptoExecutors.supply(() -> decrypt(data), executor);
+	}
+
+	/**
+	 * 异步解密并验证校验和
+	 * @param input 密文信息,完成之前不能修改
+	 * @param skipCheck 是否跳过校验
+	 * @param executor 执行解密的线程池
+	 * @return 解密数据
+	 * @since 1.9
+	 */
+	default CompletableFuture<Verified<byte[]>> decryptAsync(UncheckedCipher input, boolean skipCheck,
+			Executor executor) {
+		return CryptoExecutors.supply(() -> decrypt(input, skipCheck), executor);
+	}
+
 }
@@ -19,6 +19,13 @@ package com.power4j.tile.crypto.core;
 import com.power4j.tile.crypto.core.encode.HexEncoder;
 import com.power4j.tile.crypto.wrapper.InputDecoder;
 import com.power4j.tile.crypto.wrapper.OutputEncoder;
+import org.jspecify.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 快速加密密操作,适用于少量数据的加密
@@ -48,6 +55,155 @@ public interface QuickEnc {
 		return encrypt(data, 0, data.length);
 	}
 
+	/**
+	 * 计算加密输出的最大长度
+	 * <p>
+	 * 默认实现返回 length + 16,适用于分组长度不超过16字节的分组密码,密文带有其他数据的实现需要覆盖此方法
+	 * @param length 明文长度
+	 * @return 密文长度
+	 * @since 1.9
+	 */
+	default int encryptOutputSize(int length) {
+		return Math.addExact(length, 16);
+	}
+
+	/**
+	 * 校验和的长度
+	 * <p>
+	 * 默认实现抛出 UnsupportedOperationException,需要使用 {@link #encryptInto} 输出校验和的实现必须覆盖此方法
+	 * @return 字节数,没有配置校验和时返回0
+	 * @since 1.9
+	 */
+	default int checksumLength() {
+		throw new UnsupportedOperationException("checksumLength is not implemented by " + getClass().getName());
+	}
+
+	/**
+	 * 加密,密文写入调用方提供的缓冲区
+	 * <p>
+	 * 默认实现会产生临时对象,具体实现可以覆盖此方法实现无内存分配的加密
+	 * @param data 输入数据
+	 * @param offset 开始位置
+	 * @param length 长度
+	 * @param out 密文输出,剩余空间需要不小于 {@link #encryptOutputSize(int)}
+	 * @param outOffset 密文输出的开始位置
+	 * @param checksum 校验和输出,为 null 表示不需要输出校验和
+	 * @param checksumOffset 校验和输出的开始位置,剩余空间需要不小于 {@link #checksumLength()}
+	 * @return 写入 out 的字节数
+	 * @throws GeneralCryptoException
+	 */
+	default int encryptInto(byte[] data, int offset, int length, byte[] out, int outOffset, @Nullable byte[] checksum,
+			int checksumOffset) throws GeneralCryptoException {
+		CipherBlobDetails details = encrypt(data, offset, length);
+		byte[] encrypted = details.getCipher();
+		System.arraycopy(encrypted, 0, out, outOffset, encrypted.length);
+		if (checksum != null) {
+			System.arraycopy(details.getChecksum(), 0, checksum, checksumOffset, details.getChecksum().length);
+		}
+		return encrypted.length;
+	}
+
+	/**
+	 * 加密,密文写入调用方提供的缓冲区
+	 * @param data 输入数据
+	 * @param offset 开始位置
+	 * @param length 长度
+	 * @param out 密文输出
+	 * @param outOffset 密文输出的开始位置
+	 * @return 写入 out 的字节数
+	 * @throws GeneralCryptoException
+	 * @see #encryptInto(byte[], int, int, byte[], int, byte[], int)
+	 */
+	default int encryptInto(byte[] data, int offset, int length, byte[] out, int outOffset)
+			throws GeneralCryptoException {
+		return encryptInto(data, offset, length, out, outOffset, null, 0);
+	}
+
+	/**
+	 * 批量加密
+	 * @param data 输入数据
+	 * @return 按列存储的密文和校验和
+	 * @throws GeneralCryptoException
+	 */
+	default CipherBatch encryptAll(List<byte[]> data) throws GeneralCryptoException {
+		return encryptAll(data, null);
+	}
+
+	/**
+	 * 批量加密
+	 * <p>
+	 * 默认实现逐项调用 {@link #encrypt(byte[])} 再合并结果,忽略 pool 参数
+	 * @param data 输入数据
+	 * @param pool 可选,用于并行处理的线程池
+	 * @return 按列存储的密文和校验和
+	 * @throws GeneralCryptoException 加密失败或者校验和长度不一致
+	 */
+	default CipherBatch encryptAll(List<byte[]> data, @Nullable ForkJoinPool pool) throws GeneralCryptoException {
+		final int size = data.size();
+		CipherBlobDetails[] items = new CipherBlobDetails[size];
+		int total = 0;
+		int i = 0;
+		for (byte[] item : data) {
+			items[i] = encrypt(item);
+			total = Math.addExact(total, items[i].getCipher().length);
+			i++;
+		}
+		final int checksumLength = size == 0 ? 0 : items[0].getChecksum().length;
+		int[] offsets = new int[size];
+		int[] lengths = new int[size];
+		byte[] out = new byte[total];
+		byte[] checksums = checksumLength > 0 ? new byte[size * checksumLength] : null;
+		int position = 0;
+		for (i = 0; i < size; i++) {
+			byte[] encrypted = items[i].getCipher();
+			byte[] checksum = items[i].getChecksum();
+			if (checksum.length != checksumLength) {
+				throw new GeneralCryptoException("Inconsistent checksum length at index " + i);
+			}
+			System.arraycopy(encrypted, 0, out, position, encrypted.length);
+			if (checksums != null) {
+				System.arraycopy(checksum, 0, checksums, i * checksumLength, checksumLength);
+			}
+			offsets[i] = position;
+			lengths[i] = encrypted.length;
+			position += encrypted.length;
+		}
+		return new CipherBatch(out, offsets, lengths, checksums, checksumLength);
+	}
+
+	/**
+	 * 加密,明文为 src 中 position 到 limit 之间的数据,处理后 src 的 position 等于 limit
+	 * <p>
+	 * 支持堆内存,直接内存以及内存映射的 ByteBuffer.默认实现会复制数据,具体实现可以覆盖此方法避免复制
+	 * @param src 明文
+	 * @param dst 密文输出,剩余空间不足时抛出异常
+	 * @param checksum 校验和输出,为 null 表示不需要输出校验和
+	 * @return 写入 dst 的字节数
+	 * @throws GeneralCryptoException
+	 */
+	default int encrypt(ByteBuffer src, ByteBuffer dst, @Nullable ByteBuffer checksum) throws GeneralCryptoException {
+		byte[] data = new byte[src.remaining()];
+		src.get(data);
+		CipherBlobDetails details = encrypt(data);
+		dst.put(details.getCipher());
+		if (checksum != null) {
+			checksum.put(details.getChecksum());
+		}
+		return details.getCipher().length;
+	}
+
+	/**
+	 * 加密,明文为 src 中 position 到 limit 之间的数据
+	 * @param src 明文
+	 * @param dst 密文输出
+	 * @return 写入 dst 的字节数
+	 * @throws GeneralCryptoException
+	 * @see #encrypt(ByteBuffer, ByteBuffer, ByteBuffer)
+	 */
+	default int encrypt(ByteBuffer src, ByteBuffer dst) throws GeneralCryptoException {
+		return encrypt(src, dst, null);
+	}
+
 	/**
 	 * 加密,支持输入和输出的转换
 	 * @param decoder 输入解码器
@@ -76,4 +232,25 @@ public interface QuickEnc {
 		return encryptWith(InputDecoder.NO_OP, HexEncoder.DEFAULT::encode, data);
 	}
 
+	/**
+	 * 异步加密,在 {@link CryptoExecutors#defaultExecutor()} 中执行
+	 * @param data 输入数据,完成之前不能修改
+	 * @return CipherEnvelope
+	 * @since 1.9
+	 */
+	default CompletableFuture<CipherBlobDetails> encryptAsync(byte[] data) {
+		return encryptAsync(data, CryptoExecutors.defaultExecutor());
+	}
+
+	/**
+	 * 异步加密,调用线程不会被阻塞(包括等待 Cipher 实例)
+	 * @param data 输入数据,完成之前不能修改
+	 * @param executor 执行加密的线程池
+	 * @return CipherEnvelope
+	 * @since 1.9
+	 */
+	default CompletableFuture<CipherBlobDetails> encryptAsync(byte[] data, Executor executor) {
+		return CryptoExecutors.supply(() -> encrypt(data), executor);
+	}
+
 }
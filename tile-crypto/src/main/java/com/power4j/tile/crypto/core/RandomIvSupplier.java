@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core;
+
+import javax.crypto.spec.IvParameterSpec;
+import java.security.SecureRandom;
+import java.util.function.Supplier;
+
+/**
+ * 随机 IV,每次调用生成新的 IV<br/>
+ * IV 只由 {@link QuickEnc#encrypt(byte[], int, int)} 输出,由
+ * {@link QuickDec#decrypt(UncheckedCipher, boolean)} 读取,其他不携带 IV 的加解密方法不可用
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ * @see QuickCipherBuilder#randomIv(int)
+ */
+public final class RandomIvSupplier implements Supplier<IvParameterSpec> {
+
+	private final SecureRandom random = new SecureRandom();
+
+	private final int length;
+
+	/**
+	 * 构造
+	 * @param length IV 长度
+	 */
+	public RandomIvSupplier(int length) {
+		this.length = length;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	public IvParameterSpec get() {
+		byte[] iv = new byte[length];
+		random.nextBytes(iv);
+		return new IvParameterSpec(iv);
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Optional;
+
+/**
+ * 流式加解密结果,不包含密文本身
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+@Getter
+@Builder
+public class StreamCipherDetails {
+
+	private final String algorithm;
+
+	private final String padding;
+
+	private final String mode;
+
+	@Nullable private final byte[] iv;
+
+	/**
+	 * 明文的校验和
+	 */
+	private final byte[] checksum;
+
+	/**
+	 * 读取的字节数
+	 */
+	private final long inputBytes;
+
+	/**
+	 * 写出的字节数
+	 */
+	private final long outputBytes;
+
+	public Optional<byte[]> getIvOptional() {
+		if (iv == null || iv.length == 0) {
+			return Optional.empty();
+		}
+		return Optional.of(iv);
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core;
+
+import com.power4j.tile.crypto.utils.CryptoUtil;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 流式解密,内存占用与数据大小无关,适用于大数据量的解密<br/>
+ * 注意: 校验和在数据全部输出后才能确定,校验失败时明文已经写入输出,调用方需要自行丢弃
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public interface StreamDec {
+
+	/**
+	 * 解密并验证校验和
+	 * @param in 密文输入,不会被关闭
+	 * @param out 明文输出,不会被关闭
+	 * @param checksum 期望的校验和,为 null 表示跳过校验
+	 * @return 返回解密结果
+	 * @throws IOException 读写异常
+	 * @throws GeneralCryptoException
+	 */
+	Verified<StreamCipherDetails> decrypt(InputStream in, OutputStream out, @Nullable byte[] checksum)
+			throws IOException, GeneralCryptoException;
+
+	/**
+	 * 解密并验证校验和
+	 * @param in 密文输入,不会被关闭
+	 * @param out 明文输出,不会被关闭
+	 * @param checksum 期望的校验和,为 null 表示跳过校验
+	 * @return 返回解密结果
+	 * @throws IOException 读写异常
+	 * @throws GeneralCryptoException
+	 */
+	Verified<StreamCipherDetails> decrypt(ReadableByteChannel in, WritableByteChannel out, @Nullable byte[] checksum)
+			throws IOException, GeneralCryptoException;
+
+	/**
+	 * 解密
+	 * @param in 密文输入,不会被关闭
+	 * @param out 明文输出,不会被关闭
+	 * @return StreamCipherDetails
+	 * @throws IOException 读写异常
+	 * @throws GeneralCryptoException
+	 */
+	default StreamCipherDetails decrypt(InputStream in, OutputStream out) throws IOException, GeneralCryptoException {
+		return CryptoUtil.requirePass(decrypt(in, out, null));
+	}
+
+	/**
+	 * 解密
+	 * @param in 密文输入,不会被关闭
+	 * @param out 明文输出,不会被关闭
+	 * @return StreamCipherDetails
+	 * @throws IOException 读写异常
+	 * @throws GeneralCryptoException
+	 */
+	default StreamCipherDetails decrypt(ReadableByteChannel in, WritableByteChannel out)
+			throws IOException, GeneralCryptoException {
+		return CryptoUtil.requirePass(decrypt(in, out, null));
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 流式加密,内存占用与数据大小无关,适用于大数据量的加密
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public interface StreamEnc {
+
+	/**
+	 * 加密,读取输入流直到结束,密文写入输出流
+	 * @param in 明文输入,不会被关闭
+	 * @param out 密文输出,不会被关闭
+	 * @return StreamCipherDetails
+	 * @throws IOException 读写异常
+	 * @throws GeneralCryptoException
+	 */
+	StreamCipherDetails encrypt(InputStream in, OutputStream out) throws IOException, GeneralCryptoException;
+
+	/**
+	 * 加密,读取输入通道直到结束,密文写入输出通道
+	 * @param in 明文输入,不会被关闭
+	 * @param out 密文输出,不会被关闭
+	 * @return StreamCipherDetails
+	 * @throws IOException 读写异常
+	 * @throws GeneralCryptoException
+	 */
+	StreamCipherDetails encrypt(ReadableByteChannel in, WritableByteChannel out)
+			throws IOException, GeneralCryptoException;
+
+}
@@ -16,6 +16,7 @@
 
 package com.power4j.tile.crypto.core;
 
+import com.power4j.tile.crypto.bc.BouncyCastleAeadCipher;
 import com.power4j.tile.crypto.bc.BouncyCastleQuickCipher;
 import com.power4j.tile.crypto.bc.GlobalBouncyCastleProvider;
 import com.power4j.tile.crypto.bc.Spec;
@@ -23,11 +24,15 @@ import com.power4j.tile.crypto.core.encode.Base64Encoder;
 import com.power4j.tile.crypto.core.encode.BufferEncoder;
 import com.power4j.tile.crypto.core.encode.HexEncoder;
 import com.power4j.tile.crypto.core.encode.UnicodeEncoder;
+import com.power4j.tile.crypto.metrics.CryptoMetrics;
+import com.power4j.tile.crypto.metrics.OperationMetrics;
 import lombok.Builder;
 import org.jspecify.annotations.Nullable;
 
 import javax.crypto.Cipher;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -70,6 +75,28 @@ public class TextCipherBuilder {
 		return of(Spec.ALGORITHM_SM4, Spec.MODE_OFB, Spec.PADDING_NO_PADDING);
 	}
 
+	public static TextCipherBuilder sm4Ctr() {
+		return of(Spec.ALGORITHM_SM4, Spec.MODE_CTR, Spec.PADDING_NO_PADDING);
+	}
+
+	/**
+	 * 认证加密,文本格式的密文为 IV||密文||认证标签
+	 * @return TextCipherBuilder
+	 * @since 1.9
+	 */
+	public static TextCipherBuilder sm4Gcm() {
+		return of(Spec.ALGORITHM_SM4, Spec.MODE_GCM, Spec.PADDING_NO_PADDING);
+	}
+
+	/**
+	 * 认证加密,文本格式的密文为 IV||密文||认证标签
+	 * @return TextCipherBuilder
+	 * @since 1.9
+	 */
+	public static TextCipherBuilder sm4Ccm() {
+		return of(Spec.ALGORITHM_SM4, Spec.MODE_CCM, Spec.PADDING_NO_PADDING);
+	}
+
 	public TextCipherBuilder cipher(Consumer<QuickCipherBuilder> consumer) {
 		consumer.accept(quickCipherBuilder);
 		return this;
@@ -95,17 +122,39 @@ public class TextCipherBuilder {
 		return this;
 	}
 
+	/**
+	 * 记录指标,同时作用于底层的 QuickCipher
+	 * @param metrics 指标记录,为 null 时不记录
+	 * @return this
+	 * @see QuickCipherBuilder#metrics(CryptoMetrics)
+	 * @since 1.9
+	 */
+	public TextCipherBuilder metrics(@Nullable CryptoMetrics metrics) {
+		quickCipherBuilder.metrics(metrics);
+		return this;
+	}
+
 	public TextCipherBuilder reversedEncoder() {
 		return new TextCipherBuilder(quickCipherBuilder).inputEncoding(outputEncoder).outputEncoding(inputEncoder);
 	}
 
+	/**
+	 * 构建,除认证加密外文本格式的密文不携带 IV,不能使用随机 IV
+	 * @return TextCipher
+	 */
 	public TextCipher build() {
 		BouncyCastleQuickCipher cipher = quickCipherBuilder.build();
-
+		if (quickCipherBuilder.isRandomIv() && !(cipher instanceof BouncyCastleAeadCipher)) {
+			throw new IllegalArgumentException("Random IV is only supported in AEAD mode");
+		}
+		CryptoMetrics metrics = quickCipherBuilder.getMetrics();
+		String name = cipher.getTransformation() + ".text";
 		return BouncyCastleTextCipher.builder()
 			.cipher(cipher)
 			.inputEncoder(inputEncoder)
 			.outputEncoder(outputEncoder)
+			.encryptMetrics(metrics == null ? null : metrics.operation(name + ".encrypt"))
+			.decryptMetrics(metrics == null ? null : metrics.operation(name + ".decrypt"))
 			.build();
 
 	}
@@ -144,9 +193,26 @@ public class TextCipherBuilder {
 
 		private final BouncyCastleQuickCipher cipher;
 
+		@Nullable private final OperationMetrics encryptMetrics;
+
+		@Nullable private final OperationMetrics decryptMetrics;
+
 		@Override
 		public String encrypt(String data) throws GeneralCryptoException {
-			return outputEncoder.encode(encryptData(inputEncoder.decode(data)));
+			final OperationMetrics m = encryptMetrics;
+			if (m == null) {
+				return outputEncoder.encode(encryptData(inputEncoder.decode(data)));
+			}
+			final long start = System.nanoTime();
+			boolean success = false;
+			try {
+				String result = outputEncoder.encode(encryptData(inputEncoder.decode(data)));
+				success = true;
+				return result;
+			}
+			finally {
+				m.record(data.length(), System.nanoTime() - start, success);
+			}
 		}
 
 		@Override
@@ -166,14 +232,65 @@ public class TextCipherBuilder {
 
 		@Override
 		public String decrypt(String data) throws GeneralCryptoException {
-			return outputEncoder.encode(decryptData(inputEncoder.decode(data)));
+			final OperationMetrics m = decryptMetrics;
+			if (m == null) {
+				return outputEncoder.encode(decryptData(inputEncoder.decode(data)));
+			}
+			final long start = System.nanoTime();
+			boolean success = false;
+			try {
+				String result = outputEncoder.encode(decryptData(inputEncoder.decode(data)));
+				success = true;
+				return result;
+			}
+			finally {
+				m.record(data.length(), System.nanoTime() - start, success);
+			}
+		}
+
+		@Override
+		public List<String> encryptAll(List<String> data) throws GeneralCryptoException {
+			if (cipher instanceof BouncyCastleAeadCipher) {
+				return TextCipher.super.encryptAll(data);
+			}
+			List<byte[]> input = new ArrayList<>(data.size());
+			for (String item : data) {
+				input.add(inputEncoder.decode(item));
+			}
+			return encodeAll(cipher.encryptAll(input));
+		}
+
+		@Override
+		public List<String> decryptAll(List<String> data) throws GeneralCryptoException {
+			if (cipher instanceof BouncyCastleAeadCipher) {
+				return TextCipher.super.decryptAll(data);
+			}
+			List<byte[]> input = new ArrayList<>(data.size());
+			for (String item : data) {
+				input.add(inputEncoder.decode(item));
+			}
+			return encodeAll(cipher.decryptAll(input));
+		}
+
+		private List<String> encodeAll(CipherBatch batch) {
+			List<String> result = new ArrayList<>(batch.size());
+			for (int i = 0; i < batch.size(); i++) {
+				result.add(outputEncoder.encode(batch.getData(), batch.getOffsets()[i], batch.getLengths()[i]));
+			}
+			return result;
 		}
 
 		private byte[] encryptData(byte[] data) throws GeneralCryptoException {
+			if (cipher instanceof BouncyCastleAeadCipher) {
+				return ((BouncyCastleAeadCipher) cipher).seal(data);
+			}
 			return cipher.encrypt(data).getCipher();
 		}
 
 		private byte[] decryptData(byte[] data) throws GeneralCryptoException {
+			if (cipher instanceof BouncyCastleAeadCipher) {
+				return ((BouncyCastleAeadCipher) cipher).open(data);
+			}
 			return cipher.decrypt(data);
 		}
 
@@ -16,6 +16,11 @@
 
 package com.power4j.tile.crypto.core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * 针对文本数据的解密
  *
@@ -32,4 +37,40 @@ public interface TextDec {
 	 */
 	String decrypt(String data) throws GeneralCryptoException;
 
+	/**
+	 * 批量解密
+	 * @param data 输入数据
+	 * @return 返回解密数据,顺序与输入一致
+	 * @throws GeneralCryptoException
+	 * @since 1.9
+	 */
+	default List<String> decryptAll(List<String> data) throws GeneralCryptoException {
+		List<String> result = new ArrayList<>(data.size());
+		for (String item : data) {
+			result.add(decrypt(item));
+		}
+		return result;
+	}
+
+	/**
+	 * 异步解密,在 {@link CryptoExecutors#defaultExecutor()} 中执行
+	 * @param data 输入数据
+	 * @return 返回解密数据
+	 * @since 1.9
+	 */
+	default CompletableFuture<String> decryptAsync(String data) {
+		return decryptAsync(data, CryptoExecutors.defaultExecutor());
+	}
+
+	/**
+	 * 异步解密,调用线程不会被阻塞
+	 * @param data 输入数据
+	 * @param executor 执行解密的线程池
+	 * @return 返回解密数据
+	 * @since 1.9
+	 */
+	default CompletableFuture<String> decryptAsync(String data, Executor executor) {
+		return CryptoExecutors.supply(() -> decrypt(data), executor);
+	}
+
 }
@@ -16,6 +16,11 @@
 
 package com.power4j.tile.crypto.core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * 针对文本数据的加密
  *
@@ -42,4 +47,51 @@ public interface TextEnc {
 	 */
 	CiphertextDetails encryptEnvelope(String data) throws GeneralCryptoException;
 
+	/**
+	 * 批量加密
+	 * @param data 输入数据
+	 * @return 返回密文,顺序与输入一致
+	 * @throws GeneralCryptoException
+	 * @since 1.9
+	 */
+	default List<String> encryptAll(List<String> data) throws GeneralCryptoException {
+		List<String> result = new ArrayList<>(data.size());
+		for (String item : data) {
+			result.add(encrypt(item));
+		}
+		return result;
+	}
+
+	/**
+	 * 异步加密,在 {@link CryptoExecutors#defaultExecutor()} 中执行
+	 * @param data 输入数据
+	 * @return 返回密文
+	 * @since 1.9
+	 */
+	default CompletableFuture<String> encryptAsync(String data) {
+		return encryptAsync(data, CryptoExecutors.defaultExecutor());
+	}
+
+	/**
+	 * 异步加密,调用线程不会被阻塞
+	 * @param data 输入数据
+	 * @param executor 执行加密的线程池
+	 * @return 返回密文
+	 * @since 1.9
+	 */
+	default CompletableFuture<String> encryptAsync(String data, Executor executor) {
+		return CryptoExecutors.supply(() -> encrypt(data), executor);
+	}
+
+	/**
+	 * 异步加密
+	 * @param data 输入数据
+	 * @param executor 执行加密的线程池
+	 * @return CiphertextEnvelope
+	 * @since 1.9
+	 */
+	default CompletableFuture<CiphertextDetails> encryptEnvelopeAsync(String data, Executor executor) {
+		return CryptoExecutors.supply(() -> encryptEnvelope(data), executor);
+	}
+
 }
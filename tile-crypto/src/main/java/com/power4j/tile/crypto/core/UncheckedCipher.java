@@ -17,7 +17,6 @@
 package com.power4j.tile.crypto.core;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import org.jspecify.annotations.Nullable;
 
 /**
@@ -25,13 +24,28 @@ import org.jspecify.annotations.Nullable;
  * @since 1.0
  */
 @Getter
-@RequiredArgsConstructor
 public class UncheckedCipher {
 
 	private final Slice cipher;
 
 	private final Slice checksum;
 
+	/**
+	 * 加密时使用的 IV,为 null 时使用解密方配置的 IV
+	 * @since 1.9
+	 */
+	@Nullable private final Slice iv;
+
+	public UncheckedCipher(Slice cipher, Slice checksum) {
+		this(cipher, checksum, null);
+	}
+
+	public UncheckedCipher(Slice cipher, Slice checksum, @Nullable Slice iv) {
+		this.cipher = cipher;
+		this.checksum = checksum;
+		this.iv = iv;
+	}
+
 	public static UncheckedCipher of(byte[] cipher, @Nullable byte[] checksum) {
 		if (checksum == null) {
 			checksum = new byte[0];
@@ -39,6 +53,19 @@ public class UncheckedCipher {
 		return new UncheckedCipher(Slice.wrap(cipher), Slice.wrap(checksum));
 	}
 
+	/**
+	 * 携带 IV 的密文,适用于每次加密使用随机 IV 的场景
+	 * @param cipher 密文
+	 * @param checksum 校验和
+	 * @param iv 加密时使用的 IV
+	 * @return UncheckedCipher
+	 * @since 1.9
+	 */
+	public static UncheckedCipher of(byte[] cipher, @Nullable byte[] checksum, @Nullable byte[] iv) {
+		UncheckedCipher input = of(cipher, checksum);
+		return new UncheckedCipher(input.getCipher(), input.getChecksum(), iv == null ? null : Slice.wrap(iv));
+	}
+
 	public static UncheckedCipher of(byte[] cipher) {
 		return of(cipher, null);
 	}
@@ -16,36 +16,83 @@
 
 package com.power4j.tile.crypto.core.encode;
 
-import lombok.RequiredArgsConstructor;
-import org.apache.commons.codec.binary.Base64;
-
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 /**
+ * Base64 编码,查表实现,{@code encodeTo}/{@code decodeFrom} 不分配内存<br/>
+ * 输出格式与 commons-codec 的 {@code Base64.encodeBase64(data, true, urlSafe)} 一致:
+ * <ul>
+ * <li>每 76 个字符换行,每行(包括最后一行)以 CRLF 结束</li>
+ * <li>BASIC 使用 + 和 / 并且补齐 =,URL_SAFE 使用 - 和 _ 并且不补齐</li>
+ * </ul>
+ * 解码时同时接受两种字母表,忽略其他字符(例如换行),遇到 = 结束
+ *
  * @author CJ (power4j@outlook.com)
  * @since 1.6
  */
-@RequiredArgsConstructor
 public class Base64Encoder extends AbstractEncoder implements BufferEncoder {
 
+	/**
+	 * 每行的字符数
+	 */
+	private static final int LINE_LENGTH = 76;
+
+	/**
+	 * 每行对应的输入字节数
+	 */
+	private static final int LINE_BYTES = LINE_LENGTH / 4 * 3;
+
+	private static final byte PAD = '=';
+
+	private static final byte[] STANDARD_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+		.getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] URL_SAFE_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+		.getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * 字符到数值,两种字母表都可以解码,其他字符为 -1
+	 */
+	private static final byte[] DECODE_TABLE = new byte[128];
+
+	static {
+		Arrays.fill(DECODE_TABLE, (byte) -1);
+		for (int i = 0; i < 64; i++) {
+			DECODE_TABLE[STANDARD_ALPHABET[i]] = (byte) i;
+			DECODE_TABLE[URL_SAFE_ALPHABET[i]] = (byte) i;
+		}
+	}
+
 	private final boolean urlSafe;
 
+	private final byte[] alphabet;
+
 	public static final Base64Encoder BASIC = new Base64Encoder(false);
 
 	public static final Base64Encoder URL_SAFE = new Base64Encoder(true);
 
 	public static final Base64Encoder DEFAULT = URL_SAFE;
 
+	public Base64Encoder(boolean urlSafe) {
+		this.urlSafe = urlSafe;
+		this.alphabet = urlSafe ? URL_SAFE_ALPHABET : STANDARD_ALPHABET;
+	}
+
 	@Override
 	protected String doEncode(byte[] data, int offset, int length) {
-		return new String(Base64.encodeBase64(Arrays.copyOfRange(data, offset, offset + length), true, urlSafe),
-				StandardCharsets.US_ASCII);
+		byte[] out = new byte[encodedLength(length)];
+		encodeTo(data, offset, length, out, 0);
+		// Latin-1 字符串在 JDK 9+ 中直接复制字节
+		return new String(out, StandardCharsets.ISO_8859_1);
 	}
 
 	@Override
 	protected byte[] doDecode(String data) {
-		return Base64.decodeBase64(data);
+		byte[] out = new byte[decodedLength(data, 0, data.length())];
+		decodeFrom(data, 0, data.length(), out, 0);
+		return out;
 	}
 
 	@Override
@@ -53,4 +100,193 @@ public class Base64Encoder extends AbstractEncoder implements BufferEncoder {
 		return "base64";
 	}
 
+	@Override
+	public int encodedLength(int length) {
+		if (length == 0) {
+			return 0;
+		}
+		long chars = urlSafe ? (length * 4L + 2) / 3 : (length + 2L) / 3 * 4;
+		long lines = (length + LINE_BYTES - 1L) / LINE_BYTES;
+		return Math.toIntExact(chars + lines * 2);
+	}
+
+	@Override
+	public int decodedLength(CharSequence data, int offset, int length) {
+		int n = 0;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			char c = data.charAt(i);
+			if (c == PAD) {
+				break;
+			}
+			if (c < 128 && DECODE_TABLE[c] >= 0) {
+				n++;
+			}
+		}
+		return n / 4 * 3 + tailBytes(n & 3);
+	}
+
+	@Override
+	public int encodeTo(byte[] data, int offset, int length, char[] dst, int dstOffset) {
+		BufferEncoder.checkCapacity(dst.length, dstOffset, encodedLength(length));
+		final byte[] table = alphabet;
+		final int end = offset + length;
+		int i = offset;
+		int o = dstOffset;
+		while (i < end) {
+			final int lineEnd = Math.min(i + LINE_BYTES, end);
+			final int fullEnd = i + (lineEnd - i) / 3 * 3;
+			for (; i < fullEnd; i += 3) {
+				int bits = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF);
+				dst[o] = (char) table[bits >>> 18];
+				dst[o + 1] = (char) table[(bits >>> 12) & 0x3F];
+				dst[o + 2] = (char) table[(bits >>> 6) & 0x3F];
+				dst[o + 3] = (char) table[bits & 0x3F];
+				o += 4;
+			}
+			if (i < lineEnd) {
+				// 只有最后一行可能有不足 3 个字节的剩余
+				int bits = (data[i] & 0xFF) << 16 | (i + 1 < lineEnd ? (data[i + 1] & 0xFF) << 8 : 0);
+				dst[o++] = (char) table[bits >>> 18];
+				dst[o++] = (char) table[(bits >>> 12) & 0x3F];
+				if (i + 1 < lineEnd) {
+					dst[o++] = (char) table[(bits >>> 6) & 0x3F];
+				}
+				else if (!urlSafe) {
+					dst[o++] = (char) PAD;
+				}
+				if (!urlSafe) {
+					dst[o++] = (char) PAD;
+				}
+				i = lineEnd;
+			}
+			dst[o++] = '\r';
+			dst[o++] = '\n';
+		}
+		return o - dstOffset;
+	}
+
+	@Override
+	public int encodeTo(byte[] data, int offset, int length, byte[] dst, int dstOffset) {
+		BufferEncoder.checkCapacity(dst.length, dstOffset, encodedLength(length));
+		final byte[] table = alphabet;
+		final int end = offset + length;
+		int i = offset;
+		int o = dstOffset;
+		while (i < end) {
+			final int lineEnd = Math.min(i + LINE_BYTES, end);
+			final int fullEnd = i + (lineEnd - i) / 3 * 3;
+			for (; i < fullEnd; i += 3) {
+				int bits = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF);
+				dst[o] = table[bits >>> 18];
+				dst[o + 1] = table[(bits >>> 12) & 0x3F];
+				dst[o + 2] = table[(bits >>> 6) & 0x3F];
+				dst[o + 3] = table[bits & 0x3F];
+				o += 4;
+			}
+			if (i < lineEnd) {
+				int bits = (data[i] & 0xFF) << 16 | (i + 1 < lineEnd ? (data[i + 1] & 0xFF) << 8 : 0);
+				dst[o++] = table[bits >>> 18];
+				dst[o++] = table[(bits >>> 12) & 0x3F];
+				if (i + 1 < lineEnd) {
+					dst[o++] = table[(bits >>> 6) & 0x3F];
+				}
+				else if (!urlSafe) {
+					dst[o++] = PAD;
+				}
+				if (!urlSafe) {
+					dst[o++] = PAD;
+				}
+				i = lineEnd;
+			}
+			dst[o++] = '\r';
+			dst[o++] = '\n';
+		}
+		return o - dstOffset;
+	}
+
+	@Override
+	public int encodeTo(byte[] data, int offset, int length, ByteBuffer dst) {
+		final int position = dst.position();
+		BufferEncoder.checkCapacity(dst.limit(), position, encodedLength(length));
+		if (dst.hasArray() && !dst.isReadOnly()) {
+			int n = encodeTo(data, offset, length, dst.array(), dst.arrayOffset() + position);
+			dst.position(position + n);
+			return n;
+		}
+		// 直接缓冲区,按绝对位置逐个写入
+		final byte[] table = alphabet;
+		final int end = offset + length;
+		int i = offset;
+		int o = position;
+		while (i < end) {
+			final int lineEnd = Math.min(i + LINE_BYTES, end);
+			for (; i < lineEnd; i += 3) {
+				int remain = Math.min(3, lineEnd - i);
+				int bits = (data[i] & 0xFF) << 16 | (remain > 1 ? (data[i + 1] & 0xFF) << 8 : 0)
+						| (remain > 2 ? data[i + 2] & 0xFF : 0);
+				dst.put(o++, table[bits >>> 18]);
+				dst.put(o++, table[(bits >>> 12) & 0x3F]);
+				if (remain > 1) {
+					dst.put(o++, table[(bits >>> 6) & 0x3F]);
+				}
+				else if (!urlSafe) {
+					dst.put(o++, PAD);
+				}
+				if (remain > 2) {
+					dst.put(o++, table[bits & 0x3F]);
+				}
+				else if (!urlSafe) {
+					dst.put(o++, PAD);
+				}
+			}
+			i = lineEnd;
+			dst.put(o++, (byte) '\r');
+			dst.put(o++, (byte) '\n');
+		}
+		dst.position(o);
+		return o - position;
+	}
+
+	@Override
+	public int decodeFrom(CharSequence data, int offset, int length, byte[] dst, int dstOffset) {
+		// 输入不含换行等其他字符时不超过该上限,否则计算准确长度
+		if (length / 4 * 3 + 2 > dst.length - dstOffset) {
+			BufferEncoder.checkCapacity(dst.length, dstOffset, decodedLength(data, offset, length));
+		}
+		int bits = 0;
+		int n = 0;
+		int o = dstOffset;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			char c = data.charAt(i);
+			if (c == PAD) {
+				break;
+			}
+			int v = c < 128 ? DECODE_TABLE[c] : -1;
+			if (v < 0) {
+				continue;
+			}
+			bits = bits << 6 | v;
+			if (++n == 4) {
+				dst[o] = (byte) (bits >>> 16);
+				dst[o + 1] = (byte) (bits >>> 8);
+				dst[o + 2] = (byte) bits;
+				o += 3;
+				n = 0;
+				bits = 0;
+			}
+		}
+		if (n == 2) {
+			dst[o++] = (byte) (bits >>> 4);
+		}
+		else if (n == 3) {
+			dst[o++] = (byte) (bits >>> 10);
+			dst[o++] = (byte) (bits >>> 2);
+		}
+		return o - dstOffset;
+	}
+
+	private static int tailBytes(int chars) {
+		return chars == 0 || chars == 1 ? 0 : chars - 1;
+	}
+
 }
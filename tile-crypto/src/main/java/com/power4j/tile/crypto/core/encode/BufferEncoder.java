@@ -16,6 +16,8 @@
 
 package com.power4j.tile.crypto.core.encode;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author CJ (power4j@outlook.com)
  * @since 1.6
@@ -56,4 +58,136 @@ public interface BufferEncoder {
 	 */
 	byte[] decode(String data) throws BufferEncodeException;
 
+	/**
+	 * 编码后的长度,只适用于输出长度只由输入长度决定的编码(hex,base64)
+	 * @param length 输入长度
+	 * @return 编码后的字符数,不支持时返回 -1
+	 * @since 1.9
+	 */
+	default int encodedLength(int length) {
+		return -1;
+	}
+
+	/**
+	 * 解码后的长度
+	 * @param data 编码后的字符
+	 * @param offset 起始位置
+	 * @param length 字符数
+	 * @return 解码后的字节数
+	 * @throws BufferEncodeException 格式错误
+	 * @since 1.9
+	 */
+	default int decodedLength(CharSequence data, int offset, int length) throws BufferEncodeException {
+		return decode(data.subSequence(offset, offset + length).toString()).length;
+	}
+
+	/**
+	 * 编码并写入字符数组
+	 * @param data 输入
+	 * @param offset 输入起始位置
+	 * @param length 输入长度
+	 * @param dst 输出
+	 * @param dstOffset 输出起始位置
+	 * @return 写入的字符数
+	 * @throws BufferEncodeException 编码错误或者输出空间不足
+	 * @since 1.9
+	 */
+	default int encodeTo(byte[] data, int offset, int length, char[] dst, int dstOffset) throws BufferEncodeException {
+		String text = encode(data, offset, length);
+		checkCapacity(dst.length, dstOffset, text.length());
+		text.getChars(0, text.length(), dst, dstOffset);
+		return text.length();
+	}
+
+	/**
+	 * 编码并按 ASCII 写入字节数组,只适用于输出为 ASCII 字符的编码
+	 * @param data 输入
+	 * @param offset 输入起始位置
+	 * @param length 输入长度
+	 * @param dst 输出
+	 * @param dstOffset 输出起始位置
+	 * @return 写入的字节数
+	 * @throws BufferEncodeException 编码错误,输出包含非 ASCII 字符或者输出空间不足
+	 * @since 1.9
+	 */
+	default int encodeTo(byte[] data, int offset, int length, byte[] dst, int dstOffset) throws BufferEncodeException {
+		String text = encode(data, offset, length);
+		checkCapacity(dst.length, dstOffset, text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c >= 0x80) {
+				throw new BufferEncodeException("Non-ASCII output: " + algorithm());
+			}
+			dst[dstOffset + i] = (byte) c;
+		}
+		return text.length();
+	}
+
+	/**
+	 * 编码并按 ASCII 写入 dst,dst 的 position 增加写入的字节数
+	 * @param data 输入
+	 * @param offset 输入起始位置
+	 * @param length 输入长度
+	 * @param dst 输出
+	 * @return 写入的字节数
+	 * @throws BufferEncodeException 编码错误,输出包含非 ASCII 字符或者输出空间不足
+	 * @since 1.9
+	 */
+	default int encodeTo(byte[] data, int offset, int length, ByteBuffer dst) throws BufferEncodeException {
+		final int position = dst.position();
+		final int required = encodedLength(length);
+		if (required >= 0 && dst.hasArray() && !dst.isReadOnly()) {
+			checkCapacity(dst.limit(), position, required);
+			int n = encodeTo(data, offset, length, dst.array(), dst.arrayOffset() + position);
+			dst.position(position + n);
+			return n;
+		}
+		String text = encode(data, offset, length);
+		checkCapacity(dst.limit(), position, text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c >= 0x80) {
+				throw new BufferEncodeException("Non-ASCII output: " + algorithm());
+			}
+			dst.put(position + i, (byte) c);
+		}
+		dst.position(position + text.length());
+		return text.length();
+	}
+
+	/**
+	 * 解码并写入字节数组
+	 * @param data 编码后的字符
+	 * @param offset 起始位置
+	 * @param length 字符数
+	 * @param dst 输出
+	 * @param dstOffset 输出起始位置
+	 * @return 写入的字节数
+	 * @throws BufferEncodeException 格式错误或者输出空间不足
+	 * @see #decodedLength(CharSequence, int, int)
+	 * @since 1.9
+	 */
+	default int decodeFrom(CharSequence data, int offset, int length, byte[] dst, int dstOffset)
+			throws BufferEncodeException {
+		byte[] decoded = decode(data.subSequence(offset, offset + length).toString());
+		checkCapacity(dst.length, dstOffset, decoded.length);
+		System.arraycopy(decoded, 0, dst, dstOffset, decoded.length);
+		return decoded.length;
+	}
+
+	/**
+	 * 检查输出空间
+	 * @param capacity 输出的总长度
+	 * @param offset 输出起始位置
+	 * @param required 需要的长度
+	 * @throws BufferEncodeException 空间不足
+	 * @since 1.9
+	 */
+	static void checkCapacity(int capacity, int offset, int required) throws BufferEncodeException {
+		if (offset < 0 || required > capacity - offset) {
+			throw new BufferEncodeException(
+					"Output buffer too small: required " + required + ", available " + (capacity - offset));
+		}
+	}
+
 }
@@ -16,18 +16,37 @@
 
 package com.power4j.tile.crypto.core.encode;
 
-import lombok.RequiredArgsConstructor;
-import org.apache.commons.codec.DecoderException;
-import org.apache.commons.codec.binary.Hex;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
+ * 十六进制编码,编码和解码都是查表实现,{@code encodeTo}/{@code decodeFrom} 不分配内存<br/>
+ * 解码时大小写均可
+ *
  * @author CJ (power4j@outlook.com)
  * @since 1.6
  */
-@RequiredArgsConstructor
 public class HexEncoder extends AbstractEncoder implements BufferEncoder {
 
-	private final boolean lowerCase;
+	private static final byte[] LOWER_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] UPPER_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * 字符到数值,非十六进制字符为 -1
+	 */
+	private static final byte[] DECODE_TABLE = new byte[128];
+
+	static {
+		Arrays.fill(DECODE_TABLE, (byte) -1);
+		for (int i = 0; i < 16; i++) {
+			DECODE_TABLE[LOWER_DIGITS[i]] = (byte) i;
+			DECODE_TABLE[UPPER_DIGITS[i]] = (byte) i;
+		}
+	}
+
+	private final byte[] digits;
 
 	public static final HexEncoder LOWER = new HexEncoder(true);
 
@@ -35,19 +54,23 @@ public class HexEncoder extends AbstractEncoder implements BufferEncoder {
 
 	public static final HexEncoder DEFAULT = LOWER;
 
+	public HexEncoder(boolean lowerCase) {
+		this.digits = lowerCase ? LOWER_DIGITS : UPPER_DIGITS;
+	}
+
 	@Override
 	protected String doEncode(byte[] data, int offset, int length) {
-		return Hex.encodeHexString(data, lowerCase);
+		byte[] out = new byte[encodedLength(length)];
+		encodeTo(data, offset, length, out, 0);
+		// Latin-1 字符串在 JDK 9+ 中直接复制字节
+		return new String(out, StandardCharsets.ISO_8859_1);
 	}
 
 	@Override
 	protected byte[] doDecode(String data) {
-		try {
-			return Hex.decodeHex(data);
-		}
-		catch (DecoderException e) {
-			throw new BufferEncodeException("Hex Decode error:" + e.getMessage(), e);
-		}
+		byte[] out = new byte[decodedLength(data, 0, data.length())];
+		decodeFrom(data, 0, data.length(), out, 0);
+		return out;
 	}
 
 	@Override
@@ -55,4 +78,87 @@ public class HexEncoder extends AbstractEncoder implements BufferEncoder {
 		return "hex";
 	}
 
+	@Override
+	public int encodedLength(int length) {
+		return Math.multiplyExact(length, 2);
+	}
+
+	@Override
+	public int decodedLength(CharSequence data, int offset, int length) {
+		if ((length & 1) != 0) {
+			throw new BufferEncodeException("Hex Decode error:Odd number of characters.");
+		}
+		return length >>> 1;
+	}
+
+	@Override
+	public int encodeTo(byte[] data, int offset, int length, char[] dst, int dstOffset) {
+		BufferEncoder.checkCapacity(dst.length, dstOffset, encodedLength(length));
+		final byte[] table = digits;
+		int o = dstOffset;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			int b = data[i] & 0xFF;
+			dst[o] = (char) table[b >>> 4];
+			dst[o + 1] = (char) table[b & 0x0F];
+			o += 2;
+		}
+		return o - dstOffset;
+	}
+
+	@Override
+	public int encodeTo(byte[] data, int offset, int length, byte[] dst, int dstOffset) {
+		BufferEncoder.checkCapacity(dst.length, dstOffset, encodedLength(length));
+		final byte[] table = digits;
+		int o = dstOffset;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			int b = data[i] & 0xFF;
+			dst[o] = table[b >>> 4];
+			dst[o + 1] = table[b & 0x0F];
+			o += 2;
+		}
+		return o - dstOffset;
+	}
+
+	@Override
+	public int encodeTo(byte[] data, int offset, int length, ByteBuffer dst) {
+		final int position = dst.position();
+		BufferEncoder.checkCapacity(dst.limit(), position, encodedLength(length));
+		if (dst.hasArray() && !dst.isReadOnly()) {
+			int n = encodeTo(data, offset, length, dst.array(), dst.arrayOffset() + position);
+			dst.position(position + n);
+			return n;
+		}
+		final byte[] table = digits;
+		int o = position;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			int b = data[i] & 0xFF;
+			dst.put(o, table[b >>> 4]);
+			dst.put(o + 1, table[b & 0x0F]);
+			o += 2;
+		}
+		dst.position(o);
+		return o - position;
+	}
+
+	@Override
+	public int decodeFrom(CharSequence data, int offset, int length, byte[] dst, int dstOffset) {
+		final int n = decodedLength(data, offset, length);
+		BufferEncoder.checkCapacity(dst.length, dstOffset, n);
+		for (int i = 0; i < n; i++) {
+			int hi = digit(data.charAt(offset + 2 * i), offset + 2 * i);
+			int lo = digit(data.charAt(offset + 2 * i + 1), offset + 2 * i + 1);
+			dst[dstOffset + i] = (byte) (hi << 4 | lo);
+		}
+		return n;
+	}
+
+	private static int digit(char c, int index) {
+		int v = c < 128 ? DECODE_TABLE[c] : -1;
+		if (v < 0) {
+			throw new BufferEncodeException(
+					"Hex Decode error:Illegal hexadecimal character " + c + " at index " + index);
+		}
+		return v;
+	}
+
 }
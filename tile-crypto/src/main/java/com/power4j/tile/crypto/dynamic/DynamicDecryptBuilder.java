@@ -17,6 +17,8 @@
 package com.power4j.tile.crypto.dynamic;
 
 import com.power4j.tile.crypto.bc.Spec;
+import com.power4j.tile.crypto.metrics.CryptoMetrics;
+import com.power4j.tile.crypto.utils.CryptoUtil;
 import com.power4j.tile.crypto.utils.Validate;
 import org.jspecify.annotations.Nullable;
 
@@ -43,6 +45,8 @@ public class DynamicDecryptBuilder {
 
 	private Supplier<Long> paramterSupplier;
 
+	private CryptoMetrics metrics;
+
 	public DynamicDecryptBuilder(String algorithmName, String mode, String padding) {
 		this.algorithmName = algorithmName;
 		this.mode = mode;
@@ -93,6 +97,17 @@ public class DynamicDecryptBuilder {
 		return this;
 	}
 
+	/**
+	 * 记录解密次数,字节数,失败次数(没有匹配的密钥)以及耗时分布
+	 * @param metrics 指标记录,为 null 时不记录
+	 * @return this
+	 * @since 1.9
+	 */
+	public DynamicDecryptBuilder metrics(@Nullable CryptoMetrics metrics) {
+		this.metrics = metrics;
+		return this;
+	}
+
 	public SimpleDynamicDecrypt simple() {
 
 		Validate.notEmpty(algorithmName, "algorithmName must not be empty");
@@ -103,8 +118,13 @@ public class DynamicDecryptBuilder {
 
 		Supplier<Long> paramSupplier = paramterSupplier == null ? () -> 0L : paramterSupplier;
 
-		return new SimpleDynamicDecrypt(algorithmName, mode, padding, keyPool, ivPool == null ? Pools.empty() : ivPool,
-				checksumCalculator, paramSupplier);
+		SimpleDynamicDecrypt decrypt = new SimpleDynamicDecrypt(algorithmName, mode, padding, keyPool,
+				ivPool == null ? Pools.empty() : ivPool, checksumCalculator, paramSupplier);
+		if (metrics != null) {
+			decrypt.setMetrics(
+					metrics.operation(CryptoUtil.transformation(algorithmName, mode, padding) + ".dynamic.decrypt"));
+		}
+		return decrypt;
 
 	}
 
@@ -22,6 +22,13 @@ import com.power4j.tile.crypto.core.QuickCipherBuilder;
 import com.power4j.tile.crypto.core.Slice;
 import com.power4j.tile.crypto.core.UncheckedCipher;
 import com.power4j.tile.crypto.core.Verified;
+import com.power4j.tile.crypto.engine.CipherBackend;
+import com.power4j.tile.crypto.engine.CipherBackends;
+import com.power4j.tile.crypto.metrics.CryptoEvent;
+import com.power4j.tile.crypto.metrics.CryptoEventType;
+import com.power4j.tile.crypto.metrics.CryptoEvents;
+import com.power4j.tile.crypto.metrics.OperationMetrics;
+import com.power4j.tile.crypto.utils.CryptoUtil;
 import lombok.RequiredArgsConstructor;
 import org.jspecify.annotations.Nullable;
 
@@ -52,8 +59,38 @@ public class SimpleDynamicDecrypt implements DynamicDecrypt {
 
 	private final Supplier<Long> paramterSupplier;
 
+	@Nullable private CipherBackend backend;
+
+	@Nullable private OperationMetrics metrics;
+
 	@Override
 	public DynamicDecryptResult decrypt(UncheckedCipher store) {
+		final OperationMetrics m = metrics;
+		if (m == null) {
+			return doDecrypt(store);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			DynamicDecryptResult result = doDecrypt(store);
+			success = result.success();
+			return result;
+		}
+		finally {
+			m.record(store.getCipher().getLength(), System.nanoTime() - start, success);
+		}
+	}
+
+	/**
+	 * 设置指标记录,需要在使用前设置
+	 * @param metrics 为 null 时不记录
+	 * @since 1.9
+	 */
+	void setMetrics(@Nullable OperationMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	protected DynamicDecryptResult doDecrypt(UncheckedCipher store) {
 		final long timestamp = paramterSupplier.get();
 		List<DynamicKey> keyList = keyPool.some(timestamp);
 		List<DynamicKey> ivList = ivPool.some(timestamp);
@@ -64,7 +101,7 @@ public class SimpleDynamicDecrypt implements DynamicDecrypt {
 		DecryptInfo result;
 		for (DynamicKey key : keyList) {
 			if (ivList.isEmpty()) {
-				result = tryOne(store, key, null);
+				result = trial(store, key, null);
 				tried.add(result);
 				if (result.isMatched()) {
 					return DynamicDecryptResult.success(result, tried);
@@ -72,7 +109,7 @@ public class SimpleDynamicDecrypt implements DynamicDecrypt {
 			}
 			else {
 				for (DynamicKey iv : ivList) {
-					result = tryOne(store, key, iv);
+					result = trial(store, key, iv);
 					tried.add(result);
 					if (result.isMatched()) {
 						return DynamicDecryptResult.success(result, tried);
@@ -83,11 +120,28 @@ public class SimpleDynamicDecrypt implements DynamicDecrypt {
 		return DynamicDecryptResult.fail(tried);
 	}
 
+	private DecryptInfo trial(UncheckedCipher input, DynamicKey key, @Nullable DynamicKey iv) {
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.KEY_TRIAL);
+		if (event == null) {
+			return tryOne(input, key, iv);
+		}
+		boolean matched = false;
+		try {
+			DecryptInfo info = tryOne(input, key, iv);
+			matched = info.isMatched();
+			return info;
+		}
+		finally {
+			event.commit("dynamic.decrypt", algorithmName, mode, input.getCipher().getLength(), matched, key.getTag());
+		}
+	}
+
 	protected DecryptInfo tryOne(UncheckedCipher input, DynamicKey key, @Nullable DynamicKey iv) {
 		try {
 			QuickCipher cipher = QuickCipherBuilder.algorithm(algorithmName)
 				.mode(mode)
 				.padding(padding)
+				.backend(cipherBackend())
 				.secretKey(key.getKey())
 				.ivParameter(iv == null ? null : iv.getKey())
 				.checksumCalculator(checksumCalculator)
@@ -110,4 +164,19 @@ public class SimpleDynamicDecrypt implements DynamicDecrypt {
 		}
 	}
 
+	/**
+	 * 每次尝试都会创建新的 QuickCipher,优先使用不经过 JCA Provider 查找的轻量级实现
+	 * @return CipherBackend
+	 */
+	protected CipherBackend cipherBackend() {
+		CipherBackend selected = backend;
+		if (selected == null) {
+			String transformation = CryptoUtil.transformation(algorithmName, mode, padding);
+			selected = CipherBackends.lightweight().supports(transformation) ? CipherBackends.lightweight()
+					: CipherBackends.jce();
+			backend = selected;
+		}
+		return selected;
+	}
+
 }
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import com.power4j.tile.crypto.core.GeneralCryptoException;
+import org.jspecify.annotations.Nullable;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按数据长度自动选择最快实现的 {@link CipherBackend}<br/>
+ * 每个 transformation 第一次使用时(或者调用 {@link #calibrate(String)} 时)在本机对每个长度区间和每个候选实现做一次简短的基准测试,
+ * 之后 {@link CipherEngine} 在每次处理时按输入长度路由到该区间最快的实现<br/>
+ * 选择结果可以通过 {@link #getDecision(String)} 查看,也可以通过 {@link Builder#pin(CipherBackend)}
+ * 或者系统属性 {@value #PIN_PROPERTY} 固定使用某个实现(按名称,例如 lightweight)
+ *
+ * <pre>
+ * QuickCipher cipher = Sm4Util.builder(mode, padding).backend(CipherBackends.adaptive()).secretKey(key).build();
+ * </pre>
+ *
+ * 基准测试只有几十毫秒,结果受 JIT 预热程度影响,适合用于在差距明显的实现之间做选择
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public final class AdaptiveBackend implements CipherBackend {
+
+	/**
+	 * 固定使用的实现名称,未知的名称在创建时抛出 IllegalArgumentException
+	 */
+	public static final String PIN_PROPERTY = "tile.crypto.backend.pin";
+
+	/**
+	 * 默认的长度区间上限(不含),最后一个区间没有上限
+	 */
+	static final int[] DEFAULT_SIZE_CLASSES = { 256, 4 * 1024, 64 * 1024 };
+
+	private static final long DEFAULT_CALIBRATION_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+	private static final int ROUNDS = 3;
+
+	private final List<CipherBackend> candidates;
+
+	private final int[] sizeClasses;
+
+	private final long calibrationNanos;
+
+	@Nullable private final CipherBackend pinned;
+
+	private final ConcurrentMap<String, Decision> decisions = new ConcurrentHashMap<>();
+
+	private AdaptiveBackend(Builder builder) {
+		this.candidates = Collections.unmodifiableList(new ArrayList<>(builder.candidates));
+		this.sizeClasses = builder.sizeClasses.clone();
+		this.calibrationNanos = builder.calibrationNanos;
+		this.pinned = builder.pinned != null ? builder.pinned : pinFromProperty(candidates);
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	@Override
+	public String getName() {
+		return "adaptive";
+	}
+
+	@Override
+	public boolean supports(String transformation) {
+		for (CipherBackend backend : candidates) {
+			if (backend.supports(transformation)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public CipherEngine create(String transformation) throws GeneralCryptoException {
+		return new AdaptiveCipherEngine(transformation, decide(transformation));
+	}
+
+	/**
+	 * 当前的选择结果,还没有使用过的 transformation 会先进行基准测试
+	 * @param transformation 算法/模式/填充
+	 * @return 选择结果
+	 * @throws GeneralCryptoException 没有支持的实现
+	 */
+	public Decision getDecision(String transformation) throws GeneralCryptoException {
+		return decide(transformation);
+	}
+
+	/**
+	 * 重新进行基准测试,只影响之后创建的 {@link CipherEngine}
+	 * @param transformation 算法/模式/填充
+	 * @return 新的选择结果
+	 * @throws GeneralCryptoException 没有支持的实现
+	 */
+	public Decision calibrate(String transformation) throws GeneralCryptoException {
+		Decision decision = measure(transformation);
+		decisions.put(key(transformation), decision);
+		return decision;
+	}
+
+	private Decision decide(String transformation) {
+		Decision decision = decisions.get(key(transformation));
+		if (decision != null) {
+			return decision;
+		}
+		// 基准测试可能较慢,不在 computeIfAbsent 中执行,并发时可能重复测试但结果一致
+		decision = measure(transformation);
+		Decision previous = decisions.putIfAbsent(key(transformation), decision);
+		return previous == null ? decision : previous;
+	}
+
+	private Decision measure(String transformation) {
+		final List<CipherBackend> supported = new ArrayList<>(candidates.size());
+		for (CipherBackend backend : candidates) {
+			if (backend.supports(transformation)) {
+				supported.add(backend);
+			}
+		}
+		if (supported.isEmpty()) {
+			throw new GeneralCryptoException("Unsupported transformation: " + transformation);
+		}
+		final CipherBackend[] selected = new CipherBackend[sizeClasses.length + 1];
+		final double[][] scores = new double[sizeClasses.length + 1][supported.size()];
+		if (pinned != null && pinned.supports(transformation)) {
+			Arrays.fill(selected, pinned);
+			for (double[] row : scores) {
+				Arrays.fill(row, Double.NaN);
+			}
+			return new Decision(transformation, sizeClasses, selected, supported, scores, true);
+		}
+		for (int c = 0; c < selected.length; c++) {
+			final int size = representativeSize(c);
+			double best = Double.MAX_VALUE;
+			for (int b = 0; b < supported.size(); b++) {
+				double score;
+				try {
+					score = nanosPerByte(supported.get(b), transformation, size);
+				}
+				catch (GeneralSecurityException | RuntimeException e) {
+					score = Double.NaN;
+				}
+				scores[c][b] = score;
+				if (!Double.isNaN(score) && score < best) {
+					best = score;
+					selected[c] = supported.get(b);
+				}
+			}
+			if (selected[c] == null) {
+				selected[c] = supported.get(0);
+			}
+		}
+		return new Decision(transformation, sizeClasses, selected, supported, scores, false);
+	}
+
+	/**
+	 * 区间内用于测试的数据长度: 上限的一半,最后一个区间为前一个上限的 4 倍
+	 */
+	int representativeSize(int sizeClass) {
+		if (sizeClass < sizeClasses.length) {
+			return Math.max(16, sizeClasses[sizeClass] / 2);
+		}
+		return sizeClasses.length == 0 ? 64 * 1024 : sizeClasses[sizeClasses.length - 1] * 4;
+	}
+
+	private double nanosPerByte(CipherBackend backend, String transformation, int size)
+			throws GeneralSecurityException {
+		final CipherEngine engine = backend.create(transformation);
+		final SecretKeySpec key = new SecretKeySpec(new byte[16], transformation.split("/")[0]);
+		final String mode = transformation.toUpperCase(Locale.ROOT).split("/")[1];
+		final boolean aead = "GCM".equals(mode) || "CCM".equals(mode);
+		final boolean noIv = "ECB".equals(mode);
+		final byte[] in = new byte[size - size % engine.getBlockSize()];
+		byte[] out = new byte[0];
+		final byte[] nonce = new byte[12];
+		if (!aead) {
+			engine.init(Cipher.ENCRYPT_MODE, key, noIv ? null : new IvParameterSpec(new byte[engine.getBlockSize()]));
+			out = new byte[engine.getOutputSize(in.length)];
+		}
+		double best = Double.MAX_VALUE;
+		long counter = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long iterations = 0;
+			final long start = System.nanoTime();
+			long elapsed;
+			do {
+				if (aead) {
+					// 同一个 nonce 不能重复用于加密
+					counter++;
+					for (int i = 0; i < 8; i++) {
+						nonce[i] = (byte) (counter >>> (i * 8));
+					}
+					engine.init(Cipher.ENCRYPT_MODE, key,
+							"GCM".equals(mode) ? new GCMParameterSpec(128, nonce) : new IvParameterSpec(nonce));
+					if (out.length < engine.getOutputSize(in.length)) {
+						out = new byte[engine.getOutputSize(in.length)];
+					}
+				}
+				engine.doFinal(in, 0, in.length, out, 0);
+				iterations++;
+				elapsed = System.nanoTime() - start;
+			}
+			while (elapsed < calibrationNanos);
+			// 第一轮作为预热,取之后各轮的最好结果
+			if (round > 0) {
+				best = Math.min(best, (double) elapsed / iterations / Math.max(1, in.length));
+			}
+		}
+		return best;
+	}
+
+	@Nullable private static CipherBackend pinFromProperty(List<CipherBackend> candidates) {
+		String name = System.getProperty(PIN_PROPERTY);
+		if (name == null || name.trim().isEmpty()) {
+			return null;
+		}
+		for (CipherBackend backend : candidates) {
+			if (backend.getName().equalsIgnoreCase(name.trim())) {
+				return backend;
+			}
+		}
+		throw new IllegalArgumentException("Unknown backend for " + PIN_PROPERTY + ": " + name);
+	}
+
+	private static String key(String transformation) {
+		return transformation.toUpperCase(Locale.ROOT);
+	}
+
+	/**
+	 * 某个 transformation 的选择结果,不可变
+	 */
+	public static final class Decision {
+
+		private final String transformation;
+
+		private final int[] sizeClasses;
+
+		private final CipherBackend[] selected;
+
+		private final List<CipherBackend> candidates;
+
+		private final double[][] scores;
+
+		private final boolean pinned;
+
+		Decision(String transformation, int[] sizeClasses, CipherBackend[] selected, List<CipherBackend> candidates,
+				double[][] scores, boolean pinned) {
+			this.transformation = transformation;
+			this.sizeClasses = sizeClasses;
+			this.selected = selected;
+			this.candidates = Collections.unmodifiableList(candidates);
+			this.scores = scores;
+			this.pinned = pinned;
+		}
+
+		public String getTransformation() {
+			return transformation;
+		}
+
+		/**
+		 * 长度区间的上限(不含),区间数量比上限数量多一个
+		 * @return 上限
+		 */
+		public int[] getSizeClasses() {
+			return sizeClasses.clone();
+		}
+
+		/**
+		 * 是否为固定选择(没有进行基准测试)
+		 * @return true 表示固定
+		 */
+		public boolean isPinned() {
+			return pinned;
+		}
+
+		/**
+		 * 参与选择的实现
+		 * @return 支持该 transformation 的候选实现
+		 */
+		public List<CipherBackend> getCandidates() {
+			return candidates;
+		}
+
+		/**
+		 * 长度所在的区间
+		 * @param length 数据长度
+		 * @return 区间序号
+		 */
+		public int sizeClass(int length) {
+			for (int i = 0; i < sizeClasses.length; i++) {
+				if (length < sizeClasses[i]) {
+					return i;
+				}
+			}
+			return sizeClasses.length;
+		}
+
+		/**
+		 * 某个长度使用的实现
+		 * @param length 数据长度
+		 * @return CipherBackend
+		 */
+		public CipherBackend backendFor(int length) {
+			return selected[sizeClass(length)];
+		}
+
+		/**
+		 * 某个区间使用的实现
+		 * @param sizeClass 区间序号
+		 * @return CipherBackend
+		 */
+		public CipherBackend getSelected(int sizeClass) {
+			return selected[sizeClass];
+		}
+
+		/**
+		 * 基准测试结果
+		 * @param sizeClass 区间序号
+		 * @param candidate 候选实现序号,与 {@link #getCandidates()} 对应
+		 * @return 每字节耗时(纳秒),固定选择或者测试失败时为 NaN
+		 */
+		public double getScore(int sizeClass, int candidate) {
+			return scores[sizeClass][candidate];
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder(transformation).append(pinned ? " (pinned)" : "").append(" {");
+			for (int c = 0; c < selected.length; c++) {
+				sb.append(c == 0 ? "" : ", ")
+					.append(c < sizeClasses.length ? "<" + sizeClasses[c] : ">=" + sizeClasses[c - 1])
+					.append('=')
+					.append(selected[c].getName());
+			}
+			return sb.append('}').toString();
+		}
+
+	}
+
+	public static final class Builder {
+
+		private final List<CipherBackend> candidates = new ArrayList<>(
+				Arrays.asList(CipherBackends.jce(), CipherBackends.lightweight(), CipherBackends.sm4()));
+
+		private int[] sizeClasses = DEFAULT_SIZE_CLASSES;
+
+		private long calibrationNanos = DEFAULT_CALIBRATION_NANOS;
+
+		@Nullable private CipherBackend pinned;
+
+		private Builder() {
+		}
+
+		/**
+		 * 候选实现,默认为 jce,lightweight 和 sm4(支持时使用 Vector API)
+		 * @param backends 候选实现
+		 * @return this
+		 */
+		public Builder candidates(CipherBackend... backends) {
+			if (backends.length == 0) {
+				throw new IllegalArgumentException("backends must not be empty");
+			}
+			this.candidates.clear();
+			this.candidates.addAll(Arrays.asList(backends));
+			return this;
+		}
+
+		/**
+		 * 长度区间的上限(不含),默认为 256,4K,64K
+		 * @param bounds 递增的上限
+		 * @return this
+		 */
+		public Builder sizeClasses(int... bounds) {
+			for (int i = 0; i < bounds.length; i++) {
+				if (bounds[i] <= 0 || (i > 0 && bounds[i] <= bounds[i - 1])) {
+					throw new IllegalArgumentException("bounds must be positive and increasing");
+				}
+			}
+			this.sizeClasses = bounds.clone();
+			return this;
+		}
+
+		/**
+		 * 每个区间每个实现的单轮测试时间,默认 2 毫秒
+		 * @param time 时间
+		 * @param unit 单位
+		 * @return this
+		 */
+		public Builder calibrationTime(long time, TimeUnit unit) {
+			if (time <= 0) {
+				throw new IllegalArgumentException("time must > 0");
+			}
+			this.calibrationNanos = unit.toNanos(time);
+			return this;
+		}
+
+		/**
+		 * 固定使用某个实现,该实现不支持的 transformation 仍然进行基准测试,优先级高于系统属性
+		 * @param backend 实现
+		 * @return this
+		 */
+		public Builder pin(@Nullable CipherBackend backend) {
+			this.pinned = backend;
+			return this;
+		}
+
+		public AdaptiveBackend build() {
+			return new AdaptiveBackend(this);
+		}
+
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+
+/**
+ * 按输入长度路由到 {@link AdaptiveBackend.Decision} 选择的实现<br/>
+ * 每个被选中的实现各自持有一个工作实例,延迟创建和初始化;一次处理(若干 update 加一个 doFinal)过程中不切换实现
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class AdaptiveCipherEngine implements CipherEngine {
+
+	private final String transformation;
+
+	private final AdaptiveBackend.Decision decision;
+
+	private final CipherBackend[] backends;
+
+	private final CipherEngine[] engines;
+
+	private final boolean[] initialized;
+
+	private int opmode;
+
+	@Nullable private SecretKeySpec key;
+
+	@Nullable private AlgorithmParameterSpec params;
+
+	/**
+	 * 正在进行的处理使用的实现,doFinal 之后清除
+	 */
+	@Nullable private CipherEngine current;
+
+	AdaptiveCipherEngine(String transformation, AdaptiveBackend.Decision decision) {
+		this.transformation = transformation;
+		this.decision = decision;
+		this.backends = decision.getCandidates().toArray(new CipherBackend[0]);
+		this.engines = new CipherEngine[backends.length];
+		this.initialized = new boolean[backends.length];
+	}
+
+	@Override
+	public int getBlockSize() {
+		return engine(0).getBlockSize();
+	}
+
+	@Override
+	public void init(int opmode, SecretKeySpec key, @Nullable AlgorithmParameterSpec params)
+			throws GeneralSecurityException {
+		this.opmode = opmode;
+		this.key = key;
+		this.params = params;
+		this.current = null;
+		for (int i = 0; i < initialized.length; i++) {
+			initialized[i] = false;
+		}
+		// 立即初始化最小区间的实现,参数错误时在 init 中抛出
+		select(0);
+	}
+
+	@Override
+	public int getOutputSize(int inputLen) {
+		CipherEngine engine = current;
+		if (engine == null) {
+			try {
+				engine = select(inputLen);
+			}
+			catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return engine.getOutputSize(inputLen);
+	}
+
+	@Override
+	public int update(byte[] in, int inOffset, int length, byte[] out, int outOffset) throws GeneralSecurityException {
+		CipherEngine engine = current;
+		if (engine == null) {
+			engine = select(length);
+			current = engine;
+		}
+		return engine.update(in, inOffset, length, out, outOffset);
+	}
+
+	@Override
+	public int doFinal(byte[] in, int inOffset, int length, byte[] out, int outOffset) throws GeneralSecurityException {
+		CipherEngine engine = current;
+		if (engine == null) {
+			engine = select(length);
+		}
+		current = null;
+		return engine.doFinal(in, inOffset, length, out, outOffset);
+	}
+
+	private CipherEngine select(int length) throws GeneralSecurityException {
+		final CipherBackend backend = decision.backendFor(length);
+		int index = 0;
+		while (backends[index] != backend) {
+			index++;
+		}
+		final CipherEngine engine = engine(index);
+		if (!initialized[index]) {
+			if (key == null) {
+				throw new IllegalStateException("Cipher not initialized");
+			}
+			engine.init(opmode, key, params);
+			initialized[index] = true;
+		}
+		return engine;
+	}
+
+	private CipherEngine engine(int index) {
+		CipherEngine engine = engines[index];
+		if (engine == null) {
+			engine = backends[index].create(transformation);
+			engines[index] = engine;
+		}
+		return engine;
+	}
+
+}
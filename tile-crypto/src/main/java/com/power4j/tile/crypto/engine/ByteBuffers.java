@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+/**
+ * 基于数组实现的 {@link CipherEngine} 处理 ByteBuffer 的通用逻辑
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class ByteBuffers {
+
+	private static final int CHUNK_SIZE = 8 * 1024;
+
+	private ByteBuffers() {
+	}
+
+	static int process(CipherEngine engine, ByteBuffer src, ByteBuffer dst, boolean last)
+			throws GeneralSecurityException {
+		if (dst.remaining() < engine.getOutputSize(src.remaining())) {
+			throw new ShortBufferException("Output buffer too short");
+		}
+		if (src.hasArray() && dst.hasArray() && !dst.isReadOnly()) {
+			int length = src.remaining();
+			int n = last
+					? engine.doFinal(src.array(), src.arrayOffset() + src.position(), length, dst.array(),
+							dst.arrayOffset() + dst.position())
+					: engine.update(src.array(), src.arrayOffset() + src.position(), length, dst.array(),
+							dst.arrayOffset() + dst.position());
+			src.position(src.limit());
+			dst.position(dst.position() + n);
+			return n;
+		}
+		// 非堆内存分段复制,避免按数据大小分配临时数组
+		byte[] in = new byte[Math.min(CHUNK_SIZE, src.remaining())];
+		byte[] out = new byte[engine.getOutputSize(in.length)];
+		int total = 0;
+		do {
+			int length = Math.min(in.length, src.remaining());
+			src.get(in, 0, length);
+			boolean finish = last && !src.hasRemaining();
+			int n = finish ? engine.doFinal(in, 0, length, out, 0) : engine.update(in, 0, length, out, 0);
+			dst.put(out, 0, n);
+			total += n;
+		}
+		while (src.hasRemaining());
+		return total;
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import com.power4j.tile.crypto.core.GeneralCryptoException;
+
+/**
+ * 对称加密的底层实现,负责创建 {@link CipherEngine}<br/>
+ * 实现必须是线程安全的
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ * @see CipherBackends
+ */
+public interface CipherBackend {
+
+	/**
+	 * 名称
+	 * @return 名称,用于日志和指标
+	 */
+	String getName();
+
+	/**
+	 * 是否支持
+	 * @param transformation 算法/模式/填充,例如 {@code SM4/CBC/PKCS7Padding}
+	 * @return true 表示支持
+	 */
+	boolean supports(String transformation);
+
+	/**
+	 * 创建工作实例
+	 * @param transformation 算法/模式/填充
+	 * @return CipherEngine
+	 * @throws GeneralCryptoException 不支持或者创建失败
+	 */
+	CipherEngine create(String transformation) throws GeneralCryptoException;
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import lombok.experimental.UtilityClass;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * 内置的 {@link CipherBackend}
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+@UtilityClass
+public class CipherBackends {
+
+	/**
+	 * JCA {@link javax.crypto.Cipher},支持所有算法和模式(默认)
+	 * @return CipherBackend
+	 */
+	public CipherBackend jce() {
+		return JceBackend.INSTANCE;
+	}
+
+	/**
+	 * 纯 Java 实现的 SM4,使用预计算的 T 表并且一次处理多个块,支持 ECB,CBC 和 CTR 模式
+	 * @return CipherBackend
+	 */
+	public CipherBackend sm4() {
+		return Sm4Backend.INSTANCE;
+	}
+
+	/**
+	 * BouncyCastle 轻量级 API,不经过 JCA Provider 查找,支持 SM4 的 ECB,CBC,CFB,OFB,CTR,GCM 和 CCM 模式
+	 * @return CipherBackend
+	 */
+	public CipherBackend lightweight() {
+		return LightweightBackend.INSTANCE;
+	}
+
+	@Nullable private volatile AdaptiveBackend adaptive;
+
+	/**
+	 * 在 jce,lightweight 和 sm4 之间按数据长度自动选择,第一次使用某个 transformation 时进行基准测试
+	 * <p>
+	 * 首次调用时创建,{@link AdaptiveBackend#PIN_PROPERTY} 无效时抛出异常,修正后再次调用可以正常创建
+	 * @return 共享的 AdaptiveBackend
+	 * @throws IllegalArgumentException {@link AdaptiveBackend#PIN_PROPERTY} 不是已知的实现名称
+	 * @see AdaptiveBackend
+	 */
+	public AdaptiveBackend adaptive() {
+		AdaptiveBackend backend = adaptive;
+		if (backend == null) {
+			// 不在类初始化中创建,避免配置错误导致类永久不可用
+			synchronized (CipherBackends.class) {
+				backend = adaptive;
+				if (backend == null) {
+					backend = AdaptiveBackend.builder().build();
+					adaptive = backend;
+				}
+			}
+		}
+		return backend;
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+
+/**
+ * 有状态的加解密工作实例,语义与 {@link javax.crypto.Cipher} 一致: {@code doFinal} 完成后回到 {@code init}
+ * 之后的状态<br/>
+ * 实例不是线程安全的
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ * @see CipherBackend
+ */
+public interface CipherEngine {
+
+	/**
+	 * 块大小
+	 * @return 字节数
+	 */
+	int getBlockSize();
+
+	/**
+	 * 初始化
+	 * @param opmode {@link javax.crypto.Cipher#ENCRYPT_MODE} 或者
+	 * {@link javax.crypto.Cipher#DECRYPT_MODE}
+	 * @param key 密钥
+	 * @param params 算法参数,一般为 IV
+	 * @throws GeneralSecurityException 参数错误
+	 */
+	void init(int opmode, SecretKeySpec key, @Nullable AlgorithmParameterSpec params) throws GeneralSecurityException;
+
+	/**
+	 * 计算输出缓冲区的大小
+	 * @param inputLen 输入长度
+	 * @return 下一次 update 或者 doFinal 需要的最大输出长度
+	 */
+	int getOutputSize(int inputLen);
+
+	/**
+	 * 处理一块数据
+	 * @return 输出的字节数
+	 * @throws GeneralSecurityException
+	 */
+	int update(byte[] in, int inOffset, int length, byte[] out, int outOffset) throws GeneralSecurityException;
+
+	/**
+	 * 处理最后一块数据
+	 * @return 输出的字节数
+	 * @throws GeneralSecurityException
+	 */
+	int doFinal(byte[] in, int inOffset, int length, byte[] out, int outOffset) throws GeneralSecurityException;
+
+	/**
+	 * 处理最后一块数据
+	 * @return 输出
+	 * @throws GeneralSecurityException
+	 */
+	default byte[] doFinal(byte[] in, int inOffset, int length) throws GeneralSecurityException {
+		byte[] out = new byte[getOutputSize(length)];
+		int n = doFinal(in, inOffset, length, out, 0);
+		return n == out.length ? out : Arrays.copyOf(out, n);
+	}
+
+	/**
+	 * 处理 src 中剩余的数据,处理后 src 的 position 等于 limit
+	 * @return 写入 dst 的字节数
+	 * @throws GeneralSecurityException
+	 */
+	default int update(ByteBuffer src, ByteBuffer dst) throws GeneralSecurityException {
+		return ByteBuffers.process(this, src, dst, false);
+	}
+
+	/**
+	 * 处理 src 中剩余的数据并结束,处理后 src 的 position 等于 limit
+	 * @return 写入 dst 的字节数
+	 * @throws GeneralSecurityException
+	 */
+	default int doFinal(ByteBuffer src, ByteBuffer dst) throws GeneralSecurityException {
+		return ByteBuffers.process(this, src, dst, true);
+	}
+
+}
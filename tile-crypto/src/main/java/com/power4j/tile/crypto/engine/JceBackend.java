@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import com.power4j.tile.crypto.core.GeneralCryptoException;
+import com.power4j.tile.crypto.utils.CryptoUtil;
+import org.jspecify.annotations.Nullable;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+
+/**
+ * 通过 JCA {@link Cipher} (BouncyCastle Provider) 实现,支持 Provider 提供的全部算法,模式和填充
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class JceBackend implements CipherBackend {
+
+	static final JceBackend INSTANCE = new JceBackend();
+
+	private JceBackend() {
+	}
+
+	@Override
+	public String getName() {
+		return "jce";
+	}
+
+	@Override
+	public boolean supports(String transformation) {
+		try {
+			CryptoUtil.createCipher(transformation);
+			return true;
+		}
+		catch (GeneralCryptoException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public CipherEngine create(String transformation) throws GeneralCryptoException {
+		return new JceCipherEngine(CryptoUtil.createCipher(transformation));
+	}
+
+	static final class JceCipherEngine implements CipherEngine {
+
+		private final Cipher cipher;
+
+		JceCipherEngine(Cipher cipher) {
+			this.cipher = cipher;
+		}
+
+		@Override
+		public int getBlockSize() {
+			return cipher.getBlockSize();
+		}
+
+		@Override
+		public void init(int opmode, SecretKeySpec key, @Nullable AlgorithmParameterSpec params)
+				throws GeneralSecurityException {
+			cipher.init(opmode, key, params);
+		}
+
+		@Override
+		public int getOutputSize(int inputLen) {
+			return cipher.getOutputSize(inputLen);
+		}
+
+		@Override
+		public int update(byte[] in, int inOffset, int length, byte[] out, int outOffset)
+				throws GeneralSecurityException {
+			return cipher.update(in, inOffset, length, out, outOffset);
+		}
+
+		@Override
+		public int doFinal(byte[] in, int inOffset, int length, byte[] out, int outOffset)
+				throws GeneralSecurityException {
+			return cipher.doFinal(in, inOffset, length, out, outOffset);
+		}
+
+		@Override
+		public byte[] doFinal(byte[] in, int inOffset, int length) throws GeneralSecurityException {
+			return cipher.doFinal(in, inOffset, length);
+		}
+
+		@Override
+		public int update(ByteBuffer src, ByteBuffer dst) throws GeneralSecurityException {
+			return cipher.update(src, dst);
+		}
+
+		@Override
+		public int doFinal(ByteBuffer src, ByteBuffer dst) throws GeneralSecurityException {
+			return cipher.doFinal(src, dst);
+		}
+
+	}
+
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import com.power4j.tile.crypto.core.GeneralCryptoException;
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.BufferedBlockCipher;
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.DefaultBufferedBlockCipher;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.OutputLengthException;
+import org.bouncycastle.crypto.engines.SM4Engine;
+import org.bouncycastle.crypto.modes.AEADCipher;
+import org.bouncycastle.crypto.modes.CBCBlockCipher;
+import org.bouncycastle.crypto.modes.CCMBlockCipher;
+import org.bouncycastle.crypto.modes.CFBBlockCipher;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.modes.OFBBlockCipher;
+import org.bouncycastle.crypto.modes.SICBlockCipher;
+import org.bouncycastle.crypto.paddings.PKCS7Padding;
+import org.bouncycastle.crypto.paddings.PaddedBufferedBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.jspecify.annotations.Nullable;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Locale;
+
+/**
+ * 直接使用 BouncyCastle 轻量级 API ({@link SM4Engine} 以及模式和填充的包装类) 实现,不经过 JCA 的
+ * {@code Cipher.getInstance} 查找 Provider,创建和初始化的开销都更低<br/>
+ * 支持 SM4 的 ECB,CBC,CFB,OFB,CTR(PKCS7Padding/NoPadding) 以及 GCM,CCM(NoPadding)
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class LightweightBackend implements CipherBackend {
+
+	static final LightweightBackend INSTANCE = new LightweightBackend();
+
+	private static final int DEFAULT_MAC_BITS = 128;
+
+	private LightweightBackend() {
+	}
+
+	@Override
+	public String getName() {
+		return "lightweight";
+	}
+
+	@Override
+	public boolean supports(String transformation) {
+		return parse(transformation) != null;
+	}
+
+	@Override
+	public CipherEngine create(String transformation) throws GeneralCryptoException {
+		String[] parts = parse(transformation);
+		if (parts == null) {
+			throw new GeneralCryptoException("Unsupported transformation: " + transformation);
+		}
+		BlockCipher engine = new SM4Engine();
+		boolean padded = "PKCS7PADDING".equals(parts[2]);
+		switch (parts[1]) {
+			case "ECB":
+				return new BlockEngine(buffered(engine, padded), false);
+			case "CBC":
+				return new BlockEngine(buffered(CBCBlockCipher.newInstance(engine), padded), true);
+			case "CFB":
+				return new BlockEngine(buffered(CFBBlockCipher.newInstance(engine, engine.getBlockSize() * 8), padded),
+						true);
+			case "OFB":
+				return new BlockEngine(buffered(new OFBBlockCipher(engine, engine.getBlockSize() * 8), padded), true);
+			case "CTR":
+				return new BlockEngine(buffered(SICBlockCipher.newInstance(engine), padded), true);
+			case "GCM":
+				return new AeadEngine(GCMBlockCipher.newInstance(engine), engine.getBlockSize());
+			default:
+				return new AeadEngine(CCMBlockCipher.newInstance(engine), engine.getBlockSize());
+		}
+	}
+
+	/**
+	 * 解析 算法/模式/填充
+	 * @return 规范化后的三个部分,不支持时返回 null
+	 */
+	static String @Nullable [] parse(String transformation) {
+		String[] parts = transformation.toUpperCase(Locale.ROOT).split("/");
+		if (parts.length != 3 || !"SM4".equals(parts[0])) {
+			return null;
+		}
+		String padding = "PKCS5PADDING".equals(parts[2]) ? "PKCS7PADDING" : parts[2];
+		boolean padded = "PKCS7PADDING".equals(padding);
+		if (!padded && !"NOPADDING".equals(padding)) {
+			return null;
+		}
+		switch (parts[1]) {
+			case "ECB":
+			case "CBC":
+			case "CFB":
+			case "OFB":
+			case "CTR":
+				return new String[] { parts[0], parts[1], padding };
+			case "GCM":
+			case "CCM":
+				return padded ? null : new String[] { parts[0], parts[1], padding };
+			default:
+				return null;
+		}
+	}
+
+	private static BufferedBlockCipher buffered(BlockCipher cipher, boolean padded) {
+		return padded ? new PaddedBufferedBlockCipher(cipher, new PKCS7Padding())
+				: new DefaultBufferedBlockCipher(cipher);
+	}
+
+	/**
+	 * 记录上一次使用的密钥,密钥对象和方向都没有变化时不重复密钥扩展
+	 */
+	abstract static class KeyedEngine implements CipherEngine {
+
+		@Nullable private SecretKeySpec lastKey;
+
+		private boolean lastEncrypting;
+
+		@Nullable private KeyParameter keyParameter;
+
+		@Override
+		public void init(int opmode, SecretKeySpec key, @Nullable AlgorithmParameterSpec params)
+				throws GeneralSecurityException {
+			if (opmode != Cipher.ENCRYPT_MODE && opmode != Cipher.DECRYPT_MODE) {
+				throw new InvalidAlgorithmParameterException("Unsupported operation mode: " + opmode);
+			}
+			final boolean encrypting = opmode == Cipher.ENCRYPT_MODE;
+			final boolean reuse = lastKey == key && lastEncrypting == encrypting;
+			if (lastKey != key) {
+				keyParameter = new KeyParameter(key.getEncoded());
+			}
+			lastKey = null;
+			try {
+				init(encrypting, reuse ? null : keyParameter, params);
+			}
+			catch (IllegalArgumentException e) {
+				throw new InvalidKeyException(e.getMessage(), e);
+			}
+			lastKey = key;
+			lastEncrypting = encrypting;
+		}
+
+		/**
+		 * 初始化底层实现
+		 * @param encrypting 是否加密
+		 * @param key 密钥,为 null 表示沿用上一次的密钥
+		 * @param params 参数
+		 */
+		protected abstract void init(boolean encrypting, @Nullable KeyParameter key,
+				@Nullable AlgorithmParameterSpec params) throws GeneralSecurityException;
+
+		protected static GeneralSecurityException translate(DataLengthException e) {
+			if (e instanceof OutputLengthException) {
+				return new ShortBufferException(e.getMessage());
+			}
+			return new IllegalBlockSizeException(e.getMessage());
+		}
+
+	}
+
+	static final class BlockEngine extends KeyedEngine {
+
+		private final BufferedBlockCipher cipher;
+
+		private final boolean requiresIv;
+
+		BlockEngine(BufferedBlockCipher cipher, boolean requiresIv) {
+			this.cipher = cipher;
+			this.requiresIv = requiresIv;
+		}
+
+		@Override
+		protected void init(boolean encrypting, @Nullable KeyParameter key, @Nullable AlgorithmParameterSpec params)
+				throws GeneralSecurityException {
+			if (!requiresIv) {
+				if (key == null) {
+					cipher.reset();
+				}
+				else {
+					cipher.init(encrypting, key);
+				}
+				return;
+			}
+			if (!(params instanceof IvParameterSpec)) {
+				throw new InvalidAlgorithmParameterException("IV is required");
+			}
+			cipher.init(encrypting, new ParametersWithIV(key, ((IvParameterSpec) params).getIV()));
+		}
+
+		@Override
+		public int getBlockSize() {
+			return cipher.getBlockSize();
+		}
+
+		@Override
+		public int getOutputSize(int inputLen) {
+			return cipher.getOutputSize(inputLen);
+		}
+
+		@Override
+		public int update(byte[] in, int inOffset, int length, byte[] out, int outOffset)
+				throws GeneralSecurityException {
+			try {
+				return cipher.processBytes(in, inOffset, length, out, outOffset);
+			}
+			catch (DataLengthException e) {
+				throw translate(e);
+			}
+		}
+
+		@Override
+		public int doFinal(byte[] in, int inOffset, int length, byte[] out, int outOffset)
+				throws GeneralSecurityException {
+			try {
+				int n = cipher.processBytes(in, inOffset, length, out, outOffset);
+				return n + cipher.doFinal(out, outOffset + n);
+			}
+			catch (DataLengthException e) {
+				cipher.reset();
+				throw translate(e);
+			}
+			catch (InvalidCipherTextException e) {
+				throw new BadPaddingException(e.getMessage());
+			}
+		}
+
+	}
+
+	static final class AeadEngine extends KeyedEngine {
+
+		private final AEADCipher cipher;
+
+		private final int blockSize;
+
+		AeadEngine(AEADCipher cipher, int blockSize) {
+			this.cipher = cipher;
+			this.blockSize = blockSize;
+		}
+
+		@Override
+		protected void init(boolean encrypting, @Nullable KeyParameter key, @Nullable AlgorithmParameterSpec params)
+				throws GeneralSecurityException {
+			final CipherParameters parameters;
+			if (params instanceof GCMParameterSpec) {
+				GCMParameterSpec spec = (GCMParameterSpec) params;
+				parameters = new AEADParameters(key, spec.getTLen(), spec.getIV());
+			}
+			else if (params instanceof IvParameterSpec) {
+				parameters = new AEADParameters(key, DEFAULT_MAC_BITS, ((IvParameterSpec) params).getIV());
+			}
+			else {
+				throw new InvalidAlgorithmParameterException("IV is required in AEAD mode");
+			}
+			try {
+				cipher.init(encrypting, parameters);
+			}
+			catch (IllegalArgumentException e) {
+				throw new InvalidAlgorithmParameterException(e.getMessage(), e);
+			}
+		}
+
+		@Override
+		public int getBlockSize() {
+			return blockSize;
+		}
+
+		@Override
+		public int getOutputSize(int inputLen) {
+			return cipher.getOutputSize(inputLen);
+		}
+
+		@Override
+		public int update(byte[] in, int inOffset, int length, byte[] out, int outOffset)
+				throws GeneralSecurityException {
+			try {
+				return cipher.processBytes(in, inOffset, length, out, outOffset);
+			}
+			catch (DataLengthException e) {
+				throw translate(e);
+			}
+		}
+
+		@Override
+		public int doFinal(byte[] in, int inOffset, int length, byte[] out, int outOffset)
+				throws GeneralSecurityException {
+			try {
+				int n = cipher.processBytes(in, inOffset, length, out, outOffset);
+				return n + cipher.doFinal(out, outOffset + n);
+			}
+			catch (DataLengthException e) {
+				cipher.reset();
+				throw translate(e);
+			}
+			catch (InvalidCipherTextException e) {
+				throw new AEADBadTagException(e.getMessage());
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import com.power4j.tile.crypto.core.GeneralCryptoException;
+import org.jspecify.annotations.Nullable;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.util.Locale;
+
+/**
+ * 纯 Java 实现的 SM4,支持 ECB,CBC(PKCS7Padding/NoPadding) 以及 CTR(NoPadding)<br/>
+ * 最近一次扩展的轮密钥按密钥对象缓存并在所有线程的工作实例之间共享
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class Sm4Backend implements CipherBackend {
+
+	static final Sm4Backend INSTANCE = new Sm4Backend();
+
+	@Nullable private volatile KeyEntry lastKey;
+
+	private Sm4Backend() {
+	}
+
+	@Override
+	public String getName() {
+		return "sm4";
+	}
+
+	@Override
+	public boolean supports(String transformation) {
+		return parse(transformation) != null;
+	}
+
+	@Override
+	public CipherEngine create(String transformation) throws GeneralCryptoException {
+		String[] parts = parse(transformation);
+		if (parts == null) {
+			throw new GeneralCryptoException("Unsupported transformation: " + transformation);
+		}
+		return new Sm4CipherEngine(this, parts[1], Sm4CipherEngine.PADDING_PKCS7.equals(parts[2]));
+	}
+
+	/**
+	 * 获取轮密钥,密钥对象与上一次相同时直接返回缓存
+	 */
+	Sm4RoundKeys roundKeys(SecretKeySpec key) throws InvalidKeyException {
+		KeyEntry entry = lastKey;
+		if (entry != null && entry.key == key) {
+			return entry.roundKeys;
+		}
+		Sm4RoundKeys roundKeys = Sm4RoundKeys.expand(key.getEncoded());
+		lastKey = new KeyEntry(key, roundKeys);
+		return roundKeys;
+	}
+
+	/**
+	 * 解析 算法/模式/填充
+	 * @return 规范化后的三个部分,不支持时返回 null
+	 */
+	static String @Nullable [] parse(String transformation) {
+		String[] parts = transformation.toUpperCase(Locale.ROOT).split("/");
+		if (parts.length != 3 || !"SM4".equals(parts[0])) {
+			return null;
+		}
+		String padding = "PKCS5PADDING".equals(parts[2]) ? Sm4CipherEngine.PADDING_PKCS7 : parts[2];
+		boolean padded = Sm4CipherEngine.PADDING_PKCS7.equals(padding);
+		if (!padded && !Sm4CipherEngine.PADDING_NONE.equals(padding)) {
+			return null;
+		}
+		switch (parts[1]) {
+			case Sm4CipherEngine.MODE_ECB:
+			case Sm4CipherEngine.MODE_CBC:
+				return new String[] { parts[0], parts[1], padding };
+			case Sm4CipherEngine.MODE_CTR:
+				return padded ? null : new String[] { parts[0], parts[1], padding };
+			default:
+				return null;
+		}
+	}
+
+	private static final class KeyEntry {
+
+		private final SecretKeySpec key;
+
+		private final Sm4RoundKeys roundKeys;
+
+		KeyEntry(SecretKeySpec key, Sm4RoundKeys roundKeys) {
+			this.key = key;
+			this.roundKeys = roundKeys;
+		}
+
+	}
+
+}
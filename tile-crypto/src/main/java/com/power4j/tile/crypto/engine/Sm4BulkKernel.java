@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+/**
+ * SM4 批量处理的扩展点,一次调用处理多个互不依赖的块(ECB,CTR 密钥流以及 CBC 解密)<br/>
+ * 基础版本只有标量实现,运行在 JDK 17 及以上版本时由多版本 JAR 中的 Vector API 实现提供
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ * @see Sm4Core#cryptBlocks(int[], byte[], int, byte[], int, int)
+ */
+interface Sm4BulkKernel {
+
+	/**
+	 * 每批处理的块数
+	 * @return 块数
+	 */
+	int batchBlocks();
+
+	/**
+	 * 处理连续的块,每批先读取全部输入再写出,支持原地处理
+	 * @param rk 轮密钥
+	 * @param in 输入
+	 * @param inOffset 输入开始位置
+	 * @param out 输出
+	 * @param outOffset 输出开始位置
+	 * @param blocks 块数,必须是 {@link #batchBlocks()} 的整数倍
+	 */
+	void crypt(int[] rk, byte[] in, int inOffset, byte[] out, int outOffset, int blocks);
+
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+
+/**
+ * SM4 工作实例,ECB 加解密,CBC 解密以及 CTR 每次批量处理多个块<br/>
+ * 只有密钥对象变化时才重新获取轮密钥,仅 IV 变化时不会重复密钥扩展
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class Sm4CipherEngine implements CipherEngine {
+
+	static final String MODE_ECB = "ECB";
+
+	static final String MODE_CBC = "CBC";
+
+	static final String MODE_CTR = "CTR";
+
+	static final String PADDING_PKCS7 = "PKCS7PADDING";
+
+	static final String PADDING_NONE = "NOPADDING";
+
+	private static final int BS = Sm4Core.BLOCK_SIZE;
+
+	/**
+	 * CBC 解密和 CTR 密钥流每批处理的块数
+	 */
+	private static final int BATCH_BLOCKS = 32;
+
+	private static final int BATCH = BATCH_BLOCKS * BS;
+
+	private final Sm4Backend backend;
+
+	private final String mode;
+
+	private final boolean padding;
+
+	private boolean encryption;
+
+	@Nullable private SecretKeySpec key;
+
+	@Nullable private Sm4RoundKeys roundKeys;
+
+	private int[] rk = new int[0];
+
+	private final byte[] iv = new byte[BS];
+
+	/**
+	 * CBC 的前一个密文块或者 CTR 的计数器
+	 */
+	private final byte[] chain = new byte[BS];
+
+	private final byte[] buffer = new byte[BS];
+
+	private int bufferLength;
+
+	private final byte[] keystream = new byte[BATCH];
+
+	private int keystreamOffset;
+
+	private int keystreamLength;
+
+	private final byte[] work = new byte[BATCH];
+
+	private final byte[] lastBlock = new byte[BS];
+
+	Sm4CipherEngine(Sm4Backend backend, String mode, boolean padding) {
+		this.backend = backend;
+		this.mode = mode;
+		this.padding = padding;
+	}
+
+	@Override
+	public int getBlockSize() {
+		return BS;
+	}
+
+	@Override
+	public void init(int opmode, SecretKeySpec key, @Nullable AlgorithmParameterSpec params)
+			throws GeneralSecurityException {
+		if (opmode != Cipher.ENCRYPT_MODE && opmode != Cipher.DECRYPT_MODE) {
+			throw new InvalidAlgorithmParameterException("Unsupported operation mode: " + opmode);
+		}
+		if (!MODE_ECB.equals(mode)) {
+			if (!(params instanceof IvParameterSpec) || ((IvParameterSpec) params).getIV().length != BS) {
+				throw new InvalidAlgorithmParameterException(mode + " mode requires a 16 byte IV");
+			}
+			System.arraycopy(((IvParameterSpec) params).getIV(), 0, iv, 0, BS);
+		}
+		if (this.key != key || roundKeys == null) {
+			roundKeys = backend.roundKeys(key);
+			this.key = key;
+		}
+		encryption = opmode == Cipher.ENCRYPT_MODE;
+		// CTR 解密同样使用加密轮密钥生成密钥流
+		rk = roundKeys.get(encryption || MODE_CTR.equals(mode));
+		reset();
+	}
+
+	@Override
+	public int getOutputSize(int inputLen) {
+		if (MODE_CTR.equals(mode)) {
+			return inputLen;
+		}
+		int total = bufferLength + inputLen;
+		if (encryption && padding) {
+			return total / BS * BS + BS;
+		}
+		return total;
+	}
+
+	@Override
+	public int update(byte[] in, int inOffset, int length, byte[] out, int outOffset) throws GeneralSecurityException {
+		if (overlaps(in, inOffset, length, out, outOffset)) {
+			return updateInternal(Arrays.copyOfRange(in, inOffset, inOffset + length), 0, length, out, outOffset);
+		}
+		return updateInternal(in, inOffset, length, out, outOffset);
+	}
+
+	@Override
+	public int doFinal(byte[] in, int inOffset, int length, byte[] out, int outOffset) throws GeneralSecurityException {
+		try {
+			int n = update(in, inOffset, length, out, outOffset);
+			if (MODE_CTR.equals(mode)) {
+				return n;
+			}
+			if (encryption && padding) {
+				byte pad = (byte) (BS - bufferLength);
+				Arrays.fill(buffer, bufferLength, BS, pad);
+				checkOutput(out, outOffset + n, BS);
+				processBlocks(buffer, 0, out, outOffset + n, 1);
+				return n + BS;
+			}
+			if (!padding) {
+				if (bufferLength != 0) {
+					throw new IllegalBlockSizeException("Data not block size aligned");
+				}
+				return n;
+			}
+			if (bufferLength != BS) {
+				throw new IllegalBlockSizeException("Last block incomplete in decryption");
+			}
+			processBlocks(buffer, 0, lastBlock, 0, 1);
+			int pad = unpad(lastBlock);
+			checkOutput(out, outOffset + n, BS - pad);
+			System.arraycopy(lastBlock, 0, out, outOffset + n, BS - pad);
+			return n + BS - pad;
+		}
+		finally {
+			reset();
+		}
+	}
+
+	private int updateInternal(byte[] in, int inOffset, int length, byte[] out, int outOffset)
+			throws ShortBufferException {
+		if (MODE_CTR.equals(mode)) {
+			checkOutput(out, outOffset, length);
+			ctr(in, inOffset, length, out, outOffset);
+			return length;
+		}
+		final int total = bufferLength + length;
+		// 带填充解密时保留最后一个块
+		int processable = encryption || !padding ? total / BS * BS : Math.max(0, (total - 1) / BS * BS);
+		checkOutput(out, outOffset, processable);
+		if (processable == 0) {
+			System.arraycopy(in, inOffset, buffer, bufferLength, length);
+			bufferLength += length;
+			return 0;
+		}
+		int written = 0;
+		if (bufferLength > 0) {
+			int fill = BS - bufferLength;
+			System.arraycopy(in, inOffset, buffer, bufferLength, fill);
+			inOffset += fill;
+			length -= fill;
+			processBlocks(buffer, 0, out, outOffset, 1);
+			bufferLength = 0;
+			written = BS;
+		}
+		int blocks = (processable - written) / BS;
+		processBlocks(in, inOffset, out, outOffset + written, blocks);
+		written += blocks * BS;
+		inOffset += blocks * BS;
+		length -= blocks * BS;
+		System.arraycopy(in, inOffset, buffer, 0, length);
+		bufferLength = length;
+		return written;
+	}
+
+	private void processBlocks(byte[] in, int inOffset, byte[] out, int outOffset, int blocks) {
+		if (MODE_ECB.equals(mode)) {
+			Sm4Core.cryptBlocks(rk, in, inOffset, out, outOffset, blocks);
+		}
+		else if (encryption) {
+			cbcEncrypt(in, inOffset, out, outOffset, blocks);
+		}
+		else {
+			cbcDecrypt(in, inOffset, out, outOffset, blocks);
+		}
+	}
+
+	private void cbcEncrypt(byte[] in, int inOffset, byte[] out, int outOffset, int blocks) {
+		for (int b = 0; b < blocks; b++) {
+			int offset = inOffset + b * BS;
+			for (int i = 0; i < BS; i++) {
+				chain[i] ^= in[offset + i];
+			}
+			Sm4Core.crypt(rk, chain, 0, chain, 0);
+			System.arraycopy(chain, 0, out, outOffset + b * BS, BS);
+		}
+	}
+
+	private void cbcDecrypt(byte[] in, int inOffset, byte[] out, int outOffset, int blocks) {
+		for (int b = 0; b < blocks; b += BATCH_BLOCKS) {
+			final int n = Math.min(BATCH_BLOCKS, blocks - b);
+			final int offset = outOffset + b * BS;
+			// 先保存密文,支持原地解密
+			System.arraycopy(in, inOffset + b * BS, work, 0, n * BS);
+			Sm4Core.cryptBlocks(rk, work, 0, out, offset, n);
+			xor(out, offset, chain, 0);
+			for (int i = 1; i < n; i++) {
+				xor(out, offset + i * BS, work, (i - 1) * BS);
+			}
+			System.arraycopy(work, (n - 1) * BS, chain, 0, BS);
+		}
+	}
+
+	private void ctr(byte[] in, int inOffset, int length, byte[] out, int outOffset) {
+		int done = 0;
+		while (done < length) {
+			if (keystreamOffset == keystreamLength) {
+				// 只生成需要的密钥流,剩余部分留给后续调用
+				final int blocks = Math.min(BATCH_BLOCKS, (length - done + BS - 1) / BS);
+				for (int b = 0; b < blocks; b++) {
+					System.arraycopy(chain, 0, keystream, b * BS, BS);
+					increment(chain);
+				}
+				Sm4Core.cryptBlocks(rk, keystream, 0, keystream, 0, blocks);
+				keystreamOffset = 0;
+				keystreamLength = blocks * BS;
+			}
+			int n = Math.min(length - done, keystreamLength - keystreamOffset);
+			for (int i = 0; i < n; i++) {
+				out[outOffset + done + i] = (byte) (in[inOffset + done + i] ^ keystream[keystreamOffset + i]);
+			}
+			keystreamOffset += n;
+			done += n;
+		}
+	}
+
+	private void reset() {
+		System.arraycopy(iv, 0, chain, 0, BS);
+		bufferLength = 0;
+		keystreamOffset = 0;
+		keystreamLength = 0;
+	}
+
+	private static int unpad(byte[] block) throws BadPaddingException {
+		int pad = block[BS - 1] & 0xFF;
+		boolean bad = pad == 0 || pad > BS;
+		for (int i = 1; i <= BS; i++) {
+			// 固定次数比较,避免泄露填充长度
+			bad |= i <= pad && block[BS - i] != (byte) pad;
+		}
+		if (bad) {
+			throw new BadPaddingException("pad block corrupted");
+		}
+		return pad;
+	}
+
+	private static void increment(byte[] counter) {
+		for (int i = counter.length - 1; i >= 0; i--) {
+			if (++counter[i] != 0) {
+				break;
+			}
+		}
+	}
+
+	private static void xor(byte[] target, int offset, byte[] source, int sourceOffset) {
+		for (int i = 0; i < BS; i++) {
+			target[offset + i] ^= source[sourceOffset + i];
+		}
+	}
+
+	private static void checkOutput(byte[] out, int outOffset, int required) throws ShortBufferException {
+		if (out.length - outOffset < required) {
+			throw new ShortBufferException("Output buffer too short");
+		}
+	}
+
+	private boolean overlaps(byte[] in, int inOffset, int length, byte[] out, int outOffset) {
+		if (in != out || length == 0) {
+			return false;
+		}
+		if (inOffset == outOffset) {
+			// 同一位置原地处理时只有缓冲区非空才会写到未读取的输入
+			return bufferLength != 0 && !MODE_CTR.equals(mode);
+		}
+		return inOffset < outOffset + getOutputSize(length) && outOffset < inOffset + length;
+	}
+
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * SM4 分组密码(GB/T 32907-2016)的核心运算<br/>
+ * S 盒与线性变换 L 合并为 4 张 T 表,每轮只需要 4 次查表,多块处理时各块的轮运算交错执行以利用指令级并行<br/>
+ * 可用时批量处理委托给 {@link Sm4BulkKernel} 的 SIMD 实现,可以通过系统属性 {@value #VECTOR_PROPERTY}=false 禁用
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class Sm4Core {
+
+	static final int BLOCK_SIZE = 16;
+
+	static final int ROUNDS = 32;
+
+	static final String VECTOR_PROPERTY = "tile.crypto.sm4.vector";
+
+	private static final String VECTOR_KERNEL = "com.power4j.tile.crypto.engine.VectorSm4Kernel";
+
+	static final byte[] SBOX = { (byte) 0xd6, (byte) 0x90, (byte) 0xe9, (byte) 0xfe, (byte) 0xcc, (byte) 0xe1,
+			(byte) 0x3d, (byte) 0xb7, (byte) 0x16, (byte) 0xb6, (byte) 0x14, (byte) 0xc2, (byte) 0x28, (byte) 0xfb,
+			(byte) 0x2c, (byte) 0x05, (byte) 0x2b, (byte) 0x67, (byte) 0x9a, (byte) 0x76, (byte) 0x2a, (byte) 0xbe,
+			(byte) 0x04, (byte) 0xc3, (byte) 0xaa, (byte) 0x44, (byte) 0x13, (byte) 0x26, (byte) 0x49, (byte) 0x86,
+			(byte) 0x06, (byte) 0x99, (byte) 0x9c, (byte) 0x42, (byte) 0x50, (byte) 0xf4, (byte) 0x91, (byte) 0xef,
+			(byte) 0x98, (byte) 0x7a, (byte) 0x33, (byte) 0x54, (byte) 0x0b, (byte) 0x43, (byte) 0xed, (byte) 0xcf,
+			(byte) 0xac, (byte) 0x62, (byte) 0xe4, (byte) 0xb3, (byte) 0x1c, (byte) 0xa9, (byte) 0xc9, (byte) 0x08,
+			(byte) 0xe8, (byte) 0x95, (byte) 0x80, (byte) 0xdf, (byte) 0x94, (byte) 0xfa, (byte) 0x75, (byte) 0x8f,
+			(byte) 0x3f, (byte) 0xa6, (byte) 0x47, (byte) 0x07, (byte) 0xa7, (byte) 0xfc, (byte) 0xf3, (byte) 0x73,
+			(byte) 0x17, (byte) 0xba, (byte) 0x83, (byte) 0x59, (byte) 0x3c, (byte) 0x19, (byte) 0xe6, (byte) 0x85,
+			(byte) 0x4f, (byte) 0xa8, (byte) 0x68, (byte) 0x6b, (byte) 0x81, (byte) 0xb2, (byte) 0x71, (byte) 0x64,
+			(byte) 0xda, (byte) 0x8b, (byte) 0xf8, (byte) 0xeb, (byte) 0x0f, (byte) 0x4b, (byte) 0x70, (byte) 0x56,
+			(byte) 0x9d, (byte) 0x35, (byte) 0x1e, (byte) 0x24, (byte) 0x0e, (byte) 0x5e, (byte) 0x63, (byte) 0x58,
+			(byte) 0xd1, (byte) 0xa2, (byte) 0x25, (byte) 0x22, (byte) 0x7c, (byte) 0x3b, (byte) 0x01, (byte) 0x21,
+			(byte) 0x78, (byte) 0x87, (byte) 0xd4, (byte) 0x00, (byte) 0x46, (byte) 0x57, (byte) 0x9f, (byte) 0xd3,
+			(byte) 0x27, (byte) 0x52, (byte) 0x4c, (byte) 0x36, (byte) 0x02, (byte) 0xe7, (byte) 0xa0, (byte) 0xc4,
+			(byte) 0xc8, (byte) 0x9e, (byte) 0xea, (byte) 0xbf, (byte) 0x8a, (byte) 0xd2, (byte) 0x40, (byte) 0xc7,
+			(byte) 0x38, (byte) 0xb5, (byte) 0xa3, (byte) 0xf7, (byte) 0xf2, (byte) 0xce, (byte) 0xf9, (byte) 0x61,
+			(byte) 0x15, (byte) 0xa1, (byte) 0xe0, (byte) 0xae, (byte) 0x5d, (byte) 0xa4, (byte) 0x9b, (byte) 0x34,
+			(byte) 0x1a, (byte) 0x55, (byte) 0xad, (byte) 0x93, (byte) 0x32, (byte) 0x30, (byte) 0xf5, (byte) 0x8c,
+			(byte) 0xb1, (byte) 0xe3, (byte) 0x1d, (byte) 0xf6, (byte) 0xe2, (byte) 0x2e, (byte) 0x82, (byte) 0x66,
+			(byte) 0xca, (byte) 0x60, (byte) 0xc0, (byte) 0x29, (byte) 0x23, (byte) 0xab, (byte) 0x0d, (byte) 0x53,
+			(byte) 0x4e, (byte) 0x6f, (byte) 0xd5, (byte) 0xdb, (byte) 0x37, (byte) 0x45, (byte) 0xde, (byte) 0xfd,
+			(byte) 0x8e, (byte) 0x2f, (byte) 0x03, (byte) 0xff, (byte) 0x6a, (byte) 0x72, (byte) 0x6d, (byte) 0x6c,
+			(byte) 0x5b, (byte) 0x51, (byte) 0x8d, (byte) 0x1b, (byte) 0xaf, (byte) 0x92, (byte) 0xbb, (byte) 0xdd,
+			(byte) 0xbc, (byte) 0x7f, (byte) 0x11, (byte) 0xd9, (byte) 0x5c, (byte) 0x41, (byte) 0x1f, (byte) 0x10,
+			(byte) 0x5a, (byte) 0xd8, (byte) 0x0a, (byte) 0xc1, (byte) 0x31, (byte) 0x88, (byte) 0xa5, (byte) 0xcd,
+			(byte) 0x7b, (byte) 0xbd, (byte) 0x2d, (byte) 0x74, (byte) 0xd0, (byte) 0x12, (byte) 0xb8, (byte) 0xe5,
+			(byte) 0xb4, (byte) 0xb0, (byte) 0x89, (byte) 0x69, (byte) 0x97, (byte) 0x4a, (byte) 0x0c, (byte) 0x96,
+			(byte) 0x77, (byte) 0x7e, (byte) 0x65, (byte) 0xb9, (byte) 0xf1, (byte) 0x09, (byte) 0xc5, (byte) 0x6e,
+			(byte) 0xc6, (byte) 0x84, (byte) 0x18, (byte) 0xf0, (byte) 0x7d, (byte) 0xec, (byte) 0x3a, (byte) 0xdc,
+			(byte) 0x4d, (byte) 0x20, (byte) 0x79, (byte) 0xee, (byte) 0x5f, (byte) 0x3e, (byte) 0xd7, (byte) 0xcb,
+			(byte) 0x39, (byte) 0x48 };
+
+	private static final int[] FK = { 0xa3b1bac6, 0x56aa3350, 0x677d9197, 0xb27022dc };
+
+	private static final int[] CK = new int[ROUNDS];
+
+	private static final int[] T0 = new int[256];
+
+	private static final int[] T1 = new int[256];
+
+	private static final int[] T2 = new int[256];
+
+	private static final int[] T3 = new int[256];
+
+	static {
+		for (int i = 0; i < ROUNDS; i++) {
+			int ck = 0;
+			for (int j = 0; j < 4; j++) {
+				ck = (ck << 8) | (((4 * i + j) * 7) & 0xFF);
+			}
+			CK[i] = ck;
+		}
+		for (int a = 0; a < 256; a++) {
+			int b = (SBOX[a] & 0xFF) << 24;
+			int t = b ^ Integer.rotateLeft(b, 2) ^ Integer.rotateLeft(b, 10) ^ Integer.rotateLeft(b, 18)
+					^ Integer.rotateLeft(b, 24);
+			T0[a] = t;
+			T1[a] = Integer.rotateRight(t, 8);
+			T2[a] = Integer.rotateRight(t, 16);
+			T3[a] = Integer.rotateRight(t, 24);
+		}
+	}
+
+	@Nullable private static final Sm4BulkKernel BULK = loadBulkKernel();
+
+	private Sm4Core() {
+	}
+
+	/**
+	 * 当前使用的批量实现
+	 * @return 为 null 表示只使用标量实现
+	 */
+	@Nullable static Sm4BulkKernel bulkKernel() {
+		return BULK;
+	}
+
+	/**
+	 * 密钥扩展
+	 * @param key 16 字节密钥
+	 * @return 加密轮密钥
+	 */
+	static int[] expandKey(byte[] key) {
+		int k0 = getInt(key, 0) ^ FK[0];
+		int k1 = getInt(key, 4) ^ FK[1];
+		int k2 = getInt(key, 8) ^ FK[2];
+		int k3 = getInt(key, 12) ^ FK[3];
+		int[] rk = new int[ROUNDS];
+		for (int i = 0; i < ROUNDS; i += 4) {
+			k0 ^= keyT(k1 ^ k2 ^ k3 ^ CK[i]);
+			k1 ^= keyT(k2 ^ k3 ^ k0 ^ CK[i + 1]);
+			k2 ^= keyT(k3 ^ k0 ^ k1 ^ CK[i + 2]);
+			k3 ^= keyT(k0 ^ k1 ^ k2 ^ CK[i + 3]);
+			rk[i] = k0;
+			rk[i + 1] = k1;
+			rk[i + 2] = k2;
+			rk[i + 3] = k3;
+		}
+		return rk;
+	}
+
+	/**
+	 * 轮密钥逆序,用于解密
+	 */
+	static int[] reverse(int[] rk) {
+		int[] result = new int[ROUNDS];
+		for (int i = 0; i < ROUNDS; i++) {
+			result[i] = rk[ROUNDS - 1 - i];
+		}
+		return result;
+	}
+
+	/**
+	 * 处理一个块
+	 */
+	static void crypt(int[] rk, byte[] in, int inOffset, byte[] out, int outOffset) {
+		int x0 = getInt(in, inOffset);
+		int x1 = getInt(in, inOffset + 4);
+		int x2 = getInt(in, inOffset + 8);
+		int x3 = getInt(in, inOffset + 12);
+		for (int i = 0; i < ROUNDS; i += 4) {
+			x0 ^= t(x1 ^ x2 ^ x3 ^ rk[i]);
+			x1 ^= t(x2 ^ x3 ^ x0 ^ rk[i + 1]);
+			x2 ^= t(x3 ^ x0 ^ x1 ^ rk[i + 2]);
+			x3 ^= t(x0 ^ x1 ^ x2 ^ rk[i + 3]);
+		}
+		putInt(x3, out, outOffset);
+		putInt(x2, out, outOffset + 4);
+		putInt(x1, out, outOffset + 8);
+		putInt(x0, out, outOffset + 12);
+	}
+
+	/**
+	 * 处理连续的 4 个块,先读取全部输入再写出,支持原地处理
+	 */
+	static void crypt4(int[] rk, byte[] in, int inOffset, byte[] out, int outOffset) {
+		int a0 = getInt(in, inOffset);
+		int a1 = getInt(in, inOffset + 4);
+		int a2 = getInt(in, inOffset + 8);
+		int a3 = getInt(in, inOffset + 12);
+		int b0 = getInt(in, inOffset + 16);
+		int b1 = getInt(in, inOffset + 20);
+		int b2 = getInt(in, inOffset + 24);
+		int b3 = getInt(in, inOffset + 28);
+		int c0 = getInt(in, inOffset + 32);
+		int c1 = getInt(in, inOffset + 36);
+		int c2 = getInt(in, inOffset + 40);
+		int c3 = getInt(in, inOffset + 44);
+		int d0 = getInt(in, inOffset + 48);
+		int d1 = getInt(in, inOffset + 52);
+		int d2 = getInt(in, inOffset + 56);
+		int d3 = getInt(in, inOffset + 60);
+		for (int i = 0; i < ROUNDS; i += 4) {
+			int k = rk[i];
+			a0 ^= t(a1 ^ a2 ^ a3 ^ k);
+			b0 ^= t(b1 ^ b2 ^ b3 ^ k);
+			c0 ^= t(c1 ^ c2 ^ c3 ^ k);
+			d0 ^= t(d1 ^ d2 ^ d3 ^ k);
+			k = rk[i + 1];
+			a1 ^= t(a2 ^ a3 ^ a0 ^ k);
+			b1 ^= t(b2 ^ b3 ^ b0 ^ k);
+			c1 ^= t(c2 ^ c3 ^ c0 ^ k);
+			d1 ^= t(d2 ^ d3 ^ d0 ^ k);
+			k = rk[i + 2];
+			a2 ^= t(a3 ^ a0 ^ a1 ^ k);
+			b2 ^= t(b3 ^ b0 ^ b1 ^ k);
+			c2 ^= t(c3 ^ c0 ^ c1 ^ k);
+			d2 ^= t(d3 ^ d0 ^ d1 ^ k);
+			k = rk[i + 3];
+			a3 ^= t(a0 ^ a1 ^ a2 ^ k);
+			b3 ^= t(b0 ^ b1 ^ b2 ^ k);
+			c3 ^= t(c0 ^ c1 ^ c2 ^ k);
+			d3 ^= t(d0 ^ d1 ^ d2 ^ k);
+		}
+		putInt(a3, out, outOffset);
+		putInt(a2, out, outOffset + 4);
+		putInt(a1, out, outOffset + 8);
+		putInt(a0, out, outOffset + 12);
+		putInt(b3, out, outOffset + 16);
+		putInt(b2, out, outOffset + 20);
+		putInt(b1, out, outOffset + 24);
+		putInt(b0, out, outOffset + 28);
+		putInt(c3, out, outOffset + 32);
+		putInt(c2, out, outOffset + 36);
+		putInt(c1, out, outOffset + 40);
+		putInt(c0, out, outOffset + 44);
+		putInt(d3, out, outOffset + 48);
+		putInt(d2, out, outOffset + 52);
+		putInt(d1, out, outOffset + 56);
+		putInt(d0, out, outOffset + 60);
+	}
+
+	/**
+	 * 处理连续的多个块,优先使用批量实现,其余每次迭代处理 4 个块
+	 */
+	static void cryptBlocks(int[] rk, byte[] in, int inOffset, byte[] out, int outOffset, int blocks) {
+		int i = 0;
+		if (BULK != null && blocks >= BULK.batchBlocks()) {
+			i = blocks - blocks % BULK.batchBlocks();
+			BULK.crypt(rk, in, inOffset, out, outOffset, i);
+		}
+		cryptBlocksScalar(rk, in, inOffset + i * BLOCK_SIZE, out, outOffset + i * BLOCK_SIZE, blocks - i);
+	}
+
+	/**
+	 * 标量实现,每次迭代处理 4 个块
+	 */
+	static void cryptBlocksScalar(int[] rk, byte[] in, int inOffset, byte[] out, int outOffset, int blocks) {
+		int i = 0;
+		for (; i + 4 <= blocks; i += 4) {
+			crypt4(rk, in, inOffset + i * BLOCK_SIZE, out, outOffset + i * BLOCK_SIZE);
+		}
+		for (; i < blocks; i++) {
+			crypt(rk, in, inOffset + i * BLOCK_SIZE, out, outOffset + i * BLOCK_SIZE);
+		}
+	}
+
+	/**
+	 * 加载批量实现,不可用(JDK 17 以下,没有启用 jdk.incubator.vector 模块)或者自检失败时返回 null
+	 */
+	@Nullable private static Sm4BulkKernel loadBulkKernel() {
+		if (!Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))) {
+			return null;
+		}
+		final Sm4BulkKernel kernel;
+		try {
+			kernel = (Sm4BulkKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			return null;
+		}
+		// 与标量实现比对
+		final int blocks = kernel.batchBlocks();
+		final int[] rk = expandKey(new byte[BLOCK_SIZE]);
+		final byte[] in = new byte[blocks * BLOCK_SIZE];
+		for (int i = 0; i < in.length; i++) {
+			in[i] = (byte) (i * 31 + 7);
+		}
+		final byte[] expected = new byte[in.length];
+		final byte[] actual = new byte[in.length];
+		cryptBlocksScalar(rk, in, 0, expected, 0, blocks);
+		try {
+			kernel.crypt(rk, in, 0, actual, 0, blocks);
+		}
+		catch (LinkageError | RuntimeException e) {
+			return null;
+		}
+		return Arrays.equals(expected, actual) ? kernel : null;
+	}
+
+	private static int t(int x) {
+		return T0[x >>> 24] ^ T1[(x >>> 16) & 0xFF] ^ T2[(x >>> 8) & 0xFF] ^ T3[x & 0xFF];
+	}
+
+	private static int keyT(int x) {
+		int b = ((SBOX[x >>> 24] & 0xFF) << 24) | ((SBOX[(x >>> 16) & 0xFF] & 0xFF) << 16)
+				| ((SBOX[(x >>> 8) & 0xFF] & 0xFF) << 8) | (SBOX[x & 0xFF] & 0xFF);
+		return b ^ Integer.rotateLeft(b, 13) ^ Integer.rotateLeft(b, 23);
+	}
+
+	static int getInt(byte[] b, int offset) {
+		return (b[offset] << 24) | ((b[offset + 1] & 0xFF) << 16) | ((b[offset + 2] & 0xFF) << 8)
+				| (b[offset + 3] & 0xFF);
+	}
+
+	static void putInt(int v, byte[] b, int offset) {
+		b[offset] = (byte) (v >>> 24);
+		b[offset + 1] = (byte) (v >>> 16);
+		b[offset + 2] = (byte) (v >>> 8);
+		b[offset + 3] = (byte) v;
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import java.security.InvalidKeyException;
+
+/**
+ * SM4 扩展后的轮密钥,不可变,可以在线程间共享
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class Sm4RoundKeys {
+
+	private final int[] encrypt;
+
+	private final int[] decrypt;
+
+	private Sm4RoundKeys(int[] encrypt) {
+		this.encrypt = encrypt;
+		this.decrypt = Sm4Core.reverse(encrypt);
+	}
+
+	static Sm4RoundKeys expand(byte[] key) throws InvalidKeyException {
+		if (key.length != Sm4Core.BLOCK_SIZE) {
+			throw new InvalidKeyException("SM4 requires a 128 bit key");
+		}
+		return new Sm4RoundKeys(Sm4Core.expandKey(key));
+	}
+
+	/**
+	 * 轮密钥,调用方不能修改
+	 * @param encryption true 表示加密
+	 * @return 轮密钥
+	 */
+	int[] get(boolean encryption) {
+		return encryption ? encrypt : decrypt;
+	}
+
+}
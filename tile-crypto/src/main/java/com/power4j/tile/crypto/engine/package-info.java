@@ -0,0 +1,27 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * 对称加密的底层实现(backend),{@link com.power4j.tile.crypto.bc.CipherPool} 通过
+ * {@link com.power4j.tile.crypto.engine.CipherBackend} 创建工作实例
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+@NullMarked
+package com.power4j.tile.crypto.engine;
+
+import org.jspecify.annotations.NullMarked;
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 按字符集把字节解码为字符写入 Writer,跨越写入边界的多字节字符会保留到下一次写入
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class CharsetDecodingOutputStream extends OutputStream {
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final CharsetDecoder decoder;
+
+	private final Writer writer;
+
+	private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private final CharBuffer output = CharBuffer.allocate(BUFFER_SIZE);
+
+	private boolean closed;
+
+	CharsetDecodingOutputStream(Charset charset, Writer writer) {
+		this.decoder = charset.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.writer = writer;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] data, int offset, int length) throws IOException {
+		ensureOpen();
+		if (offset < 0 || length < 0 || length > data.length - offset) {
+			throw new IndexOutOfBoundsException();
+		}
+		while (length > 0) {
+			int n = Math.min(input.remaining(), length);
+			input.put(data, offset, n);
+			offset += n;
+			length -= n;
+			decode(false);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			decode(true);
+			CoderResult result;
+			do {
+				result = decoder.flush(output);
+				drain();
+			}
+			while (result.isOverflow());
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	private void decode(boolean endOfInput) throws IOException {
+		input.flip();
+		CoderResult result;
+		do {
+			result = decoder.decode(input, output, endOfInput);
+			drain();
+		}
+		while (result.isOverflow());
+		input.compact();
+	}
+
+	private void drain() throws IOException {
+		if (output.position() > 0) {
+			writer.write(output.array(), 0, output.position());
+			output.clear();
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 按字符集把 Reader 中的字符编码为字节,跨越读取边界的代理对会保留到下一次读取
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class CharsetEncodingInputStream extends InputStream {
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final CharsetEncoder encoder;
+
+	private final Reader reader;
+
+	private final CharBuffer input = CharBuffer.allocate(BUFFER_SIZE);
+
+	private final ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private boolean eof;
+
+	private boolean flushed;
+
+	CharsetEncodingInputStream(Charset charset, Reader reader) {
+		this.encoder = charset.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.reader = reader;
+		this.output.flip();
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!output.hasRemaining() && !fill()) {
+			return -1;
+		}
+		return output.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (!output.hasRemaining() && !fill()) {
+			return -1;
+		}
+		int n = Math.min(len, output.remaining());
+		output.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return output.remaining();
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * 编码下一批数据
+	 * @return false 表示已经结束
+	 */
+	private boolean fill() throws IOException {
+		output.clear();
+		try {
+			while (output.position() == 0) {
+				if (flushed) {
+					return false;
+				}
+				if (!eof) {
+					int n = reader.read(input.array(), input.position(), input.remaining());
+					if (n < 0) {
+						eof = true;
+					}
+					else {
+						input.position(input.position() + n);
+					}
+				}
+				input.flip();
+				CoderResult result = encoder.encode(input, output, eof);
+				input.compact();
+				if (eof && result.isUnderflow()) {
+					flushed = encoder.flush(output).isUnderflow();
+				}
+			}
+			return true;
+		}
+		finally {
+			output.flip();
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.io;
+
+import com.power4j.tile.crypto.core.IncrementalChecksum;
+import com.power4j.tile.crypto.engine.CipherEngine;
+import org.jspecify.annotations.Nullable;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * 分块加解密,同时增量计算明文的校验和<br/>
+ * <ul>
+ * <li>加密: 先对输入(明文)计算校验和,再加密</li>
+ * <li>解密: 先解密,再对输出(明文)计算校验和</li>
+ * </ul>
+ * 实例是有状态的,不能在线程间共享
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public class CipherPipeline {
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final CipherEngine cipher;
+
+	private final boolean encrypt;
+
+	private final IncrementalChecksum checksum;
+
+	private long inputBytes;
+
+	private long outputBytes;
+
+	@Nullable private byte[] checksumValue;
+
+	/**
+	 * 构造
+	 * @param cipher 已经初始化的 CipherEngine
+	 * @param encrypt true 表示加密
+	 * @param checksum 明文校验和
+	 */
+	public CipherPipeline(CipherEngine cipher, boolean encrypt, IncrementalChecksum checksum) {
+		this.cipher = cipher;
+		this.encrypt = encrypt;
+		this.checksum = checksum;
+	}
+
+	/**
+	 * 计算输出缓冲区的大小
+	 * @param inputLen 输入长度
+	 * @return 输出需要的最大长度
+	 */
+	public int getOutputSize(int inputLen) {
+		return cipher.getOutputSize(inputLen);
+	}
+
+	/**
+	 * 处理一块数据
+	 * @param in 输入
+	 * @param offset 输入开始位置
+	 * @param length 输入长度
+	 * @param out 输出
+	 * @param outOffset 输出开始位置
+	 * @return 输出的字节数
+	 * @throws GeneralSecurityException
+	 */
+	public int update(byte[] in, int offset, int length, byte[] out, int outOffset) throws GeneralSecurityException {
+		if (encrypt) {
+			checksum.update(in, offset, length);
+		}
+		int n = cipher.update(in, offset, length, out, outOffset);
+		if (!encrypt) {
+			checksum.update(out, outOffset, n);
+		}
+		inputBytes += length;
+		outputBytes += n;
+		return n;
+	}
+
+	/**
+	 * 结束处理,输出剩余的数据
+	 * @param out 输出
+	 * @param outOffset 输出开始位置
+	 * @return 输出的字节数
+	 * @throws GeneralSecurityException
+	 */
+	public int doFinal(byte[] out, int outOffset) throws GeneralSecurityException {
+		int n = cipher.doFinal(EMPTY, 0, 0, out, outOffset);
+		if (!encrypt) {
+			checksum.update(out, outOffset, n);
+		}
+		outputBytes += n;
+		checksumValue = checksum.doFinal();
+		return n;
+	}
+
+	/**
+	 * 明文校验和,只有在 {@link #doFinal(byte[], int)} 之后才可用
+	 * @return 校验和
+	 * @throws IllegalStateException 还没有调用 doFinal
+	 */
+	public byte[] getChecksum() {
+		if (checksumValue == null) {
+			throw new IllegalStateException("Pipeline is not finished");
+		}
+		return checksumValue;
+	}
+
+	public long getInputBytes() {
+		return inputBytes;
+	}
+
+	public long getOutputBytes() {
+		return outputBytes;
+	}
+
+}
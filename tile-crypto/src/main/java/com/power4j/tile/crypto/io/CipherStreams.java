@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.io;
+
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+
+/**
+ * 使用固定大小的缓冲区在流/通道之间传输数据,同时完成加解密
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ * @see CipherPipeline
+ */
+@UtilityClass
+public class CipherStreams {
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * 读取输入流直到结束,处理后写入输出流
+	 * @param pipeline CipherPipeline
+	 * @param in 输入,不会被关闭
+	 * @param out 输出,不会被关闭
+	 * @param bufferSize 缓冲区大小
+	 * @throws IOException 读写异常
+	 * @throws GeneralSecurityException 加解密异常
+	 */
+	public void transfer(CipherPipeline pipeline, InputStream in, OutputStream out, int bufferSize)
+			throws IOException, GeneralSecurityException {
+		byte[] inBuf = new byte[bufferSize];
+		byte[] outBuf = new byte[pipeline.getOutputSize(bufferSize)];
+		int read;
+		while ((read = in.read(inBuf)) != -1) {
+			int n = pipeline.update(inBuf, 0, read, outBuf, 0);
+			if (n > 0) {
+				out.write(outBuf, 0, n);
+			}
+		}
+		int n = pipeline.doFinal(outBuf, 0);
+		if (n > 0) {
+			out.write(outBuf, 0, n);
+		}
+		out.flush();
+	}
+
+	/**
+	 * 读取输入通道直到结束,处理后写入输出通道
+	 * @param pipeline CipherPipeline
+	 * @param in 输入,不会被关闭
+	 * @param out 输出,不会被关闭
+	 * @param bufferSize 缓冲区大小
+	 * @throws IOException 读写异常
+	 * @throws GeneralSecurityException 加解密异常
+	 */
+	public void transfer(CipherPipeline pipeline, ReadableByteChannel in, WritableByteChannel out, int bufferSize)
+			throws IOException, GeneralSecurityException {
+		ByteBuffer inBuf = ByteBuffer.allocate(bufferSize);
+		byte[] outBuf = new byte[pipeline.getOutputSize(bufferSize)];
+		while (in.read(inBuf) != -1) {
+			int n = pipeline.update(inBuf.array(), 0, inBuf.position(), outBuf, 0);
+			writeFully(out, outBuf, n);
+			inBuf.clear();
+		}
+		writeFully(out, outBuf, pipeline.doFinal(outBuf, 0));
+	}
+
+	static void writeFully(WritableByteChannel out, byte[] data, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+	}
+
+}
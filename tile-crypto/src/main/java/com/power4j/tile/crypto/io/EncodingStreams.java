@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.io;
+
+import com.power4j.tile.crypto.core.BufferEncoding;
+import com.power4j.tile.crypto.core.encode.Base64Encoder;
+import com.power4j.tile.crypto.core.encode.BufferEncoder;
+import com.power4j.tile.crypto.core.encode.HexEncoder;
+import lombok.experimental.UtilityClass;
+import org.jspecify.annotations.Nullable;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link BufferEncoding} 的流式编码和解码,数据量不受内存限制,可以与流式加解密组合使用:
+ *
+ * <pre>
+ * try (OutputStream out = EncodingStreams.encoder(BufferEncoding.BASE64, writer)) {
+ * 	cipher.encrypt(fileInput, out);
+ * }
+ * cipher.decrypt(EncodingStreams.decoder(BufferEncoding.BASE64, reader), fileOutput, checksum);
+ * </pre>
+ *
+ * <ul>
+ * <li>编码器: 写入字节,编码后的文本写入 Writer 或者 OutputStream,输出与 {@link BufferEncoder#encode(byte[])}
+ * 完全一致;关闭时输出剩余数据并关闭下游,{@code flush} 不输出未满一个编码单元的数据</li>
+ * <li>解码器: 从 Reader 或者 InputStream 读取文本,读出解码后的字节,规则与 {@link BufferEncoder#decode(String)}
+ * 一致</li>
+ * <li>文本以字节流的形式读写时,HEX 和 BASE64 使用 ASCII,ASCII/UTF_8/UTF_16LE/UTF_16BE
+ * 使用对应的字符集,此时编码器和解码器直接返回下游</li>
+ * </ul>
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+@UtilityClass
+public class EncodingStreams {
+
+	/**
+	 * 编码器,编码后的文本写入 out
+	 * @param encoding 编码
+	 * @param out 文本输出
+	 * @return 写入原始字节的输出流,必须关闭
+	 */
+	public OutputStream encoder(BufferEncoding encoding, Writer out) {
+		BufferEncoder encoder = binaryEncoder(encoding);
+		if (encoder != null) {
+			return new TextEncodingOutputStream(encoder, out, null);
+		}
+		return new CharsetDecodingOutputStream(charset(encoding), out);
+	}
+
+	/**
+	 * 编码器,编码后的文本按字节写入 out
+	 * @param encoding 编码
+	 * @param out 文本输出
+	 * @return 写入原始字节的输出流,必须关闭
+	 */
+	public OutputStream encoder(BufferEncoding encoding, OutputStream out) {
+		BufferEncoder encoder = binaryEncoder(encoding);
+		if (encoder != null) {
+			return new TextEncodingOutputStream(encoder, null, out);
+		}
+		return out;
+	}
+
+	/**
+	 * 解码器,从 in 读取文本
+	 * @param encoding 编码
+	 * @param in 文本输入
+	 * @return 读取解码后字节的输入流
+	 */
+	public InputStream decoder(BufferEncoding encoding, Reader in) {
+		BufferEncoder encoder = binaryEncoder(encoding);
+		if (encoder != null) {
+			return new TextDecodingInputStream(encoder, in, null);
+		}
+		return new CharsetEncodingInputStream(charset(encoding), in);
+	}
+
+	/**
+	 * 解码器,从 in 按字节读取文本
+	 * @param encoding 编码
+	 * @param in 文本输入
+	 * @return 读取解码后字节的输入流
+	 */
+	public InputStream decoder(BufferEncoding encoding, InputStream in) {
+		BufferEncoder encoder = binaryEncoder(encoding);
+		if (encoder != null) {
+			return new TextDecodingInputStream(encoder, null, in);
+		}
+		return in;
+	}
+
+	@Nullable private BufferEncoder binaryEncoder(BufferEncoding encoding) {
+		switch (encoding) {
+			case HEX:
+				return HexEncoder.DEFAULT;
+			case BASE64:
+				return Base64Encoder.BASIC;
+			case BASE64_URL:
+				return Base64Encoder.URL_SAFE;
+			default:
+				return null;
+		}
+	}
+
+	private Charset charset(BufferEncoding encoding) {
+		switch (encoding) {
+			case ASCII:
+				return StandardCharsets.US_ASCII;
+			case UTF_8:
+				return StandardCharsets.UTF_8;
+			case UTF_16LE:
+				return StandardCharsets.UTF_16LE;
+			case UTF_16BE:
+				return StandardCharsets.UTF_16BE;
+			default:
+				throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+		}
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.io;
+
+import com.power4j.tile.crypto.core.encode.Base64Encoder;
+import com.power4j.tile.crypto.core.encode.BufferEncoder;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * HEX/BASE64 解码器,按缓冲区读取文本,每次只解码完整的编码单元,剩余字符留到下一次读取
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class TextDecodingInputStream extends InputStream {
+
+	static final int BUFFER_SIZE = 8 * 1024;
+
+	private final BufferEncoder encoder;
+
+	private final boolean base64;
+
+	@Nullable private final Reader reader;
+
+	@Nullable private final InputStream in;
+
+	private final char[] chars = new char[BUFFER_SIZE];
+
+	@Nullable private final byte[] raw;
+
+	private final CharArraySequence text = new CharArraySequence(chars);
+
+	private final byte[] decoded = new byte[BUFFER_SIZE];
+
+	private int charCount;
+
+	private int position;
+
+	private int limit;
+
+	private boolean eof;
+
+	TextDecodingInputStream(BufferEncoder encoder, @Nullable Reader reader, @Nullable InputStream in) {
+		this.encoder = encoder;
+		this.base64 = encoder instanceof Base64Encoder;
+		this.reader = reader;
+		this.in = in;
+		this.raw = reader == null ? new byte[BUFFER_SIZE] : null;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return decoded[position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		int n = Math.min(len, limit - position);
+		System.arraycopy(decoded, position, b, off, n);
+		position += n;
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return limit - position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (reader != null) {
+			reader.close();
+		}
+		else if (in != null) {
+			in.close();
+		}
+	}
+
+	/**
+	 * 解码下一批数据
+	 * @return false 表示已经结束
+	 */
+	private boolean fill() throws IOException {
+		position = 0;
+		limit = 0;
+		while (limit == 0) {
+			if (eof && charCount == 0) {
+				return false;
+			}
+			if (!eof) {
+				int n = readChars(chars, charCount, chars.length - charCount);
+				if (n < 0) {
+					eof = true;
+				}
+				else {
+					charCount += n;
+				}
+			}
+			int ready = eof ? charCount : completePrefix();
+			if (ready < 0) {
+				// BASE64 遇到 = 结束,之后的内容忽略
+				ready = charCount;
+				eof = true;
+			}
+			else if (ready == 0 && charCount == chars.length) {
+				throw new IOException("Malformed input: no complete unit in " + charCount + " chars");
+			}
+			try {
+				limit = encoder.decodeFrom(text, 0, ready, decoded, 0);
+			}
+			catch (RuntimeException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+			System.arraycopy(chars, ready, chars, 0, charCount - ready);
+			charCount = eof ? 0 : charCount - ready;
+		}
+		return true;
+	}
+
+	/**
+	 * 可以解码的前缀长度
+	 * @return 字符数,BASE64 遇到 = 时返回 -1
+	 */
+	private int completePrefix() {
+		if (!base64) {
+			return charCount & ~1;
+		}
+		int valid = 0;
+		int prefix = 0;
+		for (int i = 0; i < charCount; i++) {
+			char c = chars[i];
+			if (c == '=') {
+				return -1;
+			}
+			if (isBase64(c)) {
+				valid++;
+				if ((valid & 3) == 0) {
+					prefix = i + 1;
+				}
+			}
+		}
+		return prefix;
+	}
+
+	private static boolean isBase64(char c) {
+		return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/'
+				|| c == '-' || c == '_';
+	}
+
+	private int readChars(char[] dst, int offset, int length) throws IOException {
+		if (reader != null) {
+			return reader.read(dst, offset, length);
+		}
+		if (in == null || raw == null) {
+			return -1;
+		}
+		int n = in.read(raw, 0, length);
+		for (int i = 0; i < n; i++) {
+			dst[offset + i] = (char) (raw[i] & 0xFF);
+		}
+		return n;
+	}
+
+	/**
+	 * 不复制的 CharSequence 视图
+	 */
+	private static final class CharArraySequence implements CharSequence {
+
+		private final char[] value;
+
+		CharArraySequence(char[] value) {
+			this.value = value;
+		}
+
+		@Override
+		public int length() {
+			return value.length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return value[index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new String(value, start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return new String(value);
+		}
+
+	}
+
+}
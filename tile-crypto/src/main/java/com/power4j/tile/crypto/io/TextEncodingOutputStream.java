@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.io;
+
+import com.power4j.tile.crypto.core.encode.BufferEncoder;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * HEX/BASE64 编码器,输入按固定大小分段编码<br/>
+ * 分段大小是 BASE64 每行字节数(57)的整数倍,因此分段编码的结果与一次编码完全一致
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class TextEncodingOutputStream extends OutputStream {
+
+	/**
+	 * 57 字节一行,每段 72 行
+	 */
+	static final int CHUNK_SIZE = 57 * 72;
+
+	private final BufferEncoder encoder;
+
+	@Nullable private final Writer writer;
+
+	@Nullable private final OutputStream out;
+
+	private final byte[] buffer = new byte[CHUNK_SIZE];
+
+	@Nullable private final char[] chars;
+
+	@Nullable private final byte[] bytes;
+
+	private int count;
+
+	private boolean closed;
+
+	TextEncodingOutputStream(BufferEncoder encoder, @Nullable Writer writer, @Nullable OutputStream out) {
+		this.encoder = encoder;
+		this.writer = writer;
+		this.out = out;
+		int encoded = encoder.encodedLength(CHUNK_SIZE);
+		this.chars = writer == null ? null : new char[encoded];
+		this.bytes = writer == null ? new byte[encoded] : null;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		buffer[count++] = (byte) b;
+		if (count == CHUNK_SIZE) {
+			drain();
+		}
+	}
+
+	@Override
+	public void write(byte[] data, int offset, int length) throws IOException {
+		ensureOpen();
+		if (offset < 0 || length < 0 || length > data.length - offset) {
+			throw new IndexOutOfBoundsException();
+		}
+		int end = offset + length;
+		while (offset < end) {
+			if (count == 0 && end - offset >= CHUNK_SIZE) {
+				// 整段数据直接编码,不经过缓冲区
+				encode(data, offset, CHUNK_SIZE);
+				offset += CHUNK_SIZE;
+				continue;
+			}
+			int n = Math.min(CHUNK_SIZE - count, end - offset);
+			System.arraycopy(data, offset, buffer, count, n);
+			count += n;
+			offset += n;
+			if (count == CHUNK_SIZE) {
+				drain();
+			}
+		}
+	}
+
+	/**
+	 * 只刷新下游,不输出缓冲区中未满一段的数据
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if (writer != null) {
+			writer.flush();
+		}
+		else if (out != null) {
+			out.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			drain();
+		}
+		finally {
+			if (writer != null) {
+				writer.close();
+			}
+			else if (out != null) {
+				out.close();
+			}
+		}
+	}
+
+	private void drain() throws IOException {
+		if (count > 0) {
+			encode(buffer, 0, count);
+			count = 0;
+		}
+	}
+
+	private void encode(byte[] data, int offset, int length) throws IOException {
+		if (writer != null && chars != null) {
+			int n = encoder.encodeTo(data, offset, length, chars, 0);
+			writer.write(chars, 0, n);
+		}
+		else if (out != null && bytes != null) {
+			int n = encoder.encodeTo(data, offset, length, bytes, 0);
+			out.write(bytes, 0, n);
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.metrics;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * 已经开始计时的事件,由 {@link CryptoEventSink#begin(CryptoEventType)} 创建,只能在创建线程中提交一次
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public interface CryptoEvent {
+
+	/**
+	 * 结束计时并提交
+	 * @param operation 操作,例如 encrypt
+	 * @param algorithm 算法
+	 * @param mode 模式,没有时为 null
+	 * @param bytes 数据长度
+	 * @param success 是否成功
+	 * @param keyTag 密钥标签,没有时为 null
+	 */
+	void commit(String operation, String algorithm, @Nullable String mode, long bytes, boolean success,
+			@Nullable String keyTag);
+
+}
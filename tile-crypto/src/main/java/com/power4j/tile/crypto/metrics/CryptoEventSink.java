@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.metrics;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * 事件输出,实现必须是线程安全的
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ * @see CryptoEvents
+ */
+public interface CryptoEventSink {
+
+	/**
+	 * 开始一个事件
+	 * @param type 事件类型
+	 * @return 没有启用时返回 null,调用方此时不需要任何额外处理
+	 */
+	@Nullable CryptoEvent begin(CryptoEventType type);
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.metrics;
+
+/**
+ * 事件类型
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ * @see CryptoEvents
+ */
+public enum CryptoEventType {
+
+	/**
+	 * 加密或者解密
+	 */
+	OPERATION,
+
+	/**
+	 * 动态解密时的一次密钥尝试
+	 */
+	KEY_TRIAL,
+
+	/**
+	 * SM2 密钥协商
+	 */
+	AGREEMENT,
+
+	/**
+	 * 摘要或者消息认证码
+	 */
+	HASH
+
+}
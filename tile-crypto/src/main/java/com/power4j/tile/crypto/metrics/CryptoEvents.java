@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.metrics;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * 诊断事件入口<br/>
+ * 在 Java 17 及以上运行时(多版本 JAR 的 META-INF/versions/17)输出 Java Flight Recorder 事件,其他版本以及通过系统属性
+ * {@value #JFR_PROPERTY}=false 关闭时不输出任何事件<br/>
+ * 只有录制中并且启用了对应事件时 {@link #begin(CryptoEventType)} 才返回非 null,否则调用方只增加一次判断
+ * <ul>
+ * <li>com.power4j.tile.crypto.Operation: QuickCipher 加解密</li>
+ * <li>com.power4j.tile.crypto.KeyTrial: 动态解密的每次密钥尝试,包含密钥标签</li>
+ * <li>com.power4j.tile.crypto.Agreement: SM2 密钥协商</li>
+ * <li>com.power4j.tile.crypto.Hash: SM3 摘要以及 HMAC-SM3</li>
+ * </ul>
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public final class CryptoEvents {
+
+	/**
+	 * 是否启用 JFR 事件,默认启用
+	 */
+	public static final String JFR_PROPERTY = "tile.crypto.jfr";
+
+	private static final String JFR_SINK = "com.power4j.tile.crypto.metrics.JfrEventSink";
+
+	@Nullable private static final CryptoEventSink SINK = loadSink();
+
+	private CryptoEvents() {
+	}
+
+	/**
+	 * 是否加载了事件输出
+	 * @return false 表示运行时不支持或者已经关闭
+	 */
+	public static boolean isAvailable() {
+		return SINK != null;
+	}
+
+	/**
+	 * 开始一个事件
+	 * @param type 事件类型
+	 * @return 没有启用时返回 null
+	 */
+	@Nullable public static CryptoEvent begin(CryptoEventType type) {
+		final CryptoEventSink sink = SINK;
+		return sink == null ? null : sink.begin(type);
+	}
+
+	@Nullable private static CryptoEventSink loadSink() {
+		if (!Boolean.parseBoolean(System.getProperty(JFR_PROPERTY, "true"))) {
+			return null;
+		}
+		try {
+			return (CryptoEventSink) Class.forName(JFR_SINK).getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.metrics;
+
+/**
+ * 加解密指标 SPI<br/>
+ * 组件在构造时通过 {@link #operation(String)} 获取每个操作的记录器,调用时只记录数值,不再查找操作名称<br/>
+ * 未启用时组件不持有记录器,只增加一次空值判断
+ * <ul>
+ * <li>QuickCipher: {@code <算法/模式/填充>.encrypt}, decrypt, encryptInto, decryptInto,
+ * encryptAll, decryptAll</li>
+ * <li>TextCipher: {@code <算法/模式/填充>.text.encrypt}, text.decrypt</li>
+ * <li>DynamicDecrypt: {@code <算法/模式/填充>.dynamic.decrypt}</li>
+ * <li>Sm3Util/HmacSm3Util: sm3.hash, hmac-sm3.sign, hmac-sm3.verify</li>
+ * </ul>
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ * @see MetricsRecorder
+ */
+public interface CryptoMetrics {
+
+	/**
+	 * 获取操作的记录器,同一名称应该返回同一个记录器
+	 * @param name 操作名称
+	 * @return 记录器
+	 */
+	OperationMetrics operation(String name);
+
+	/**
+	 * 为操作名称增加前缀,用于区分调用位置,例如 {@code metrics.prefixed("order")}
+	 * @param prefix 前缀
+	 * @return CryptoMetrics
+	 */
+	default CryptoMetrics prefixed(String prefix) {
+		final CryptoMetrics delegate = this;
+		return name -> delegate.operation(prefix + "." + name);
+	}
+
+}
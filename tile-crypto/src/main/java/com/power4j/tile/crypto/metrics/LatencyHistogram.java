@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * 对数线性直方图(与 HdrHistogram 相同的分桶方式),无锁记录<br/>
+ * 小于 {@value #SUB_BUCKETS} 的值每个值一个桶,之后每个 2 的幂区间分为 {@value #HALF_SUB_BUCKETS}
+ * 个等宽的桶,相对误差不超过 1/{@value #HALF_SUB_BUCKETS}<br/>
+ * 覆盖全部 long 范围,占用约 8KB
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+	private static final int BUCKET_COUNT = SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * 记录一个值
+	 * @param value 值,小于 0 时按 0 记录
+	 */
+	public void record(long value) {
+		final long v = Math.max(0, value);
+		counts.incrementAndGet(indexOf(v));
+		max.accumulate(v);
+	}
+
+	/**
+	 * 记录总数
+	 * @return 数量
+	 */
+	public long getCount() {
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * 百分位数,返回所在桶的中间值
+	 * @param percentile 百分位,0 到 100
+	 * @return 没有记录时返回 0
+	 */
+	public long valueAtPercentile(double percentile) {
+		final long[] snapshot = new long[BUCKET_COUNT];
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		final double p = Math.min(100.0, Math.max(0.0, percentile));
+		final long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(lowerBound(i) + (bucketWidth(i) - 1) / 2, getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * 清空
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts.set(i, 0);
+		}
+		max.reset();
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+		final int sub = (int) (value >>> shift);
+		return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (sub - HALF_SUB_BUCKETS);
+	}
+
+	static long lowerBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		final int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+		final long sub = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return sub << shift;
+	}
+
+	static long bucketWidth(int index) {
+		if (index < SUB_BUCKETS) {
+			return 1;
+		}
+		return 1L << ((index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1);
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存中的 {@link CryptoMetrics} 实现<br/>
+ * 计数使用 {@link LongAdder}(按线程分散的计数单元),耗时使用 {@link LatencyHistogram},记录过程无锁
+ *
+ * <pre>
+ * MetricsRecorder metrics = new MetricsRecorder();
+ * QuickCipher cipher = Sm4Util.builderWithVerifySupport(mode, padding).metrics(metrics.prefixed("order")).build();
+ * metrics.snapshot().forEach(System.out::println);
+ * </pre>
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public class MetricsRecorder implements CryptoMetrics {
+
+	private final ConcurrentMap<String, Stats> operations = new ConcurrentHashMap<>();
+
+	@Override
+	public OperationMetrics operation(String name) {
+		return operations.computeIfAbsent(name, Stats::new);
+	}
+
+	/**
+	 * 所有操作的指标快照
+	 * @return 快照,按名称排序
+	 */
+	public List<OperationSnapshot> snapshot() {
+		List<OperationSnapshot> result = new ArrayList<>(operations.size());
+		for (Stats stats : operations.values()) {
+			result.add(stats.snapshot());
+		}
+		result.sort((a, b) -> a.getName().compareTo(b.getName()));
+		return result;
+	}
+
+	/**
+	 * 单个操作的指标快照
+	 * @param name 操作名称
+	 * @return 没有记录时所有数值为 0
+	 */
+	public OperationSnapshot snapshot(String name) {
+		Stats stats = operations.get(name);
+		return stats == null ? new Stats(name).snapshot() : stats.snapshot();
+	}
+
+	/**
+	 * 清空所有数值,已经获取的记录器仍然有效
+	 */
+	public void reset() {
+		operations.values().forEach(Stats::reset);
+	}
+
+	static final class Stats implements OperationMetrics {
+
+		private final String name;
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder failures = new LongAdder();
+
+		private final LongAdder bytes = new LongAdder();
+
+		private final LongAdder nanos = new LongAdder();
+
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		Stats(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void record(long bytes, long nanos, boolean success) {
+			this.count.increment();
+			if (!success) {
+				this.failures.increment();
+			}
+			this.bytes.add(bytes);
+			this.nanos.add(nanos);
+			this.latency.record(nanos);
+		}
+
+		OperationSnapshot snapshot() {
+			return OperationSnapshot.builder()
+				.name(name)
+				.count(count.sum())
+				.failures(failures.sum())
+				.bytes(bytes.sum())
+				.totalNanos(nanos.sum())
+				.p50(latency.valueAtPercentile(50))
+				.p99(latency.valueAtPercentile(99))
+				.p999(latency.valueAtPercentile(99.9))
+				.max(latency.getMax())
+				.build();
+		}
+
+		void reset() {
+			count.reset();
+			failures.reset();
+			bytes.reset();
+			nanos.reset();
+			latency.reset();
+		}
+
+	}
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.metrics;
+
+/**
+ * 单个操作的记录器,由 {@link CryptoMetrics#operation(String)} 创建,实现必须是线程安全的
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public interface OperationMetrics {
+
+	/**
+	 * 记录一次调用
+	 * @param bytes 处理的字节数
+	 * @param nanos 耗时(纳秒)
+	 * @param success 是否成功,解密时校验失败也视为失败
+	 */
+	void record(long bytes, long nanos, boolean success);
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.metrics;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 操作指标快照,耗时单位为纳秒
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+@Getter
+@Builder
+public class OperationSnapshot {
+
+	private final String name;
+
+	private final long count;
+
+	private final long failures;
+
+	private final long bytes;
+
+	private final long totalNanos;
+
+	private final long p50;
+
+	private final long p99;
+
+	private final long p999;
+
+	private final long max;
+
+	public long getMeanNanos() {
+		return count == 0 ? 0 : totalNanos / count;
+	}
+
+	@Override
+	public String toString() {
+		return name + "{count=" + count + ", failures=" + failures + ", bytes=" + bytes + ", mean=" + getMeanNanos()
+				+ "ns, p50=" + p50 + "ns, p99=" + p99 + "ns, p999=" + p999 + "ns, max=" + max + "ns}";
+	}
+
+}
@@ -19,6 +19,7 @@ package com.power4j.tile.crypto.utils;
 import com.power4j.tile.crypto.bc.GlobalBouncyCastleProvider;
 import com.power4j.tile.crypto.core.GeneralCryptoException;
 import com.power4j.tile.crypto.core.UncheckedCipher;
+import com.power4j.tile.crypto.core.Verified;
 import lombok.experimental.UtilityClass;
 import org.apache.commons.codec.binary.Hex;
 import org.jspecify.annotations.Nullable;
@@ -82,6 +83,42 @@ public class CryptoUtil {
 		}
 	}
 
+	/**
+	 * 常量时间比较两段数据是否相同
+	 * @param a 数据a
+	 * @param aOffset 数据a的开始位置
+	 * @param b 数据b
+	 * @param bOffset 数据b的开始位置
+	 * @param length 比较的长度
+	 * @return true 表示相同
+	 */
+	public boolean constantTimeEquals(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+		int diff = 0;
+		for (int i = 0; i < length; i++) {
+			diff |= a[aOffset + i] ^ b[bOffset + i];
+		}
+		return diff == 0;
+	}
+
+	/**
+	 * 获取验证通过的数据
+	 * @param result 验证结果
+	 * @return 数据
+	 * @param <T> 数据类型
+	 * @throws GeneralCryptoException 验证不通过
+	 */
+	public <T> T requirePass(Verified<T> result) throws GeneralCryptoException {
+		if (!result.isPass()) {
+			Throwable throwable = result.getCause();
+			if (throwable != null) {
+				throw wrapGeneralCryptoException("Data verification failed", throwable);
+			}
+			throw new GeneralCryptoException("Data verification failed");
+		}
+		assert result.getData() != null;
+		return result.getData();
+	}
+
 	public GeneralCryptoException wrapGeneralCryptoException(@Nullable String msg, Throwable cause) {
 		if (cause instanceof GeneralCryptoException) {
 			return (GeneralCryptoException) cause;
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.utils;
+
+import com.power4j.tile.crypto.bc.BouncyCastleAeadCipher;
+import com.power4j.tile.crypto.bc.BouncyCastleQuickCipher;
+import com.power4j.tile.crypto.bc.GlobalBouncyCastleProvider;
+import com.power4j.tile.crypto.bc.Spec;
+import com.power4j.tile.crypto.core.CipherBlobDetails;
+import com.power4j.tile.crypto.core.GeneralCryptoException;
+import com.power4j.tile.crypto.core.QuickCipherBuilder;
+import com.power4j.tile.crypto.core.UncheckedCipher;
+import com.power4j.tile.crypto.engine.CipherBackend;
+import com.power4j.tile.crypto.engine.CipherBackends;
+
+import javax.crypto.Mac;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 加密组件预热,消除首次请求的延迟尖峰<br/>
+ * <ul>
+ * <li>启动阶段: 注册 BouncyCastle Provider,解析 Cipher/MessageDigest/Mac 服务,加载 SM2
+ * 曲线参数并完成一次点乘(生成曲线的预计算表)</li>
+ * <li>预热阶段: 对每个算法和实现重复加解密,以及 SM3,HmacSM3 和自定义操作,使 JIT 在业务流量到达前完成编译</li>
+ * </ul>
+ * 可以在应用启动时调用 {@link #start()} 在后台线程执行(立即),也可以在首次使用时调用 {@link #global()}(延迟)<br/>
+ * 单个步骤失败只记录在 {@link WarmupReport#getFailures()} 中,不会中断预热
+ *
+ * <pre>
+ * CryptoWarmup.builder().iterations(5000).backends(CipherBackends.jce(), CipherBackends.sm4()).build().start();
+ * </pre>
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public final class CryptoWarmup {
+
+	/**
+	 * 默认预热的算法
+	 */
+	public static final List<String> DEFAULT_TRANSFORMATIONS = Collections.unmodifiableList(
+			Arrays.asList("SM4/ECB/PKCS7Padding", "SM4/CBC/PKCS7Padding", "SM4/CTR/NoPadding", "SM4/GCM/NoPadding"));
+
+	public static final int DEFAULT_ITERATIONS = 2000;
+
+	public static final int DEFAULT_PAYLOAD_SIZE = 1024;
+
+	private static final int AEAD_IV_LENGTH = 12;
+
+	private static final String THREAD_NAME = "tile-crypto-warmup";
+
+	private final List<String> transformations;
+
+	private final List<CipherBackend> backends;
+
+	private final int iterations;
+
+	private final int payloadSize;
+
+	private final boolean sm2;
+
+	private final Map<String, Runnable> tasks;
+
+	private final AtomicReference<CompletableFuture<WarmupReport>> started = new AtomicReference<>();
+
+	private CryptoWarmup(Builder builder) {
+		this.transformations = Collections.unmodifiableList(new ArrayList<>(builder.transformations));
+		this.backends = Collections.unmodifiableList(new ArrayList<>(builder.backends));
+		this.iterations = builder.iterations;
+		this.payloadSize = builder.payloadSize;
+		this.sm2 = builder.sm2;
+		this.tasks = Collections.unmodifiableMap(new LinkedHashMap<>(builder.tasks));
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * 全局默认预热,首次调用时在后台线程启动,之后返回同一个结果
+	 * @return 预热结果
+	 */
+	public static CompletableFuture<WarmupReport> global() {
+		return GlobalHolder.INSTANCE.start();
+	}
+
+	/**
+	 * 在后台守护线程上执行,重复调用返回同一个结果
+	 * @return 预热结果
+	 */
+	public CompletableFuture<WarmupReport> start() {
+		CompletableFuture<WarmupReport> future = new CompletableFuture<>();
+		if (!started.compareAndSet(null, future)) {
+			return started.get();
+		}
+		Thread thread = new Thread(() -> {
+			try {
+				future.complete(execute());
+			}
+			catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		}, THREAD_NAME);
+		thread.setDaemon(true);
+		thread.start();
+		return future;
+	}
+
+	/**
+	 * 在当前线程执行,已经启动过时等待并返回之前的结果
+	 * @return 预热结果
+	 */
+	public WarmupReport run() {
+		CompletableFuture<WarmupReport> future = new CompletableFuture<>();
+		if (!started.compareAndSet(null, future)) {
+			return started.get().join();
+		}
+		try {
+			future.complete(execute());
+		}
+		catch (RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		}
+		return future.join();
+	}
+
+	private WarmupReport execute() {
+		final Map<String, Duration> steps = new LinkedHashMap<>();
+		final Map<String, String> failures = new LinkedHashMap<>();
+		final long startupBegin = System.nanoTime();
+		step("provider", steps, failures, () -> {
+			if (GlobalBouncyCastleProvider.INSTANCE.getProvider() == null) {
+				throw new GeneralCryptoException("BouncyCastle provider is not available");
+			}
+		});
+		step("services", steps, failures, this::resolveServices);
+		if (sm2) {
+			step("sm2-curve", steps, failures, () -> {
+				try {
+					Sm2Util.genKeyPair();
+				}
+				catch (Exception e) {
+					throw new GeneralCryptoException(e.getMessage(), e);
+				}
+			});
+		}
+		final Duration startup = Duration.ofNanos(System.nanoTime() - startupBegin);
+
+		final long warmupBegin = System.nanoTime();
+		final SecureRandom random = new SecureRandom();
+		final byte[] key = new byte[16];
+		final byte[] iv = new byte[16];
+		final byte[] payload = new byte[payloadSize];
+		random.nextBytes(key);
+		random.nextBytes(iv);
+		random.nextBytes(payload);
+		for (CipherBackend backend : backends) {
+			for (String transformation : transformations) {
+				if (!backend.supports(transformation)) {
+					continue;
+				}
+				step(backend.getName() + ":" + transformation, steps, failures,
+						() -> cipherRounds(backend, transformation, key, iv, payload));
+			}
+		}
+		step("sm3", steps, failures, () -> {
+			for (int i = 0; i < iterations; i++) {
+				Sm3Util.hash(payload, null);
+			}
+		});
+		step("hmac-sm3", steps, failures, () -> {
+			for (int i = 0; i < iterations; i++) {
+				HmacSm3Util.sign(payload, key);
+			}
+		});
+		for (Map.Entry<String, Runnable> task : tasks.entrySet()) {
+			step(task.getKey(), steps, failures, () -> {
+				for (int i = 0; i < iterations; i++) {
+					task.getValue().run();
+				}
+			});
+		}
+		final Duration warmup = Duration.ofNanos(System.nanoTime() - warmupBegin);
+		return new WarmupReport(startup, warmup, steps, failures);
+	}
+
+	/**
+	 * 首次查找服务会加载并缓存实现类,之后的 getInstance 只需要查表
+	 */
+	private void resolveServices() {
+		final Provider provider = GlobalBouncyCastleProvider.INSTANCE.getProvider();
+		for (String transformation : transformations) {
+			CryptoUtil.createCipher(transformation);
+		}
+		try {
+			MessageDigest.getInstance(Spec.ALGORITHM_SM3, provider);
+			Mac.getInstance("HmacSM3", provider);
+		}
+		catch (Exception e) {
+			throw new GeneralCryptoException(e.getMessage(), e);
+		}
+	}
+
+	private void cipherRounds(CipherBackend backend, String transformation, byte[] key, byte[] iv, byte[] payload) {
+		final String[] parts = transformation.split("/");
+		final QuickCipherBuilder builder = QuickCipherBuilder.algorithm(parts[0])
+			.mode(parts[1])
+			.padding(parts[2])
+			.secretKey(key)
+			.sm3ChecksumCalculator()
+			.sm3ChecksumVerifier()
+			.backend(backend);
+		if (BouncyCastleAeadCipher.isAeadMode(parts[1])) {
+			builder.randomIv(AEAD_IV_LENGTH);
+		}
+		else if (!Spec.MODE_ECB.equalsIgnoreCase(parts[1])) {
+			builder.ivParameter(iv);
+		}
+		final BouncyCastleQuickCipher cipher = builder.build();
+		for (int i = 0; i < iterations; i++) {
+			CipherBlobDetails details = cipher.encrypt(payload);
+			CryptoUtil.requirePass(cipher
+				.decrypt(UncheckedCipher.of(details.getCipher(), details.getChecksum(), details.getIv()), false));
+		}
+	}
+
+	private static void step(String name, Map<String, Duration> steps, Map<String, String> failures, Runnable action) {
+		final long begin = System.nanoTime();
+		try {
+			action.run();
+		}
+		catch (RuntimeException | LinkageError e) {
+			failures.put(name, e.getClass().getSimpleName() + ": " + e.getMessage());
+		}
+		steps.put(name, Duration.ofNanos(System.nanoTime() - begin));
+	}
+
+	private static final class GlobalHolder {
+
+		private static final CryptoWarmup INSTANCE = builder().build();
+
+	}
+
+	public static final class Builder {
+
+		private final List<String> transformations = new ArrayList<>(DEFAULT_TRANSFORMATIONS);
+
+		private final List<CipherBackend> backends = new ArrayList<>(Collections.singletonList(CipherBackends.jce()));
+
+		private int iterations = DEFAULT_ITERATIONS;
+
+		private int payloadSize = DEFAULT_PAYLOAD_SIZE;
+
+		private boolean sm2 = true;
+
+		private final Map<String, Runnable> tasks = new LinkedHashMap<>();
+
+		private Builder() {
+		}
+
+		/**
+		 * 需要预热的算法,替换默认值
+		 * @param transformations 算法/模式/填充
+		 * @return this
+		 */
+		public Builder transformations(String... transformations) {
+			this.transformations.clear();
+			this.transformations.addAll(Arrays.asList(transformations));
+			return this;
+		}
+
+		/**
+		 * 需要预热的实现,替换默认值(jce),实现不支持的算法会被跳过
+		 * @param backends 实现
+		 * @return this
+		 */
+		public Builder backends(CipherBackend... backends) {
+			this.backends.clear();
+			this.backends.addAll(Arrays.asList(backends));
+			return this;
+		}
+
+		/**
+		 * 每个操作的重复次数
+		 * @param iterations 次数,必须大于 0
+		 * @return this
+		 */
+		public Builder iterations(int iterations) {
+			if (iterations <= 0) {
+				throw new IllegalArgumentException("iterations must > 0");
+			}
+			this.iterations = iterations;
+			return this;
+		}
+
+		/**
+		 * 每次加解密的数据长度
+		 * @param payloadSize 长度,必须大于 0
+		 * @return this
+		 */
+		public Builder payloadSize(int payloadSize) {
+			if (payloadSize <= 0) {
+				throw new IllegalArgumentException("payloadSize must > 0");
+			}
+			this.payloadSize = payloadSize;
+			return this;
+		}
+
+		/**
+		 * 是否预加载 SM2 曲线,默认启用
+		 * @param sm2 是否启用
+		 * @return this
+		 */
+		public Builder sm2(boolean sm2) {
+			this.sm2 = sm2;
+			return this;
+		}
+
+		/**
+		 * 添加自定义预热操作,重复执行 iterations 次
+		 * @param name 名称,在结果中用于标识
+		 * @param task 操作
+		 * @return this
+		 */
+		public Builder task(String name, Runnable task) {
+			this.tasks.put(name, task);
+			return this;
+		}
+
+		public CryptoWarmup build() {
+			return new CryptoWarmup(this);
+		}
+
+	}
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.utils;
+
+import com.power4j.tile.crypto.metrics.CryptoEvent;
+import com.power4j.tile.crypto.metrics.CryptoEventType;
+import com.power4j.tile.crypto.metrics.CryptoEvents;
+import com.power4j.tile.crypto.metrics.OperationMetrics;
+import org.bouncycastle.crypto.digests.SM3Digest;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 绑定密钥的 HMAC-SM3,创建时完成密钥处理并保存内层(key ^ ipad)和外层(key ^ opad)的 SM3 状态, 每条消息只需要从保存的状态恢复,结果与
+ * {@link HmacSm3Util#sign(byte[], byte[])} 相同<br/>
+ * 本对象线程安全,便捷方法使用线程内复用的 {@link Context};需要增量输入时通过 {@link #newContext()} 创建独立的上下文
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public final class HmacSm3 {
+
+	private static final int BLOCK_SIZE = 64;
+
+	private static final byte IPAD = 0x36;
+
+	private static final byte OPAD = 0x5C;
+
+	/**
+	 * 只作为模板使用,创建之后不再修改
+	 */
+	private final SM3Digest inner;
+
+	private final SM3Digest outer;
+
+	private final ThreadLocal<Context> local = ThreadLocal.withInitial(this::newContext);
+
+	private HmacSm3(byte[] key) {
+		byte[] block = new byte[BLOCK_SIZE];
+		if (key.length > BLOCK_SIZE) {
+			SM3Digest digest = new SM3Digest();
+			digest.update(key, 0, key.length);
+			digest.doFinal(block, 0);
+		}
+		else {
+			System.arraycopy(key, 0, block, 0, key.length);
+		}
+		inner = new SM3Digest();
+		outer = new SM3Digest();
+		for (int i = 0; i < BLOCK_SIZE; i++) {
+			inner.update((byte) (block[i] ^ IPAD));
+			outer.update((byte) (block[i] ^ OPAD));
+		}
+		Arrays.fill(block, (byte) 0);
+	}
+
+	/**
+	 * @param key 密钥,不会保存引用
+	 * @return HmacSm3
+	 */
+	public static HmacSm3 of(byte[] key) {
+		return new HmacSm3(key);
+	}
+
+	/**
+	 * 创建增量计算的上下文
+	 * @return Context,非线程安全
+	 */
+	public Context newContext() {
+		return new Context(inner, outer);
+	}
+
+	/**
+	 * 计算 HMAC
+	 * @param data 数据
+	 * @return HMAC, {@link HmacSm3Util#HMAC_SM3_BYTES} 字节
+	 */
+	public byte[] sign(byte[] data) {
+		byte[] out = new byte[HmacSm3Util.HMAC_SM3_BYTES];
+		sign(data, 0, data.length, out, 0);
+		return out;
+	}
+
+	/**
+	 * 计算 HMAC 并写入调用方提供的缓冲区,不分配内存
+	 * @param data 数据
+	 * @param offset 开始位置
+	 * @param length 长度
+	 * @param out 输出缓冲区
+	 * @param outOffset 输出位置
+	 * @return 输出的字节数
+	 */
+	public int sign(byte[] data, int offset, int length, byte[] out, int outOffset) {
+		final OperationMetrics m = HmacSm3Util.signMetrics();
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.HASH);
+		if (m == null && event == null) {
+			return context().update(data, offset, length).finish(out, outOffset);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			int n = context().update(data, offset, length).finish(out, outOffset);
+			success = true;
+			return n;
+		}
+		finally {
+			HmacSm3Util.record(m, event, "sign", length, start, success);
+		}
+	}
+
+	/**
+	 * 计算 HMAC
+	 * @param data 数据,读取 position 到 limit 之间的数据,完成后 position 等于 limit
+	 * @return HMAC
+	 */
+	public byte[] sign(ByteBuffer data) {
+		final int length = data.remaining();
+		final byte[] out = new byte[HmacSm3Util.HMAC_SM3_BYTES];
+		final OperationMetrics m = HmacSm3Util.signMetrics();
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.HASH);
+		if (m == null && event == null) {
+			context().update(data).finish(out, 0);
+			return out;
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			context().update(data).finish(out, 0);
+			success = true;
+			return out;
+		}
+		finally {
+			HmacSm3Util.record(m, event, "sign", length, start, success);
+		}
+	}
+
+	/**
+	 * 验证 HMAC,比较时间与内容无关
+	 * @param data 数据
+	 * @param mac HMAC
+	 * @return true 表示验证通过
+	 */
+	public boolean verify(byte[] data, byte[] mac) {
+		return mac.length == HmacSm3Util.HMAC_SM3_BYTES && verify(data, 0, data.length, mac, 0);
+	}
+
+	/**
+	 * 验证 HMAC,比较时间与内容无关,不分配内存
+	 * @param data 数据
+	 * @param offset 开始位置
+	 * @param length 长度
+	 * @param mac 保存 HMAC 的缓冲区
+	 * @param macOffset HMAC 的位置,从该位置开始读取 {@link HmacSm3Util#HMAC_SM3_BYTES} 字节
+	 * @return true 表示验证通过
+	 */
+	public boolean verify(byte[] data, int offset, int length, byte[] mac, int macOffset) {
+		final OperationMetrics m = HmacSm3Util.verifyMetrics();
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.HASH);
+		if (m == null && event == null) {
+			return context().update(data, offset, length).verify(mac, macOffset);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			success = context().update(data, offset, length).verify(mac, macOffset);
+			return success;
+		}
+		finally {
+			HmacSm3Util.record(m, event, "verify", length, start, success);
+		}
+	}
+
+	/**
+	 * 当前线程复用的上下文,使用前重置,丢弃上一次失败调用遗留的数据
+	 */
+	private Context context() {
+		Context context = local.get();
+		context.reset();
+		return context;
+	}
+
+	/**
+	 * 增量计算 HMAC 的上下文,{@code finish} 或 {@code verify} 之后自动重置,可以重复使用;非线程安全
+	 */
+	public static final class Context {
+
+		private final SM3Digest inner;
+
+		private final SM3Digest outer;
+
+		private final SM3Digest digest;
+
+		private final SM3Digest outerDigest;
+
+		private final byte[] result = new byte[HmacSm3Util.HMAC_SM3_BYTES];
+
+		private Context(SM3Digest inner, SM3Digest outer) {
+			this.inner = inner;
+			this.outer = outer;
+			this.digest = new SM3Digest(inner);
+			this.outerDigest = new SM3Digest(outer);
+		}
+
+		/**
+		 * 写入一个字节
+		 * @param b 数据
+		 * @return this
+		 */
+		public Context update(byte b) {
+			digest.update(b);
+			return this;
+		}
+
+		/**
+		 * 写入数据
+		 * @param data 数据
+		 * @param offset 开始位置
+		 * @param length 长度
+		 * @return this
+		 */
+		public Context update(byte[] data, int offset, int length) {
+			digest.update(data, offset, length);
+			return this;
+		}
+
+		/**
+		 * 写入数据
+		 * @param data 数据
+		 * @return this
+		 */
+		public Context update(byte[] data) {
+			return update(data, 0, data.length);
+		}
+
+		/**
+		 * 写入 ByteBuffer 中剩余的数据,完成后 position 等于 limit
+		 * @param data 数据
+		 * @return this
+		 */
+		public Context update(ByteBuffer data) {
+			if (data.hasArray()) {
+				digest.update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+				data.position(data.limit());
+				return this;
+			}
+			while (data.hasRemaining()) {
+				int n = Math.min(result.length, data.remaining());
+				data.get(result, 0, n);
+				digest.update(result, 0, n);
+			}
+			return this;
+		}
+
+		/**
+		 * 完成计算并重置
+		 * @param out 输出缓冲区,至少需要 {@link HmacSm3Util#HMAC_SM3_BYTES} 字节
+		 * @param offset 输出位置
+		 * @return 输出的字节数
+		 */
+		public int finish(byte[] out, int offset) {
+			if (out.length - offset < HmacSm3Util.HMAC_SM3_BYTES) {
+				throw new IndexOutOfBoundsException("Output buffer too short");
+			}
+			digest.doFinal(result, 0);
+			digest.reset(inner);
+			outerDigest.update(result, 0, result.length);
+			outerDigest.doFinal(out, offset);
+			outerDigest.reset(outer);
+			return HmacSm3Util.HMAC_SM3_BYTES;
+		}
+
+		/**
+		 * 完成计算并重置
+		 * @return HMAC
+		 */
+		public byte[] finish() {
+			byte[] out = new byte[HmacSm3Util.HMAC_SM3_BYTES];
+			finish(out, 0);
+			return out;
+		}
+
+		/**
+		 * 完成计算并与 mac 比较,比较时间与内容无关,完成后重置
+		 * @param mac 保存 HMAC 的缓冲区
+		 * @param offset HMAC 的位置,从该位置开始读取 {@link HmacSm3Util#HMAC_SM3_BYTES} 字节
+		 * @return true 表示一致,缓冲区长度不足时返回 false
+		 */
+		public boolean verify(byte[] mac, int offset) {
+			finish(result, 0);
+			if (offset < 0 || mac.length - offset < result.length) {
+				return false;
+			}
+			int diff = 0;
+			for (int i = 0; i < result.length; i++) {
+				diff |= result[i] ^ mac[offset + i];
+			}
+			return diff == 0;
+		}
+
+		/**
+		 * 丢弃已经写入的数据
+		 */
+		public void reset() {
+			digest.reset(inner);
+		}
+
+	}
+
+}
@@ -17,10 +17,16 @@
 package com.power4j.tile.crypto.utils;
 
 import com.power4j.tile.crypto.core.encode.HexEncoder;
+import com.power4j.tile.crypto.metrics.CryptoEvent;
+import com.power4j.tile.crypto.metrics.CryptoEventType;
+import com.power4j.tile.crypto.metrics.CryptoEvents;
+import com.power4j.tile.crypto.metrics.CryptoMetrics;
+import com.power4j.tile.crypto.metrics.OperationMetrics;
 import lombok.experimental.UtilityClass;
 import org.bouncycastle.crypto.digests.SM3Digest;
 import org.bouncycastle.crypto.macs.HMac;
 import org.bouncycastle.crypto.params.KeyParameter;
+import org.jspecify.annotations.Nullable;
 
 import java.security.MessageDigest;
 import java.util.Base64;
@@ -34,7 +40,55 @@ public class HmacSm3Util {
 
 	public static final int HMAC_SM3_BYTES = 32;
 
+	private static final String ALGORITHM = "HMAC-SM3";
+
+	@Nullable private volatile OperationMetrics signMetrics;
+
+	@Nullable private volatile OperationMetrics verifyMetrics;
+
+	/**
+	 * 全局启用或者关闭指标记录,操作名称为 hmac-sm3.sign 和 hmac-sm3.verify,同时作用于 {@link HmacSm3}
+	 * @param metrics 为 null 时关闭
+	 */
+	public void metrics(@Nullable CryptoMetrics metrics) {
+		signMetrics = metrics == null ? null : metrics.operation("hmac-sm3.sign");
+		verifyMetrics = metrics == null ? null : metrics.operation("hmac-sm3.verify");
+	}
+
+	/**
+	 * 计算 HMAC,每次调用都会重新处理密钥,同一个密钥多次使用时应该使用 {@link #keyed(byte[])}
+	 * @param data 数据
+	 * @param key 密钥
+	 * @return HMAC
+	 */
 	public byte[] sign(byte[] data, byte[] key) {
+		final OperationMetrics m = signMetrics;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.HASH);
+		if (m == null && event == null) {
+			return mac(data, key);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			byte[] result = mac(data, key);
+			success = true;
+			return result;
+		}
+		finally {
+			record(m, event, "sign", data.length, start, success);
+		}
+	}
+
+	/**
+	 * 预先处理密钥,适合同一个密钥签名大量消息
+	 * @param key 密钥
+	 * @return HmacSm3
+	 */
+	public HmacSm3 keyed(byte[] key) {
+		return HmacSm3.of(key);
+	}
+
+	private byte[] mac(byte[] data, byte[] key) {
 		HMac hmac = new HMac(new SM3Digest());
 		hmac.init(new KeyParameter(key));
 		hmac.update(data, 0, data.length);
@@ -52,8 +106,38 @@ public class HmacSm3Util {
 	}
 
 	public boolean verify(byte[] data, byte[] key, byte[] mac) {
-		byte[] ours = sign(data, key);
-		return MessageDigest.isEqual(ours, mac);
+		final OperationMetrics m = verifyMetrics;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.HASH);
+		if (m == null && event == null) {
+			return MessageDigest.isEqual(mac(data, key), mac);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			success = MessageDigest.isEqual(mac(data, key), mac);
+			return success;
+		}
+		finally {
+			record(m, event, "verify", data.length, start, success);
+		}
+	}
+
+	@Nullable OperationMetrics signMetrics() {
+		return signMetrics;
+	}
+
+	@Nullable OperationMetrics verifyMetrics() {
+		return verifyMetrics;
+	}
+
+	void record(@Nullable OperationMetrics m, @Nullable CryptoEvent event, String operation, long bytes, long start,
+			boolean success) {
+		if (m != null) {
+			m.record(bytes, System.nanoTime() - start, success);
+		}
+		if (event != null) {
+			event.commit(operation, ALGORITHM, null, bytes, success, null);
+		}
 	}
 
 	public boolean verifyHex(byte[] data, byte[] key, String macHex) {
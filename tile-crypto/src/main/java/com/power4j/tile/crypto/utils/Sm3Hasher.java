@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.utils;
+
+import org.bouncycastle.crypto.digests.SM3Digest;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 增量计算 SM3 摘要,直接使用 BouncyCastle {@link SM3Digest},不经过 JCA 查找 Provider<br/>
+ * {@code finish} 之后自动重置,可以重复使用;非线程安全
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public final class Sm3Hasher {
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final SM3Digest digest = new SM3Digest();
+
+	private final byte[] result = new byte[Sm3Util.SM3_BYTES];
+
+	@Nullable private byte[] buffer;
+
+	/**
+	 * 写入一个字节
+	 * @param b 数据
+	 * @return this
+	 */
+	public Sm3Hasher update(byte b) {
+		digest.update(b);
+		return this;
+	}
+
+	/**
+	 * 写入数据
+	 * @param data 数据
+	 * @return this
+	 */
+	public Sm3Hasher update(byte[] data) {
+		digest.update(data, 0, data.length);
+		return this;
+	}
+
+	/**
+	 * 写入数据
+	 * @param data 数据
+	 * @param offset 开始位置
+	 * @param length 长度
+	 * @return this
+	 */
+	public Sm3Hasher update(byte[] data, int offset, int length) {
+		digest.update(data, offset, length);
+		return this;
+	}
+
+	/**
+	 * 写入 ByteBuffer 中剩余的数据,完成后 position 等于 limit
+	 * @param data 数据
+	 * @return this
+	 */
+	public Sm3Hasher update(ByteBuffer data) {
+		if (data.hasArray()) {
+			digest.update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+			data.position(data.limit());
+			return this;
+		}
+		byte[] chunk = buffer();
+		while (data.hasRemaining()) {
+			int n = Math.min(chunk.length, data.remaining());
+			data.get(chunk, 0, n);
+			digest.update(chunk, 0, n);
+		}
+		return this;
+	}
+
+	/**
+	 * 读取输入流直到结束并写入,不关闭输入流
+	 * @param in 输入流
+	 * @return 读取的字节数
+	 * @throws IOException IO 异常
+	 */
+	public long update(InputStream in) throws IOException {
+		byte[] chunk = buffer();
+		long total = 0;
+		int n;
+		while ((n = in.read(chunk)) != -1) {
+			digest.update(chunk, 0, n);
+			total += n;
+		}
+		return total;
+	}
+
+	/**
+	 * 完成计算并重置
+	 * @param out 输出缓冲区,至少需要 {@link Sm3Util#SM3_BYTES} 字节
+	 * @param offset 输出位置
+	 * @return 输出的字节数
+	 */
+	public int finish(byte[] out, int offset) {
+		return digest.doFinal(out, offset);
+	}
+
+	/**
+	 * 完成计算并重置,对输出进行截断或者填充
+	 * @param out 输出缓冲区
+	 * @param offset 输出位置
+	 * @param outputLen 输出长度,超过 {@link Sm3Util#SM3_BYTES} 的部分填充 0
+	 * @return 输出的字节数
+	 */
+	public int finish(byte[] out, int offset, int outputLen) {
+		if (outputLen <= 0) {
+			throw new IllegalArgumentException("outputLen must be positive");
+		}
+		if (out.length - offset < outputLen) {
+			throw new IndexOutOfBoundsException("Output buffer too short, need " + outputLen + " bytes");
+		}
+		digest.doFinal(result, 0);
+		int n = Math.min(outputLen, result.length);
+		System.arraycopy(result, 0, out, offset, n);
+		Arrays.fill(out, offset + n, offset + outputLen, (byte) 0);
+		return outputLen;
+	}
+
+	/**
+	 * 完成计算并重置
+	 * @return 摘要值, {@link Sm3Util#SM3_BYTES} 字节
+	 */
+	public byte[] finish() {
+		byte[] out = new byte[Sm3Util.SM3_BYTES];
+		digest.doFinal(out, 0);
+		return out;
+	}
+
+	/**
+	 * 丢弃已经写入的数据
+	 */
+	public void reset() {
+		digest.reset();
+	}
+
+	/**
+	 * 与 {@code expected} 对比并重置,规则与
+	 * {@code Arrays.equals(expected, finish(out, 0, expected.length))} 相同,但不分配内存
+	 * @param expected 期望的摘要值,超过完整长度的部分应该是 0
+	 * @return true 表示一致
+	 */
+	boolean finishAndCompare(byte[] expected) {
+		digest.doFinal(result, 0);
+		if (expected.length == 0) {
+			return false;
+		}
+		int diff = 0;
+		for (int i = 0; i < expected.length; i++) {
+			diff |= expected[i] ^ (i < result.length ? result[i] : 0);
+		}
+		return diff == 0;
+	}
+
+	private byte[] buffer() {
+		if (buffer == null) {
+			buffer = new byte[BUFFER_SIZE];
+		}
+		return buffer;
+	}
+
+}
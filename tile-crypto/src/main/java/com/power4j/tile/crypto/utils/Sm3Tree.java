@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.utils;
+
+import org.bouncycastle.crypto.digests.SM3Digest;
+
+import java.security.MessageDigest;
+
+/**
+ * {@link Sm3TreeHash} 的计算结果,保存所有节点,可以为任意叶子生成证明
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public final class Sm3Tree {
+
+	private final int leafSize;
+
+	private final long length;
+
+	/**
+	 * levels[0] 是叶子,最后一层是根
+	 */
+	private final byte[][][] levels;
+
+	Sm3Tree(int leafSize, long length, byte[][][] levels) {
+		this.leafSize = leafSize;
+		this.length = length;
+		this.levels = levels;
+	}
+
+	public int getLeafSize() {
+		return leafSize;
+	}
+
+	/**
+	 * @return 输入数据的总长度
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	public int getLeafCount() {
+		return levels[0].length;
+	}
+
+	/**
+	 * @return 根哈希, {@link Sm3Util#SM3_BYTES} 字节
+	 */
+	public byte[] getRoot() {
+		return levels[levels.length - 1][0].clone();
+	}
+
+	/**
+	 * @param index 叶子序号
+	 * @return 叶子哈希
+	 */
+	public byte[] getLeaf(int index) {
+		return levels[0][index].clone();
+	}
+
+	/**
+	 * 叶子数据的位置
+	 * @param index 叶子序号
+	 * @return 在输入数据中的偏移量
+	 */
+	public long leafOffset(int index) {
+		checkIndex(index);
+		return (long) index * leafSize;
+	}
+
+	/**
+	 * 叶子数据的长度,只有最后一个叶子可以小于 leafSize
+	 * @param index 叶子序号
+	 * @return 长度
+	 */
+	public int leafLength(int index) {
+		return (int) Math.min(leafSize, length - leafOffset(index));
+	}
+
+	/**
+	 * 生成叶子证明,可以在没有其他数据的情况下验证该叶子
+	 * @param index 叶子序号
+	 * @return Sm3TreeProof
+	 */
+	public Sm3TreeProof proof(int index) {
+		checkIndex(index);
+		byte[][] path = new byte[levels.length - 1][];
+		int count = 0;
+		int i = index;
+		for (int level = 0; level < levels.length - 1; level++) {
+			byte[][] nodes = levels[level];
+			int sibling = i ^ 1;
+			if (sibling < nodes.length) {
+				path[count++] = nodes[sibling].clone();
+			}
+			i >>>= 1;
+		}
+		byte[][] siblings = new byte[count][];
+		System.arraycopy(path, 0, siblings, 0, count);
+		return new Sm3TreeProof(index, getLeafCount(), siblings);
+	}
+
+	/**
+	 * 验证叶子数据
+	 * @param index 叶子序号
+	 * @param data 数据
+	 * @param offset 开始位置
+	 * @param len 长度
+	 * @return true 表示一致
+	 */
+	public boolean verifyLeaf(int index, byte[] data, int offset, int len) {
+		checkIndex(index);
+		return MessageDigest.isEqual(levels[0][index], Sm3TreeHash.leaf(new SM3Digest(), data, offset, len));
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= getLeafCount()) {
+			throw new IndexOutOfBoundsException("Leaf index out of range: " + index);
+		}
+	}
+
+}
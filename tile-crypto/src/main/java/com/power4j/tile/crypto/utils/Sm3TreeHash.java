@@ -0,0 +1,322 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.utils;
+
+import com.power4j.tile.crypto.core.GeneralCryptoException;
+import com.power4j.tile.crypto.metrics.CryptoEvent;
+import com.power4j.tile.crypto.metrics.CryptoEventType;
+import com.power4j.tile.crypto.metrics.CryptoEvents;
+import org.bouncycastle.crypto.digests.SM3Digest;
+import org.jspecify.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * SM3 树哈希(Merkle Tree),算法名称 {@value #ALGORITHM},结果与 SM3 不同,不能互相替代<br/>
+ * <ul>
+ * <li>输入按 leafSize 切分为叶子,最后一个叶子可以不满,空输入是一个空叶子</li>
+ * <li>叶子节点: SM3(0x00 || 数据),在 ForkJoinPool 中并行计算</li>
+ * <li>中间节点: SM3(0x01 || 左 || 右),每层节点数为奇数时最后一个节点直接进入上一层</li>
+ * </ul>
+ * 根哈希只有在 leafSize 相同时才可以比较
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public final class Sm3TreeHash {
+
+	public static final String ALGORITHM = "SM3-TREE";
+
+	public static final int DEFAULT_LEAF_SIZE = 1024 * 1024;
+
+	static final byte LEAF_PREFIX = 0x00;
+
+	static final byte NODE_PREFIX = 0x01;
+
+	/**
+	 * 每个任务至少处理的叶子数量
+	 */
+	private static final int LEAVES_PER_TASK = 2;
+
+	private static final Sm3TreeHash DEFAULT = new Sm3TreeHash(DEFAULT_LEAF_SIZE, ForkJoinPool.commonPool());
+
+	private final int leafSize;
+
+	private final ForkJoinPool pool;
+
+	private Sm3TreeHash(int leafSize, ForkJoinPool pool) {
+		this.leafSize = leafSize;
+		this.pool = pool;
+	}
+
+	/**
+	 * 叶子大小为 {@link #DEFAULT_LEAF_SIZE},使用公共 ForkJoinPool
+	 * @return Sm3TreeHash
+	 */
+	public static Sm3TreeHash ofDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * 使用公共 ForkJoinPool
+	 * @param leafSize 叶子大小
+	 * @return Sm3TreeHash
+	 */
+	public static Sm3TreeHash of(int leafSize) {
+		return of(leafSize, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param leafSize 叶子大小
+	 * @param pool 计算叶子哈希的线程池
+	 * @return Sm3TreeHash
+	 */
+	public static Sm3TreeHash of(int leafSize, ForkJoinPool pool) {
+		if (leafSize <= 0) {
+			throw new IllegalArgumentException("leafSize must be positive");
+		}
+		return new Sm3TreeHash(leafSize, pool);
+	}
+
+	public int getLeafSize() {
+		return leafSize;
+	}
+
+	/**
+	 * 计算树哈希
+	 * @param data 数据
+	 * @return Sm3Tree
+	 */
+	public Sm3Tree hash(byte[] data) {
+		try {
+			return build(data.length, (digest, scratch, offset, length) -> digest.update(data, (int) offset, length));
+		}
+		catch (IOException e) {
+			throw new GeneralCryptoException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 计算树哈希,读取 position 到 limit 之间的数据,不改变 position
+	 * @param data 数据
+	 * @return Sm3Tree
+	 */
+	public Sm3Tree hash(ByteBuffer data) {
+		final ByteBuffer source = data.slice();
+		try {
+			return build(source.remaining(), (digest, scratch, offset, length) -> {
+				if (source.hasArray()) {
+					digest.update(source.array(), source.arrayOffset() + (int) offset, length);
+					return;
+				}
+				ByteBuffer view = source.duplicate();
+				view.position((int) offset);
+				int remaining = length;
+				while (remaining > 0) {
+					int n = Math.min(remaining, scratch.length);
+					view.get(scratch, 0, n);
+					digest.update(scratch, 0, n);
+					remaining -= n;
+				}
+			});
+		}
+		catch (IOException e) {
+			throw new GeneralCryptoException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 计算树哈希,读取整个文件,不改变 channel 的 position
+	 * @param channel 文件
+	 * @return Sm3Tree
+	 * @throws IOException IO 异常
+	 */
+	public Sm3Tree hash(FileChannel channel) throws IOException {
+		return build(channel.size(), (digest, scratch, offset, length) -> {
+			ByteBuffer buffer = ByteBuffer.wrap(scratch);
+			long position = offset;
+			int remaining = length;
+			while (remaining > 0) {
+				buffer.clear().limit(Math.min(remaining, scratch.length));
+				int n = channel.read(buffer, position);
+				if (n < 0) {
+					throw new EOFException("File truncated at " + position);
+				}
+				digest.update(scratch, 0, n);
+				position += n;
+				remaining -= n;
+			}
+		});
+	}
+
+	/**
+	 * 计算文件的树哈希
+	 * @param file 文件
+	 * @return Sm3Tree
+	 * @throws IOException IO 异常
+	 */
+	public Sm3Tree hash(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return hash(channel);
+		}
+	}
+
+	private Sm3Tree build(long length, LeafSource source) throws IOException {
+		final long count = Math.max(1, (length + leafSize - 1) / leafSize);
+		if (count > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many leaves, increase leafSize");
+		}
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.HASH);
+		boolean success = false;
+		try {
+			final byte[][] leaves = new byte[(int) count][];
+			final LeafTask task = new LeafTask(source, length, leaves, 0, leaves.length);
+			if (leaves.length <= LEAVES_PER_TASK) {
+				task.compute();
+			}
+			else {
+				pool.invoke(task);
+			}
+			Sm3Tree tree = new Sm3Tree(leafSize, length, levels(leaves));
+			success = true;
+			return tree;
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		finally {
+			if (event != null) {
+				event.commit("hash", ALGORITHM, null, length, success, null);
+			}
+		}
+	}
+
+	private static byte[][][] levels(byte[][] leaves) {
+		int depth = 1;
+		for (int n = leaves.length; n > 1; n = (n + 1) / 2) {
+			depth++;
+		}
+		final byte[][][] levels = new byte[depth][][];
+		levels[0] = leaves;
+		final SM3Digest digest = new SM3Digest();
+		for (int level = 1; level < depth; level++) {
+			byte[][] below = levels[level - 1];
+			byte[][] nodes = new byte[(below.length + 1) / 2][];
+			for (int i = 0; i < nodes.length; i++) {
+				int left = i * 2;
+				nodes[i] = left + 1 < below.length ? node(digest, below[left], below[left + 1]) : below[left];
+			}
+			levels[level] = nodes;
+		}
+		return levels;
+	}
+
+	static byte[] node(SM3Digest digest, byte[] left, byte[] right) {
+		digest.update(NODE_PREFIX);
+		digest.update(left, 0, left.length);
+		digest.update(right, 0, right.length);
+		byte[] out = new byte[Sm3Util.SM3_BYTES];
+		digest.doFinal(out, 0);
+		return out;
+	}
+
+	static byte[] leaf(SM3Digest digest, byte[] data, int offset, int length) {
+		digest.update(LEAF_PREFIX);
+		digest.update(data, offset, length);
+		byte[] out = new byte[Sm3Util.SM3_BYTES];
+		digest.doFinal(out, 0);
+		return out;
+	}
+
+	@FunctionalInterface
+	private interface LeafSource {
+
+		/**
+		 * 把 [offset, offset + length) 之间的数据写入 digest
+		 * @param scratch 任务独占的临时缓冲区
+		 */
+		void update(SM3Digest digest, byte[] scratch, long offset, int length) throws IOException;
+
+	}
+
+	private final class LeafTask extends RecursiveAction {
+
+		private static final int SCRATCH_SIZE = 64 * 1024;
+
+		private final LeafSource source;
+
+		private final long length;
+
+		private final byte[][] leaves;
+
+		private final int from;
+
+		private final int to;
+
+		@Nullable private byte[] scratch;
+
+		LeafTask(LeafSource source, long length, byte[][] leaves, int from, int to) {
+			this.source = source;
+			this.length = length;
+			this.leaves = leaves;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > LEAVES_PER_TASK) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new LeafTask(source, length, leaves, from, mid),
+						new LeafTask(source, length, leaves, mid, to));
+				return;
+			}
+			final SM3Digest digest = new SM3Digest();
+			for (int i = from; i < to; i++) {
+				long offset = (long) i * leafSize;
+				int n = (int) Math.min(leafSize, length - offset);
+				digest.update(LEAF_PREFIX);
+				try {
+					source.update(digest, scratch(), offset, n);
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				byte[] out = new byte[Sm3Util.SM3_BYTES];
+				digest.doFinal(out, 0);
+				leaves[i] = out;
+			}
+		}
+
+		private byte[] scratch() {
+			if (scratch == null) {
+				scratch = new byte[Math.min(SCRATCH_SIZE, leafSize)];
+			}
+			return scratch;
+		}
+
+	}
+
+}
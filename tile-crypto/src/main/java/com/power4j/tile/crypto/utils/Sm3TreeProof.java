@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.utils;
+
+import org.bouncycastle.crypto.digests.SM3Digest;
+import org.jspecify.annotations.Nullable;
+
+import java.security.MessageDigest;
+
+/**
+ * 单个叶子的 {@link Sm3TreeHash} 证明: 叶子序号,叶子总数以及从叶子到根路径上的兄弟节点<br/>
+ * 验证时只需要该叶子的数据和可信的根哈希
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+public final class Sm3TreeProof {
+
+	private final int leafIndex;
+
+	private final int leafCount;
+
+	private final byte[][] siblings;
+
+	public Sm3TreeProof(int leafIndex, int leafCount, byte[][] siblings) {
+		if (leafCount <= 0 || leafIndex < 0 || leafIndex >= leafCount) {
+			throw new IllegalArgumentException("Invalid leaf index " + leafIndex + " of " + leafCount);
+		}
+		this.leafIndex = leafIndex;
+		this.leafCount = leafCount;
+		this.siblings = siblings.clone();
+	}
+
+	public int getLeafIndex() {
+		return leafIndex;
+	}
+
+	public int getLeafCount() {
+		return leafCount;
+	}
+
+	/**
+	 * @return 从叶子到根的兄弟节点
+	 */
+	public byte[][] getSiblings() {
+		byte[][] copy = new byte[siblings.length][];
+		for (int i = 0; i < siblings.length; i++) {
+			copy[i] = siblings[i].clone();
+		}
+		return copy;
+	}
+
+	/**
+	 * 由叶子数据计算根哈希
+	 * @param data 数据
+	 * @param offset 开始位置
+	 * @param length 长度
+	 * @return 根哈希,证明与叶子总数不匹配时返回 null
+	 */
+	public byte @Nullable [] computeRoot(byte[] data, int offset, int length) {
+		final SM3Digest digest = new SM3Digest();
+		byte[] node = Sm3TreeHash.leaf(digest, data, offset, length);
+		int index = leafIndex;
+		int count = leafCount;
+		int used = 0;
+		while (count > 1) {
+			if ((index ^ 1) < count) {
+				if (used == siblings.length) {
+					return null;
+				}
+				byte[] sibling = siblings[used++];
+				node = (index & 1) == 0 ? Sm3TreeHash.node(digest, node, sibling)
+						: Sm3TreeHash.node(digest, sibling, node);
+			}
+			index >>>= 1;
+			count = (count + 1) / 2;
+		}
+		return used == siblings.length ? node : null;
+	}
+
+	/**
+	 * 验证叶子数据
+	 * @param root 可信的根哈希
+	 * @param data 数据
+	 * @param offset 开始位置
+	 * @param length 长度
+	 * @return true 表示验证通过
+	 */
+	public boolean verify(byte[] root, byte[] data, int offset, int length) {
+		byte[] computed = computeRoot(data, offset, length);
+		return computed != null && MessageDigest.isEqual(root, computed);
+	}
+
+	/**
+	 * 验证叶子数据
+	 * @param root 可信的根哈希
+	 * @param data 数据
+	 * @return true 表示验证通过
+	 */
+	public boolean verify(byte[] root, byte[] data) {
+		return verify(root, data, 0, data.length);
+	}
+
+}
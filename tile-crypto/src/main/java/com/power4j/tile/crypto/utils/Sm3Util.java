@@ -16,18 +16,22 @@
 
 package com.power4j.tile.crypto.utils;
 
-import com.power4j.tile.crypto.bc.GlobalBouncyCastleProvider;
 import com.power4j.tile.crypto.bc.Spec;
 import com.power4j.tile.crypto.core.GeneralCryptoException;
 import com.power4j.tile.crypto.core.encode.HexEncoder;
+import com.power4j.tile.crypto.metrics.CryptoEvent;
+import com.power4j.tile.crypto.metrics.CryptoEventType;
+import com.power4j.tile.crypto.metrics.CryptoEvents;
+import com.power4j.tile.crypto.metrics.CryptoMetrics;
+import com.power4j.tile.crypto.metrics.OperationMetrics;
 import com.power4j.tile.crypto.wrapper.InputDecoder;
 import com.power4j.tile.crypto.wrapper.OutputEncoder;
 import lombok.experimental.UtilityClass;
 import org.jspecify.annotations.Nullable;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * @author CJ (power4j@outlook.com)
@@ -38,6 +42,19 @@ public class Sm3Util {
 
 	public static final int SM3_BYTES = 32;
 
+	private final ThreadLocal<Sm3Hasher> LOCAL_HASHER = ThreadLocal.withInitial(Sm3Hasher::new);
+
+	@Nullable private volatile OperationMetrics hashMetrics;
+
+	/**
+	 * 全局启用或者关闭指标记录,操作名称为 sm3.hash
+	 * @param metrics 为 null 时关闭
+	 * @since 1.9
+	 */
+	public void metrics(@Nullable CryptoMetrics metrics) {
+		hashMetrics = metrics == null ? null : metrics.operation("sm3.hash");
+	}
+
 	/**
 	 * 计算SM3摘要值
 	 * @param input 原文
@@ -56,15 +73,123 @@ public class Sm3Util {
 	 * @return 摘要值,对于SM3算法来说是32字节
 	 */
 	public byte[] hash(byte[] input, int outputLen, @Nullable byte[] salt) {
-		MessageDigest digest = messageDigest(Spec.ALGORITHM_SM3);
-		if (salt != null && salt.length > 0) {
-			digest.update(salt);
+		return hash(input, 0, input.length, outputLen, salt);
+	}
+
+	/**
+	 * 计算SM3摘要值
+	 * @param input 原文
+	 * @param offset 开始位置
+	 * @param length 长度
+	 * @param outputLen 对原始输出进行截断或者填充,如果 <=0 表示输出原始长度(32字节)
+	 * @param salt 哈希盐
+	 * @return 摘要值
+	 * @since 1.9
+	 */
+	public byte[] hash(byte[] input, int offset, int length, int outputLen, @Nullable byte[] salt) {
+		byte[] out = new byte[outputLen > 0 ? outputLen : SM3_BYTES];
+		hashInto(input, offset, length, salt, out, 0, out.length);
+		return out;
+	}
+
+	/**
+	 * 计算SM3摘要值并写入调用方提供的缓冲区,使用线程内复用的上下文,不分配内存
+	 * @param input 原文
+	 * @param offset 开始位置
+	 * @param length 长度
+	 * @param salt 哈希盐
+	 * @param out 输出缓冲区
+	 * @param outOffset 输出位置
+	 * @param outputLen 输出长度,对原始输出进行截断或者填充
+	 * @return 输出的字节数
+	 * @since 1.9
+	 */
+	public int hashInto(byte[] input, int offset, int length, @Nullable byte[] salt, byte[] out, int outOffset,
+			int outputLen) {
+		final OperationMetrics m = hashMetrics;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.HASH);
+		if (m == null && event == null) {
+			return local(salt).update(input, offset, length).finish(out, outOffset, outputLen);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			int n = local(salt).update(input, offset, length).finish(out, outOffset, outputLen);
+			success = true;
+			return n;
 		}
-		digest.update(input);
-		if (outputLen > 0) {
-			return Arrays.copyOf(digest.digest(), outputLen);
+		finally {
+			record(m, event, length, start, success);
 		}
-		return digest.digest();
+	}
+
+	/**
+	 * 计算SM3摘要值,使用线程内复用的上下文
+	 * @param input 原文,读取 position 到 limit 之间的数据,完成后 position 等于 limit
+	 * @param salt 哈希盐
+	 * @return 摘要值,32字节
+	 * @since 1.9
+	 */
+	public byte[] hash(ByteBuffer input, @Nullable byte[] salt) {
+		final int length = input.remaining();
+		final OperationMetrics m = hashMetrics;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.HASH);
+		if (m == null && event == null) {
+			return local(salt).update(input).finish();
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
+		try {
+			byte[] result = local(salt).update(input).finish();
+			success = true;
+			return result;
+		}
+		finally {
+			record(m, event, length, start, success);
+		}
+	}
+
+	/**
+	 * 计算SM3摘要值,读取输入流直到结束,不关闭输入流
+	 * @param in 输入流
+	 * @param salt 哈希盐
+	 * @return 摘要值,32字节
+	 * @throws IOException IO 异常
+	 * @since 1.9
+	 */
+	public byte[] hash(InputStream in, @Nullable byte[] salt) throws IOException {
+		// 读取过程中可能再次调用本类,因此不使用线程内复用的上下文
+		final Sm3Hasher hasher = hasher();
+		if (salt != null) {
+			hasher.update(salt);
+		}
+		final OperationMetrics m = hashMetrics;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.HASH);
+		if (m == null && event == null) {
+			hasher.update(in);
+			return hasher.finish();
+		}
+		final long start = System.nanoTime();
+		long length = 0;
+		boolean success = false;
+		try {
+			length = hasher.update(in);
+			byte[] result = hasher.finish();
+			success = true;
+			return result;
+		}
+		finally {
+			record(m, event, length, start, success);
+		}
+	}
+
+	/**
+	 * 创建增量计算 SM3 摘要的对象
+	 * @return Sm3Hasher
+	 * @since 1.9
+	 */
+	public Sm3Hasher hasher() {
+		return new Sm3Hasher();
 	}
 
 	/**
@@ -116,8 +241,7 @@ public class Sm3Util {
 	 * @return true 表示验证通过,false表示验证不通过
 	 */
 	public boolean verifyHead(byte[] data, byte[] hash, @Nullable byte[] salt) {
-		byte[] ours = hash(data, hash.length, salt);
-		return Arrays.equals(hash, ours);
+		return compare(data, hash, salt);
 	}
 
 	/**
@@ -128,8 +252,7 @@ public class Sm3Util {
 	 * @return true 表示验证通过,false表示验证不通过
 	 */
 	public boolean verify(byte[] data, byte[] hash, @Nullable byte[] salt) {
-		byte[] ours = hash(data, 0, salt);
-		return Arrays.equals(hash, ours);
+		return hash.length == SM3_BYTES && compare(data, hash, salt);
 	}
 
 	/**
@@ -162,12 +285,43 @@ public class Sm3Util {
 		return verify(dataBytes, hashBytes, saltBytes);
 	}
 
-	static MessageDigest messageDigest(String algorithm) throws GeneralCryptoException {
+	private boolean compare(byte[] data, byte[] expected, @Nullable byte[] salt) {
+		final OperationMetrics m = hashMetrics;
+		final CryptoEvent event = CryptoEvents.begin(CryptoEventType.HASH);
+		if (m == null && event == null) {
+			return local(salt).update(data).finishAndCompare(expected);
+		}
+		final long start = System.nanoTime();
+		boolean success = false;
 		try {
-			return MessageDigest.getInstance(algorithm, GlobalBouncyCastleProvider.INSTANCE.getProvider());
+			boolean result = local(salt).update(data).finishAndCompare(expected);
+			success = true;
+			return result;
+		}
+		finally {
+			record(m, event, data.length, start, success);
+		}
+	}
+
+	/**
+	 * 当前线程复用的上下文,已经写入哈希盐
+	 */
+	private Sm3Hasher local(@Nullable byte[] salt) {
+		Sm3Hasher hasher = LOCAL_HASHER.get();
+		hasher.reset();
+		if (salt != null) {
+			hasher.update(salt);
+		}
+		return hasher;
+	}
+
+	private void record(@Nullable OperationMetrics m, @Nullable CryptoEvent event, long bytes, long start,
+			boolean success) {
+		if (m != null) {
+			m.record(bytes, System.nanoTime() - start, success);
 		}
-		catch (NoSuchAlgorithmException e) {
-			throw new GeneralCryptoException(e.getMessage(), e);
+		if (event != null) {
+			event.commit("hash", Spec.ALGORITHM_SM3, null, bytes, success, null);
 		}
 	}
 
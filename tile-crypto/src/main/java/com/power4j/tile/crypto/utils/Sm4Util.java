@@ -17,6 +17,7 @@
 package com.power4j.tile.crypto.utils;
 
 import com.power4j.tile.crypto.bc.Spec;
+import com.power4j.tile.crypto.core.ChecksumStrategy;
 import com.power4j.tile.crypto.core.GeneralCryptoException;
 import com.power4j.tile.crypto.core.QuickCipher;
 import com.power4j.tile.crypto.core.QuickCipherBuilder;
@@ -68,6 +69,22 @@ public class Sm4Util {
 		return builderWithVerifySupport(Spec.MODE_OFB, Spec.PADDING_NO_PADDING).secretKey(key).ivParameter(iv).build();
 	}
 
+	/**
+	 * CTR 模式,同一个密钥下计数器(IV)绝对不能重复使用
+	 * @param key 密钥
+	 * @param iv 初始计数器
+	 * @return QuickCipher
+	 * @throws GeneralCryptoException
+	 * @since 1.9
+	 */
+	public QuickCipher useCtr(byte[] key, byte[] iv) throws GeneralCryptoException {
+		if (iv.length != BLOCK_SIZE) {
+			throw new IllegalArgumentException(
+					String.format("Invalid IV length: %d, should be %d", iv.length, BLOCK_SIZE));
+		}
+		return builderWithVerifySupport(Spec.MODE_CTR, Spec.PADDING_NO_PADDING).secretKey(key).ivParameter(iv).build();
+	}
+
 	public QuickCipher useEcbWithPadding(String hexKey) throws GeneralCryptoException {
 		byte[] key = CryptoUtil.decodeHex(hexKey, null);
 		return useEcbWithPadding(key);
@@ -91,6 +108,12 @@ public class Sm4Util {
 		return useOfb(key, iv);
 	}
 
+	public QuickCipher useCtr(String hexKey, String hexIv) throws GeneralCryptoException {
+		byte[] key = CryptoUtil.decodeHex(hexKey, null);
+		byte[] iv = CryptoUtil.decodeHex(hexIv, null);
+		return useCtr(key, iv);
+	}
+
 	public QuickCipherBuilder builder(String mode, String padding) {
 		return QuickCipherBuilder.algorithm(Spec.ALGORITHM_SM4).mode(mode).padding(padding);
 	}
@@ -99,4 +122,16 @@ public class Sm4Util {
 		return builder(mode, padding).sm3ChecksumCalculator().sm3ChecksumVerifier();
 	}
 
+	/**
+	 * 使用指定校验和策略的 Builder
+	 * @param mode 加密模式
+	 * @param padding 填充
+	 * @param checksum 校验和策略
+	 * @return QuickCipherBuilder
+	 * @since 1.9
+	 */
+	public QuickCipherBuilder builder(String mode, String padding, ChecksumStrategy checksum) {
+		return builder(mode, padding).checksum(checksum);
+	}
+
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.utils;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预热结果
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ * @see CryptoWarmup
+ */
+@Getter
+public class WarmupReport {
+
+	/**
+	 * 启动阶段耗时: 注册 Provider,解析算法服务,加载曲线参数
+	 */
+	private final Duration startup;
+
+	/**
+	 * 预热阶段耗时: 重复执行加解密等操作
+	 */
+	private final Duration warmup;
+
+	/**
+	 * 每个步骤的耗时,按执行顺序
+	 */
+	private final Map<String, Duration> steps;
+
+	/**
+	 * 失败的步骤及原因,单个步骤失败不影响其他步骤
+	 */
+	private final Map<String, String> failures;
+
+	WarmupReport(Duration startup, Duration warmup, Map<String, Duration> steps, Map<String, String> failures) {
+		this.startup = startup;
+		this.warmup = warmup;
+		this.steps = Collections.unmodifiableMap(new LinkedHashMap<>(steps));
+		this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+	}
+
+	public Duration getTotal() {
+		return startup.plus(warmup);
+	}
+
+	public boolean isSuccess() {
+		return failures.isEmpty();
+	}
+
+	/**
+	 * 失败的步骤名称
+	 * @return 步骤名称
+	 */
+	public List<String> getFailedSteps() {
+		return Collections.unmodifiableList(new ArrayList<>(failures.keySet()));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("startup = ")
+			.append(startup.toMillis())
+			.append("ms, warmup = ")
+			.append(warmup.toMillis())
+			.append("ms");
+		for (Map.Entry<String, Duration> entry : steps.entrySet()) {
+			builder.append(", ").append(entry.getKey()).append(" = ").append(entry.getValue().toMillis()).append("ms");
+		}
+		if (!failures.isEmpty()) {
+			builder.append(", failures = ").append(failures);
+		}
+		return builder.toString();
+	}
+
+}
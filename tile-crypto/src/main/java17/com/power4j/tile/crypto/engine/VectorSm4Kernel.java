@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 Vector API 的 SM4 批量实现,每个向量通道处理一个块(按字切片)<br/>
+ * 一批块的同一个状态字放在同一个向量中,轮函数对所有块同时进行: S 盒按向量长度切分为若干段,通过字节重排在寄存器内查表,
+ * 线性变换 L 使用循环移位<br/>
+ * 仅包含在多版本 JAR 的 {@code META-INF/versions/17} 中,运行时需要 {@code --add-modules jdk.incubator.vector}
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class VectorSm4Kernel implements Sm4BulkKernel {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	private static final int LANES = SPECIES.length();
+
+	private static final VectorSpecies<Byte> BYTES = SPECIES.withLanes(byte.class);
+
+	/**
+	 * S 盒的每一段对应一个字节向量,字节的低位是段内下标,高位是段号
+	 */
+	private static final ByteVector[] SBOX = new ByteVector[256 / BYTES.length()];
+
+	private static final int SEGMENT_BITS = Integer.numberOfTrailingZeros(BYTES.length());
+
+	static {
+		for (int i = 0; i < SBOX.length; i++) {
+			SBOX[i] = ByteVector.fromArray(BYTES, Sm4Core.SBOX, i * BYTES.length());
+		}
+	}
+
+	private static final int BS = Sm4Core.BLOCK_SIZE;
+
+	@Override
+	public int batchBlocks() {
+		return LANES;
+	}
+
+	@Override
+	public void crypt(int[] rk, byte[] in, int inOffset, byte[] out, int outOffset, int blocks) {
+		final int[] words = new int[4 * LANES];
+		for (int b = 0; b < blocks; b += LANES) {
+			final int base = b * BS;
+			for (int l = 0; l < LANES; l++) {
+				int offset = inOffset + base + l * BS;
+				words[l] = Sm4Core.getInt(in, offset);
+				words[LANES + l] = Sm4Core.getInt(in, offset + 4);
+				words[2 * LANES + l] = Sm4Core.getInt(in, offset + 8);
+				words[3 * LANES + l] = Sm4Core.getInt(in, offset + 12);
+			}
+			IntVector x0 = IntVector.fromArray(SPECIES, words, 0);
+			IntVector x1 = IntVector.fromArray(SPECIES, words, LANES);
+			IntVector x2 = IntVector.fromArray(SPECIES, words, 2 * LANES);
+			IntVector x3 = IntVector.fromArray(SPECIES, words, 3 * LANES);
+			for (int i = 0; i < Sm4Core.ROUNDS; i += 4) {
+				x0 = x0.lanewise(VectorOperators.XOR, t(x1.lanewise(VectorOperators.XOR, x2)
+					.lanewise(VectorOperators.XOR, x3)
+					.lanewise(VectorOperators.XOR, rk[i])));
+				x1 = x1.lanewise(VectorOperators.XOR, t(x2.lanewise(VectorOperators.XOR, x3)
+					.lanewise(VectorOperators.XOR, x0)
+					.lanewise(VectorOperators.XOR, rk[i + 1])));
+				x2 = x2.lanewise(VectorOperators.XOR, t(x3.lanewise(VectorOperators.XOR, x0)
+					.lanewise(VectorOperators.XOR, x1)
+					.lanewise(VectorOperators.XOR, rk[i + 2])));
+				x3 = x3.lanewise(VectorOperators.XOR, t(x0.lanewise(VectorOperators.XOR, x1)
+					.lanewise(VectorOperators.XOR, x2)
+					.lanewise(VectorOperators.XOR, rk[i + 3])));
+			}
+			x3.intoArray(words, 0);
+			x2.intoArray(words, LANES);
+			x1.intoArray(words, 2 * LANES);
+			x0.intoArray(words, 3 * LANES);
+			for (int l = 0; l < LANES; l++) {
+				int offset = outOffset + base + l * BS;
+				Sm4Core.putInt(words[l], out, offset);
+				Sm4Core.putInt(words[LANES + l], out, offset + 4);
+				Sm4Core.putInt(words[2 * LANES + l], out, offset + 8);
+				Sm4Core.putInt(words[3 * LANES + l], out, offset + 12);
+			}
+		}
+	}
+
+	/**
+	 * 合成置换 T = L(S(x))
+	 */
+	private static IntVector t(IntVector x) {
+		IntVector b = sbox(x);
+		return b.lanewise(VectorOperators.XOR, b.lanewise(VectorOperators.ROL, 2))
+			.lanewise(VectorOperators.XOR, b.lanewise(VectorOperators.ROL, 10))
+			.lanewise(VectorOperators.XOR, b.lanewise(VectorOperators.ROL, 18))
+			.lanewise(VectorOperators.XOR, b.lanewise(VectorOperators.ROL, 24));
+	}
+
+	/**
+	 * 对每个字节查 S 盒,S 盒是逐字节的,与字节序无关
+	 */
+	private static IntVector sbox(IntVector x) {
+		ByteVector bytes = x.reinterpretAsBytes();
+		VectorShuffle<Byte> shuffle = bytes.and((byte) (BYTES.length() - 1)).toShuffle();
+		ByteVector segment = bytes.lanewise(VectorOperators.LSHR, SEGMENT_BITS);
+		ByteVector r = SBOX[0].rearrange(shuffle);
+		for (int i = 1; i < SBOX.length; i++) {
+			r = r.blend(SBOX[i].rearrange(shuffle), segment.eq((byte) i));
+		}
+		return r.reinterpretAsInts();
+	}
+
+}
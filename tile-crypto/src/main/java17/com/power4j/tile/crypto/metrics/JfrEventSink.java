@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Java Flight Recorder 事件输出<br/>
+ * 只有录制中并且启用了对应事件时才创建事件对象,事件的开始时间和持续时间用于与 GC,安全点等事件对照<br/>
+ * 仅包含在多版本 JAR 的 {@code META-INF/versions/17} 中,由 {@link CryptoEvents} 通过反射加载
+ *
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+final class JfrEventSink implements CryptoEventSink {
+
+	private final EventType[] types = new EventType[CryptoEventType.values().length];
+
+	JfrEventSink() {
+		types[CryptoEventType.OPERATION.ordinal()] = EventType.getEventType(OperationEvent.class);
+		types[CryptoEventType.KEY_TRIAL.ordinal()] = EventType.getEventType(KeyTrialEvent.class);
+		types[CryptoEventType.AGREEMENT.ordinal()] = EventType.getEventType(AgreementEvent.class);
+		types[CryptoEventType.HASH.ordinal()] = EventType.getEventType(HashEvent.class);
+	}
+
+	@Override
+	public @Nullable CryptoEvent begin(CryptoEventType type) {
+		if (!types[type.ordinal()].isEnabled()) {
+			return null;
+		}
+		final AbstractCryptoEvent event;
+		switch (type) {
+			case OPERATION:
+				event = new OperationEvent();
+				break;
+			case KEY_TRIAL:
+				event = new KeyTrialEvent();
+				break;
+			case AGREEMENT:
+				event = new AgreementEvent();
+				break;
+			default:
+				event = new HashEvent();
+				break;
+		}
+		event.begin();
+		return event;
+	}
+
+	@Category({ "Tile", "Crypto" })
+	abstract static class AbstractCryptoEvent extends Event implements CryptoEvent {
+
+		@Label("Operation")
+		String operation;
+
+		@Label("Algorithm")
+		String algorithm;
+
+		@Label("Mode")
+		@Nullable String mode;
+
+		@Label("Payload Size")
+		@DataAmount
+		long bytes;
+
+		@Label("Success")
+		boolean success;
+
+		@Override
+		public void commit(String operation, String algorithm, @Nullable String mode, long bytes, boolean success,
+				@Nullable String keyTag) {
+			end();
+			if (!shouldCommit()) {
+				return;
+			}
+			this.operation = operation;
+			this.algorithm = algorithm;
+			this.mode = mode;
+			this.bytes = bytes;
+			this.success = success;
+			keyTag(keyTag);
+			commit();
+		}
+
+		void keyTag(@Nullable String keyTag) {
+		}
+
+	}
+
+	@Name("com.power4j.tile.crypto.Operation")
+	@Label("Crypto Operation")
+	@Description("QuickCipher encrypt/decrypt")
+	static final class OperationEvent extends AbstractCryptoEvent {
+
+	}
+
+	@Name("com.power4j.tile.crypto.KeyTrial")
+	@Label("Dynamic Decrypt Key Trial")
+	@Description("One key/IV combination tried by dynamic decryption")
+	static final class KeyTrialEvent extends AbstractCryptoEvent {
+
+		@Label("Key Tag")
+		@Nullable String keyTag;
+
+		@Override
+		void keyTag(@Nullable String keyTag) {
+			this.keyTag = keyTag;
+		}
+
+	}
+
+	@Name("com.power4j.tile.crypto.Agreement")
+	@Label("SM2 Key Agreement")
+	@Description("SM2 key exchange, payload size is the derived key length")
+	static final class AgreementEvent extends AbstractCryptoEvent {
+
+	}
+
+	@Name("com.power4j.tile.crypto.Hash")
+	@Label("Crypto Hash")
+	@Description("SM3 digest and HMAC-SM3")
+	static final class HashEvent extends AbstractCryptoEvent {
+
+	}
+
+}
@@ -16,15 +16,37 @@
 
 package com.power4j.tile.crypto.bc;
 
+import com.power4j.tile.crypto.core.CipherBatch;
 import com.power4j.tile.crypto.core.CipherBlobDetails;
+import com.power4j.tile.crypto.core.CryptoExecutors;
+import com.power4j.tile.crypto.core.GeneralCryptoException;
 import com.power4j.tile.crypto.core.UncheckedCipher;
 import com.power4j.tile.crypto.core.Verified;
+import com.power4j.tile.crypto.engine.CipherBackends;
+import com.power4j.tile.crypto.utils.CryptoUtil;
 import com.power4j.tile.crypto.utils.Sm4Util;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 /**
@@ -78,4 +100,476 @@ class BouncyCastleQuickCipherTest {
 		Assertions.assertArrayEquals(plain, verified.getData());
 	}
 
+	@Test
+	void concurrentEncrypt() throws Exception {
+		List<BouncyCastleQuickCipher> ciphers = Arrays.asList(
+				Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+					.secretKey(testKey)
+					.ivParameter(testIv)
+					.threadLocalCipher()
+					.build(),
+				Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+					.secretKey(testKey)
+					.ivParameter(testIv)
+					.pooledCipher(2)
+					.build());
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			for (BouncyCastleQuickCipher cipher : ciphers) {
+				List<Future<Boolean>> futures = new ArrayList<>();
+				for (int i = 0; i < 64; i++) {
+					byte[] plain = ("message-" + i).getBytes(StandardCharsets.UTF_8);
+					futures.add(executor.submit(() -> {
+						CipherBlobDetails details = cipher.encrypt(plain);
+						UncheckedCipher store = UncheckedCipher.of(details.getCipher(), details.getChecksum());
+						Verified<byte[]> verified = cipher.decrypt(store, false);
+						return verified.isPass() && Arrays.equals(plain, verified.getData());
+					}));
+				}
+				for (Future<Boolean> future : futures) {
+					Assertions.assertTrue(future.get());
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void byteBufferRoundTrip() {
+		byte[] plain = "hello,direct buffer".getBytes(StandardCharsets.UTF_8);
+		BouncyCastleQuickCipher cipher = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+			.secretKey(testKey)
+			.ivParameter(testIv)
+			.build();
+		CipherBlobDetails expected = cipher.encrypt(plain);
+
+		ByteBuffer src = ByteBuffer.allocateDirect(plain.length);
+		src.put(plain).flip();
+		ByteBuffer dst = ByteBuffer.allocateDirect(64);
+		ByteBuffer checksum = ByteBuffer.allocate(32);
+		int n = cipher.encrypt(src, dst, checksum);
+		Assertions.assertEquals(expected.getCipher().length, n);
+		Assertions.assertFalse(src.hasRemaining());
+		Assertions.assertArrayEquals(expected.getChecksum(), checksum.array());
+		dst.flip();
+		ByteBuffer encrypted = dst.duplicate();
+		byte[] actual = new byte[n];
+		encrypted.get(actual);
+		Assertions.assertArrayEquals(expected.getCipher(), actual);
+
+		ByteBuffer decrypted = ByteBuffer.allocateDirect(64);
+		checksum.flip();
+		Assertions.assertEquals(plain.length, cipher.decrypt(dst, decrypted, checksum));
+		decrypted.flip();
+		byte[] result = new byte[decrypted.remaining()];
+		decrypted.get(result);
+		Assertions.assertArrayEquals(plain, result);
+
+		ByteBuffer badChecksum = ByteBuffer.allocate(32);
+		Assertions.assertThrows(GeneralCryptoException.class,
+				() -> cipher.decrypt(ByteBuffer.wrap(expected.getCipher()), ByteBuffer.allocate(64), badChecksum));
+	}
+
+	@Test
+	void encryptIntoCallerBuffer() {
+		byte[] plain = "hello,caller buffer".getBytes(StandardCharsets.UTF_8);
+		BouncyCastleQuickCipher cipher = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+			.secretKey(testKey)
+			.ivParameter(testIv)
+			.build();
+		CipherBlobDetails expected = cipher.encrypt(plain);
+
+		byte[] out = new byte[4 + cipher.encryptOutputSize(plain.length)];
+		byte[] checksum = new byte[2 + cipher.checksumLength()];
+		int n = cipher.encryptInto(plain, 0, plain.length, out, 4, checksum, 2);
+		Assertions.assertEquals(expected.getCipher().length, n);
+		Assertions.assertArrayEquals(expected.getCipher(), Arrays.copyOfRange(out, 4, 4 + n));
+		Assertions.assertArrayEquals(expected.getChecksum(), Arrays.copyOfRange(checksum, 2, checksum.length));
+
+		byte[] decrypted = new byte[cipher.decryptOutputSize(n)];
+		int m = cipher.decryptInto(out, 4, n, decrypted, 0, checksum, 2, cipher.checksumLength());
+		Assertions.assertArrayEquals(plain, Arrays.copyOf(decrypted, m));
+
+		checksum[2] ^= 1;
+		Assertions.assertThrows(GeneralCryptoException.class,
+				() -> cipher.decryptInto(out, 4, n, decrypted, 0, checksum, 2, cipher.checksumLength()));
+	}
+
+	@Test
+	void batchShouldMatchSingle() {
+		BouncyCastleQuickCipher cipher = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+			.secretKey(testKey)
+			.ivParameter(testIv)
+			.threadLocalCipher()
+			.build();
+		List<byte[]> plains = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			plains.add(("batch-message-" + i).getBytes(StandardCharsets.UTF_8));
+		}
+		for (ForkJoinPool pool : Arrays.asList(null, ForkJoinPool.commonPool())) {
+			CipherBatch encrypted = cipher.encryptAll(plains, pool);
+			Assertions.assertEquals(plains.size(), encrypted.size());
+			for (int i = 0; i < plains.size(); i++) {
+				CipherBlobDetails expected = cipher.encrypt(plains.get(i));
+				Assertions.assertArrayEquals(expected.getCipher(), encrypted.get(i));
+				Assertions.assertArrayEquals(expected.getChecksum(), encrypted.checksum(i).unwrap());
+			}
+			CipherBatch decrypted = cipher.decryptAll(encrypted, false, pool);
+			for (int i = 0; i < plains.size(); i++) {
+				Assertions.assertArrayEquals(plains.get(i), decrypted.get(i));
+			}
+		}
+
+		CipherBatch encrypted = cipher.encryptAll(plains);
+		encrypted.getChecksums()[cipher.checksumLength() * 7] ^= 1;
+		Assertions.assertThrows(GeneralCryptoException.class, () -> cipher.decryptAll(encrypted, false));
+		Assertions.assertEquals(plains.size(), cipher.decryptAll(encrypted, true).size());
+	}
+
+	@Test
+	void fusedChecksumShouldMatchTwoPass() throws Exception {
+		final int chunk = BouncyCastleQuickCipher.FUSED_CHUNK_SIZE;
+		int[] lengths = { 0, 1, chunk - 1, chunk, chunk + 1, 3 * chunk + 17 };
+		String[][] specs = { { Spec.MODE_ECB, Spec.PADDING_PKCS7 }, { Spec.MODE_CBC, Spec.PADDING_PKCS7 },
+				{ Spec.MODE_CTR, Spec.PADDING_NO_PADDING } };
+		Random random = new Random(13);
+		for (String[] spec : specs) {
+			byte[] iv = Spec.MODE_ECB.equals(spec[0]) ? null : testIv;
+			BouncyCastleQuickCipher cipher = Sm4Util.builderWithVerifySupport(spec[0], spec[1])
+				.secretKey(testKey)
+				.ivParameter(iv)
+				.build();
+			Cipher reference = CryptoUtil.createCipher(CryptoUtil.transformation("SM4", spec[0], spec[1]));
+			reference.init(Cipher.ENCRYPT_MODE, CryptoUtil.createKey(testKey, "SM4"),
+					iv == null ? null : new IvParameterSpec(iv));
+			for (int length : lengths) {
+				String msg = spec[0] + ":" + length;
+				byte[] plain = new byte[length];
+				random.nextBytes(plain);
+				CipherBlobDetails details = cipher.encrypt(plain);
+				Assertions.assertArrayEquals(reference.doFinal(plain), details.getCipher(), msg);
+				Assertions.assertArrayEquals(CryptoUtil.SM3_CHECKSUM_CALCULATOR.apply(plain), details.getChecksum(),
+						msg);
+
+				Verified<byte[]> verified = cipher
+					.decrypt(UncheckedCipher.of(details.getCipher(), details.getChecksum()), false);
+				Assertions.assertTrue(verified.isPass(), msg);
+				Assertions.assertArrayEquals(plain, verified.getData(), msg);
+				byte[] tampered = details.getChecksum().clone();
+				tampered[0] ^= 1;
+				Assertions.assertFalse(
+						cipher.decrypt(UncheckedCipher.of(details.getCipher(), tampered), false).isPass(), msg);
+
+				// 原地处理
+				byte[] buffer = Arrays.copyOf(plain, cipher.encryptOutputSize(length));
+				byte[] checksum = new byte[cipher.checksumLength()];
+				int n = cipher.encryptInto(buffer, 0, length, buffer, 0, checksum, 0);
+				Assertions.assertArrayEquals(details.getCipher(), Arrays.copyOf(buffer, n), msg);
+				Assertions.assertArrayEquals(details.getChecksum(), checksum, msg);
+				int m = cipher.decryptInto(buffer, 0, n, buffer, 0, checksum, 0, checksum.length);
+				Assertions.assertArrayEquals(plain, Arrays.copyOf(buffer, m), msg);
+			}
+		}
+	}
+
+	@Test
+	void parallelShouldMatchSequential() {
+		byte[] plain = new byte[3 * 1024 * 1024 + 37];
+		new Random(7).nextBytes(plain);
+		// 低位字节接近溢出,验证计数器进位
+		byte[] counter = Arrays.copyOf(testIv, testIv.length);
+		Arrays.fill(counter, 8, 16, (byte) 0xFF);
+		String[][] specs = { { Spec.MODE_ECB, Spec.PADDING_PKCS7 }, { Spec.MODE_CBC, Spec.PADDING_PKCS7 },
+				{ Spec.MODE_CTR, Spec.PADDING_NO_PADDING } };
+		for (String[] spec : specs) {
+			byte[] iv = Spec.MODE_ECB.equals(spec[0]) ? null : counter;
+			BouncyCastleQuickCipher sequential = Sm4Util.builderWithVerifySupport(spec[0], spec[1])
+				.secretKey(testKey)
+				.ivParameter(iv)
+				.build();
+			BouncyCastleQuickCipher parallel = Sm4Util.builderWithVerifySupport(spec[0], spec[1])
+				.secretKey(testKey)
+				.ivParameter(iv)
+				.parallel(ForkJoinPool.commonPool(), 4096)
+				.build();
+			CipherBlobDetails expected = sequential.encrypt(plain);
+			CipherBlobDetails actual = parallel.encrypt(plain);
+			Assertions.assertArrayEquals(expected.getCipher(), actual.getCipher(), spec[0]);
+			Assertions.assertArrayEquals(plain, parallel.decrypt(actual.getCipher()), spec[0]);
+
+			byte[] out = new byte[parallel.decryptOutputSize(expected.getCipher().length)];
+			int n = parallel.decryptInto(expected.getCipher(), 0, expected.getCipher().length, out, 0,
+					expected.getChecksum(), 0, expected.getChecksum().length);
+			Assertions.assertArrayEquals(plain, Arrays.copyOf(out, n), spec[0]);
+		}
+	}
+
+	@Test
+	void parallelCtrWithShortIvShouldMatchSequential() {
+		byte[] plain = new byte[1024 * 1024 + 3];
+		new Random(9).nextBytes(plain);
+		byte[] iv = Arrays.copyOf(testIv, 12);
+		BouncyCastleQuickCipher sequential = Sm4Util.builderWithVerifySupport(Spec.MODE_CTR, Spec.PADDING_NO_PADDING)
+			.secretKey(testKey)
+			.ivParameter(iv)
+			.build();
+		BouncyCastleQuickCipher parallel = Sm4Util.builderWithVerifySupport(Spec.MODE_CTR, Spec.PADDING_NO_PADDING)
+			.secretKey(testKey)
+			.ivParameter(iv)
+			.parallel(ForkJoinPool.commonPool(), 4096)
+			.build();
+		CipherBlobDetails expected = sequential.encrypt(plain);
+		Assertions.assertArrayEquals(expected.getCipher(), parallel.encrypt(plain).getCipher());
+		Assertions.assertArrayEquals(plain, parallel.decrypt(expected.getCipher()));
+	}
+
+	@Test
+	void sm4BackendShouldMatchJce() {
+		byte[] plain = new byte[2 * 1024 * 1024 + 5];
+		new Random(11).nextBytes(plain);
+		String[][] specs = { { Spec.MODE_ECB, Spec.PADDING_PKCS7 }, { Spec.MODE_CBC, Spec.PADDING_PKCS7 },
+				{ Spec.MODE_CTR, Spec.PADDING_NO_PADDING } };
+		for (String[] spec : specs) {
+			byte[] iv = Spec.MODE_ECB.equals(spec[0]) ? null : testIv;
+			BouncyCastleQuickCipher jce = Sm4Util.builderWithVerifySupport(spec[0], spec[1])
+				.secretKey(testKey)
+				.ivParameter(iv)
+				.build();
+			BouncyCastleQuickCipher sm4 = Sm4Util.builderWithVerifySupport(spec[0], spec[1])
+				.secretKey(testKey)
+				.ivParameter(iv)
+				.backend(CipherBackends.sm4())
+				.parallel(ForkJoinPool.commonPool())
+				.build();
+			CipherBlobDetails expected = jce.encrypt(plain);
+			Assertions.assertArrayEquals(expected.getCipher(), sm4.encrypt(plain).getCipher(), spec[0]);
+			Assertions.assertArrayEquals(plain, sm4.decrypt(expected.getCipher()), spec[0]);
+		}
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> Sm4Util.builder(Spec.MODE_GCM, Spec.PADDING_NO_PADDING)
+					.secretKey(testKey)
+					.backend(CipherBackends.sm4())
+					.build());
+		// 自定义 CipherPool 不能忽略指定的实现
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> Sm4Util.builder(Spec.MODE_ECB, Spec.PADDING_PKCS7)
+					.secretKey(testKey)
+					.backend(CipherBackends.sm4())
+					.cipherPool(CipherPool::threadLocal)
+					.build());
+		BouncyCastleQuickCipher pooled = Sm4Util.builder(Spec.MODE_ECB, Spec.PADDING_PKCS7)
+			.secretKey(testKey)
+			.backend(CipherBackends.sm4())
+			.cipherPool(transformation -> CipherPool.threadLocal(transformation, CipherBackends.sm4()))
+			.build();
+		Assertions.assertArrayEquals(plain, pooled.decrypt(pooled.encrypt(plain).getCipher()));
+	}
+
+	@Test
+	void aeadTagAsChecksum() {
+		byte[] plain = "hello,authenticated encryption".getBytes(StandardCharsets.UTF_8);
+		for (String mode : Arrays.asList(Spec.MODE_GCM, Spec.MODE_CCM)) {
+			BouncyCastleQuickCipher cipher = Sm4Util.builder(mode, Spec.PADDING_NO_PADDING)
+				.secretKey(testKey)
+				.threadLocalCipher()
+				.build();
+			CipherBlobDetails details = cipher.encrypt(plain);
+			Assertions.assertEquals(plain.length, details.getCipher().length, mode);
+			Assertions.assertEquals(cipher.checksumLength(), details.getChecksum().length, mode);
+			Assertions.assertFalse(Arrays.equals(details.getIv(), cipher.encrypt(plain).getIv()), mode);
+
+			UncheckedCipher store = UncheckedCipher.of(details.getCipher(), details.getChecksum(), details.getIv());
+			Verified<byte[]> verified = cipher.decrypt(store, false);
+			Assertions.assertTrue(verified.isPass(), mode);
+			Assertions.assertArrayEquals(plain, verified.getData(), mode);
+
+			byte[] tampered = details.getChecksum().clone();
+			tampered[0] ^= 1;
+			Assertions.assertFalse(
+					cipher.decrypt(UncheckedCipher.of(details.getCipher(), tampered, details.getIv()), true).isPass(),
+					mode);
+
+			BouncyCastleQuickCipher lightweight = Sm4Util.builder(mode, Spec.PADDING_NO_PADDING)
+				.secretKey(testKey)
+				.backend(CipherBackends.lightweight())
+				.build();
+			Assertions.assertArrayEquals(plain, lightweight.decrypt(store, true).getData(), mode);
+			CipherBlobDetails sealed = lightweight.encrypt(plain);
+			Assertions.assertArrayEquals(plain,
+					cipher.decrypt(UncheckedCipher.of(sealed.getCipher(), sealed.getChecksum(), sealed.getIv()), true)
+						.getData(),
+					mode);
+		}
+	}
+
+	@Test
+	void aeadShouldRejectFixedIv() {
+		for (String mode : Arrays.asList(Spec.MODE_GCM, Spec.MODE_CCM)) {
+			Assertions.assertThrows(IllegalArgumentException.class,
+					() -> Sm4Util.builder(mode, Spec.PADDING_NO_PADDING)
+						.secretKey(testKey)
+						.ivParameter(Arrays.copyOf(testIv, 12))
+						.build(),
+					mode);
+			AtomicInteger counter = new AtomicInteger();
+			BouncyCastleQuickCipher cipher = Sm4Util.builder(mode, Spec.PADDING_NO_PADDING)
+				.secretKey(testKey)
+				.ivParameterSpecSupplier(() -> {
+					byte[] nonce = new byte[13];
+					ByteBuffer.wrap(nonce, 9, 4).putInt(counter.getAndIncrement());
+					return new IvParameterSpec(nonce);
+				})
+				.aeadIvLength(13)
+				.build();
+			// 构建时不消耗 nonce
+			Assertions.assertEquals(0, counter.get(), mode);
+			byte[] plain = "hello,nonce sequence".getBytes(StandardCharsets.UTF_8);
+			CipherBlobDetails details = cipher.encrypt(plain);
+			Assertions.assertEquals(1, counter.get(), mode);
+			Assertions.assertArrayEquals(plain,
+					cipher
+						.decrypt(UncheckedCipher.of(details.getCipher(), details.getChecksum(), details.getIv()), false)
+						.getData(),
+					mode);
+			BouncyCastleAeadCipher aead = (BouncyCastleAeadCipher) cipher;
+			Assertions.assertArrayEquals(plain, aead.open(aead.seal(plain)), mode);
+		}
+	}
+
+	@Test
+	void aeadShouldRejectPathsWithoutIv() throws Exception {
+		byte[] plain = "hello,authenticated encryption".getBytes(StandardCharsets.UTF_8);
+		for (String mode : Arrays.asList(Spec.MODE_GCM, Spec.MODE_CCM)) {
+			BouncyCastleQuickCipher random = Sm4Util.builder(mode, Spec.PADDING_NO_PADDING).secretKey(testKey).build();
+			BouncyCastleQuickCipher sequence = Sm4Util.builder(mode, Spec.PADDING_NO_PADDING)
+				.secretKey(testKey)
+				.ivParameterSpecSupplier(() -> new IvParameterSpec(new byte[12]))
+				.build();
+			for (BouncyCastleQuickCipher cipher : Arrays.asList(random, sequence)) {
+				assertIvLessPathsRejected(cipher, plain);
+			}
+			BouncyCastleAeadCipher aead = (BouncyCastleAeadCipher) random;
+			Assertions.assertArrayEquals(plain, aead.open(aead.seal(plain)), mode);
+		}
+	}
+
+	@Test
+	void randomIvOnlyForPathsCarryingIv() throws Exception {
+		byte[] plain = "hello,random iv".getBytes(StandardCharsets.UTF_8);
+		for (String mode : Arrays.asList(Spec.MODE_CBC, Spec.MODE_CTR)) {
+			BouncyCastleQuickCipher cipher = Sm4Util
+				.builderWithVerifySupport(mode,
+						Spec.MODE_CBC.equals(mode) ? Spec.PADDING_PKCS7 : Spec.PADDING_NO_PADDING)
+				.secretKey(testKey)
+				.randomIv(16)
+				.build();
+			CipherBlobDetails details = cipher.encrypt(plain);
+			Assertions.assertFalse(Arrays.equals(details.getIv(), cipher.encrypt(plain).getIv()), mode);
+			Verified<byte[]> verified = cipher
+				.decrypt(UncheckedCipher.of(details.getCipher(), details.getChecksum(), details.getIv()), false);
+			Assertions.assertTrue(verified.isPass(), mode);
+			Assertions.assertArrayEquals(plain, verified.getData(), mode);
+			Assertions.assertThrows(GeneralCryptoException.class, () -> cipher.decrypt(details.getCipher()), mode);
+			Assertions.assertThrows(GeneralCryptoException.class,
+					() -> cipher.decrypt(UncheckedCipher.of(details.getCipher(), details.getChecksum()), false), mode);
+			assertIvLessPathsRejected(cipher, plain);
+		}
+	}
+
+	private static void assertIvLessPathsRejected(BouncyCastleQuickCipher cipher, byte[] plain) throws Exception {
+		String name = cipher.getTransformation();
+		byte[] out = new byte[plain.length + 64];
+		byte[] checksum = new byte[64];
+		Assertions.assertThrows(GeneralCryptoException.class,
+				() -> cipher.encryptInto(plain, 0, plain.length, out, 0, checksum, 0), name);
+		Assertions.assertThrows(GeneralCryptoException.class,
+				() -> cipher.decryptInto(plain, 0, plain.length, out, 0, null, 0, 0), name);
+		Assertions.assertThrows(GeneralCryptoException.class,
+				() -> cipher.encrypt(ByteBuffer.wrap(plain), ByteBuffer.allocate(out.length), null), name);
+		Assertions.assertThrows(GeneralCryptoException.class,
+				() -> cipher.decrypt(ByteBuffer.wrap(plain), ByteBuffer.allocate(out.length), null), name);
+		Assertions.assertThrows(GeneralCryptoException.class, () -> cipher.encryptAll(Collections.singletonList(plain)),
+				name);
+		Assertions.assertThrows(GeneralCryptoException.class, () -> cipher.decryptAll(Collections.singletonList(plain)),
+				name);
+		Assertions.assertThrows(GeneralCryptoException.class,
+				() -> cipher.encrypt(new ByteArrayInputStream(plain), new ByteArrayOutputStream()), name);
+		Assertions.assertThrows(GeneralCryptoException.class,
+				() -> cipher.decrypt(new ByteArrayInputStream(plain), new ByteArrayOutputStream(), null), name);
+		Path source = Files.createTempFile("tile-crypto", ".bin");
+		Path target = Files.createTempFile("tile-crypto", ".bin");
+		try {
+			Files.write(source, plain);
+			Assertions.assertThrows(GeneralCryptoException.class, () -> cipher.encrypt(source, target), name);
+			Assertions.assertThrows(GeneralCryptoException.class, () -> cipher.decrypt(source, target, null), name);
+		}
+		finally {
+			Files.deleteIfExists(source);
+			Files.deleteIfExists(target);
+		}
+	}
+
+	@Test
+	void cachedKeyUntilInvalidated() {
+		byte[] plain = "hello,key rotation".getBytes(StandardCharsets.UTF_8);
+		byte[] otherKey = Arrays.copyOf(testKey, testKey.length);
+		otherKey[0] ^= 1;
+		AtomicReference<byte[]> current = new AtomicReference<>(testKey);
+		AtomicInteger calls = new AtomicInteger();
+		BouncyCastleQuickCipher cipher = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+			.secretKeySpecSupplier(() -> {
+				calls.incrementAndGet();
+				return CryptoUtil.createKey(current.get(), Spec.ALGORITHM_SM4);
+			})
+			.ivParameter(testIv)
+			.build();
+		byte[] first = cipher.encrypt(plain).getCipher();
+		Assertions.assertArrayEquals(plain, cipher.decrypt(first));
+		Assertions.assertArrayEquals(first, cipher.encrypt(plain).getCipher());
+		Assertions.assertEquals(1, calls.get());
+
+		current.set(otherKey);
+		Assertions.assertArrayEquals(first, cipher.encrypt(plain).getCipher());
+		cipher.invalidateKey();
+		byte[] rotated = cipher.encrypt(plain).getCipher();
+		Assertions.assertFalse(Arrays.equals(first, rotated));
+		Assertions.assertArrayEquals(plain, cipher.decrypt(rotated));
+		Assertions.assertThrows(GeneralCryptoException.class, () -> cipher.decrypt(first));
+		Assertions.assertArrayEquals(plain, cipher.decrypt(rotated));
+		Assertions.assertEquals(2, calls.get());
+	}
+
+	@Test
+	void asyncShouldRunOnExecutor() throws Exception {
+		byte[] plain = "hello,async".getBytes(StandardCharsets.UTF_8);
+		BouncyCastleQuickCipher cipher = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+			.secretKey(testKey)
+			.ivParameter(testIv)
+			.build();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			AtomicReference<Thread> worker = new AtomicReference<>();
+			CipherBlobDetails details = cipher.encryptAsync(plain, r -> executor.execute(() -> {
+				worker.set(Thread.currentThread());
+				r.run();
+			})).get();
+			Assertions.assertNotSame(Thread.currentThread(), worker.get());
+			Assertions.assertArrayEquals(cipher.encrypt(plain).getCipher(), details.getCipher());
+			Assertions.assertArrayEquals(plain, cipher.decryptAsync(details.getCipher(), executor).get());
+			Verified<byte[]> verified = cipher
+				.decryptAsync(UncheckedCipher.of(details.getCipher(), details.getChecksum()), false, executor)
+				.get();
+			Assertions.assertTrue(verified.isPass());
+		}
+		finally {
+			executor.shutdown();
+		}
+		Assertions.assertArrayEquals(plain, cipher.decryptAsync(cipher.encryptAsync(plain).join().getCipher()).join());
+		String version = System.getProperty("java.specification.version");
+		Assertions.assertEquals(!version.startsWith("1.") && Integer.parseInt(version) >= 21,
+				CryptoExecutors.isVirtual());
+	}
+
 }
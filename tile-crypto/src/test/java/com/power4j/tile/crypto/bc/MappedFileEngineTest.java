@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.bc;
+
+import com.power4j.tile.crypto.core.StreamCipherDetails;
+import com.power4j.tile.crypto.core.Verified;
+import com.power4j.tile.crypto.utils.CryptoUtil;
+import com.power4j.tile.crypto.utils.Sm4Util;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+class MappedFileEngineTest {
+
+	private final byte[] testKey = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C,
+			0x0D, 0x0E, 0x0F, 0x10 };
+
+	private final byte[] testIv = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C,
+			0x0D, 0x0E, 0x0F, 0x10 };
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void fileShouldMatchOneStep() throws Exception {
+		byte[] plain = new byte[MappedFileEngine.WINDOW_SIZE + 37];
+		new Random(11).nextBytes(plain);
+		Path source = Files.write(tempDir.resolve("plain.bin"), plain);
+		Path encrypted = tempDir.resolve("encrypted.bin");
+		Path decrypted = tempDir.resolve("decrypted.bin");
+		String[][] specs = { { Spec.MODE_CBC, Spec.PADDING_PKCS7 }, { Spec.MODE_ECB, Spec.PADDING_PKCS7 },
+				{ Spec.MODE_CTR, Spec.PADDING_NO_PADDING }, { Spec.MODE_OFB, Spec.PADDING_NO_PADDING } };
+		for (String[] spec : specs) {
+			for (ForkJoinPool pool : new ForkJoinPool[] { null, ForkJoinPool.commonPool() }) {
+				String hint = spec[0] + (pool == null ? "" : " parallel");
+				BouncyCastleQuickCipher cipher = build(spec, pool);
+
+				StreamCipherDetails details = cipher.encrypt(source, encrypted);
+				byte[] expected = cipher.encrypt(plain).getCipher();
+				Assertions.assertArrayEquals(expected, Files.readAllBytes(encrypted), hint);
+				Assertions.assertArrayEquals(CryptoUtil.SM3_CHECKSUM_CALCULATOR.apply(plain), details.getChecksum(),
+						hint);
+				Assertions.assertEquals(plain.length, details.getInputBytes(), hint);
+				Assertions.assertEquals(expected.length, details.getOutputBytes(), hint);
+
+				Verified<StreamCipherDetails> verified = cipher.decrypt(encrypted, decrypted, details.getChecksum());
+				Assertions.assertTrue(verified.isPass(), hint);
+				Assertions.assertArrayEquals(plain, Files.readAllBytes(decrypted), hint);
+			}
+		}
+	}
+
+	@Test
+	void lastWindowOnlyPadding() throws Exception {
+		// 密文的最后一个窗口只有填充块,解密输出的最终长度小于之前映射过的范围时也不能留下多余的数据
+		byte[] plain = new byte[MappedFileEngine.WINDOW_SIZE * 2];
+		new Random(13).nextBytes(plain);
+		Path source = Files.write(tempDir.resolve("aligned.bin"), plain);
+		Path encrypted = tempDir.resolve("aligned.enc");
+		Path decrypted = tempDir.resolve("aligned.dec");
+		for (ForkJoinPool pool : new ForkJoinPool[] { null, ForkJoinPool.commonPool() }) {
+			BouncyCastleQuickCipher cipher = build(new String[] { Spec.MODE_CBC, Spec.PADDING_PKCS7 }, pool);
+			StreamCipherDetails details = cipher.encrypt(source, encrypted);
+			Assertions.assertEquals(plain.length + 16, Files.size(encrypted));
+			Assertions.assertTrue(cipher.decrypt(encrypted, decrypted, details.getChecksum()).isPass());
+			Assertions.assertArrayEquals(plain, Files.readAllBytes(decrypted));
+		}
+	}
+
+	@Test
+	void emptyFile() throws Exception {
+		BouncyCastleQuickCipher cipher = build(new String[] { Spec.MODE_CBC, Spec.PADDING_PKCS7 }, null);
+		Path source = Files.write(tempDir.resolve("empty.bin"), new byte[0]);
+		Path encrypted = tempDir.resolve("empty.enc");
+		Path decrypted = tempDir.resolve("empty.dec");
+		cipher.encrypt(source, encrypted);
+		Assertions.assertArrayEquals(cipher.encrypt(new byte[0]).getCipher(), Files.readAllBytes(encrypted));
+		cipher.decrypt(encrypted, decrypted);
+		Assertions.assertEquals(0, Files.size(decrypted));
+	}
+
+	private BouncyCastleQuickCipher build(String[] spec, ForkJoinPool pool) {
+		return Sm4Util.builderWithVerifySupport(spec[0], spec[1])
+			.secretKey(testKey)
+			.ivParameter(Spec.MODE_ECB.equals(spec[0]) ? null : testIv)
+			.parallel(pool)
+			.build();
+	}
+
+}
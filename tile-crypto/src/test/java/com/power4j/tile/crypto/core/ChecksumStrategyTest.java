@@ -0,0 +1,178 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core;
+
+import com.power4j.tile.crypto.bc.BouncyCastleQuickCipher;
+import com.power4j.tile.crypto.bc.Spec;
+import com.power4j.tile.crypto.utils.CryptoUtil;
+import com.power4j.tile.crypto.utils.Sm4Util;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+class ChecksumStrategyTest {
+
+	private final byte[] testKey = new byte[16];
+
+	private final byte[] testIv = new byte[16];
+
+	@Test
+	void crc32cShouldMatchKnownValue() {
+		byte[] data = "123456789".getBytes(StandardCharsets.US_ASCII);
+		IncrementalChecksum crc = Checksums.crc32c();
+		crc.update(data, 0, data.length);
+		Assertions.assertArrayEquals(new byte[] { (byte) 0xE3, 0x06, (byte) 0x92, (byte) 0x83 }, crc.doFinal());
+		// doFinal 之后重置
+		crc.update(data, 0, data.length);
+		Assertions.assertArrayEquals(new byte[] { (byte) 0xE3, 0x06, (byte) 0x92, (byte) 0x83 }, crc.doFinal());
+
+		byte[] random = new byte[10_000];
+		new Random(3).nextBytes(random);
+		IncrementalChecksum fallback = new Checksums.Crc32cChecksum(new Checksums.PureJavaCrc32c());
+		fallback.update(random, 0, 4000);
+		fallback.update(random, 4000, random.length - 4000);
+		crc.update(random, 0, random.length);
+		Assertions.assertArrayEquals(crc.doFinal(), fallback.doFinal());
+	}
+
+	@Test
+	void lengthAndDetect() {
+		Assertions.assertEquals(32, ChecksumStrategy.SM3.length());
+		Assertions.assertEquals(17, ChecksumStrategy.SM3_128.length());
+		Assertions.assertEquals(9, ChecksumStrategy.SM3_64.length());
+		Assertions.assertEquals(5, ChecksumStrategy.CRC32C.length());
+		Assertions.assertEquals(1, ChecksumStrategy.NONE.length());
+		byte[] data = "checksum".getBytes(StandardCharsets.UTF_8);
+		Assertions.assertArrayEquals(CryptoUtil.SM3_CHECKSUM_CALCULATOR.apply(data),
+				ChecksumStrategy.SM3.calculator().apply(data));
+		Assertions.assertArrayEquals(Arrays.copyOf(CryptoUtil.SM3_CHECKSUM_CALCULATOR.apply(data), 8),
+				Arrays.copyOfRange(ChecksumStrategy.SM3_64.calculator().apply(data), 1, 9));
+		for (ChecksumStrategy strategy : ChecksumStrategy.values()) {
+			byte[] checksum = strategy.calculator().apply(data);
+			Assertions.assertEquals(strategy.length(), checksum.length);
+			Assertions.assertEquals(strategy, ChecksumStrategy.detect(Slice.wrap(checksum)));
+		}
+		Assertions.assertNull(ChecksumStrategy.detect(Slice.wrap(new byte[0])));
+		Assertions.assertNull(ChecksumStrategy.detect(Slice.wrap(new byte[] { 3, 1 })));
+	}
+
+	@Test
+	void decryptShouldSelectVerifierByTag() throws Exception {
+		byte[] plain = new byte[1000];
+		new Random(5).nextBytes(plain);
+		BouncyCastleQuickCipher crc = cipher(ChecksumStrategy.CRC32C);
+		for (ChecksumStrategy strategy : ChecksumStrategy.values()) {
+			BouncyCastleQuickCipher cipher = cipher(strategy);
+			CipherBlobDetails details = cipher.encrypt(plain);
+			Assertions.assertEquals(strategy.length(), details.getChecksum().length);
+			Assertions.assertTrue(
+					cipher.decrypt(UncheckedCipher.of(details.getCipher(), details.getChecksum()), false).isPass(),
+					strategy.name());
+
+			// 按标记选择校验方式,NONE 只有配置为 NONE 时才接受
+			boolean pass = crc.decrypt(UncheckedCipher.of(details.getCipher(), details.getChecksum()), false).isPass();
+			Assertions.assertEquals(strategy != ChecksumStrategy.NONE, pass, strategy.name());
+
+			byte[] out = new byte[crc.decryptOutputSize(details.getCipher().length)];
+			if (pass) {
+				int n = crc.decryptInto(details.getCipher(), 0, details.getCipher().length, out, 0,
+						details.getChecksum(), 0, details.getChecksum().length);
+				Assertions.assertArrayEquals(plain, Arrays.copyOf(out, n));
+			}
+			// ByteBuffer 接口使用相同的规则
+			ByteBuffer plainBuffer = ByteBuffer.allocate(out.length);
+			if (pass) {
+				crc.decrypt(ByteBuffer.wrap(details.getCipher()), plainBuffer, ByteBuffer.wrap(details.getChecksum()));
+				Assertions.assertArrayEquals(plain, Arrays.copyOf(plainBuffer.array(), plainBuffer.position()));
+			}
+			else {
+				Assertions.assertThrows(GeneralCryptoException.class,
+						() -> crc.decrypt(ByteBuffer.wrap(details.getCipher()), plainBuffer,
+								ByteBuffer.wrap(details.getChecksum())));
+			}
+			// 流式处理和文件处理使用相同的规则
+			ByteArrayOutputStream plainStream = new ByteArrayOutputStream();
+			Verified<StreamCipherDetails> streamed = crc.decrypt(new ByteArrayInputStream(details.getCipher()),
+					plainStream, details.getChecksum());
+			Assertions.assertEquals(pass, streamed.isPass(), strategy.name());
+			Assertions.assertArrayEquals(plain, plainStream.toByteArray(), strategy.name());
+			Path source = Files.createTempFile("tile-crypto", ".bin");
+			Path target = Files.createTempFile("tile-crypto", ".bin");
+			try {
+				Files.write(source, details.getCipher());
+				Assertions.assertEquals(pass, crc.decrypt(source, target, details.getChecksum()).isPass(),
+						strategy.name());
+				Assertions.assertArrayEquals(plain, Files.readAllBytes(target), strategy.name());
+			}
+			finally {
+				Files.deleteIfExists(source);
+				Files.deleteIfExists(target);
+			}
+			if (strategy != ChecksumStrategy.NONE) {
+				byte[] tampered = details.getChecksum().clone();
+				tampered[tampered.length - 1] ^= 1;
+				Assertions.assertFalse(crc.decrypt(UncheckedCipher.of(details.getCipher(), tampered), false).isPass(),
+						strategy.name());
+				Assertions.assertThrows(GeneralCryptoException.class, () -> crc.decryptInto(details.getCipher(), 0,
+						details.getCipher().length, out, 0, tampered, 0, tampered.length));
+				Assertions.assertFalse(crc
+					.decrypt(new ByteArrayInputStream(details.getCipher()), new ByteArrayOutputStream(), tampered)
+					.isPass(), strategy.name());
+				Assertions.assertThrows(GeneralCryptoException.class,
+						() -> crc.decrypt(ByteBuffer.wrap(details.getCipher()), ByteBuffer.allocate(out.length),
+								ByteBuffer.wrap(tampered)));
+			}
+		}
+		// 兼容 sm3ChecksumCalculator 生成的校验和
+		CipherBlobDetails legacy = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+			.secretKey(testKey)
+			.ivParameter(testIv)
+			.build()
+			.encrypt(plain);
+		Assertions
+			.assertTrue(crc.decrypt(UncheckedCipher.of(legacy.getCipher(), legacy.getChecksum()), false).isPass());
+	}
+
+	@Test
+	void batchWithCrc32c() {
+		BouncyCastleQuickCipher cipher = cipher(ChecksumStrategy.CRC32C);
+		CipherBatch batch = cipher.encryptAll(Arrays.asList("a".getBytes(StandardCharsets.UTF_8),
+				"bc".getBytes(StandardCharsets.UTF_8), new byte[0]));
+		Assertions.assertEquals(5, cipher.checksumLength());
+		Assertions.assertEquals(3 * 5, batch.getChecksums().length);
+		CipherBatch decrypted = cipher.decryptAll(batch, false);
+		Assertions.assertArrayEquals("bc".getBytes(StandardCharsets.UTF_8), decrypted.get(1));
+		batch.getChecksums()[6] ^= 1;
+		Assertions.assertThrows(GeneralCryptoException.class, () -> cipher.decryptAll(batch, false));
+	}
+
+	private BouncyCastleQuickCipher cipher(ChecksumStrategy strategy) {
+		return Sm4Util.builder(Spec.MODE_CBC, Spec.PADDING_PKCS7, strategy)
+			.secretKey(testKey)
+			.ivParameter(testIv)
+			.build();
+	}
+
+}
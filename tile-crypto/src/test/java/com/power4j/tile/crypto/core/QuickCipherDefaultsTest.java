@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core;
+
+import com.power4j.tile.crypto.bc.BouncyCastleQuickCipher;
+import com.power4j.tile.crypto.bc.Spec;
+import com.power4j.tile.crypto.utils.Sm4Util;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+class QuickCipherDefaultsTest {
+
+	private final BouncyCastleQuickCipher delegate = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+		.secretKey(new byte[16])
+		.ivParameter(new byte[16])
+		.build();
+
+	private final AtomicInteger encryptCalls = new AtomicInteger();
+
+	/**
+	 * 只实现 1.9 之前的抽象方法
+	 */
+	private final QuickCipher legacy = new QuickCipher() {
+
+		@Override
+		public CipherBlobDetails encrypt(byte[] data, int offset, int length) {
+			encryptCalls.incrementAndGet();
+			return delegate.encrypt(data, offset, length);
+		}
+
+		@Override
+		public Verified<byte[]> decrypt(UncheckedCipher input, boolean skipCheck) {
+			return delegate.decrypt(input, skipCheck);
+		}
+
+	};
+
+	@Test
+	void legacyImplementationShouldUseDefaults() {
+		// 长度查询不执行加密
+		Assertions.assertTrue(legacy.encryptOutputSize(17) >= delegate.encryptOutputSize(17));
+		Assertions.assertThrows(UnsupportedOperationException.class, legacy::checksumLength);
+		Assertions.assertTrue(legacy.decryptOutputSize(32) >= delegate.decryptOutputSize(32));
+		Assertions.assertEquals(0, encryptCalls.get());
+
+		CipherBatch batch = legacy.encryptAll(Arrays.asList("a".getBytes(StandardCharsets.UTF_8),
+				"0123456789abcdef".getBytes(StandardCharsets.UTF_8)));
+		Assertions.assertEquals(2, encryptCalls.get());
+		Assertions.assertEquals(delegate.checksumLength(), batch.getChecksumLength());
+		CipherBatch plain = legacy.decryptAll(batch, false);
+		Assertions.assertArrayEquals("0123456789abcdef".getBytes(StandardCharsets.UTF_8), plain.get(1));
+	}
+
+}
@@ -19,6 +19,8 @@ package com.power4j.tile.crypto.core;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CompletionException;
+
 /**
  * @author CJ (power4j@outlook.com)
  * @since 1.5
@@ -123,4 +125,51 @@ class Sm4TextCipherTest {
 		Assertions.assertEquals(plain, decrypted);
 	}
 
+	@Test
+	void sm4AeadUnicodeTest() {
+		for (TextCipherBuilder builder : new TextCipherBuilder[] { TextCipherBuilder.sm4Gcm(),
+				TextCipherBuilder.sm4Ccm() }) {
+			builder.cipher(c -> c.secretKeyHex(key));
+			for (BufferEncoding outputEncoding : binaryEncodings) {
+				TextCipher enc = builder.inputEncoding(BufferEncoding.UTF_8).outputEncoding(outputEncoding).build();
+				TextCipher dec = builder.reversedEncoder().build();
+				String cipher = enc.encrypt(plain);
+				Assertions.assertNotEquals(cipher, enc.encrypt(plain));
+				Assertions.assertEquals(plain, dec.decrypt(cipher));
+			}
+		}
+	}
+
+	@Test
+	void randomIvOnlyInAeadMode() {
+		TextCipherBuilder builder = TextCipherBuilder.sm4Cbc()
+			.cipher(c -> c.secretKeyHex(key).randomIv(16))
+			.inputEncoding(BufferEncoding.UTF_8)
+			.outputEncoding(BufferEncoding.HEX);
+		Assertions.assertThrows(IllegalArgumentException.class, builder::build);
+		TextCipherBuilder gcm = TextCipherBuilder.sm4Gcm()
+			.cipher(c -> c.secretKeyHex(key).randomIv(16))
+			.inputEncoding(BufferEncoding.UTF_8)
+			.outputEncoding(BufferEncoding.HEX);
+		Assertions.assertEquals(plain, gcm.reversedEncoder().build().decrypt(gcm.build().encrypt(plain)));
+	}
+
+	@Test
+	void asyncTest() {
+		TextCipherBuilder builder = TextCipherBuilder.sm4Cbc()
+			.cipher(c -> c.secretKeyHex(key).ivParameterHex(iv))
+			.inputEncoding(BufferEncoding.UTF_8)
+			.outputEncoding(BufferEncoding.BASE64);
+		TextCipher enc = builder.build();
+		TextCipher dec = builder.reversedEncoder().build();
+		String cipher = enc.encryptAsync(plain).join();
+		Assertions.assertEquals(enc.encrypt(plain), cipher);
+		Assertions.assertEquals(plain, dec.decryptAsync(cipher).join());
+		Assertions.assertEquals(cipher, enc.encryptEnvelopeAsync(plain, Runnable::run).join().getCiphertext());
+
+		CompletionException e = Assertions.assertThrows(CompletionException.class,
+				() -> dec.decryptAsync("invalid base64 !").join());
+		Assertions.assertTrue(e.getCause() instanceof GeneralCryptoException);
+	}
+
 }
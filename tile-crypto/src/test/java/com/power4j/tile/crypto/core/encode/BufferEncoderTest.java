@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.core.encode;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+class BufferEncoderTest {
+
+	private static final int[] SIZES = { 0, 1, 2, 3, 4, 56, 57, 58, 59, 114, 115, 1000 };
+
+	private final Random random = new Random(20240801L);
+
+	@Test
+	void base64ShouldMatchCommonsCodec() {
+		for (boolean urlSafe : new boolean[] { false, true }) {
+			Base64Encoder encoder = urlSafe ? Base64Encoder.URL_SAFE : Base64Encoder.BASIC;
+			for (int size : SIZES) {
+				byte[] data = bytes(size + 5);
+				byte[] range = Arrays.copyOfRange(data, 3, 3 + size);
+				String expected = new String(Base64.encodeBase64(range, true, urlSafe), StandardCharsets.US_ASCII);
+				Assertions.assertEquals(expected, encoder.encode(data, 3, size), "size " + size);
+				Assertions.assertEquals(expected.length(), encoder.encodedLength(size));
+				assertEncodeTo(encoder, data, size, expected);
+				Assertions.assertArrayEquals(range, encoder.decode(expected));
+				Assertions.assertEquals(size, encoder.decodedLength(expected, 0, expected.length()));
+			}
+		}
+	}
+
+	@Test
+	void base64DecodeShouldBeLenient() {
+		String[] inputs = { "A-_/+ =\r\nQQ", "QUJD\r\nREU", "QUJD REVG", "QQ", "Q", "QUI=" };
+		for (String input : inputs) {
+			byte[] expected = Base64.decodeBase64(input);
+			Assertions.assertArrayEquals(expected, Base64Encoder.BASIC.decode(input), input);
+			Assertions.assertArrayEquals(expected, Base64Encoder.URL_SAFE.decode(input), input);
+			byte[] out = new byte[expected.length + 2];
+			int n = Base64Encoder.BASIC.decodeFrom("#" + input, 1, input.length(), out, 1);
+			Assertions.assertArrayEquals(expected, Arrays.copyOfRange(out, 1, 1 + n));
+		}
+	}
+
+	@Test
+	void hexShouldMatchCommonsCodec() throws Exception {
+		for (boolean lower : new boolean[] { true, false }) {
+			HexEncoder encoder = lower ? HexEncoder.LOWER : HexEncoder.UPPER;
+			for (int size : SIZES) {
+				byte[] data = bytes(size + 5);
+				String expected = new String(Hex.encodeHex(data, 3, size, lower));
+				Assertions.assertEquals(expected, encoder.encode(data, 3, size));
+				assertEncodeTo(encoder, data, size, expected);
+				Assertions.assertArrayEquals(Arrays.copyOfRange(data, 3, 3 + size), encoder.decode(expected));
+				Assertions.assertArrayEquals(Hex.decodeHex(expected.toUpperCase()),
+						encoder.decode(expected.toUpperCase()));
+			}
+		}
+		Assertions.assertThrows(BufferEncodeException.class, () -> HexEncoder.DEFAULT.decode("abc"));
+		Assertions.assertThrows(BufferEncodeException.class, () -> HexEncoder.DEFAULT.decode("0g"));
+	}
+
+	@Test
+	void shouldRejectSmallBuffer() {
+		byte[] data = bytes(10);
+		Assertions.assertThrows(BufferEncodeException.class,
+				() -> HexEncoder.DEFAULT.encodeTo(data, 0, data.length, new char[19], 0));
+		Assertions.assertThrows(BufferEncodeException.class,
+				() -> Base64Encoder.BASIC.encodeTo(data, 0, data.length, new byte[18], 1));
+		Assertions.assertThrows(BufferEncodeException.class,
+				() -> Base64Encoder.BASIC.decodeFrom("QUJD", 0, 4, new byte[2], 0));
+		Assertions.assertThrows(BufferEncodeException.class,
+				() -> Base64Encoder.BASIC.encodeTo(data, 0, data.length, ByteBuffer.allocateDirect(17)));
+	}
+
+	@Test
+	void defaultMethodsShouldWorkForUnicode() {
+		String text = "hello 你好";
+		byte[] data = text.getBytes(StandardCharsets.UTF_8);
+		char[] chars = new char[text.length()];
+		Assertions.assertEquals(text.length(), UnicodeEncoder.UTF_8.encodeTo(data, 0, data.length, chars, 0));
+		Assertions.assertEquals(text, new String(chars));
+		Assertions.assertEquals(-1, UnicodeEncoder.UTF_8.encodedLength(data.length));
+		byte[] out = new byte[data.length];
+		Assertions.assertEquals(data.length, UnicodeEncoder.UTF_8.decodeFrom(text, 0, text.length(), out, 0));
+		Assertions.assertArrayEquals(data, out);
+		Assertions.assertThrows(BufferEncodeException.class,
+				() -> UnicodeEncoder.UTF_8.encodeTo(data, 0, data.length, new byte[64], 0));
+	}
+
+	private static void assertEncodeTo(BufferEncoder encoder, byte[] data, int size, String expected) {
+		char[] chars = new char[expected.length() + 2];
+		Assertions.assertEquals(expected.length(), encoder.encodeTo(data, 3, size, chars, 1));
+		Assertions.assertEquals(expected, new String(chars, 1, expected.length()));
+		byte[] ascii = new byte[expected.length() + 2];
+		Assertions.assertEquals(expected.length(), encoder.encodeTo(data, 3, size, ascii, 2));
+		Assertions.assertEquals(expected, new String(ascii, 2, expected.length(), StandardCharsets.US_ASCII));
+		for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(expected.length() + 1),
+				ByteBuffer.allocateDirect(expected.length() + 1) }) {
+			buffer.put((byte) '#');
+			Assertions.assertEquals(expected.length(), encoder.encodeTo(data, 3, size, buffer));
+			Assertions.assertEquals(expected.length() + 1, buffer.position());
+			buffer.flip().position(1);
+			byte[] written = new byte[buffer.remaining()];
+			buffer.get(written);
+			Assertions.assertEquals(expected, new String(written, StandardCharsets.US_ASCII));
+		}
+	}
+
+	private byte[] bytes(int size) {
+		byte[] data = new byte[size];
+		random.nextBytes(data);
+		return data;
+	}
+
+}
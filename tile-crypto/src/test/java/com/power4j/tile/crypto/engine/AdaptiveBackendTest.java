@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import com.power4j.tile.crypto.bc.BouncyCastleQuickCipher;
+import com.power4j.tile.crypto.bc.Spec;
+import com.power4j.tile.crypto.core.CipherBlobDetails;
+import com.power4j.tile.crypto.utils.Sm4Util;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+class AdaptiveBackendTest {
+
+	private static final String CBC = "SM4/CBC/PKCS7Padding";
+
+	private final Random random = new Random(20240718L);
+
+	private final byte[] testKey = bytes(16);
+
+	private final byte[] testIv = bytes(16);
+
+	@Test
+	void calibrateShouldSelectForEachSizeClass() {
+		AdaptiveBackend backend = AdaptiveBackend.builder()
+			.sizeClasses(64, 1024)
+			.calibrationTime(200, TimeUnit.MICROSECONDS)
+			.build();
+		AdaptiveBackend.Decision decision = backend.getDecision(CBC);
+		Assertions.assertSame(decision, backend.getDecision("sm4/cbc/pkcs7padding"));
+		Assertions.assertFalse(decision.isPinned());
+		Assertions.assertEquals(3, decision.getCandidates().size());
+		Assertions.assertEquals(0, decision.sizeClass(63));
+		Assertions.assertEquals(1, decision.sizeClass(64));
+		Assertions.assertEquals(2, decision.sizeClass(1 << 20));
+		for (int c = 0; c < 3; c++) {
+			Assertions.assertNotNull(decision.getSelected(c));
+			Assertions.assertTrue(decision.getScore(c, 0) > 0);
+		}
+		Assertions.assertNotSame(decision, backend.calibrate(CBC));
+		// CCM 只有 jce 和 lightweight 支持
+		Assertions.assertEquals(2, backend.getDecision("SM4/CCM/NoPadding").getCandidates().size());
+		Assertions.assertFalse(backend.supports("AES/XTS/NoPadding"));
+	}
+
+	@Test
+	void pinShouldSkipCalibration() {
+		AdaptiveBackend backend = AdaptiveBackend.builder().pin(CipherBackends.sm4()).build();
+		AdaptiveBackend.Decision decision = backend.getDecision(CBC);
+		Assertions.assertTrue(decision.isPinned());
+		Assertions.assertSame(CipherBackends.sm4(), decision.backendFor(10));
+		Assertions.assertSame(CipherBackends.sm4(), decision.backendFor(1 << 20));
+		Assertions.assertTrue(Double.isNaN(decision.getScore(0, 0)));
+	}
+
+	@Test
+	void unknownPinPropertyShouldBeRecoverable() {
+		System.setProperty(AdaptiveBackend.PIN_PROPERTY, "unknown");
+		try {
+			Assertions.assertThrows(IllegalArgumentException.class, () -> AdaptiveBackend.builder().build());
+		}
+		finally {
+			System.clearProperty(AdaptiveBackend.PIN_PROPERTY);
+		}
+		Assertions.assertSame(CipherBackends.adaptive(), CipherBackends.adaptive());
+	}
+
+	@Test
+	void engineShouldRouteBySize() throws Exception {
+		AdaptiveBackend.Decision decision = new AdaptiveBackend.Decision(CBC, new int[] { 100 },
+				new CipherBackend[] { CipherBackends.sm4(), CipherBackends.lightweight() },
+				Arrays.asList(CipherBackends.lightweight(), CipherBackends.sm4()), new double[2][2], false);
+		CipherEngine engine = new AdaptiveCipherEngine(CBC, decision);
+		CipherEngine expected = CipherBackends.jce().create(CBC);
+		SecretKeySpec key = new SecretKeySpec(testKey, "SM4");
+		IvParameterSpec iv = new IvParameterSpec(testIv);
+		engine.init(Cipher.ENCRYPT_MODE, key, iv);
+		expected.init(Cipher.ENCRYPT_MODE, key, iv);
+		for (int size : new int[] { 0, 15, 99, 100, 4096, 33 }) {
+			byte[] data = bytes(size);
+			Assertions.assertArrayEquals(expected.doFinal(data, 0, size), engine.doFinal(data, 0, size), "" + size);
+		}
+		// 一次处理过程中不切换实现
+		byte[] data = bytes(300);
+		byte[] out = new byte[engine.getOutputSize(300) + 16];
+		int n = engine.update(data, 0, 20, out, 0);
+		n += engine.doFinal(data, 20, 280, out, n);
+		Assertions.assertArrayEquals(expected.doFinal(data, 0, 300), Arrays.copyOf(out, n));
+	}
+
+	@Test
+	void quickCipherRoundTrip() {
+		BouncyCastleQuickCipher adaptive = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+			.backend(CipherBackends.adaptive())
+			.secretKey(testKey)
+			.ivParameter(testIv)
+			.build();
+		BouncyCastleQuickCipher jce = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+			.secretKey(testKey)
+			.ivParameter(testIv)
+			.build();
+		for (int size : new int[] { 0, 17, 1000, 100_000 }) {
+			byte[] data = bytes(size);
+			CipherBlobDetails details = adaptive.encrypt(data);
+			Assertions.assertArrayEquals(jce.encrypt(data).getCipher(), details.getCipher());
+			Assertions.assertArrayEquals(data, adaptive.decrypt(details.getCipher()));
+		}
+	}
+
+	private byte[] bytes(int size) {
+		byte[] data = new byte[size];
+		random.nextBytes(data);
+		return data;
+	}
+
+}
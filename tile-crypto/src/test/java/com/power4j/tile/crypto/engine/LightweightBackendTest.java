@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+class LightweightBackendTest {
+
+	private static final String[] TRANSFORMATIONS = { "SM4/ECB/PKCS7Padding", "SM4/ECB/NoPadding",
+			"SM4/CBC/PKCS5Padding", "SM4/CBC/NoPadding", "SM4/CFB/PKCS7Padding", "SM4/CFB/NoPadding",
+			"SM4/OFB/NoPadding", "SM4/CTR/NoPadding", "SM4/GCM/NoPadding", "SM4/CCM/NoPadding" };
+
+	private final Random random = new Random(20240602L);
+
+	private final SecretKeySpec key = new SecretKeySpec(bytes(16), "SM4");
+
+	private final byte[] iv = bytes(16);
+
+	private final byte[] nonce = bytes(12);
+
+	@Test
+	void supportsTest() {
+		CipherBackend backend = CipherBackends.lightweight();
+		for (String transformation : TRANSFORMATIONS) {
+			Assertions.assertTrue(backend.supports(transformation), transformation);
+		}
+		Assertions.assertFalse(backend.supports("SM4/GCM/PKCS7Padding"));
+		Assertions.assertFalse(backend.supports("SM4/CBC/ISO10126Padding"));
+		Assertions.assertFalse(backend.supports("AES/CBC/PKCS7Padding"));
+	}
+
+	@Test
+	void shouldMatchJce() throws Exception {
+		int[] lengths = { 0, 1, 15, 16, 17, 64, 100, 1000 };
+		for (String transformation : TRANSFORMATIONS) {
+			boolean aligned = transformation.equals("SM4/ECB/NoPadding") || transformation.equals("SM4/CBC/NoPadding");
+			for (int length : lengths) {
+				if (aligned && length % 16 != 0) {
+					continue;
+				}
+				String hint = transformation + " length = " + length;
+				// GCM 不允许同一个实例使用相同的 nonce 加密
+				CipherEngine jce = CipherBackends.jce().create(transformation);
+				CipherEngine lightweight = CipherBackends.lightweight().create(transformation);
+				byte[] plain = bytes(length);
+				byte[] expected = process(jce, transformation, Cipher.ENCRYPT_MODE, plain);
+				Assertions.assertArrayEquals(expected, process(lightweight, transformation, Cipher.ENCRYPT_MODE, plain),
+						hint);
+				Assertions.assertArrayEquals(plain, process(lightweight, transformation, Cipher.DECRYPT_MODE, expected),
+						hint);
+				// 密钥不变时重新初始化
+				Assertions.assertArrayEquals(plain, process(lightweight, transformation, Cipher.DECRYPT_MODE, expected),
+						hint);
+			}
+		}
+	}
+
+	@Test
+	void failureTest() throws Exception {
+		String transformation = "SM4/CBC/PKCS7Padding";
+		CipherEngine engine = CipherBackends.lightweight().create(transformation);
+		byte[] cipher = process(engine, transformation, Cipher.ENCRYPT_MODE, bytes(40));
+		cipher[cipher.length - 1] ^= 0x5A;
+		Assertions.assertThrows(BadPaddingException.class,
+				() -> process(engine, transformation, Cipher.DECRYPT_MODE, cipher));
+
+		String gcm = "SM4/GCM/NoPadding";
+		CipherEngine aead = CipherBackends.lightweight().create(gcm);
+		byte[] sealed = process(aead, gcm, Cipher.ENCRYPT_MODE, bytes(40));
+		sealed[0] ^= 1;
+		Assertions.assertThrows(AEADBadTagException.class, () -> process(aead, gcm, Cipher.DECRYPT_MODE, sealed));
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void benchmark() throws Exception {
+		String transformation = "SM4/CBC/PKCS7Padding";
+		byte[] data = bytes(64);
+		for (CipherBackend backend : new CipherBackend[] { CipherBackends.jce(), CipherBackends.lightweight() }) {
+			for (int round = 0; round < 2; round++) {
+				int count = 200_000;
+				long start = System.nanoTime();
+				for (int i = 0; i < count; i++) {
+					CipherEngine engine = backend.create(transformation);
+					engine.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(iv));
+					engine.doFinal(data, 0, data.length);
+				}
+				long createNanos = (System.nanoTime() - start) / count;
+				CipherEngine engine = backend.create(transformation);
+				IvParameterSpec spec = new IvParameterSpec(iv);
+				start = System.nanoTime();
+				for (int i = 0; i < count; i++) {
+					engine.init(Cipher.ENCRYPT_MODE, key, spec);
+					engine.doFinal(data, 0, data.length);
+				}
+				long callNanos = (System.nanoTime() - start) / count;
+				System.out.printf("%-12s create+call %6d ns, call %6d ns%n", backend.getName(), createNanos, callNanos);
+			}
+		}
+	}
+
+	private byte[] process(CipherEngine engine, String transformation, int mode, byte[] input) throws Exception {
+		engine.init(mode, key, params(transformation));
+		byte[] out = new byte[engine.getOutputSize(input.length)];
+		int half = input.length / 2;
+		int n = engine.update(input, 0, half, out, 0);
+		n += engine.doFinal(input, half, input.length - half, out, n);
+		return Arrays.copyOf(out, n);
+	}
+
+	private AlgorithmParameterSpec params(String transformation) {
+		if (transformation.contains("ECB")) {
+			return null;
+		}
+		if (transformation.contains("GCM") || transformation.contains("CCM")) {
+			return new GCMParameterSpec(128, nonce);
+		}
+		return new IvParameterSpec(iv);
+	}
+
+	private byte[] bytes(int length) {
+		byte[] data = new byte[length];
+		random.nextBytes(data);
+		return data;
+	}
+
+}
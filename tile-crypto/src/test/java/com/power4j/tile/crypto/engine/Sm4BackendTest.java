@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.engine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+class Sm4BackendTest {
+
+	private static final String[] TRANSFORMATIONS = { "SM4/ECB/PKCS7Padding", "SM4/ECB/NoPadding",
+			"SM4/CBC/PKCS5Padding", "SM4/CBC/NoPadding", "SM4/CTR/NoPadding" };
+
+	private final Random random = new Random(20240601L);
+
+	private final SecretKeySpec key = new SecretKeySpec(bytes(16), "SM4");
+
+	private final IvParameterSpec iv = new IvParameterSpec(bytes(16));
+
+	@Test
+	void supportsTest() {
+		CipherBackend backend = CipherBackends.sm4();
+		for (String transformation : TRANSFORMATIONS) {
+			Assertions.assertTrue(backend.supports(transformation), transformation);
+		}
+		Assertions.assertFalse(backend.supports("SM4/CTR/PKCS7Padding"));
+		Assertions.assertFalse(backend.supports("SM4/GCM/NoPadding"));
+		Assertions.assertFalse(backend.supports("AES/CBC/PKCS7Padding"));
+	}
+
+	@Test
+	void shouldMatchJce() throws Exception {
+		int[] lengths = { 0, 1, 15, 16, 17, 63, 64, 65, 100, 255, 256, 1000, 4099 };
+		for (String transformation : TRANSFORMATIONS) {
+			CipherEngine jce = CipherBackends.jce().create(transformation);
+			CipherEngine sm4 = CipherBackends.sm4().create(transformation);
+			boolean aligned = transformation.endsWith("NoPadding") && !transformation.contains("CTR");
+			for (int length : lengths) {
+				if (aligned && length % 16 != 0) {
+					continue;
+				}
+				String hint = transformation + " length = " + length;
+				byte[] plain = bytes(length);
+				byte[] expected = process(jce, transformation, Cipher.ENCRYPT_MODE, plain, 0);
+				Assertions.assertArrayEquals(expected, process(sm4, transformation, Cipher.ENCRYPT_MODE, plain, 0),
+						hint);
+				Assertions.assertArrayEquals(expected, process(sm4, transformation, Cipher.ENCRYPT_MODE, plain, 7),
+						hint);
+				Assertions.assertArrayEquals(plain, process(sm4, transformation, Cipher.DECRYPT_MODE, expected, 0),
+						hint);
+				Assertions.assertArrayEquals(plain, process(sm4, transformation, Cipher.DECRYPT_MODE, expected, 5),
+						hint);
+			}
+		}
+	}
+
+	@Test
+	void inPlaceTest() throws Exception {
+		for (String transformation : new String[] { "SM4/ECB/NoPadding", "SM4/CBC/NoPadding", "SM4/CTR/NoPadding" }) {
+			CipherEngine sm4 = CipherBackends.sm4().create(transformation);
+			byte[] plain = bytes(16 * 37);
+			byte[] data = plain.clone();
+			init(sm4, transformation, Cipher.ENCRYPT_MODE);
+			Assertions.assertEquals(data.length, sm4.doFinal(data, 0, data.length, data, 0));
+			Assertions.assertArrayEquals(
+					process(CipherBackends.jce().create(transformation), transformation, Cipher.ENCRYPT_MODE, plain, 0),
+					data, transformation);
+			init(sm4, transformation, Cipher.DECRYPT_MODE);
+			sm4.doFinal(data, 0, data.length, data, 0);
+			Assertions.assertArrayEquals(plain, data, transformation);
+		}
+	}
+
+	@Test
+	void badPaddingTest() throws Exception {
+		String transformation = "SM4/CBC/PKCS7Padding";
+		CipherEngine sm4 = CipherBackends.sm4().create(transformation);
+		byte[] cipher = process(sm4, transformation, Cipher.ENCRYPT_MODE, bytes(40), 0);
+		cipher[cipher.length - 1] ^= 0x5A;
+		init(sm4, transformation, Cipher.DECRYPT_MODE);
+		Assertions.assertThrows(BadPaddingException.class, () -> sm4.doFinal(cipher, 0, cipher.length));
+		// 失败后恢复到初始化后的状态
+		cipher[cipher.length - 1] ^= 0x5A;
+		Assertions.assertEquals(40, sm4.doFinal(cipher, 0, cipher.length).length);
+	}
+
+	@Test
+	void bulkKernelShouldMatchScalar() {
+		Sm4BulkKernel kernel = Sm4Core.bulkKernel();
+		Assumptions.assumeTrue(kernel != null, "No bulk kernel on this runtime");
+		System.out.println("bulk kernel = " + kernel.getClass().getSimpleName() + ", batch = " + kernel.batchBlocks());
+		int[] rk = Sm4Core.expandKey(key.getEncoded());
+		int blocks = kernel.batchBlocks() * 3;
+		byte[] in = bytes(blocks * 16);
+		byte[] expected = new byte[in.length];
+		Sm4Core.cryptBlocksScalar(rk, in, 0, expected, 0, blocks);
+		byte[] actual = new byte[in.length];
+		kernel.crypt(rk, in, 0, actual, 0, blocks);
+		Assertions.assertArrayEquals(expected, actual);
+		kernel.crypt(rk, in, 0, in, 0, blocks);
+		Assertions.assertArrayEquals(expected, in);
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void benchmark() throws Exception {
+		byte[] data = bytes(16 * 1024 * 1024);
+		for (String transformation : new String[] { "SM4/ECB/NoPadding", "SM4/CBC/NoPadding", "SM4/CTR/NoPadding" }) {
+			for (CipherBackend backend : new CipherBackend[] { CipherBackends.jce(), CipherBackends.sm4() }) {
+				CipherEngine engine = backend.create(transformation);
+				for (int mode : new int[] { Cipher.ENCRYPT_MODE, Cipher.DECRYPT_MODE }) {
+					init(engine, transformation, mode);
+					for (int i = 0; i < 3; i++) {
+						engine.doFinal(data, 0, data.length, data, 0);
+					}
+					int rounds = 10;
+					long start = System.nanoTime();
+					for (int i = 0; i < rounds; i++) {
+						engine.doFinal(data, 0, data.length, data, 0);
+					}
+					double seconds = (System.nanoTime() - start) / 1e9;
+					System.out.printf("%-20s %-4s %-8s %8.1f MB/s%n", transformation, backend.getName(),
+							mode == Cipher.ENCRYPT_MODE ? "encrypt" : "decrypt", rounds * 16 / seconds);
+				}
+			}
+		}
+	}
+
+	private byte[] process(CipherEngine engine, String transformation, int mode, byte[] input, int step)
+			throws Exception {
+		init(engine, transformation, mode);
+		if (step <= 0) {
+			return engine.doFinal(input, 0, input.length);
+		}
+		byte[] out = new byte[engine.getOutputSize(input.length)];
+		int n = 0;
+		int offset = 0;
+		while (input.length - offset > step) {
+			n += engine.update(input, offset, step, out, n);
+			offset += step;
+		}
+		n += engine.doFinal(input, offset, input.length - offset, out, n);
+		return Arrays.copyOf(out, n);
+	}
+
+	private void init(CipherEngine engine, String transformation, int mode) throws Exception {
+		engine.init(mode, key, transformation.contains("ECB") ? null : iv);
+	}
+
+	private byte[] bytes(int length) {
+		byte[] data = new byte[length];
+		random.nextBytes(data);
+		return data;
+	}
+
+}
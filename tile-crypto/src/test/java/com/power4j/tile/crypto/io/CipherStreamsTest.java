@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.io;
+
+import com.power4j.tile.crypto.bc.BouncyCastleQuickCipher;
+import com.power4j.tile.crypto.bc.Spec;
+import com.power4j.tile.crypto.core.StreamCipherDetails;
+import com.power4j.tile.crypto.core.Verified;
+import com.power4j.tile.crypto.utils.CryptoUtil;
+import com.power4j.tile.crypto.utils.Sm4Util;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+/**
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+class CipherStreamsTest {
+
+	private final byte[] testKey = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C,
+			0x0D, 0x0E, 0x0F, 0x10 };
+
+	private final byte[] testIv = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C,
+			0x0D, 0x0E, 0x0F, 0x10 };
+
+	private final BouncyCastleQuickCipher cipher = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+		.secretKey(testKey)
+		.ivParameter(testIv)
+		.build();
+
+	private byte[] randomBytes(int size) {
+		byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		return data;
+	}
+
+	@Test
+	void streamShouldMatchOneStep() throws Exception {
+		byte[] plain = randomBytes(CipherStreams.DEFAULT_BUFFER_SIZE * 3 + 7);
+		ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+		StreamCipherDetails details = cipher.encrypt(new ByteArrayInputStream(plain), encrypted);
+
+		Assertions.assertArrayEquals(cipher.encrypt(plain).getCipher(), encrypted.toByteArray());
+		Assertions.assertArrayEquals(CryptoUtil.SM3_CHECKSUM_CALCULATOR.apply(plain), details.getChecksum());
+		Assertions.assertEquals(plain.length, details.getInputBytes());
+		Assertions.assertEquals(encrypted.size(), details.getOutputBytes());
+
+		ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+		Verified<StreamCipherDetails> verified = cipher.decrypt(new ByteArrayInputStream(encrypted.toByteArray()),
+				decrypted, details.getChecksum());
+		Assertions.assertTrue(verified.isPass());
+		Assertions.assertArrayEquals(plain, decrypted.toByteArray());
+	}
+
+	@Test
+	void channelRoundTrip() throws Exception {
+		byte[] plain = randomBytes(CipherStreams.DEFAULT_BUFFER_SIZE + 1);
+		ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+		StreamCipherDetails details = cipher.encrypt(Channels.newChannel(new ByteArrayInputStream(plain)),
+				Channels.newChannel(encrypted));
+
+		ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+		Verified<StreamCipherDetails> verified = cipher.decrypt(
+				Channels.newChannel(new ByteArrayInputStream(encrypted.toByteArray())), Channels.newChannel(decrypted),
+				details.getChecksum());
+		Assertions.assertTrue(verified.isPass());
+		Assertions.assertArrayEquals(plain, decrypted.toByteArray());
+
+		byte[] badChecksum = details.getChecksum().clone();
+		badChecksum[0] ^= 1;
+		verified = cipher.decrypt(new ByteArrayInputStream(encrypted.toByteArray()), new ByteArrayOutputStream(),
+				badChecksum);
+		Assertions.assertFalse(verified.isPass());
+	}
+
+}
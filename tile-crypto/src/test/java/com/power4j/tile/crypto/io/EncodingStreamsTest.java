@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.io;
+
+import com.power4j.tile.crypto.bc.BouncyCastleQuickCipher;
+import com.power4j.tile.crypto.bc.Spec;
+import com.power4j.tile.crypto.core.BufferEncoding;
+import com.power4j.tile.crypto.core.StreamCipherDetails;
+import com.power4j.tile.crypto.core.Verified;
+import com.power4j.tile.crypto.core.encode.Base64Encoder;
+import com.power4j.tile.crypto.core.encode.BufferEncoder;
+import com.power4j.tile.crypto.core.encode.HexEncoder;
+import com.power4j.tile.crypto.utils.Sm4Util;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+class EncodingStreamsTest {
+
+	private final byte[] testKey = new byte[16];
+
+	private final byte[] testIv = new byte[16];
+
+	private static final int[] SIZES = { 0, 1, 2, 3, 56, 57, 58, TextEncodingOutputStream.CHUNK_SIZE - 1,
+			TextEncodingOutputStream.CHUNK_SIZE, TextEncodingOutputStream.CHUNK_SIZE * 3 + 5, 50_000 };
+
+	private byte[] randomBytes(int size) {
+		byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		return data;
+	}
+
+	@Test
+	void binaryEncodingShouldMatchOneStep() throws IOException {
+		BufferEncoder[] encoders = { HexEncoder.DEFAULT, Base64Encoder.BASIC, Base64Encoder.URL_SAFE };
+		BufferEncoding[] encodings = { BufferEncoding.HEX, BufferEncoding.BASE64, BufferEncoding.BASE64_URL };
+		for (int i = 0; i < encoders.length; i++) {
+			for (int size : SIZES) {
+				byte[] data = randomBytes(size);
+				String expected = encoders[i].encode(data);
+
+				StringWriter writer = new StringWriter();
+				try (OutputStream out = EncodingStreams.encoder(encodings[i], writer)) {
+					// 不同大小的写入,覆盖缓冲区和直接编码两条路径
+					writeInPieces(out, data);
+				}
+				Assertions.assertEquals(expected, writer.toString(), encodings[i] + "/" + size);
+
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				try (OutputStream out = EncodingStreams.encoder(encodings[i], bytes)) {
+					out.write(data);
+				}
+				Assertions.assertEquals(expected, new String(bytes.toByteArray(), StandardCharsets.US_ASCII));
+
+				Assertions.assertArrayEquals(data,
+						readAll(EncodingStreams.decoder(encodings[i], new StringReader(expected))));
+				Assertions.assertArrayEquals(data, readAll(EncodingStreams.decoder(encodings[i],
+						new ByteArrayInputStream(expected.getBytes(StandardCharsets.US_ASCII)))));
+			}
+		}
+	}
+
+	@Test
+	void unicodeEncodingShouldRoundTrip() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			builder.append("中文-😀-abc");
+		}
+		String text = builder.toString();
+		BufferEncoding[] encodings = { BufferEncoding.UTF_8, BufferEncoding.UTF_16LE, BufferEncoding.UTF_16BE };
+		for (BufferEncoding encoding : encodings) {
+			byte[] data = readAll(EncodingStreams.decoder(encoding, new StringReader(text)));
+			StringWriter writer = new StringWriter();
+			try (OutputStream out = EncodingStreams.encoder(encoding, writer)) {
+				writeInPieces(out, data);
+			}
+			Assertions.assertEquals(text, writer.toString(), encoding.name());
+		}
+		byte[] ascii = readAll(EncodingStreams.decoder(BufferEncoding.ASCII, new StringReader("plain")));
+		Assertions.assertArrayEquals("plain".getBytes(StandardCharsets.US_ASCII), ascii);
+	}
+
+	@Test
+	void decoderShouldHandleLineBreaksAndPadding() throws IOException {
+		byte[] data = randomBytes(1000);
+		String encoded = Base64Encoder.BASIC.encode(data);
+		Assertions.assertTrue(encoded.contains("\r\n") && encoded.endsWith("=\r\n"));
+		// 单字符读取,编码单元被换行和缓冲区边界切开
+		InputStream in = EncodingStreams.decoder(BufferEncoding.BASE64, new StringReader(encoded + "trailing"));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != -1) {
+			out.write(b);
+		}
+		Assertions.assertArrayEquals(data, out.toByteArray());
+
+		Assertions.assertThrows(IOException.class,
+				() -> readAll(EncodingStreams.decoder(BufferEncoding.HEX, new StringReader("abc"))));
+	}
+
+	@Test
+	void composeWithStreamCipher() throws IOException {
+		BouncyCastleQuickCipher cipher = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+			.secretKey(testKey)
+			.ivParameter(testIv)
+			.build();
+		byte[] plain = randomBytes(CipherStreams.DEFAULT_BUFFER_SIZE * 5 + 3);
+		StringWriter text = new StringWriter();
+		StreamCipherDetails details;
+		try (OutputStream out = EncodingStreams.encoder(BufferEncoding.BASE64, text)) {
+			details = cipher.encrypt(new ByteArrayInputStream(plain), out);
+		}
+		Assertions.assertEquals(Base64Encoder.BASIC.encode(cipher.encrypt(plain).getCipher()), text.toString());
+
+		ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+		Verified<StreamCipherDetails> verified = cipher.decrypt(
+				EncodingStreams.decoder(BufferEncoding.BASE64, new StringReader(text.toString())), decrypted,
+				details.getChecksum());
+		Assertions.assertTrue(verified.isPass());
+		Assertions.assertArrayEquals(plain, decrypted.toByteArray());
+	}
+
+	private static void writeInPieces(OutputStream out, byte[] data) throws IOException {
+		int offset = 0;
+		int piece = 1;
+		while (offset < data.length) {
+			int n = Math.min(piece, data.length - offset);
+			if (n == 1) {
+				out.write(data[offset]);
+			}
+			else {
+				out.write(data, offset, n);
+			}
+			offset += n;
+			piece = piece * 3 + 1;
+		}
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[777];
+		int n;
+		while ((n = in.read(buffer)) != -1) {
+			out.write(buffer, 0, n);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+
+}
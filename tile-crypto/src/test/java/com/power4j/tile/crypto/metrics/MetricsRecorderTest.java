@@ -0,0 +1,203 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.metrics;
+
+import com.power4j.tile.crypto.bc.BouncyCastleQuickCipher;
+import com.power4j.tile.crypto.bc.Spec;
+import com.power4j.tile.crypto.core.CipherBlobDetails;
+import com.power4j.tile.crypto.core.StreamCipherDetails;
+import com.power4j.tile.crypto.core.UncheckedCipher;
+import com.power4j.tile.crypto.utils.HmacSm3Util;
+import com.power4j.tile.crypto.utils.Sm3Util;
+import com.power4j.tile.crypto.utils.Sm4Util;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author CJ (power4j@outlook.com)
+ */
+class MetricsRecorderTest {
+
+	private final byte[] testKey = new byte[16];
+
+	private final byte[] testIv = new byte[16];
+
+	@Test
+	void histogramBucketsShouldCoverValue() {
+		long[] values = { 0, 1, 31, 32, 33, 63, 64, 65, 1000, 123_456_789L, Long.MAX_VALUE };
+		for (long value : values) {
+			int index = LatencyHistogram.indexOf(value);
+			long lower = LatencyHistogram.lowerBound(index);
+			long width = LatencyHistogram.bucketWidth(index);
+			Assertions.assertTrue(lower <= value && value - lower < width, "value " + value);
+			Assertions.assertTrue(width == 1 || width <= lower / (LatencyHistogram.HALF_SUB_BUCKETS - 1));
+		}
+	}
+
+	@Test
+	void percentileShouldBeWithinRelativeError() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long i = 1; i <= 10_000; i++) {
+			histogram.record(i * 1000);
+		}
+		Assertions.assertEquals(10_000, histogram.getCount());
+		Assertions.assertEquals(10_000_000, histogram.getMax());
+		assertClose(5_000_000, histogram.valueAtPercentile(50));
+		assertClose(9_900_000, histogram.valueAtPercentile(99));
+		assertClose(10_000_000, histogram.valueAtPercentile(100));
+		histogram.reset();
+		Assertions.assertEquals(0, histogram.valueAtPercentile(99));
+	}
+
+	@Test
+	void concurrentRecordShouldNotLoseUpdates() throws Exception {
+		MetricsRecorder recorder = new MetricsRecorder();
+		OperationMetrics op = recorder.operation("test");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<?>[] futures = new Future<?>[4];
+			for (int t = 0; t < futures.length; t++) {
+				futures[t] = executor.submit(() -> {
+					for (int i = 0; i < 10_000; i++) {
+						op.record(10, ThreadLocalRandom.current().nextLong(1, 1_000_000), i % 100 != 0);
+					}
+				});
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		OperationSnapshot snapshot = recorder.snapshot("test");
+		Assertions.assertEquals(40_000, snapshot.getCount());
+		Assertions.assertEquals(400, snapshot.getFailures());
+		Assertions.assertEquals(400_000, snapshot.getBytes());
+		Assertions.assertTrue(snapshot.getP50() <= snapshot.getP99() && snapshot.getP99() <= snapshot.getMax());
+	}
+
+	@Test
+	void cipherShouldRecordOperations() {
+		MetricsRecorder recorder = new MetricsRecorder();
+		BouncyCastleQuickCipher cipher = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+			.secretKey(testKey)
+			.ivParameter(testIv)
+			.metrics(recorder.prefixed("order"))
+			.build();
+		byte[] plain = "hello".getBytes(StandardCharsets.UTF_8);
+		CipherBlobDetails details = cipher.encrypt(plain);
+		Assertions
+			.assertTrue(cipher.decrypt(UncheckedCipher.of(details.getCipher(), details.getChecksum()), false).isPass());
+		Assertions.assertFalse(cipher.decrypt(UncheckedCipher.of(details.getCipher(), new byte[32]), false).isPass());
+		cipher.decryptAll(cipher.encryptAll(Arrays.asList(plain, plain)), false);
+
+		String name = "order." + cipher.getTransformation();
+		Assertions.assertEquals(1, recorder.snapshot(name + ".encrypt").getCount());
+		Assertions.assertEquals(plain.length, recorder.snapshot(name + ".encrypt").getBytes());
+		OperationSnapshot decrypt = recorder.snapshot(name + ".decrypt");
+		Assertions.assertEquals(2, decrypt.getCount());
+		Assertions.assertEquals(1, decrypt.getFailures());
+		Assertions.assertEquals(2L * plain.length, recorder.snapshot(name + ".encryptAll").getBytes());
+		Assertions.assertEquals(1, recorder.snapshot(name + ".decryptAll").getCount());
+		Assertions.assertEquals(0, recorder.snapshot(name + ".encryptInto").getCount());
+	}
+
+	@Test
+	void cipherShouldRecordBulkOperations() throws Exception {
+		MetricsRecorder recorder = new MetricsRecorder();
+		BouncyCastleQuickCipher cipher = Sm4Util.builderWithVerifySupport(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+			.secretKey(testKey)
+			.ivParameter(testIv)
+			.metrics(recorder)
+			.build();
+		byte[] plain = new byte[100];
+		ByteBuffer encrypted = ByteBuffer.allocate(cipher.encryptOutputSize(plain.length));
+		cipher.encrypt(ByteBuffer.wrap(plain), encrypted);
+		encrypted.flip();
+		cipher.decrypt(encrypted, ByteBuffer.allocate(cipher.decryptOutputSize(encrypted.remaining())));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StreamCipherDetails details = cipher.encrypt(new ByteArrayInputStream(plain), out);
+		Assertions.assertFalse(
+				cipher.decrypt(new ByteArrayInputStream(out.toByteArray()), new ByteArrayOutputStream(), new byte[32])
+					.isPass());
+
+		Path source = Files.createTempFile("tile-crypto", ".bin");
+		Path target = Files.createTempFile("tile-crypto", ".bin");
+		try {
+			Files.write(source, plain);
+			cipher.encrypt(source, target);
+			Assertions.assertTrue(cipher.decrypt(target, source, details.getChecksum()).isPass());
+		}
+		finally {
+			Files.deleteIfExists(source);
+			Files.deleteIfExists(target);
+		}
+
+		String name = cipher.getTransformation();
+		Assertions.assertEquals(plain.length, recorder.snapshot(name + ".encryptBuffer").getBytes());
+		Assertions.assertEquals(1, recorder.snapshot(name + ".decryptBuffer").getCount());
+		Assertions.assertEquals(plain.length, recorder.snapshot(name + ".encryptStream").getBytes());
+		Assertions.assertEquals(1, recorder.snapshot(name + ".decryptStream").getFailures());
+		Assertions.assertEquals(plain.length, recorder.snapshot(name + ".encryptFile").getBytes());
+		OperationSnapshot decryptFile = recorder.snapshot(name + ".decryptFile");
+		Assertions.assertEquals(1, decryptFile.getCount());
+		Assertions.assertEquals(0, decryptFile.getFailures());
+	}
+
+	@Test
+	void utilShouldRecordWhenEnabled() {
+		MetricsRecorder recorder = new MetricsRecorder();
+		byte[] data = new byte[100];
+		byte[] key = new byte[16];
+		Sm3Util.metrics(recorder);
+		HmacSm3Util.metrics(recorder);
+		try {
+			Sm3Util.hash(data, null);
+			Assertions.assertTrue(HmacSm3Util.verify(data, key, HmacSm3Util.sign(data, key)));
+		}
+		finally {
+			Sm3Util.metrics(null);
+			HmacSm3Util.metrics(null);
+		}
+		Sm3Util.hash(data, null);
+		Assertions.assertEquals(1, recorder.snapshot("sm3.hash").getCount());
+		Assertions.assertEquals(100, recorder.snapshot("sm3.hash").getBytes());
+		Assertions.assertEquals(1, recorder.snapshot("hmac-sm3.sign").getCount());
+		Assertions.assertEquals(1, recorder.snapshot("hmac-sm3.verify").getCount());
+		Assertions.assertEquals(0, recorder.snapshot("hmac-sm3.verify").getFailures());
+	}
+
+	private static void assertClose(long expected, long actual) {
+		Assertions.assertTrue(Math.abs(expected - actual) <= expected / LatencyHistogram.HALF_SUB_BUCKETS,
+				"expected " + expected + " but was " + actual);
+	}
+
+}
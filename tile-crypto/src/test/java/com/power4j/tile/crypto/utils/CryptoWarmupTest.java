@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.utils;
+
+import com.power4j.tile.crypto.engine.CipherBackends;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CryptoWarmupTest {
+
+	@Test
+	void runShouldReportAllSteps() {
+		AtomicInteger counter = new AtomicInteger();
+		WarmupReport report = CryptoWarmup.builder()
+			.iterations(10)
+			.payloadSize(100)
+			.backends(CipherBackends.jce(), CipherBackends.sm4())
+			.task("custom", counter::incrementAndGet)
+			.build()
+			.run();
+		Assertions.assertTrue(report.isSuccess(), report::toString);
+		Assertions.assertEquals(10, counter.get());
+		Assertions.assertTrue(report.getSteps().containsKey("provider"));
+		Assertions.assertTrue(report.getSteps().containsKey("services"));
+		Assertions.assertTrue(report.getSteps().containsKey("sm2-curve"));
+		Assertions.assertTrue(report.getSteps().containsKey("sm3"));
+		Assertions.assertTrue(report.getSteps().containsKey("hmac-sm3"));
+		for (String transformation : CryptoWarmup.DEFAULT_TRANSFORMATIONS) {
+			Assertions.assertTrue(report.getSteps().containsKey("jce:" + transformation), transformation);
+		}
+		// sm4 不支持 GCM,跳过
+		Assertions.assertTrue(report.getSteps().containsKey("sm4:SM4/CBC/PKCS7Padding"));
+		Assertions.assertFalse(report.getSteps().containsKey("sm4:SM4/GCM/NoPadding"));
+		Assertions.assertEquals(report.getStartup().plus(report.getWarmup()), report.getTotal());
+	}
+
+	@Test
+	void startShouldRunOnce() {
+		AtomicInteger counter = new AtomicInteger();
+		CryptoWarmup warmup = CryptoWarmup.builder()
+			.iterations(1)
+			.sm2(false)
+			.transformations("SM4/CBC/PKCS7Padding")
+			.task("custom", counter::incrementAndGet)
+			.build();
+		CompletableFuture<WarmupReport> future = warmup.start();
+		Assertions.assertSame(future, warmup.start());
+		WarmupReport report = future.join();
+		Assertions.assertSame(report, warmup.run());
+		Assertions.assertEquals(1, counter.get());
+		Assertions.assertFalse(report.getSteps().containsKey("sm2-curve"));
+	}
+
+	@Test
+	void failedStepShouldNotAbort() {
+		WarmupReport report = CryptoWarmup.builder()
+			.iterations(1)
+			.sm2(false)
+			.transformations("SM4/CBC/PKCS7Padding")
+			.task("broken", () -> {
+				throw new IllegalStateException("boom");
+			})
+			.task("fine", () -> {
+			})
+			.build()
+			.run();
+		Assertions.assertFalse(report.isSuccess());
+		Assertions.assertEquals(1, report.getFailures().size());
+		Assertions.assertTrue(report.getFailures().get("broken").contains("boom"));
+		Assertions.assertTrue(report.getSteps().containsKey("fine"));
+	}
+
+}
@@ -19,9 +19,13 @@ package com.power4j.tile.crypto.utils;
 import com.power4j.tile.crypto.core.encode.HexEncoder;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -85,4 +89,67 @@ class HmacSm3UtilTest {
 				HexEncoder.DEFAULT.decode("a73edc403df55644424c3c49103b93b98fffe37caf937d31706fea967d54c5")));
 	}
 
+	@Test
+	void keyedShouldMatchOneShot() {
+		byte[] data = new byte[1000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 7);
+		}
+		for (int keyLength : new int[] { 0, 13, 64, 65, 100 }) {
+			byte[] key = Arrays.copyOf(HexEncoder.DEFAULT.decode(KEY), keyLength);
+			byte[] expected = HmacSm3Util.sign(data, key);
+			HmacSm3 hmac = HmacSm3Util.keyed(key);
+			assertArrayEquals(expected, hmac.sign(data));
+			// 重复使用线程内的上下文
+			assertArrayEquals(expected, hmac.sign(data));
+
+			byte[] out = new byte[40];
+			assertEquals(HmacSm3Util.HMAC_SM3_BYTES, hmac.sign(data, 0, data.length, out, 3));
+			assertArrayEquals(expected, Arrays.copyOfRange(out, 3, 35));
+
+			ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+			direct.put(data).flip();
+			assertArrayEquals(expected, hmac.sign(direct));
+
+			HmacSm3.Context context = hmac.newContext();
+			context.update(data[0]).update(data, 1, 499).update(ByteBuffer.wrap(data, 500, 500));
+			assertArrayEquals(expected, context.finish());
+			context.update(data, 0, 10);
+			context.reset();
+			assertArrayEquals(expected, context.update(data).finish());
+		}
+	}
+
+	@Test
+	void keyedVerifyIntoCallerBuffer() {
+		byte[] data = HexEncoder.DEFAULT.decode("68656c6c6f");
+		HmacSm3 hmac = HmacSm3.of(HexEncoder.DEFAULT.decode(KEY));
+		byte[] mac = HexEncoder.DEFAULT.decode("a73edc403df55644424c3c49103b93b98fffe37caf937d31706fea967d54c523");
+		assertTrue(hmac.verify(data, mac));
+
+		byte[] frame = new byte[data.length + mac.length];
+		System.arraycopy(data, 0, frame, 0, data.length);
+		System.arraycopy(mac, 0, frame, data.length, mac.length);
+		assertTrue(hmac.verify(frame, 0, data.length, frame, data.length));
+		assertTrue(hmac.newContext().update(data).verify(frame, data.length));
+
+		frame[frame.length - 1] ^= 1;
+		assertFalse(hmac.verify(frame, 0, data.length, frame, data.length));
+		assertFalse(hmac.verify(data, Arrays.copyOf(mac, 31)));
+		assertFalse(hmac.newContext().update(data).verify(mac, 1));
+	}
+
+	@Test
+	void keyedFailureShouldNotAffectNextCall() {
+		byte[] data = HexEncoder.DEFAULT.decode("68656c6c6f");
+		HmacSm3 hmac = HmacSm3.of(HexEncoder.DEFAULT.decode(KEY));
+		byte[] expected = hmac.sign(data);
+
+		assertThrows(IndexOutOfBoundsException.class, () -> hmac.sign(data, 0, data.length, new byte[16], 0));
+		assertArrayEquals(expected, hmac.sign(data));
+		assertThrows(RuntimeException.class, () -> hmac.sign(data, 2, data.length, new byte[32], 0));
+		assertArrayEquals(expected, hmac.sign(data));
+		assertTrue(hmac.verify(data, expected));
+	}
+
 }
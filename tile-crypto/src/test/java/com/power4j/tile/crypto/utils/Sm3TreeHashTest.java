@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author CJ (power4j@outlook.com)
+ * @since 1.9
+ */
+class Sm3TreeHashTest {
+
+	private byte[] randomBytes(int size) {
+		byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * 逐层顺序计算,作为对照
+	 */
+	private byte[] referenceRoot(byte[] data, int leafSize) {
+		int count = Math.max(1, (data.length + leafSize - 1) / leafSize);
+		byte[][] nodes = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			int from = i * leafSize;
+			int to = Math.min(data.length, from + leafSize);
+			byte[] leaf = new byte[to - from + 1];
+			System.arraycopy(data, from, leaf, 1, to - from);
+			nodes[i] = Sm3Util.hash(leaf, null);
+		}
+		while (nodes.length > 1) {
+			byte[][] up = new byte[(nodes.length + 1) / 2][];
+			for (int i = 0; i < up.length; i++) {
+				if (i * 2 + 1 < nodes.length) {
+					byte[] node = new byte[65];
+					node[0] = 1;
+					System.arraycopy(nodes[i * 2], 0, node, 1, 32);
+					System.arraycopy(nodes[i * 2 + 1], 0, node, 33, 32);
+					up[i] = Sm3Util.hash(node, null);
+				}
+				else {
+					up[i] = nodes[i * 2];
+				}
+			}
+			nodes = up;
+		}
+		return nodes[0];
+	}
+
+	@Test
+	void rootShouldMatchReference() {
+		Sm3TreeHash treeHash = Sm3TreeHash.of(1000);
+		for (int size : new int[] { 0, 1, 999, 1000, 1001, 5000, 7777, 64_123 }) {
+			byte[] data = randomBytes(size);
+			Sm3Tree tree = treeHash.hash(data);
+			Assertions.assertArrayEquals(referenceRoot(data, 1000), tree.getRoot(), "size " + size);
+			Assertions.assertEquals(size, tree.getLength());
+			Assertions.assertEquals(Math.max(1, (size + 999) / 1000), tree.getLeafCount());
+			ByteBuffer direct = ByteBuffer.allocateDirect(size);
+			direct.put(data).flip();
+			Assertions.assertArrayEquals(tree.getRoot(), treeHash.hash(direct).getRoot());
+			Assertions.assertEquals(size, direct.remaining());
+		}
+		// 与 SM3 不同
+		byte[] small = randomBytes(10);
+		Assertions.assertFalse(Arrays.equals(Sm3Util.hash(small, null), treeHash.hash(small).getRoot()));
+	}
+
+	@Test
+	void proofShouldVerifySingleLeaf() {
+		byte[] data = randomBytes(10_500);
+		Sm3Tree tree = Sm3TreeHash.of(1000).hash(data);
+		byte[] root = tree.getRoot();
+		for (int i = 0; i < tree.getLeafCount(); i++) {
+			Sm3TreeProof proof = tree.proof(i);
+			int offset = (int) tree.leafOffset(i);
+			int length = tree.leafLength(i);
+			Assertions.assertTrue(proof.verify(root, data, offset, length), "leaf " + i);
+			Assertions.assertTrue(tree.verifyLeaf(i, data, offset, length));
+
+			byte[] tampered = Arrays.copyOfRange(data, offset, offset + length);
+			tampered[0] ^= 1;
+			Assertions.assertFalse(proof.verify(root, tampered));
+			Assertions.assertFalse(tree.verifyLeaf(i, tampered, 0, tampered.length));
+
+			// 序号不匹配
+			Sm3TreeProof wrong = new Sm3TreeProof((i + 1) % tree.getLeafCount(), tree.getLeafCount(),
+					proof.getSiblings());
+			Assertions.assertFalse(wrong.verify(root, data, offset, length));
+		}
+		Assertions.assertThrows(IndexOutOfBoundsException.class, () -> tree.proof(tree.getLeafCount()));
+	}
+
+	@Test
+	void fileShouldMatchMemory(@TempDir Path dir) throws IOException {
+		byte[] data = randomBytes(300_001);
+		Path file = dir.resolve("data.bin");
+		Files.write(file, data);
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			Sm3TreeHash treeHash = Sm3TreeHash.of(4096, pool);
+			Assertions.assertArrayEquals(treeHash.hash(data).getRoot(), treeHash.hash(file).getRoot());
+			Assertions.assertArrayEquals(referenceRoot(data, 4096), treeHash.hash(file).getRoot());
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+}
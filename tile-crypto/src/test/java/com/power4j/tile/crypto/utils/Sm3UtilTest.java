@@ -18,6 +18,13 @@ package com.power4j.tile.crypto.utils;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -82,4 +89,52 @@ class Sm3UtilTest {
 		assertTrue(Sm3Util.verifyHex(plain, hash, salt));
 	}
 
+	@Test
+	void testHashSources() throws IOException {
+		byte[] salt = "salt".getBytes(StandardCharsets.UTF_8);
+		byte[] data = new byte[10_000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 31);
+		}
+		byte[] expected = Sm3Util.hash(data, salt);
+
+		byte[] padded = new byte[data.length + 8];
+		System.arraycopy(data, 0, padded, 5, data.length);
+		assertArrayEquals(expected, Sm3Util.hash(padded, 5, data.length, 0, salt));
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+		direct.put(data).flip();
+		assertArrayEquals(expected, Sm3Util.hash(direct, salt));
+		assertFalse(direct.hasRemaining());
+		assertArrayEquals(expected, Sm3Util.hash(ByteBuffer.wrap(padded, 5, data.length), salt));
+
+		assertArrayEquals(expected, Sm3Util.hash(new ByteArrayInputStream(data), salt));
+
+		byte[] out = new byte[40];
+		assertEquals(40, Sm3Util.hashInto(data, 0, data.length, salt, out, 0, 40));
+		assertArrayEquals(Sm3Util.hash(data, 40, salt), out);
+		assertEquals(16, Sm3Util.hashInto(data, 0, data.length, salt, out, 4, 16));
+		assertArrayEquals(Arrays.copyOf(expected, 16), Arrays.copyOfRange(out, 4, 20));
+
+		assertTrue(Sm3Util.verify(data, expected, salt));
+		assertTrue(Sm3Util.verifyHead(data, Arrays.copyOf(expected, 40), salt));
+		assertFalse(Sm3Util.verify(data, Arrays.copyOf(expected, 31), salt));
+		assertFalse(Sm3Util.verifyHead(data, new byte[0], salt));
+	}
+
+	@Test
+	void testHasher() {
+		byte[] data = "F4A38489E32B45B6".getBytes(StandardCharsets.US_ASCII);
+		Sm3Hasher hasher = Sm3Util.hasher();
+		hasher.update(data[0]).update(data, 1, 7).update(ByteBuffer.wrap(data, 8, 8));
+		byte[] out = new byte[Sm3Util.SM3_BYTES + 2];
+		assertEquals(Sm3Util.SM3_BYTES, hasher.finish(out, 2));
+		assertArrayEquals(Sm3Util.hash(data, null), Arrays.copyOfRange(out, 2, out.length));
+		// finish 之后重置
+		assertArrayEquals(Sm3Util.hash(data, null), hasher.update(data).finish());
+		hasher.update(data);
+		hasher.reset();
+		assertArrayEquals(Sm3Util.hash(new byte[0], null), hasher.finish());
+	}
+
 }
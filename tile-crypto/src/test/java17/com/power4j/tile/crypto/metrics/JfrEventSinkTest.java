@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.power4j.tile.crypto.metrics;
+
+import com.power4j.tile.crypto.bc.BouncyCastleQuickCipher;
+import com.power4j.tile.crypto.bc.Spec;
+import com.power4j.tile.crypto.utils.Sm3Util;
+import com.power4j.tile.crypto.utils.Sm4Util;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class JfrEventSinkTest {
+
+	private final byte[] testKey = new byte[16];
+
+	private final byte[] testIv = new byte[16];
+
+	@Test
+	void noEventWithoutRecording() {
+		Assertions.assertTrue(CryptoEvents.isAvailable());
+		Assertions.assertNull(CryptoEvents.begin(CryptoEventType.OPERATION));
+	}
+
+	@Test
+	void shouldEmitEventsWhileRecording() throws Exception {
+		BouncyCastleQuickCipher cipher = Sm4Util.builder(Spec.MODE_CBC, Spec.PADDING_PKCS7)
+			.secretKey(testKey)
+			.ivParameter(testIv)
+			.build();
+		Path file = Files.createTempFile("tile-crypto", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("com.power4j.tile.crypto.Operation");
+			recording.enable("com.power4j.tile.crypto.Hash");
+			recording.start();
+			cipher.decrypt(cipher.encrypt(new byte[100]).getCipher());
+			Sm3Util.hash(new byte[10], null);
+			recording.stop();
+			recording.dump(file);
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file)
+				.stream()
+				.filter(e -> e.getEventType().getName().startsWith("com.power4j.tile.crypto."))
+				.collect(Collectors.toList());
+			RecordedEvent encrypt = events.stream()
+				.filter(e -> "encrypt".equals(e.getString("operation")))
+				.findFirst()
+				.orElseThrow(AssertionError::new);
+			Assertions.assertEquals(Spec.ALGORITHM_SM4, encrypt.getString("algorithm"));
+			Assertions.assertEquals(Spec.MODE_CBC, encrypt.getString("mode"));
+			Assertions.assertEquals(100, encrypt.getLong("bytes"));
+			Assertions.assertTrue(encrypt.getBoolean("success"));
+			Assertions.assertTrue(events.stream().anyMatch(e -> "decrypt".equals(e.getString("operation"))));
+			RecordedEvent hash = events.stream()
+				.filter(e -> e.getEventType().getName().equals("com.power4j.tile.crypto.Hash"))
+				.findFirst()
+				.orElseThrow(AssertionError::new);
+			Assertions.assertEquals(10, hash.getLong("bytes"));
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}